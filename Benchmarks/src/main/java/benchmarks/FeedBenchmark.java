@@ -0,0 +1,146 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ytharvest.factory.entities.ExtractedEntity;
+import ytharvest.factory.entities.ExtractedFeed;
+import ytharvest.factory.entities.ExtractedVideo;
+import ytharvest.factory.exceptions.FeedExtractionException;
+import ytharvest.factory.filters.EntityPredicate;
+import ytharvest.factory.filters.EntityPredicates;
+import ytharvest.factory.filters.FeedFilter;
+import ytharvest.factory.filters.NullFilter;
+import ytharvest.factory.filters.PredicateFilter;
+import ytharvest.factory.filters.QuantityFilter;
+import ytharvest.factory.filters.VideoFilter;
+
+import com.google.gdata.data.youtube.VideoFeed;
+
+/**
+ * Turning a downloaded page of video feed into entities, and filtering them
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedBenchmark {
+
+	/** Entries per page; 50 is the most YouTube API returns. */
+	@Param({"25", "50"})
+	public int entries;
+
+	private VideoFeed feed;
+	private List<ExtractedEntity> videos;
+	private FeedFilter all;
+	private FeedFilter quantity;
+	private FeedFilter visitor;
+	private FeedFilter predicate;
+
+	@Setup
+	public void setUp() {
+		feed = SyntheticData.videoFeed(entries);
+		videos = SyntheticData.videos(entries);
+		all = new NullFilter();
+		quantity = new QuantityFilter(entries / 2);
+		visitor = new PopularVideoFilter(entries / 4);
+		EntityPredicate<ExtractedVideo> watched = video -> video.getWatchCount() > 500000;
+		EntityPredicate<ExtractedVideo> rated = video -> video.getRating() > 3;
+		predicate = new PredicateFilter<>(ExtractedVideo.class,
+				EntityPredicates.<ExtractedVideo> and(watched, rated), entries / 4);
+	}
+
+	@Benchmark
+	public ExtractedFeed extractFeed() throws FeedExtractionException {
+		return new ExtractedFeed(feed);
+	}
+
+	/**
+	 * A fresh copy of the filter for every page, as FeedDispatcher does
+	 */
+	@Benchmark
+	public FeedFilter filterAll() {
+		return filter(all.copy());
+	}
+
+	@Benchmark
+	public FeedFilter filterQuantity() {
+		return filter(quantity.copy());
+	}
+
+	/**
+	 * A condition written as a visitor, as filters were written before PredicateFilter
+	 */
+	@Benchmark
+	public FeedFilter filterVisitor() {
+		return filter(visitor.copy());
+	}
+
+	@Benchmark
+	public FeedFilter filterPredicate() {
+		return filter(predicate.copy());
+	}
+
+	@Benchmark
+	public FeedFilter filterPredicateCountOnly() {
+		FeedFilter filter = predicate.copy();
+		filter.setRetainRejects(false);
+		return filter(filter);
+	}
+
+	private FeedFilter filter(FeedFilter filter) {
+		for (ExtractedEntity video : videos) {
+			if (!filter.more()) {
+				break;
+			}
+			filter.doFilter(video);
+		}
+		return filter;
+	}
+
+	/**
+	 * Videos watched more than 500000 times and rated above 3, up to a limit
+	 */
+	private static class PopularVideoFilter extends VideoFilter {
+
+		private final int limit;
+
+		PopularVideoFilter(int limit) {
+			this.limit = limit;
+		}
+
+		@Override
+		public ExtractedVideo visit(ExtractedVideo video) {
+			if (getAcceptedCount() < limit && video.getWatchCount() > 500000 && video.getRating() > 3) {
+				accept(video);
+			} else {
+				reject(video);
+			}
+			return video;
+		}
+
+		@Override
+		public boolean more() {
+			return getAcceptedCount() < limit;
+		}
+
+		@Override
+		public FeedFilter copy() {
+			return new PopularVideoFilter(limit);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import logic.Frontier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dto.NodeDto;
+import dto.UserDto;
+
+/**
+ * Queueing nodes in the frontier shared by crawl workers, and taking them out to be expanded
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontierBenchmark {
+
+	private static final int NODES = 1024;
+
+	@State(Scope.Thread)
+	public static class Nodes {
+		UserDto[] users;
+
+		@Setup
+		public void setUp() {
+			users = SyntheticData.users(NODES);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Shared {
+		Frontier frontier = new Frontier();
+	}
+
+	/**
+	 * One worker: queues a level's worth of nodes, then expands them all
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NODES)
+	public int singleWorker(Nodes nodes) throws InterruptedException {
+		Frontier frontier = new Frontier();
+		for (UserDto user : nodes.users) {
+			frontier.add(user);
+		}
+		int taken = 0;
+		NodeDto node;
+		while ((node = frontier.take()) != null) {
+			frontier.done(node);
+			taken++;
+		}
+		return taken;
+	}
+
+	/**
+	 * Four workers sharing one frontier, each queueing a child for every node it takes
+	 */
+	@Benchmark
+	@Threads(4)
+	public NodeDto sharedByWorkers(Shared shared, Nodes nodes) throws InterruptedException {
+		Frontier frontier = shared.frontier;
+		frontier.add(nodes.users[0]);
+		NodeDto node = frontier.take();
+		if (node != null) {
+			frontier.done(node);
+		}
+		return node;
+	}
+}
@@ -0,0 +1,134 @@
+package benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import logic.NodeExpander;
+
+import org.apache.log4j.AsyncAppender;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.LogSampler;
+import dto.UserDto;
+
+/**
+ * Logging a crawled node by 4 workers: the former println to (redirected) stdout, compared with
+ * logging through the asynchronous appender of log4j.xml - every node or a sample of them with debug on,
+ * and only the level check with debug off. Output goes to a temporary file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+	private static final int USERS = 1024;
+
+	@State(Scope.Benchmark)
+	public static class Nodes {
+		UserDto[] users;
+		final AtomicInteger next = new AtomicInteger();
+
+		@Setup
+		public void setUp() {
+			users = SyntheticData.users(USERS);
+		}
+
+		UserDto next() {
+			return users[(next.getAndIncrement() & Integer.MAX_VALUE) % USERS];
+		}
+	}
+
+	/**
+	 * Stdout redirected to a file, buffered and flushed on every line like System.out
+	 */
+	@State(Scope.Benchmark)
+	public static class Stdout {
+		File file;
+		PrintStream out;
+
+		@Setup
+		public void setUp() throws IOException {
+			file = File.createTempFile("stdout", ".log");
+			out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file), 128), true);
+		}
+
+		@TearDown
+		public void tearDown() {
+			out.close();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Node logger writing through an asynchronous appender, as configured in log4j.xml
+	 */
+	@State(Scope.Benchmark)
+	public static class Log {
+		/**
+		 * Every how many nodes one is logged, 0 for debug off
+		 */
+		@Param({"0", "1", "100"})
+		int sample;
+
+		File file;
+		AsyncAppender async;
+
+		@Setup
+		public void setUp() throws IOException {
+			file = File.createTempFile("crawler", ".log");
+			FileAppender appender = new FileAppender(new PatternLayout("%d{ABSOLUTE} %5p %c{1} - %m%n"),
+					file.getPath(), false, true, 8192);
+			async = new AsyncAppender();
+			async.setBufferSize(8192);
+			async.setBlocking(false);
+			async.addAppender(appender);
+			Logger logger = Logger.getLogger(NodeExpander.class);
+			logger.removeAllAppenders();
+			logger.setAdditivity(false);
+			logger.addAppender(async);
+			logger.setLevel(sample == 0 ? Level.INFO : Level.DEBUG);
+			LogSampler.configure(sample);
+		}
+
+		@TearDown
+		public void tearDown() {
+			async.close();
+			file.delete();
+		}
+	}
+
+	@Benchmark
+	public void println(Nodes nodes, Stdout stdout) {
+		UserDto user = nodes.next();
+		stdout.out.println("Obtaining " + "follower" + " : \n" + user.toString() + "at level " + 2 + "\n");
+	}
+
+	@Benchmark
+	public void logNode(Nodes nodes, Log log) {
+		NodeExpander.logNode("follower", nodes.next(), 2);
+	}
+}
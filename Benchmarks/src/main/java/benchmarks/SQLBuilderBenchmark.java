@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import postgresDB.SQLBuilder;
+import dto.TweetDto;
+import dto.UserDto;
+
+/**
+ * Building INSERT statements for a batch of crawled users and tweets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SQLBuilderBenchmark {
+
+	@Param({"1000"})
+	public int batch;
+
+	private UserDto[] users;
+	private TweetDto[] tweets;
+
+	@Setup
+	public void setUp() {
+		users = SyntheticData.users(batch);
+		tweets = SyntheticData.tweets(batch);
+	}
+
+	@Benchmark
+	public String users() {
+		SQLBuilder builder = new SQLBuilder();
+		for (int i = 0; i < users.length; i++) {
+			builder.prepareSQL(users[i], null, i, "followers_id");
+		}
+		return builder.getSQL();
+	}
+
+	@Benchmark
+	public String tweets() {
+		SQLBuilder builder = new SQLBuilder();
+		for (int i = 0; i < tweets.length; i++) {
+			builder.prepareSQL(tweets[i], null, 0, "has_tweets_id");
+		}
+		return builder.getSQL();
+	}
+}
@@ -0,0 +1,158 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ytharvest.factory.entities.ExtractedEntity;
+import ytharvest.factory.entities.ExtractedFeed;
+import ytharvest.factory.exceptions.FeedExtractionException;
+
+import com.google.gdata.data.DateTime;
+import com.google.gdata.data.Link;
+import com.google.gdata.data.PlainTextConstruct;
+import com.google.gdata.data.extensions.Comments;
+import com.google.gdata.data.extensions.FeedLink;
+import com.google.gdata.data.extensions.Rating;
+import com.google.gdata.data.media.mediarss.MediaCategory;
+import com.google.gdata.data.media.mediarss.MediaDescription;
+import com.google.gdata.data.media.mediarss.MediaKeywords;
+import com.google.gdata.data.youtube.VideoEntry;
+import com.google.gdata.data.youtube.VideoFeed;
+import com.google.gdata.data.youtube.YouTubeMediaGroup;
+import com.google.gdata.data.youtube.YouTubeNamespace;
+import com.google.gdata.data.youtube.YtStatistics;
+
+import dto.TweetDto;
+import dto.UserDto;
+
+/**
+ * Synthetic input for benchmarks, the same for every run (fixed random seed)
+ */
+public class SyntheticData {
+
+	private static final String[] WORDS = {"crawl", "twitter", "java", "graph", "it's", "don't", "#bigdata",
+			"@michal3141", "http://t.co/abc123", "zażółć", "gęślą",
+			"日本語", "😀", "👍🏽", "jazną"};
+	private static final String[] LANGS = {"en", "es", "ja", "pt", "pl"};
+	private static final String[] CATEGORIES = {"Music", "Comedy", "Education", "Gaming", "Sports"};
+
+	private static final Random random = new Random(42);
+
+	private SyntheticData() {
+	}
+
+	/**
+	 * @return texts of tweets - up to 140 characters, with apostrophes, URLs, mentions, Polish letters,
+	 * CJK and emoji (surrogate pairs)
+	 */
+	public static String[] tweetTexts(int count) {
+		String[] texts = new String[count];
+		for (int i = 0; i < count; i++) {
+			StringBuilder sb = new StringBuilder();
+			while (sb.length() < 140) {
+				String word = WORDS[random.nextInt(WORDS.length)];
+				if (sb.length() + word.length() + 1 > 140) {
+					break;
+				}
+				sb.append(word).append(' ');
+			}
+			texts[i] = sb.toString();
+		}
+		return texts;
+	}
+
+	public static UserDto[] users(int count) {
+		UserDto[] users = new UserDto[count];
+		for (int i = 0; i < count; i++) {
+			UserDto user = new UserDto();
+			user.setUserId(random.nextInt(Integer.MAX_VALUE));
+			user.setName("user" + user.getUserId());
+			user.setLang(LANGS[random.nextInt(LANGS.length)]);
+			users[i] = user;
+		}
+		return users;
+	}
+
+	public static TweetDto[] tweets(int count) {
+		String[] texts = tweetTexts(count);
+		TweetDto[] tweets = new TweetDto[count];
+		for (int i = 0; i < count; i++) {
+			TweetDto tweet = new TweetDto();
+			tweet.setTweetId(random.nextLong() >>> 1);
+			tweet.setParentId(random.nextInt(Integer.MAX_VALUE));
+			tweet.setText(texts[i]);
+			tweets[i] = tweet;
+		}
+		return tweets;
+	}
+
+	/**
+	 * @return page of video feed, with all the fields the harvester extracts filled in
+	 */
+	public static VideoFeed videoFeed(int entries) {
+		VideoFeed feed = new VideoFeed();
+		String base = "http://gdata.youtube.com/feeds/api/users/synthetic/uploads";
+		feed.addLink(new Link(Link.Rel.SELF, "application/atom+xml", base));
+		feed.addLink(new Link(Link.Rel.NEXT, "application/atom+xml", base + "?start-index=" + (entries + 1)));
+		feed.setItemsPerPage(entries);
+		String[] texts = tweetTexts(entries);
+		for (int i = 0; i < entries; i++) {
+			String id = "v" + Long.toString(random.nextLong() >>> 1, 36);
+			VideoEntry entry = new VideoEntry();
+			entry.setId("tag:youtube.com,2008:video:" + id);
+			entry.setTitle(new PlainTextConstruct(texts[i]));
+			entry.setPublished(new DateTime(1357000000000L + random.nextInt(1000000000), 0));
+			entry.setUpdated(new DateTime(1360000000000L + random.nextInt(1000000000), 0));
+
+			YouTubeMediaGroup media = new YouTubeMediaGroup();
+			media.setVideoId(id);
+			media.setUploader("synthetic");
+			MediaDescription description = new MediaDescription();
+			description.setPlainTextContent(texts[(i + 1) % entries]);
+			media.setDescription(description);
+			MediaKeywords keywords = new MediaKeywords();
+			for (int k = 0; k < 5; k++) {
+				keywords.addKeyword(WORDS[random.nextInt(WORDS.length)]);
+			}
+			media.setKeywords(keywords);
+			MediaCategory category = new MediaCategory(YouTubeNamespace.CATEGORY_SCHEME,
+					CATEGORIES[random.nextInt(CATEGORIES.length)]);
+			category.setLabel(category.getContent());
+			media.addCategory(category);
+			entry.setExtension(media);
+
+			Rating rating = new Rating();
+			rating.setMin(1);
+			rating.setMax(5);
+			rating.setAverage(1 + random.nextFloat() * 4);
+			rating.setNumRaters(random.nextInt(10000));
+			entry.setRating(rating);
+			YtStatistics statistics = new YtStatistics();
+			statistics.setViewCount(random.nextInt(1000000));
+			statistics.setFavoriteCount(random.nextInt(10000));
+			entry.setStatistics(statistics);
+			Comments comments = new Comments();
+			FeedLink<?> commentsLink = new FeedLink<>();
+			commentsLink.setHref("http://gdata.youtube.com/feeds/api/videos/" + id + "/comments");
+			commentsLink.setCountHint(random.nextInt(1000));
+			comments.setFeedLink(commentsLink);
+			entry.setComments(comments);
+			entry.addLink(YouTubeNamespace.RESPONSES_REL, "application/atom+xml",
+					"http://gdata.youtube.com/feeds/api/videos/" + id + "/responses");
+			feed.getEntries().add(entry);
+		}
+		return feed;
+	}
+
+	/**
+	 * @return entities extracted from a synthetic video feed
+	 */
+	public static List<ExtractedEntity> videos(int count) {
+		try {
+			return new ArrayList<ExtractedEntity>(new ExtractedFeed(videoFeed(count)).getEntities());
+		} catch (FeedExtractionException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
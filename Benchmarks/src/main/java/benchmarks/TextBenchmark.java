@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import utils.Text;
+
+/**
+ * Preparing text of tweets for the database, compared with the former substring and replaceAll version
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+
+	private static final int TEXTS = 1024;
+
+	private String[] texts;
+
+	@Setup
+	public void setUp() {
+		texts = SyntheticData.tweetTexts(TEXTS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TEXTS)
+	public void processText(Blackhole bh) {
+		for (String text : texts) {
+			bh.consume(Text.processText(text));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TEXTS)
+	public void replaceAll(Blackhole bh) {
+		for (String text : texts) {
+			bh.consume(replaceAll(text));
+		}
+	}
+
+	/**
+	 * Text.processText before it was rewritten
+	 */
+	private static String replaceAll(String text) {
+		text = (text.length() > 63) ? text.substring(0, 63) : text;
+		text = text.replaceAll("'", "");
+		return text;
+	}
+}
@@ -0,0 +1,240 @@
+package checkpoint;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary checkpoint file. Every checkpoint appends two frames: ids visited since
+ * the previous checkpoint and the current crawl state. The newest state frame and all visited
+ * frames together describe the crawl, so every few checkpoints the file is compacted into one
+ * frame of each kind (written aside and renamed over the old file).
+ * Each frame is [type][length][payload][CRC32 of payload]; a frame torn by a crash is ignored,
+ * and cut off before the file is appended to again.
+ */
+public class CheckpointFile {
+
+	private static final byte VISITED = 1;
+	private static final byte STATE = 2;
+
+	/**
+	 * How many states may be appended before the file is compacted
+	 */
+	public static final int COMPACT_EVERY = 20;
+
+	private final File file;
+	private FileOutputStream out;
+	private int states;
+
+	public CheckpointFile(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Appends one checkpoint
+	 * @param visitedUsers user ids visited since the previous checkpoint
+	 * @param visitedTweets tweet ids visited since the previous checkpoint
+	 */
+	public synchronized void append(long[] visitedUsers, long[] visitedTweets, CrawlState state) throws IOException {
+		if (out == null) {
+			truncateTornFrame();
+			out = new FileOutputStream(file, true);
+		}
+		if (visitedUsers.length > 0 || visitedTweets.length > 0) {
+			writeFrame(out, VISITED, visitedFrame(visitedUsers, visitedTweets));
+		}
+		writeFrame(out, STATE, stateFrame(state));
+		out.getFD().sync();
+		if (++states >= COMPACT_EVERY) {
+			compact();
+		}
+	}
+
+	public synchronized void close() {
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			out = null;
+		}
+	}
+
+	/**
+	 * @return crawl state made of the newest state and all visited ids, or null if there is no
+	 * (readable) checkpoint in the file
+	 */
+	public static CrawlState load(File file) throws IOException {
+		if (!file.exists()) {
+			return null;
+		}
+		CrawlState state = null;
+		LongList users = new LongList();
+		LongList tweets = new LongList();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			while (true) {
+				byte type;
+				try {
+					type = in.readByte();
+				} catch (EOFException e) {
+					break;
+				}
+				byte[] payload = readFrame(in);
+				if (payload == null) {
+					System.out.println("Checkpoint file " + file + " ends with a broken frame, ignoring it.");
+					break;
+				}
+				DataInputStream frame = new DataInputStream(new ByteArrayInputStream(payload));
+				if (type == VISITED) {
+					readIds(frame, users);
+					readIds(frame, tweets);
+				} else if (type == STATE) {
+					state = new CrawlState();
+					state.readFrom(frame);
+				}
+			}
+		}
+		if (state != null) {
+			state.setVisitedUsers(users.toArray());
+			state.setVisitedTweets(tweets.toArray());
+		}
+		return state;
+	}
+
+	/**
+	 * Cuts off a frame torn by a crash, so that frames appended after it can be read
+	 */
+	private void truncateTornFrame() throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		long intact = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			while (true) {
+				try {
+					in.readByte();
+				} catch (EOFException e) {
+					break;
+				}
+				byte[] payload = readFrame(in);
+				if (payload == null) {
+					break;
+				}
+				intact += payload.length + 9;
+			}
+		}
+		if (intact < file.length()) {
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.setLength(intact);
+			}
+		}
+	}
+
+	/**
+	 * Rewrites the file as one visited frame and the newest state frame
+	 */
+	private void compact() throws IOException {
+		close();
+		CrawlState state = load(file);
+		File tmp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream compacted = new FileOutputStream(tmp)) {
+			writeFrame(compacted, VISITED, visitedFrame(state.getVisitedUsers(), state.getVisitedTweets()));
+			writeFrame(compacted, STATE, stateFrame(state));
+			compacted.getFD().sync();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		states = 0;
+	}
+
+	private static byte[] visitedFrame(long[] users, long[] tweets) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 * (users.length + tweets.length) + 8);
+		DataOutputStream frame = new DataOutputStream(bytes);
+		writeIds(frame, users);
+		writeIds(frame, tweets);
+		return bytes.toByteArray();
+	}
+
+	private static byte[] stateFrame(CrawlState state) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		state.writeTo(new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+
+	private static void writeFrame(FileOutputStream out, byte type, byte[] payload) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 13);
+		DataOutputStream frame = new DataOutputStream(bytes);
+		frame.writeByte(type);
+		frame.writeInt(payload.length);
+		frame.write(payload);
+		frame.writeInt((int) crc.getValue());
+		out.write(bytes.toByteArray());
+	}
+
+	/**
+	 * @return payload of the frame, or null if it is incomplete or corrupted
+	 */
+	private static byte[] readFrame(DataInputStream in) throws IOException {
+		try {
+			int length = in.readInt();
+			if (length < 0 || length > in.available()) {
+				return null;
+			}
+			byte[] payload = new byte[length];
+			in.readFully(payload);
+			int expected = in.readInt();
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			return (int) crc.getValue() == expected ? payload : null;
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	private static void writeIds(DataOutputStream out, long[] ids) throws IOException {
+		out.writeInt(ids.length);
+		for (long id : ids) {
+			out.writeLong(id);
+		}
+	}
+
+	private static void readIds(DataInputStream in, LongList ids) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			ids.add(in.readLong());
+		}
+	}
+
+	/**
+	 * Growable array of primitive longs
+	 */
+	private static class LongList {
+		private long[] values = new long[1024];
+		private int size;
+
+		void add(long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
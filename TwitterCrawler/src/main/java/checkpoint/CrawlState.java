@@ -0,0 +1,175 @@
+package checkpoint;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import dto.NodeDto;
+import dto.TweetDto;
+import dto.UserDto;
+
+/**
+ * Everything needed to continue a crawl: nodes still to expand (with their level and progress),
+ * ids of visited users and tweets, level being expanded and last ids given to nodes
+ * (rows already written refer to them)
+ */
+public class CrawlState {
+
+	private static final byte USER = 'U';
+	private static final byte TWEET = 'T';
+
+	private int depth;
+	private long lastUserId;
+	private long lastTweetId;
+	private List<NodeDto> frontier = new ArrayList<>();
+	/**
+	 * Progress of frontier nodes when the frontier was set - nodes being expanded go on changing theirs
+	 */
+	private int[] steps = new int[0];
+	private long[] cursors = new long[0];
+	private long[] visitedUsers = new long[0];
+	private long[] visitedTweets = new long[0];
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	public long getLastUserId() {
+		return lastUserId;
+	}
+
+	public void setLastUserId(long lastUserId) {
+		this.lastUserId = lastUserId;
+	}
+
+	public long getLastTweetId() {
+		return lastTweetId;
+	}
+
+	public void setLastTweetId(long lastTweetId) {
+		this.lastTweetId = lastTweetId;
+	}
+
+	public List<NodeDto> getFrontier() {
+		return frontier;
+	}
+
+	/**
+	 * Sets nodes to expand, recording their progress as it is now
+	 */
+	public void setFrontier(List<NodeDto> frontier) {
+		this.frontier = frontier;
+		steps = new int[frontier.size()];
+		cursors = new long[frontier.size()];
+		for (int i = 0; i < steps.length; i++) {
+			NodeDto node = frontier.get(i);
+			cursors[i] = node.getCursor();
+			steps[i] = node.getStep();
+		}
+	}
+
+	public long[] getVisitedUsers() {
+		return visitedUsers;
+	}
+
+	public void setVisitedUsers(long[] visitedUsers) {
+		this.visitedUsers = visitedUsers;
+	}
+
+	public long[] getVisitedTweets() {
+		return visitedTweets;
+	}
+
+	public void setVisitedTweets(long[] visitedTweets) {
+		this.visitedTweets = visitedTweets;
+	}
+
+	/**
+	 * Writes everything but visited ids, which are written separately as they are added
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(depth);
+		out.writeLong(lastUserId);
+		out.writeLong(lastTweetId);
+		out.writeInt(frontier.size());
+		for (int i = 0; i < frontier.size(); i++) {
+			writeNode(out, frontier.get(i), steps[i], cursors[i]);
+		}
+	}
+
+	void readFrom(DataInput in) throws IOException {
+		depth = in.readInt();
+		lastUserId = in.readLong();
+		lastTweetId = in.readLong();
+		int size = in.readInt();
+		List<NodeDto> nodes = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			nodes.add(readNode(in));
+		}
+		setFrontier(nodes);
+	}
+
+	private static void writeNode(DataOutput out, NodeDto node, int step, long cursor) throws IOException {
+		if (node instanceof UserDto) {
+			UserDto user = (UserDto) node;
+			out.writeByte(USER);
+			out.writeLong(user.getId());
+			out.writeLong(user.getUserId());
+			writeString(out, user.getName());
+			writeString(out, user.getLang());
+		} else {
+			TweetDto tweet = (TweetDto) node;
+			out.writeByte(TWEET);
+			out.writeLong(tweet.getId());
+			out.writeLong(tweet.getTweetId());
+			out.writeLong(tweet.getParentId());
+			writeString(out, tweet.getText());
+		}
+		out.writeInt(node.getLevel());
+		out.writeInt(step);
+		out.writeLong(cursor);
+	}
+
+	private static NodeDto readNode(DataInput in) throws IOException {
+		NodeDto node;
+		byte type = in.readByte();
+		if (type == USER) {
+			UserDto user = new UserDto();
+			user.setId(in.readLong());
+			user.setUserId(in.readLong());
+			user.setName(readString(in));
+			user.setLang(readString(in));
+			node = user;
+		} else if (type == TWEET) {
+			TweetDto tweet = new TweetDto();
+			tweet.setId(in.readLong());
+			tweet.setTweetId(in.readLong());
+			tweet.setParentId(in.readLong());
+			tweet.setText(readString(in));
+			node = tweet;
+		} else {
+			throw new IOException("Unknown node type: " + type);
+		}
+		node.setLevel(in.readInt());
+		int step = in.readInt();
+		node.setProgress(step, in.readLong());
+		return node;
+	}
+
+	private static void writeString(DataOutput out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -0,0 +1,70 @@
+package checkpoint;
+
+import java.util.Arrays;
+
+import visited.IVisitedSet;
+
+/**
+ * Visited set remembering ids added since the last checkpoint, so that only they
+ * have to be appended to the checkpoint file
+ */
+public class RecordingVisitedSet implements IVisitedSet {
+
+	private final IVisitedSet delegate;
+	private long[] added = new long[256];
+	private int count;
+
+	public RecordingVisitedSet(IVisitedSet delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public synchronized boolean visit(long id) {
+		if (!delegate.visit(id)) {
+			return false;
+		}
+		if (count == added.length) {
+			added = Arrays.copyOf(added, count * 2);
+		}
+		added[count++] = id;
+		return true;
+	}
+
+	/**
+	 * @return ids visited since the previous call
+	 */
+	public synchronized long[] drain() {
+		long[] result = Arrays.copyOf(added, count);
+		count = 0;
+		return result;
+	}
+
+	@Override
+	public boolean contains(long id) {
+		return delegate.contains(id);
+	}
+
+	@Override
+	public long size() {
+		return delegate.size();
+	}
+
+	@Override
+	public long getLookups() {
+		return delegate.getLookups();
+	}
+
+	@Override
+	public long getHits() {
+		return delegate.getHits();
+	}
+
+	@Override
+	public double getHitRate() {
+		return delegate.getHitRate();
+	}
+
+	public String toString() {
+		return delegate.toString();
+	}
+}
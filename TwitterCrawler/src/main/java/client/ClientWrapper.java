@@ -0,0 +1,34 @@
+package client;
+
+/**
+ * Client adding something to every call of the client it wraps, e.g. publishing or measuring it
+ */
+public abstract class ClientWrapper implements ITwitterClient {
+
+	protected final ITwitterClient client;
+
+	public ClientWrapper(ITwitterClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * @return wrapped client
+	 */
+	public ITwitterClient getClient() {
+		return client;
+	}
+
+	/**
+	 * @return first client of given type, unwrapping wrappers on the way, or null if there is none
+	 */
+	public static <T extends ITwitterClient> T unwrap(ITwitterClient client, Class<T> type) {
+		while (!type.isInstance(client) && client instanceof ClientWrapper) {
+			client = ((ClientWrapper) client).getClient();
+		}
+		return type.isInstance(client) ? type.cast(client) : null;
+	}
+
+	public String toString() {
+		return client.toString();
+	}
+}
@@ -0,0 +1,36 @@
+package client;
+
+import java.util.List;
+
+import dto.TweetDto;
+import dto.UserDto;
+import exceptions.ClientException;
+
+/**
+ * Twitter API calls made by the crawler. Users come with their Twitter id, screen name and language;
+ * tweets with their Twitter id, text as it was tweeted and author when the response includes it.
+ * Cursors start at -1, and 0 means there are no more pages.
+ * Implementations have to be safe to use from many threads at once. They do not take tokens
+ * from rate limit buckets - callers do.
+ */
+public interface ITwitterClient {
+	public UserDto showUser(String screenName) throws ClientException;
+	public Page<UserDto> getFollowers(String screenName, long cursor) throws ClientException;
+	public Page<UserDto> getFriends(String screenName, long cursor) throws ClientException;
+	public IdPage getFollowersIds(String screenName, long cursor) throws ClientException;
+	public IdPage getFriendsIds(String screenName, long cursor) throws ClientException;
+	/**
+	 * @param ids up to 100 ids - ids of users that do not exist are skipped
+	 */
+	public List<UserDto> lookupUsers(long[] ids) throws ClientException;
+	public List<TweetDto> getTimeline(String screenName) throws ClientException;
+	/**
+	 * @return recent tweets mentioning the authenticated user
+	 */
+	public List<TweetDto> getMentions() throws ClientException;
+	public List<TweetDto> getRetweets(long tweetId) throws ClientException;
+	/**
+	 * @return recent tweets matching the query, newest first
+	 */
+	public Page<TweetDto> search(String query, long cursor) throws ClientException;
+}
@@ -0,0 +1,26 @@
+package client;
+
+/**
+ * One page of a cursored list of user ids, kept unboxed since it holds up to 5000 of them
+ */
+public class IdPage {
+
+	private final long[] ids;
+	private final long nextCursor;
+
+	/**
+	 * @param nextCursor cursor of the next page, 0 if this is the last one
+	 */
+	public IdPage(long[] ids, long nextCursor) {
+		this.ids = ids;
+		this.nextCursor = nextCursor;
+	}
+
+	public long[] getIds() {
+		return ids;
+	}
+
+	public long getNextCursor() {
+		return nextCursor;
+	}
+}
@@ -0,0 +1,162 @@
+package client;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ytharvest.metrics.Histogram;
+import ytharvest.metrics.Metrics;
+import dto.TweetDto;
+import dto.UserDto;
+import exceptions.ClientException;
+
+/**
+ * Client measuring every call to the client it wraps: its time goes to "twitter.&lt;call&gt;" histogram,
+ * failed calls are counted in "twitter.errors" and those refused because of rate limit in "twitter.rateLimited"
+ */
+public class MeteredClient extends ClientWrapper {
+
+	private final Histogram showUserTime = Metrics.histogram("twitter.showUser");
+	private final Histogram getFollowersTime = Metrics.histogram("twitter.getFollowers");
+	private final Histogram getFriendsTime = Metrics.histogram("twitter.getFriends");
+	private final Histogram getFollowersIdsTime = Metrics.histogram("twitter.getFollowersIds");
+	private final Histogram getFriendsIdsTime = Metrics.histogram("twitter.getFriendsIds");
+	private final Histogram lookupUsersTime = Metrics.histogram("twitter.lookupUsers");
+	private final Histogram getTimelineTime = Metrics.histogram("twitter.getTimeline");
+	private final Histogram getMentionsTime = Metrics.histogram("twitter.getMentions");
+	private final Histogram getRetweetsTime = Metrics.histogram("twitter.getRetweets");
+	private final Histogram searchTime = Metrics.histogram("twitter.search");
+	private final AtomicLong errors = Metrics.counter("twitter.errors");
+	private final AtomicLong rateLimited = Metrics.counter("twitter.rateLimited");
+
+	public MeteredClient(ITwitterClient client) {
+		super(client);
+	}
+
+	@Override
+	public UserDto showUser(String screenName) throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.showUser(screenName);
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			showUserTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public Page<UserDto> getFollowers(String screenName, long cursor) throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.getFollowers(screenName, cursor);
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			getFollowersTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public Page<UserDto> getFriends(String screenName, long cursor) throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.getFriends(screenName, cursor);
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			getFriendsTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public IdPage getFollowersIds(String screenName, long cursor) throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.getFollowersIds(screenName, cursor);
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			getFollowersIdsTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public IdPage getFriendsIds(String screenName, long cursor) throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.getFriendsIds(screenName, cursor);
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			getFriendsIdsTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public List<UserDto> lookupUsers(long[] ids) throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.lookupUsers(ids);
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			lookupUsersTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public List<TweetDto> getTimeline(String screenName) throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.getTimeline(screenName);
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			getTimelineTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public List<TweetDto> getMentions() throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.getMentions();
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			getMentionsTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public List<TweetDto> getRetweets(long tweetId) throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.getRetweets(tweetId);
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			getRetweetsTime.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public Page<TweetDto> search(String query, long cursor) throws ClientException {
+		long start = System.nanoTime();
+		try {
+			return client.search(query, cursor);
+		} catch (ClientException e) {
+			throw failed(e);
+		} finally {
+			searchTime.record(System.nanoTime() - start);
+		}
+	}
+
+	private ClientException failed(ClientException e) {
+		errors.incrementAndGet();
+		if (e.isRateLimited()) {
+			rateLimited.incrementAndGet();
+		}
+		return e;
+	}
+}
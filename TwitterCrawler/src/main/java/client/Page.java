@@ -0,0 +1,38 @@
+package client;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * One page of a cursored list
+ */
+public class Page<T> implements Iterable<T> {
+
+	private final List<T> items;
+	private final long nextCursor;
+
+	/**
+	 * @param nextCursor cursor of the next page, 0 if this is the last one
+	 */
+	public Page(List<T> items, long nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public long getNextCursor() {
+		return nextCursor;
+	}
+
+	public int size() {
+		return items.size();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return items.iterator();
+	}
+}
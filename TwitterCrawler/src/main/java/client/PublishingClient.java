@@ -0,0 +1,120 @@
+package client;
+
+import java.util.List;
+
+import publishers.EventBus;
+import dto.TweetDto;
+import dto.UserDto;
+import events.RateLimitedEvent;
+import exceptions.ClientException;
+
+/**
+ * Client publishing {@link RateLimitedEvent} whenever a call to the client it wraps is refused
+ * because of rate limit. Errors are passed on to the caller unchanged.
+ */
+public class PublishingClient extends ClientWrapper {
+
+	private final EventBus bus;
+
+	public PublishingClient(ITwitterClient client, EventBus bus) {
+		super(client);
+		this.bus = bus;
+	}
+
+	@Override
+	public UserDto showUser(String screenName) throws ClientException {
+		try {
+			return client.showUser(screenName);
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	@Override
+	public Page<UserDto> getFollowers(String screenName, long cursor) throws ClientException {
+		try {
+			return client.getFollowers(screenName, cursor);
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	@Override
+	public Page<UserDto> getFriends(String screenName, long cursor) throws ClientException {
+		try {
+			return client.getFriends(screenName, cursor);
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	@Override
+	public IdPage getFollowersIds(String screenName, long cursor) throws ClientException {
+		try {
+			return client.getFollowersIds(screenName, cursor);
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	@Override
+	public IdPage getFriendsIds(String screenName, long cursor) throws ClientException {
+		try {
+			return client.getFriendsIds(screenName, cursor);
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	@Override
+	public List<UserDto> lookupUsers(long[] ids) throws ClientException {
+		try {
+			return client.lookupUsers(ids);
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	@Override
+	public List<TweetDto> getTimeline(String screenName) throws ClientException {
+		try {
+			return client.getTimeline(screenName);
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	@Override
+	public List<TweetDto> getMentions() throws ClientException {
+		try {
+			return client.getMentions();
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	@Override
+	public List<TweetDto> getRetweets(long tweetId) throws ClientException {
+		try {
+			return client.getRetweets(tweetId);
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	@Override
+	public Page<TweetDto> search(String query, long cursor) throws ClientException {
+		try {
+			return client.search(query, cursor);
+		} catch (ClientException e) {
+			throw published(e);
+		}
+	}
+
+	private ClientException published(ClientException e) {
+		if (e.isRateLimited()) {
+			bus.publishAll(new RateLimitedEvent(e.getMessage(), bus, e.getStatusCode(), e.getRetryAfter()));
+		}
+		return e;
+	}
+}
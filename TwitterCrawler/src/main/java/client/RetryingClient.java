@@ -0,0 +1,201 @@
+package client;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ytharvest.throttle.CircuitOpenException;
+import ytharvest.throttle.RetryPolicy;
+import ytharvest.throttle.RetryPolicy.Failure;
+import dto.TweetDto;
+import dto.UserDto;
+import enums.Endpoint;
+import exceptions.ClientException;
+
+/**
+ * Client retrying calls to the client it wraps, as decided by the {@link RetryPolicy} of the
+ * called endpoint. A call refused because of rate limit pauses the endpoint's bucket until the
+ * limit is reset (Retry-After, or the reset time of the rate limit status), so other threads do
+ * not waste calls either; server and network errors are retried after a growing delay, within
+ * the retry budget. A call refused by the open circuit of the endpoint pauses the bucket and waits
+ * until the circuit lets a trial call through. Other errors, and errors that are not retried any
+ * more, are passed on to the caller unchanged. The caller takes a token for the first attempt,
+ * this client for every retry.
+ */
+public class RetryingClient extends ClientWrapper {
+
+	private static final Logger log = LoggerFactory.getLogger(RetryingClient.class);
+
+	public RetryingClient(ITwitterClient client) {
+		super(client);
+	}
+
+	@Override
+	public UserDto showUser(final String screenName) throws ClientException {
+		return call(Endpoint.USERS, new Call<UserDto>() {
+			@Override
+			public UserDto call() throws ClientException {
+				return client.showUser(screenName);
+			}
+		});
+	}
+
+	@Override
+	public Page<UserDto> getFollowers(final String screenName, final long cursor) throws ClientException {
+		return call(Endpoint.FOLLOWERS, new Call<Page<UserDto>>() {
+			@Override
+			public Page<UserDto> call() throws ClientException {
+				return client.getFollowers(screenName, cursor);
+			}
+		});
+	}
+
+	@Override
+	public Page<UserDto> getFriends(final String screenName, final long cursor) throws ClientException {
+		return call(Endpoint.FRIENDS, new Call<Page<UserDto>>() {
+			@Override
+			public Page<UserDto> call() throws ClientException {
+				return client.getFriends(screenName, cursor);
+			}
+		});
+	}
+
+	@Override
+	public IdPage getFollowersIds(final String screenName, final long cursor) throws ClientException {
+		return call(Endpoint.FOLLOWERS, new Call<IdPage>() {
+			@Override
+			public IdPage call() throws ClientException {
+				return client.getFollowersIds(screenName, cursor);
+			}
+		});
+	}
+
+	@Override
+	public IdPage getFriendsIds(final String screenName, final long cursor) throws ClientException {
+		return call(Endpoint.FRIENDS, new Call<IdPage>() {
+			@Override
+			public IdPage call() throws ClientException {
+				return client.getFriendsIds(screenName, cursor);
+			}
+		});
+	}
+
+	@Override
+	public List<UserDto> lookupUsers(final long[] ids) throws ClientException {
+		return call(Endpoint.USERS, new Call<List<UserDto>>() {
+			@Override
+			public List<UserDto> call() throws ClientException {
+				return client.lookupUsers(ids);
+			}
+		});
+	}
+
+	@Override
+	public List<TweetDto> getTimeline(final String screenName) throws ClientException {
+		return call(Endpoint.TIMELINE, new Call<List<TweetDto>>() {
+			@Override
+			public List<TweetDto> call() throws ClientException {
+				return client.getTimeline(screenName);
+			}
+		});
+	}
+
+	@Override
+	public List<TweetDto> getMentions() throws ClientException {
+		return call(Endpoint.MENTIONS, new Call<List<TweetDto>>() {
+			@Override
+			public List<TweetDto> call() throws ClientException {
+				return client.getMentions();
+			}
+		});
+	}
+
+	@Override
+	public List<TweetDto> getRetweets(final long tweetId) throws ClientException {
+		return call(Endpoint.RETWEETS, new Call<List<TweetDto>>() {
+			@Override
+			public List<TweetDto> call() throws ClientException {
+				return client.getRetweets(tweetId);
+			}
+		});
+	}
+
+	@Override
+	public Page<TweetDto> search(final String query, final long cursor) throws ClientException {
+		return call(Endpoint.SEARCH, new Call<Page<TweetDto>>() {
+			@Override
+			public Page<TweetDto> call() throws ClientException {
+				return client.search(query, cursor);
+			}
+		});
+	}
+
+	/**
+	 * One call to the wrapped client
+	 */
+	private interface Call<T> {
+		public T call() throws ClientException;
+	}
+
+	private <T> T call(Endpoint endpoint, Call<T> call) throws ClientException {
+		RetryPolicy retry = endpoint.retry();
+		boolean token = true;
+		for (int attempt = 1;; attempt++) {
+			try {
+				if (!token) {
+					endpoint.bucket().acquire();
+					token = true;
+				}
+				retry.before();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ClientException("Interrupted", -1, -1, e);
+			} catch (CircuitOpenException e) {
+				// the call is not an attempt: the token is kept for it after the circuit closes
+				log.debug("call endpoint={} refused by open circuit, waiting {} ms", endpoint, e.getRetryAfter());
+				endpoint.bucket().pause(e.getRetryAfter());
+				sleep(e.getRetryAfter());
+				attempt--;
+				continue;
+			}
+			token = false;
+
+			long delay;
+			Failure failure;
+			try {
+				T result = call.call();
+				retry.succeeded();
+				return result;
+			} catch (ClientException e) {
+				failure = e.isRateLimited() ? Failure.RATE_LIMITED
+						: e.isTransient() ? Failure.TRANSIENT : Failure.FATAL;
+				delay = retry.failed(attempt, failure,
+						e.getRetryAfter() > 0 ? TimeUnit.SECONDS.toMillis(e.getRetryAfter()) : 0);
+				if (delay < 0) {
+					throw e;
+				}
+				log.debug("call endpoint={} failed ({}), retrying in {} ms",
+						new Object[] { endpoint, e.getStatusCode(), delay });
+			} finally {
+				// ends a trial call of a half-open circuit that threw something unexpected
+				retry.finished();
+			}
+			if (failure == Failure.RATE_LIMITED) {
+				endpoint.bucket().pause(delay);
+			} else {
+				sleep(delay);
+			}
+		}
+	}
+
+	private static void sleep(long millis) throws ClientException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ClientException("Interrupted", -1, -1, e);
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dto.TweetDto;
+import dto.UserDto;
+import exceptions.ClientException;
+
+/**
+ * Client answering from a synthetic social graph generated on the fly, for measuring the crawler
+ * without Twitter. Users have ids from 1 to the configured number, screen names "user&lt;id&gt;" and
+ * follower and friend counts from a heavy tailed distribution; the authenticated user is user1.
+ * Every answer depends only on the arguments, so the same graph is crawled every time and
+ * nothing is kept in memory, however many users there are.
+ * Calls may be slowed down by a fixed latency, and every n-th call may fail with rate limit error.
+ */
+public class SyntheticClient implements ITwitterClient {
+
+	public static final int LIST_PAGE = 20;
+	public static final int IDS_PAGE = 5000;
+	public static final int SEARCH_PAGE = 100;
+	public static final int TWEETS_PER_USER = 20;
+	public static final int MAX_RETWEETS = 5;
+	public static final int MAX_DEGREE = 100000;
+	/**
+	 * Seconds to wait after a rate limit error
+	 */
+	public static final int RETRY_AFTER = 1;
+
+	private static final String[] LANGS = {"en", "en", "en", "es", "ja", "pt", "pl"};
+	private static final long FOLLOWERS = 0x1;
+	private static final long FRIENDS = 0x2;
+	private static final long RETWEETS = 0x3;
+	private static final long SEARCH = 0x4;
+
+	private final long users;
+	private final int latency;
+	private final int errorEvery;
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+
+	/**
+	 * @param users number of users in the graph
+	 * @param latency milliseconds every call takes
+	 * @param errorEvery every how many calls one fails with rate limit error, 0 for never
+	 */
+	public SyntheticClient(long users, int latency, int errorEvery) {
+		this.users = users;
+		this.latency = latency;
+		this.errorEvery = errorEvery;
+	}
+
+	@Override
+	public UserDto showUser(String screenName) throws ClientException {
+		call();
+		return user(idOf(screenName));
+	}
+
+	@Override
+	public Page<UserDto> getFollowers(String screenName, long cursor) throws ClientException {
+		call();
+		return userPage(idOf(screenName), FOLLOWERS, cursor);
+	}
+
+	@Override
+	public Page<UserDto> getFriends(String screenName, long cursor) throws ClientException {
+		call();
+		return userPage(idOf(screenName), FRIENDS, cursor);
+	}
+
+	@Override
+	public IdPage getFollowersIds(String screenName, long cursor) throws ClientException {
+		call();
+		return idPage(idOf(screenName), FOLLOWERS, cursor);
+	}
+
+	@Override
+	public IdPage getFriendsIds(String screenName, long cursor) throws ClientException {
+		call();
+		return idPage(idOf(screenName), FRIENDS, cursor);
+	}
+
+	@Override
+	public List<UserDto> lookupUsers(long[] ids) throws ClientException {
+		call();
+		List<UserDto> result = new ArrayList<>(ids.length);
+		for (long id : ids) {
+			if (id >= 1 && id <= users) {
+				result.add(user(id));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public List<TweetDto> getTimeline(String screenName) throws ClientException {
+		call();
+		long id = idOf(screenName);
+		List<TweetDto> result = new ArrayList<>(TWEETS_PER_USER);
+		for (int i = 0; i < TWEETS_PER_USER; i++) {
+			result.add(tweet(id, i));
+		}
+		return result;
+	}
+
+	@Override
+	public List<TweetDto> getMentions() throws ClientException {
+		call();
+		List<TweetDto> result = new ArrayList<>(TWEETS_PER_USER);
+		int followers = degree(1, FOLLOWERS);
+		for (int i = 0; i < TWEETS_PER_USER && i < followers; i++) {
+			TweetDto tweet = tweet(relative(1, FOLLOWERS, i), i);
+			tweet.setText("@user1 " + tweet.getText());
+			result.add(tweet);
+		}
+		return result;
+	}
+
+	@Override
+	public List<TweetDto> getRetweets(long tweetId) throws ClientException {
+		call();
+		List<TweetDto> result = new ArrayList<>();
+		// Retweets themselves are never retweeted
+		if (tweetId < 1 || tweetId > users * TWEETS_PER_USER) {
+			return result;
+		}
+		int count = (int) mod(mix(tweetId ^ RETWEETS << 56), MAX_RETWEETS + 1);
+		for (int i = 0; i < count; i++) {
+			long author = 1 + mod(mix(tweetId * 31 + i ^ RETWEETS << 56), users);
+			TweetDto tweet = new TweetDto();
+			tweet.setTweetId(users * TWEETS_PER_USER + tweetId * MAX_RETWEETS + i + 1);
+			tweet.setText("RT tweet " + tweetId + " of user" + ((tweetId - 1) / TWEETS_PER_USER + 1));
+			tweet.setAuthor(user(author));
+			result.add(tweet);
+		}
+		return result;
+	}
+
+	/**
+	 * Every query matches a fixed number of tweets (up to 5000), depending on the query only
+	 */
+	@Override
+	public Page<TweetDto> search(String query, long cursor) throws ClientException {
+		call();
+		long hash = mix(query.hashCode() ^ SEARCH << 56);
+		int total = (int) mod(hash, 50) * SEARCH_PAGE + SEARCH_PAGE;
+		int start = cursor < 0 ? 0 : (int) cursor;
+		int end = Math.min(total, start + SEARCH_PAGE);
+		List<TweetDto> result = new ArrayList<>(end - start);
+		for (int i = start; i < end; i++) {
+			long author = 1 + mod(mix(hash + i), users);
+			TweetDto tweet = tweet(author, i % TWEETS_PER_USER);
+			tweet.setText(tweet.getText() + " " + query);
+			result.add(tweet);
+		}
+		return new Page<>(result, end < total ? end : 0);
+	}
+
+	public long getCalls() {
+		return calls.get();
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	public String toString() {
+		return "Synthetic graph of " + users + " users : " + getCalls() + " calls, " + getErrors() + " rate limit errors";
+	}
+
+	/**
+	 * Simulates latency of the call and fails every errorEvery-th one
+	 */
+	private void call() throws ClientException {
+		long n = calls.incrementAndGet();
+		if (latency > 0) {
+			try {
+				TimeUnit.MILLISECONDS.sleep(latency);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ClientException("Interrupted", -1, -1, e);
+			}
+		}
+		if (errorEvery > 0 && n % errorEvery == 0) {
+			errors.incrementAndGet();
+			throw new ClientException("Rate limit exceeded", 429, RETRY_AFTER, null);
+		}
+	}
+
+	/**
+	 * @return id of user with given screen name - "user&lt;id&gt;", or any other name hashed into some id
+	 */
+	private long idOf(String screenName) {
+		if (screenName.startsWith("user")) {
+			try {
+				long id = Long.parseLong(screenName.substring(4));
+				if (id >= 1 && id <= users) {
+					return id;
+				}
+			} catch (NumberFormatException e) {
+				// not a synthetic name
+			}
+		}
+		return 1 + mod(mix(screenName.hashCode()), users);
+	}
+
+	private UserDto user(long id) {
+		UserDto user = new UserDto();
+		user.setUserId(id);
+		user.setName("user" + id);
+		user.setLang(LANGS[(int) mod(mix(id), LANGS.length)]);
+		return user;
+	}
+
+	/**
+	 * @return i-th tweet of the user, ids of user's tweets follow each other
+	 */
+	private TweetDto tweet(long user, int i) {
+		TweetDto tweet = new TweetDto();
+		tweet.setTweetId((user - 1) * TWEETS_PER_USER + i + 1);
+		tweet.setText("Tweet " + i + " of user" + user);
+		tweet.setAuthor(user(user));
+		return tweet;
+	}
+
+	/**
+	 * @return number of followers or friends of the user - Pareto distributed, 10 on average
+	 */
+	private int degree(long id, long relation) {
+		double x = ((mix(id ^ relation << 56) >>> 11) + 1) / (double) (1L << 53);
+		return (int) Math.min(Math.min(MAX_DEGREE, users - 1), 2 / Math.pow(x, 0.8));
+	}
+
+	/**
+	 * @return id of i-th follower or friend of the user
+	 */
+	private long relative(long id, long relation, int i) {
+		return 1 + mod(mix(id * MAX_DEGREE + i ^ relation << 56), users);
+	}
+
+	private Page<UserDto> userPage(long id, long relation, long cursor) {
+		int start = cursor < 0 ? 0 : (int) cursor;
+		int end = Math.min(degree(id, relation), start + LIST_PAGE);
+		List<UserDto> result = new ArrayList<>(Math.max(0, end - start));
+		for (int i = start; i < end; i++) {
+			result.add(user(relative(id, relation, i)));
+		}
+		return new Page<>(result, end < degree(id, relation) ? end : 0);
+	}
+
+	private IdPage idPage(long id, long relation, long cursor) {
+		int start = cursor < 0 ? 0 : (int) cursor;
+		int end = Math.min(degree(id, relation), start + IDS_PAGE);
+		long[] ids = new long[Math.max(0, end - start)];
+		for (int i = start; i < end; i++) {
+			ids[i - start] = relative(id, relation, i);
+		}
+		return new IdPage(ids, end < degree(id, relation) ? end : 0);
+	}
+
+	/**
+	 * @return hash reduced to range from 0 to n - 1
+	 */
+	private static long mod(long h, long n) {
+		return (h >>> 1) % n;
+	}
+
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
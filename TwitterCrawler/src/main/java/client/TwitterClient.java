@@ -0,0 +1,195 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import twitter4j.IDs;
+import twitter4j.PagableResponseList;
+import twitter4j.Query;
+import twitter4j.QueryResult;
+import twitter4j.Status;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+import twitter4j.User;
+import dto.TweetDto;
+import dto.UserDto;
+import exceptions.ClientException;
+
+/**
+ * Client calling the real Twitter API through twitter4j
+ */
+public class TwitterClient implements ITwitterClient {
+
+	private static final int SEARCH_COUNT = 100;
+
+	private final Twitter twitter;
+
+	public TwitterClient(Twitter twitter) {
+		this.twitter = twitter;
+	}
+
+	/**
+	 * @return twitter4j instance, e.g. to open a stream with the same configuration
+	 */
+	public Twitter getTwitter() {
+		return twitter;
+	}
+
+	@Override
+	public UserDto showUser(String screenName) throws ClientException {
+		try {
+			return toUser(twitter.showUser(screenName));
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	@Override
+	public Page<UserDto> getFollowers(String screenName, long cursor) throws ClientException {
+		try {
+			return toPage(twitter.getFollowersList(screenName, cursor));
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	@Override
+	public Page<UserDto> getFriends(String screenName, long cursor) throws ClientException {
+		try {
+			return toPage(twitter.getFriendsList(screenName, cursor));
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	@Override
+	public IdPage getFollowersIds(String screenName, long cursor) throws ClientException {
+		try {
+			IDs ids = twitter.getFollowersIDs(screenName, cursor);
+			return new IdPage(ids.getIDs(), ids.getNextCursor());
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	@Override
+	public IdPage getFriendsIds(String screenName, long cursor) throws ClientException {
+		try {
+			IDs ids = twitter.getFriendsIDs(screenName, cursor);
+			return new IdPage(ids.getIDs(), ids.getNextCursor());
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	@Override
+	public List<UserDto> lookupUsers(long[] ids) throws ClientException {
+		try {
+			List<UserDto> users = new ArrayList<>();
+			for (User u : twitter.lookupUsers(ids)) {
+				users.add(toUser(u));
+			}
+			return users;
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	@Override
+	public List<TweetDto> getTimeline(String screenName) throws ClientException {
+		try {
+			return toTweets(twitter.getUserTimeline(screenName));
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	@Override
+	public List<TweetDto> getMentions() throws ClientException {
+		try {
+			return toTweets(twitter.getMentionsTimeline());
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	@Override
+	public List<TweetDto> getRetweets(long tweetId) throws ClientException {
+		try {
+			return toTweets(twitter.getRetweets(tweetId));
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	/**
+	 * Search is paged by tweet ids - cursor of the next page is the highest id it may contain
+	 */
+	@Override
+	public Page<TweetDto> search(String query, long cursor) throws ClientException {
+		try {
+			Query q = new Query(query);
+			q.setCount(SEARCH_COUNT);
+			if (cursor > 0) {
+				q.setMaxId(cursor);
+			}
+			QueryResult result = twitter.search(q);
+			List<TweetDto> tweets = toTweets(result.getTweets());
+			long nextCursor = 0;
+			if (result.hasNext()) {
+				for (TweetDto t : tweets) {
+					nextCursor = nextCursor == 0 ? t.getTweetId() - 1 : Math.min(nextCursor, t.getTweetId() - 1);
+				}
+			}
+			return new Page<>(tweets, nextCursor);
+		} catch (TwitterException e) {
+			throw wrap(e);
+		}
+	}
+
+	public static UserDto toUser(User u) {
+		UserDto user = new UserDto();
+		user.setUserId(u.getId());
+		user.setName(u.getScreenName());
+		user.setLang(u.getLang());
+		return user;
+	}
+
+	public static TweetDto toTweet(Status s) {
+		TweetDto tweet = new TweetDto();
+		tweet.setTweetId(s.getId());
+		tweet.setText(s.getText());
+		if (s.getUser() != null) {
+			tweet.setAuthor(toUser(s.getUser()));
+		}
+		return tweet;
+	}
+
+	private static List<TweetDto> toTweets(List<Status> statuses) {
+		List<TweetDto> tweets = new ArrayList<>(statuses.size());
+		for (Status s : statuses) {
+			tweets.add(toTweet(s));
+		}
+		return tweets;
+	}
+
+	private static Page<UserDto> toPage(PagableResponseList<User> list) {
+		List<UserDto> users = new ArrayList<>(list.size());
+		for (User u : list) {
+			users.add(toUser(u));
+		}
+		return new Page<>(users, list.getNextCursor());
+	}
+
+	/**
+	 * Retry-After is given only by some responses; when it is missing, the time until the rate
+	 * limit is reset is used instead
+	 */
+	private static ClientException wrap(TwitterException e) {
+		int retryAfter = e.getRetryAfter();
+		if (retryAfter <= 0 && e.getRateLimitStatus() != null) {
+			retryAfter = e.getRateLimitStatus().getSecondsUntilReset();
+		}
+		return new ClientException(e.getMessage(), e.getStatusCode(), retryAfter, e);
+	}
+}
@@ -20,10 +20,14 @@ import javax.xml.transform.stream.StreamResult;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import enums.ClientType;
 import enums.Relation;
+import enums.SinkType;
 import enums.Strategy;
+import enums.VisitedType;
 import exceptions.InvalidConfigException;
 
 /**
@@ -52,6 +56,7 @@ public class ConfigParser {
 			int hitsPerHour = 
 					Integer.parseInt(doc.getElementsByTagName("hitsPerHour").item(0).getFirstChild().getNodeValue());
 			config.setHitsPerHour(hitsPerHour);
+			config.setBurst(getOptionalInt(doc, "burst", config.getBurst()));
 			
 			int crawlTime = 
 					Integer.parseInt(doc.getElementsByTagName("crawlTime").item(0).getFirstChild().getNodeValue());
@@ -68,6 +73,80 @@ public class ConfigParser {
 				throw new InvalidConfigException("Unknown strategy type: " + strategy);
 			}
 			
+			config.setWorkers(getOptionalInt(doc, "workers", config.getWorkers()));
+			config.setMaxPages(getOptionalInt(doc, "maxPages", config.getMaxPages()));
+			config.setMaxPending(getOptionalInt(doc, "maxPending", config.getMaxPending()));
+			
+			NodeList checkpointNodes = doc.getElementsByTagName("checkpoint");
+			if (checkpointNodes.getLength() > 0) {
+				config.setCheckpoint(checkpointNodes.item(0).getFirstChild().getNodeValue());
+			}
+			config.setCheckpointInterval(getOptionalInt(doc, "checkpointInterval", config.getCheckpointInterval()));
+			
+			NodeList hydrateNodes = doc.getElementsByTagName("hydrateUsers");
+			if (hydrateNodes.getLength() > 0) {
+				config.setHydrateUsers(hydrateNodes.item(0).getFirstChild().getNodeValue().equals("true"));
+			}
+			
+			NodeList sinkNodes = doc.getElementsByTagName("sink");
+			if (sinkNodes.getLength() > 0) {
+				String sink = sinkNodes.item(0).getFirstChild().getNodeValue();
+				if (sink.equals("BATCH")) {
+					config.setSinkType(SinkType.BATCH);
+				} else if (sink.equals("COPY")) {
+					config.setSinkType(SinkType.COPY);
+				} else {
+					throw new InvalidConfigException("Unknown sink type: " + sink);
+				}
+			}
+			
+			config.setBatchSize(getOptionalInt(doc, "batchSize", config.getBatchSize()));
+			config.setFlushInterval(getOptionalInt(doc, "flushInterval", config.getFlushInterval()));
+			
+			NodeList visitedNodes = doc.getElementsByTagName("visited");
+			if (visitedNodes.getLength() > 0) {
+				String visited = visitedNodes.item(0).getFirstChild().getNodeValue();
+				if (visited.equals("EXACT")) {
+					config.setVisitedType(VisitedType.EXACT);
+				} else if (visited.equals("BLOOM")) {
+					config.setVisitedType(VisitedType.BLOOM);
+				} else {
+					throw new InvalidConfigException("Unknown visited set type: " + visited);
+				}
+			}
+			
+			NodeList streamNodes = doc.getElementsByTagName("stream");
+			if (streamNodes.getLength() > 0) {
+				config.setStream(streamNodes.item(0).getFirstChild().getNodeValue().equals("true"));
+			}
+			config.setQueueSize(getOptionalInt(doc, "queueSize", config.getQueueSize()));
+			config.setMetricsInterval(getOptionalInt(doc, "metricsInterval", config.getMetricsInterval()));
+			config.setLogSample(getOptionalInt(doc, "logSample", config.getLogSample()));
+			
+			NodeList apiUrlNodes = doc.getElementsByTagName("apiUrl");
+			if (apiUrlNodes.getLength() > 0) {
+				config.setApiUrl(apiUrlNodes.item(0).getFirstChild().getNodeValue());
+			}
+			NodeList streamUrlNodes = doc.getElementsByTagName("streamUrl");
+			if (streamUrlNodes.getLength() > 0) {
+				config.setStreamUrl(streamUrlNodes.item(0).getFirstChild().getNodeValue());
+			}
+			
+			NodeList clientNodes = doc.getElementsByTagName("client");
+			if (clientNodes.getLength() > 0) {
+				String client = clientNodes.item(0).getFirstChild().getNodeValue();
+				if (client.equals("TWITTER")) {
+					config.setClientType(ClientType.TWITTER);
+				} else if (client.equals("SYNTHETIC")) {
+					config.setClientType(ClientType.SYNTHETIC);
+				} else {
+					throw new InvalidConfigException("Unknown client type: " + client);
+				}
+			}
+			config.setSyntheticUsers(getOptionalInt(doc, "syntheticUsers", config.getSyntheticUsers()));
+			config.setSyntheticLatency(getOptionalInt(doc, "syntheticLatency", config.getSyntheticLatency()));
+			config.setSyntheticErrors(getOptionalInt(doc, "syntheticErrors", config.getSyntheticErrors()));
+			
 			Element relationsElem = (Element) doc.getElementsByTagName("relations").item(0);
 			String follows = relationsElem.getElementsByTagName("follows").item(0).getFirstChild().getNodeValue();
 			String followedBy = relationsElem.getElementsByTagName("followedBy").item(0).getFirstChild().getNodeValue();
@@ -149,6 +228,10 @@ public class ConfigParser {
 			Element hitsPerHourElem = doc.createElement("hitsPerHour");
 			hitsPerHourElem.appendChild(doc.createTextNode(String.valueOf(config.getHitsPerHour())));
 			root.appendChild(hitsPerHourElem);
+			
+			Element burstElem = doc.createElement("burst");
+			burstElem.appendChild(doc.createTextNode(String.valueOf(config.getBurst())));
+			root.appendChild(burstElem);
 
 			Element crawlTimeElem = doc.createElement("crawlTime");
 			crawlTimeElem.appendChild(doc.createTextNode(String.valueOf(config.getCrawlTime())));
@@ -158,6 +241,94 @@ public class ConfigParser {
 			strategyElem.appendChild(doc.createTextNode(config.getStrategy().toString()));
 			root.appendChild(strategyElem);
 			
+			Element workersElem = doc.createElement("workers");
+			workersElem.appendChild(doc.createTextNode(String.valueOf(config.getWorkers())));
+			root.appendChild(workersElem);
+			
+			Element maxPagesElem = doc.createElement("maxPages");
+			maxPagesElem.appendChild(doc.createTextNode(String.valueOf(config.getMaxPages())));
+			root.appendChild(maxPagesElem);
+			
+			Element maxPendingElem = doc.createElement("maxPending");
+			maxPendingElem.appendChild(doc.createTextNode(String.valueOf(config.getMaxPending())));
+			root.appendChild(maxPendingElem);
+			
+			if (config.getCheckpoint() != null) {
+				Element checkpointElem = doc.createElement("checkpoint");
+				checkpointElem.appendChild(doc.createTextNode(config.getCheckpoint()));
+				root.appendChild(checkpointElem);
+			}
+			
+			Element checkpointIntervalElem = doc.createElement("checkpointInterval");
+			checkpointIntervalElem.appendChild(doc.createTextNode(String.valueOf(config.getCheckpointInterval())));
+			root.appendChild(checkpointIntervalElem);
+			
+			Element hydrateElem = doc.createElement("hydrateUsers");
+			hydrateElem.appendChild(doc.createTextNode(String.valueOf(config.isHydrateUsers())));
+			root.appendChild(hydrateElem);
+			
+			Element sinkElem = doc.createElement("sink");
+			sinkElem.appendChild(doc.createTextNode(config.getSinkType().toString()));
+			root.appendChild(sinkElem);
+			
+			Element batchSizeElem = doc.createElement("batchSize");
+			batchSizeElem.appendChild(doc.createTextNode(String.valueOf(config.getBatchSize())));
+			root.appendChild(batchSizeElem);
+			
+			Element flushIntervalElem = doc.createElement("flushInterval");
+			flushIntervalElem.appendChild(doc.createTextNode(String.valueOf(config.getFlushInterval())));
+			root.appendChild(flushIntervalElem);
+			
+			Element visitedElem = doc.createElement("visited");
+			visitedElem.appendChild(doc.createTextNode(config.getVisitedType().toString()));
+			root.appendChild(visitedElem);
+			
+			Element streamElem = doc.createElement("stream");
+			streamElem.appendChild(doc.createTextNode(String.valueOf(config.isStream())));
+			root.appendChild(streamElem);
+			
+			Element queueSizeElem = doc.createElement("queueSize");
+			queueSizeElem.appendChild(doc.createTextNode(String.valueOf(config.getQueueSize())));
+			root.appendChild(queueSizeElem);
+			
+			if (config.getApiUrl() != null) {
+				Element apiUrlElem = doc.createElement("apiUrl");
+				apiUrlElem.appendChild(doc.createTextNode(config.getApiUrl()));
+				root.appendChild(apiUrlElem);
+			}
+			
+			if (config.getStreamUrl() != null) {
+				Element streamUrlElem = doc.createElement("streamUrl");
+				streamUrlElem.appendChild(doc.createTextNode(config.getStreamUrl()));
+				root.appendChild(streamUrlElem);
+			}
+			
+			Element clientElem = doc.createElement("client");
+			clientElem.appendChild(doc.createTextNode(config.getClientType().toString()));
+			root.appendChild(clientElem);
+			
+			if (config.getClientType() == ClientType.SYNTHETIC) {
+				Element syntheticUsersElem = doc.createElement("syntheticUsers");
+				syntheticUsersElem.appendChild(doc.createTextNode(String.valueOf(config.getSyntheticUsers())));
+				root.appendChild(syntheticUsersElem);
+				
+				Element syntheticLatencyElem = doc.createElement("syntheticLatency");
+				syntheticLatencyElem.appendChild(doc.createTextNode(String.valueOf(config.getSyntheticLatency())));
+				root.appendChild(syntheticLatencyElem);
+				
+				Element syntheticErrorsElem = doc.createElement("syntheticErrors");
+				syntheticErrorsElem.appendChild(doc.createTextNode(String.valueOf(config.getSyntheticErrors())));
+				root.appendChild(syntheticErrorsElem);
+			}
+			
+			Element metricsIntervalElem = doc.createElement("metricsInterval");
+			metricsIntervalElem.appendChild(doc.createTextNode(String.valueOf(config.getMetricsInterval())));
+			root.appendChild(metricsIntervalElem);
+			
+			Element logSampleElem = doc.createElement("logSample");
+			logSampleElem.appendChild(doc.createTextNode(String.valueOf(config.getLogSample())));
+			root.appendChild(logSampleElem);
+			
 			Element relationsElem = doc.createElement("relations");
 			
 			Element followsElem = doc.createElement("follows");
@@ -229,6 +400,18 @@ public class ConfigParser {
 		}
 	}
 	
+	/**
+	 * Reads integer setting which may be missing in older configuration files
+	 * @return value of the first element with given tag or defaultValue if there is no such element
+	 */
+	private static int getOptionalInt(Document doc, String tag, int defaultValue) {
+		NodeList nodes = doc.getElementsByTagName(tag);
+		if (nodes.getLength() == 0) {
+			return defaultValue;
+		}
+		return Integer.parseInt(nodes.item(0).getFirstChild().getNodeValue());
+	}
+	
 	private static void initializeXMLFile(File f) throws IOException {
 		System.out.println("Creating XML Configuration File.");	
 		FileWriter fw = new FileWriter(f.getAbsoluteFile());
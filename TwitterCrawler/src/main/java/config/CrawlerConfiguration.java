@@ -2,8 +2,12 @@ package config;
 
 import java.util.Set;
 
+import postgresDB.AsyncSink;
 import enums.Relation;
+import enums.SinkType;
 import enums.Strategy;
+import enums.ClientType;
+import enums.VisitedType;
 
 
 public class CrawlerConfiguration {
@@ -24,6 +28,11 @@ public class CrawlerConfiguration {
 	 */
 	private int hitsPerHour;
 	
+	/**
+	 * How many calls to API may be made at once, without waiting
+	 */
+	private int burst = 1;
+	
 	/**
 	 * How many seconds the crawling will last
 	 */
@@ -40,6 +49,98 @@ public class CrawlerConfiguration {
 	 * Breadth-First search strategy, Depth-First search strategy, Keyword search
 	 */
 	private Strategy strategy;
+	
+	/**
+	 * How many threads expand nodes concurrently (they still share hitsPerHour)
+	 */
+	private int workers = 4;
+	
+	/**
+	 * At most how many pages of followers or friends are fetched for one user, 0 for all of them
+	 */
+	private int maxPages = 0;
+	
+	/**
+	 * At most how many children fetched by depth-first crawl may wait to be visited, 0 for no limit
+	 */
+	private int maxPending = 100000;
+	
+	/**
+	 * Whether followers and friends are fetched as ids and resolved into users
+	 * 100 at a time, instead of being fetched as short pages of full users
+	 */
+	private boolean hydrateUsers = true;
+	
+	/**
+	 * File the crawl state is checkpointed to, or null for no checkpoints
+	 */
+	private String checkpoint;
+	
+	/**
+	 * How many seconds pass between checkpoints
+	 */
+	private int checkpointInterval = 60;
+	
+	/**
+	 * Whether crawl continues from the checkpoint instead of starting from the seed.
+	 * Chosen when starting the crawler, not stored in configuration file.
+	 */
+	private boolean resume;
+	
+	/**
+	 * How crawled rows are written to database: batched INSERTs or COPY bulk load
+	 */
+	private SinkType sinkType = SinkType.BATCH;
+	
+	/**
+	 * How many rows are written to database in one batch
+	 */
+	private int batchSize = AsyncSink.DEFAULT_BATCH_SIZE;
+	
+	/**
+	 * How many milliseconds rows may wait before being written to database
+	 */
+	private int flushInterval = AsyncSink.DEFAULT_FLUSH_INTERVAL;
+	
+	/**
+	 * How already visited nodes are remembered: exactly, or in a Bloom filter for huge crawls
+	 */
+	private VisitedType visitedType = VisitedType.EXACT;
+	
+	/**
+	 * Whether keywords strategy listens to the filter stream instead of paging through search results
+	 */
+	private boolean stream = false;
+	
+	/**
+	 * How many tweets found by keywords strategy may wait to be parsed and written
+	 */
+	private int queueSize = 1000;
+	
+	/**
+	 * Base URLs of Twitter REST and streaming API, e.g. of a local fake endpoint; null for Twitter's own
+	 */
+	private String apiUrl;
+	private String streamUrl;
+	
+	/**
+	 * Whether the real Twitter is crawled, or a synthetic graph of given number of users,
+	 * answering after given latency (in milliseconds) and failing every syntheticErrors-th call (0 for never)
+	 */
+	private ClientType clientType = ClientType.TWITTER;
+	private int syntheticUsers = 1000000;
+	private int syntheticLatency = 0;
+	private int syntheticErrors = 0;
+	
+	/**
+	 * Every how many seconds all metrics are logged in one line, 0 for never
+	 */
+	private int metricsInterval = 60;
+	
+	/**
+	 * Every how many crawled nodes one is logged, when debug logging is on
+	 */
+	private int logSample = 1;
 
 	public String getSeed() {
 		return seed;
@@ -89,14 +190,214 @@ public class CrawlerConfiguration {
 		this.depth = depth;
 	}
 
+	public int getBurst() {
+		return burst;
+	}
+
+	public void setBurst(int burst) {
+		this.burst = burst;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
+	public int getMaxPages() {
+		return maxPages;
+	}
+
+	public void setMaxPages(int maxPages) {
+		this.maxPages = maxPages;
+	}
+
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	public void setMaxPending(int maxPending) {
+		this.maxPending = maxPending;
+	}
+
+	public boolean isHydrateUsers() {
+		return hydrateUsers;
+	}
+
+	public void setHydrateUsers(boolean hydrateUsers) {
+		this.hydrateUsers = hydrateUsers;
+	}
+
+	public String getCheckpoint() {
+		return checkpoint;
+	}
+
+	public void setCheckpoint(String checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public boolean isResume() {
+		return resume;
+	}
+
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	public SinkType getSinkType() {
+		return sinkType;
+	}
+
+	public void setSinkType(SinkType sinkType) {
+		this.sinkType = sinkType;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getFlushInterval() {
+		return flushInterval;
+	}
+
+	public void setFlushInterval(int flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public VisitedType getVisitedType() {
+		return visitedType;
+	}
+
+	public void setVisitedType(VisitedType visitedType) {
+		this.visitedType = visitedType;
+	}
+
+	public boolean isStream() {
+		return stream;
+	}
+
+	public void setStream(boolean stream) {
+		this.stream = stream;
+	}
+
+	public int getMetricsInterval() {
+		return metricsInterval;
+	}
+
+	public void setMetricsInterval(int metricsInterval) {
+		this.metricsInterval = metricsInterval;
+	}
+
+	public int getLogSample() {
+		return logSample;
+	}
+
+	public void setLogSample(int logSample) {
+		this.logSample = logSample;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	public String getApiUrl() {
+		return apiUrl;
+	}
+
+	public void setApiUrl(String apiUrl) {
+		this.apiUrl = apiUrl;
+	}
+
+	public String getStreamUrl() {
+		return streamUrl;
+	}
+
+	public void setStreamUrl(String streamUrl) {
+		this.streamUrl = streamUrl;
+	}
+
+	public ClientType getClientType() {
+		return clientType;
+	}
+
+	public void setClientType(ClientType clientType) {
+		this.clientType = clientType;
+	}
+
+	public int getSyntheticUsers() {
+		return syntheticUsers;
+	}
+
+	public void setSyntheticUsers(int syntheticUsers) {
+		this.syntheticUsers = syntheticUsers;
+	}
+
+	public int getSyntheticLatency() {
+		return syntheticLatency;
+	}
+
+	public void setSyntheticLatency(int syntheticLatency) {
+		this.syntheticLatency = syntheticLatency;
+	}
+
+	public int getSyntheticErrors() {
+		return syntheticErrors;
+	}
+
+	public void setSyntheticErrors(int syntheticErrors) {
+		this.syntheticErrors = syntheticErrors;
+	}
+
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("Crawler configuration is: \n");
 		sb.append("seed : " + seed + "\n");
 		sb.append("depth : " + depth + "\n");
 		sb.append("hitsPerHour : " + hitsPerHour + "\n");
+		sb.append("burst : " + burst + "\n");
 		sb.append("crawlTime : " + crawlTime + "\n");
 		sb.append("strategy : " + strategy.toString() +"\n");
+		sb.append("workers : " + workers + "\n");
+		sb.append("maxPages : " + maxPages + "\n");
+		sb.append("maxPending : " + maxPending + "\n");
+		sb.append("hydrateUsers : " + hydrateUsers + "\n");
+		sb.append("checkpoint : " + checkpoint + "\n");
+		sb.append("checkpointInterval : " + checkpointInterval + "\n");
+		sb.append("resume : " + resume + "\n");
+		sb.append("sink : " + sinkType.toString() + "\n");
+		sb.append("batchSize : " + batchSize + "\n");
+		sb.append("flushInterval : " + flushInterval + "\n");
+		sb.append("visited : " + visitedType.toString() + "\n");
+		sb.append("stream : " + stream + "\n");
+		sb.append("queueSize : " + queueSize + "\n");
+		sb.append("apiUrl : " + apiUrl + "\n");
+		sb.append("streamUrl : " + streamUrl + "\n");
+		sb.append("client : " + clientType.toString() + "\n");
+		if (clientType == ClientType.SYNTHETIC) {
+			sb.append("syntheticUsers : " + syntheticUsers + "\n");
+			sb.append("syntheticLatency : " + syntheticLatency + "\n");
+			sb.append("syntheticErrors : " + syntheticErrors + "\n");
+		}
+		sb.append("metricsInterval : " + metricsInterval + "\n");
+		sb.append("logSample : " + logSample + "\n");
 		sb.append("relations : " + "\n");
 		for (Relation r : relations) {
 			sb.append("\t" + r.toString() + "\n");
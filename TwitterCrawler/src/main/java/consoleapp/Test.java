@@ -1,6 +1,9 @@
 package consoleapp;
 
 import logic.TwitterDownloader;
+
+import org.apache.log4j.LogManager;
+
 import twitter4j.PagableResponseList;
 import twitter4j.Paging;
 import twitter4j.ResponseList;
@@ -10,8 +13,12 @@ import twitter4j.TwitterException;
 import twitter4j.TwitterFactory;
 import twitter4j.User;
 import twitter4j.conf.ConfigurationBuilder;
+import client.ITwitterClient;
+import client.SyntheticClient;
+import client.TwitterClient;
 import config.ConfigParser;
 import config.CrawlerConfiguration;
+import enums.ClientType;
 
 public class Test {
 	
@@ -19,19 +26,37 @@ public class Test {
 	
 	public static void main(String[] args) {
 
+		CrawlerConfiguration config = ConfigParser.fromXML("configs.xml");
+		ConfigParser.toXML(config, "configs.xml");
 		setUpAuthorization();
+		// e.g. a local fake endpoint for testing
+		if (config.getApiUrl() != null) {
+			cb.setRestBaseURL(config.getApiUrl());
+		}
+		if (config.getStreamUrl() != null) {
+			cb.setStreamBaseURL(config.getStreamUrl());
+		}
 		TwitterFactory tf = new TwitterFactory(cb.build());
 		Twitter twitter = tf.getInstance();
-		CrawlerConfiguration config = ConfigParser.fromXML("configs.xml");
-		ConfigParser.toXML(config, "configs.xml");
+		ITwitterClient client;
+		if (config.getClientType() == ClientType.SYNTHETIC) {
+			client = new SyntheticClient(config.getSyntheticUsers(), config.getSyntheticLatency(),
+					config.getSyntheticErrors());
+		} else {
+			client = new TwitterClient(twitter);
+		}
+		// "resume" continues the crawl saved in checkpoint file
+		config.setResume(args.length > 0 && args[0].equals("resume"));
 		System.out.println(config.toString());
-		TwitterDownloader downloader = new TwitterDownloader(config, twitter);
+		TwitterDownloader downloader = new TwitterDownloader(config, client);
 		downloader.start();
 		try {
 			downloader.join();
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
+		// Flushes messages still waiting in asynchronous appenders
+		LogManager.shutdown();
 		// hackItUp(twitter);
 	}
 
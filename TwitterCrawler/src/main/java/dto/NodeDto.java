@@ -2,4 +2,43 @@ package dto;
 
 public abstract class NodeDto {
 
+	/**
+	 * Distance from the seed, which is at level 1
+	 */
+	private int level = 1;
+
+	/**
+	 * Which of the node's relations is being crawled (in the order the crawler walks them),
+	 * so that expansion interrupted by a checkpoint can be resumed
+	 */
+	private volatile int step;
+	
+	/**
+	 * Cursor of the page of current relation being crawled, -1 for the first page
+	 */
+	private volatile long cursor = -1;
+
+	public int getLevel() {
+		return level;
+	}
+
+	public void setLevel(int level) {
+		this.level = level;
+	}
+
+	public int getStep() {
+		return step;
+	}
+
+	public long getCursor() {
+		return cursor;
+	}
+
+	/**
+	 * Records how far expansion of this node has got
+	 */
+	public void setProgress(int step, long cursor) {
+		this.cursor = cursor;
+		this.step = step;
+	}
 }
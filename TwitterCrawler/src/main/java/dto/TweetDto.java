@@ -2,6 +2,7 @@ package dto;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
@@ -10,16 +11,30 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 @Entity
 @Table(name="Tweets")
 public class TweetDto extends NodeDto {
 	
-	private static long k=0;
+	private static final AtomicLong k = new AtomicLong();
 	
 	public TweetDto(){
-		++k;
-		setId(k);
+		setId(k.incrementAndGet());
+	}
+	
+	/**
+	 * @return id given to the most recently created node
+	 */
+	public static long getLastId() {
+		return k.get();
+	}
+	
+	/**
+	 * Makes ids of new nodes start after given one, e.g. after resuming a crawl
+	 */
+	public static void setLastId(long lastId) {
+		k.set(lastId);
 	}
 
 	/**
@@ -41,6 +56,12 @@ public class TweetDto extends NodeDto {
 	
 	private String text;
 	
+	/**
+	 * Author of this tweet, when the response it comes from includes it
+	 */
+	@Transient
+	private UserDto author;
+	
 	public Collection<TweetDto> getRetweets() {
 		return retweets;
 	}
@@ -74,6 +95,18 @@ public class TweetDto extends NodeDto {
 		this.text = text;
 	}
 
+	public UserDto getAuthor() {
+		return author;
+	}
+
+	public void setAuthor(UserDto author) {
+		this.author = author;
+	}
+
+	public long getId() {
+		return id;
+	}
+
 	public void setId(long k) {
 		this.id = k;
 	}
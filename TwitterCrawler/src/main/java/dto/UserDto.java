@@ -2,6 +2,7 @@ package dto;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -19,11 +20,24 @@ import javax.persistence.Table;
 @Table(name="Users")
 public class UserDto extends NodeDto {
 
-	private static long k=0;
+	private static final AtomicLong k = new AtomicLong();
 	
 	public UserDto(){
-		++k;
-		setId(k);
+		setId(k.incrementAndGet());
+	}
+	
+	/**
+	 * @return id given to the most recently created node
+	 */
+	public static long getLastId() {
+		return k.get();
+	}
+	
+	/**
+	 * Makes ids of new nodes start after given one, e.g. after resuming a crawl
+	 */
+	public static void setLastId(long lastId) {
+		k.set(lastId);
 	}
 	
 	/**
@@ -65,6 +79,11 @@ public class UserDto extends NodeDto {
 	@GeneratedValue(strategy=GenerationType.IDENTITY) 
 	@Column
 	private long id;
+	/**
+	 * Id of this user on Twitter
+	 */
+	private long userId;
+	
 	/**
 	 * Screen name for this user
 	 */
@@ -123,6 +142,14 @@ public class UserDto extends NodeDto {
 		this.tweets = tweets;
 	}
 
+	public long getUserId() {
+		return userId;
+	}
+
+	public void setUserId(long userId) {
+		this.userId = userId;
+	}
+
 	public String getName() {
 		return name;
 	}
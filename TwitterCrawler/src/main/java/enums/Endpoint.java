@@ -0,0 +1,54 @@
+package enums;
+
+import ytharvest.throttle.Retries;
+import ytharvest.throttle.RetryPolicy;
+import ytharvest.throttle.Throttle;
+import ytharvest.throttle.TokenBucket;
+
+/**
+ * Twitter API endpoints called by the crawler, each with its own rate limit
+ * (calls per hour, as documented for API 1.1). All of them also share the
+ * hitsPerHour limit from configuration.
+ */
+public enum Endpoint {
+	FOLLOWERS(60), FRIENDS(60), TIMELINE(720), MENTIONS(60), RETWEETS(240), USERS(720), SEARCH(720);
+	
+	/**
+	 * Name of the bucket shared by all endpoints
+	 */
+	public static final String TWITTER = "twitter";
+	
+	private int hitsPerHour;
+	
+	private Endpoint(int hitsPerHour) {
+		this.hitsPerHour = hitsPerHour;
+	}
+	
+	public int getHitsPerHour() {
+		return hitsPerHour;
+	}
+	
+	/**
+	 * @return token bucket to take a token from before calling this endpoint
+	 */
+	public TokenBucket bucket() {
+		return Throttle.get(TWITTER + "." + name().toLowerCase());
+	}
+	
+	/**
+	 * @return policy deciding whether failed calls to this endpoint are retried
+	 */
+	public RetryPolicy retry() {
+		return Retries.get(TWITTER + "." + name().toLowerCase());
+	}
+	
+	/**
+	 * Sets up buckets of all endpoints under one shared bucket
+	 */
+	public static void configure(int hitsPerHour, int burst) {
+		Throttle.configure(TWITTER, hitsPerHour, burst, null);
+		for (Endpoint e : values()) {
+			Throttle.configure(TWITTER + "." + e.name().toLowerCase(), e.getHitsPerHour(), burst, TWITTER);
+		}
+	}
+}
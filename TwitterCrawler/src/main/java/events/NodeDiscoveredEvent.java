@@ -0,0 +1,27 @@
+package events;
+
+import publishers.IPublisher;
+import dto.NodeDto;
+
+/**
+ * Node reached by the crawl for the first time
+ */
+public class NodeDiscoveredEvent extends CrawlingEvent {
+
+	private final NodeDto node;
+	private final int level;
+
+	public NodeDiscoveredEvent(String info, IPublisher src, NodeDto node, int level) {
+		super(info, src);
+		this.node = node;
+		this.level = level;
+	}
+
+	public NodeDto getNode() {
+		return node;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+}
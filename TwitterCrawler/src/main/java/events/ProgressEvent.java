@@ -0,0 +1,26 @@
+package events;
+
+import publishers.IPublisher;
+
+/**
+ * Progress of the crawl - nodes visited so far, and a summary in the info
+ */
+public class ProgressEvent extends CrawlingEvent {
+
+	private final long users;
+	private final long tweets;
+
+	public ProgressEvent(String info, IPublisher src, long users, long tweets) {
+		super(info, src);
+		this.users = users;
+		this.tweets = tweets;
+	}
+
+	public long getUsers() {
+		return users;
+	}
+
+	public long getTweets() {
+		return tweets;
+	}
+}
@@ -0,0 +1,29 @@
+package events;
+
+import publishers.IPublisher;
+
+/**
+ * Call to Twitter API refused because of rate limit
+ */
+public class RateLimitedEvent extends CrawlingEvent {
+
+	private final int statusCode;
+	private final int retryAfter;
+
+	public RateLimitedEvent(String info, IPublisher src, int statusCode, int retryAfter) {
+		super(info, src);
+		this.statusCode = statusCode;
+		this.retryAfter = retryAfter;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * @return seconds to wait before calling again, or -1 when not known
+	 */
+	public int getRetryAfter() {
+		return retryAfter;
+	}
+}
@@ -0,0 +1,57 @@
+package exceptions;
+
+import java.io.IOException;
+
+/**
+ * Failed call to Twitter API (or to its replacement)
+ */
+public class ClientException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * HTTP status code of the response, or -1 when there was no response
+	 */
+	private final int statusCode;
+	
+	/**
+	 * Seconds to wait before calling again, or -1 when not known
+	 */
+	private final int retryAfter;
+
+	public ClientException(String message, int statusCode, int retryAfter, Throwable cause) {
+		super(message, cause);
+		this.statusCode = statusCode;
+		this.retryAfter = retryAfter;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public int getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * @return whether the call was refused because of rate limit (420 in API 1.0, 429 in API 1.1)
+	 */
+	public boolean isRateLimited() {
+		return statusCode == 420 || statusCode == 429;
+	}
+
+	/**
+	 * @return whether the same call may succeed later - the server failed (5xx) or the network did
+	 */
+	public boolean isTransient() {
+		if (statusCode >= 500) {
+			return true;
+		}
+		for (Throwable cause = getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof IOException) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
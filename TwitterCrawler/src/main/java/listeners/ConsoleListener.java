@@ -0,0 +1,20 @@
+package listeners;
+
+import events.CrawlingEvent;
+import events.RateLimitedEvent;
+
+/**
+ * Prints progress of the crawl and rate limit errors
+ */
+public class ConsoleListener implements IListener {
+
+	@Override
+	public void publish(CrawlingEvent event) {
+		if (event instanceof RateLimitedEvent) {
+			System.out.println("Rate limited (" + ((RateLimitedEvent) event).getStatusCode() + "), retry after "
+					+ ((RateLimitedEvent) event).getRetryAfter() + " s : " + event.getInfo());
+		} else {
+			System.out.println(event.getInfo());
+		}
+	}
+}
@@ -1,245 +1,304 @@
 package logic;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import checkpoint.CheckpointFile;
+import checkpoint.CrawlState;
+import checkpoint.RecordingVisitedSet;
 
 import listeners.IListener;
 
 import org.apache.log4j.PropertyConfigurator;
 
 import postgresDB.Persistor;
-import postgresDB.SQLBuilder;
+import postgresDB.ISink;
+import postgresDB.Row;
 import publishers.DownloadTimer;
 import publishers.IPublisher;
-import twitter4j.PagableResponseList;
-import twitter4j.ResponseList;
-import twitter4j.Status;
-import twitter4j.Twitter;
-import twitter4j.TwitterException;
-import twitter4j.User;
-import utils.Text;
+import visited.IVisitedSet;
+import visited.VisitedSets;
 import ytharvest.factory.EntryFactoryFacade;
+import ytharvest.metrics.Gauge;
+import ytharvest.metrics.Metrics;
 import ytharvest.factory.entities.ExtractedEntity;
 import ytharvest.factory.entities.ExtractedUser;
 import ytharvest.factory.entities.ExtractedVideo;
 import ytharvest.factory.exceptions.HarvestException;
 import ytharvest.properties.Properties;
+import client.ITwitterClient;
 import dto.NodeDto;
 import dto.TweetDto;
 import dto.UserDto;
 import enums.Relation;
 import events.CrawlingEvent;
+import events.DownloadFinishedEvent;
+import events.ProgressEvent;
 
 public class BreadthFirstStrategy implements IStrategy, IListener {
 
 	private TwitterDownloader context;
-	private boolean isCrawling = true;
+	private volatile boolean isCrawling = true;
 	private IPublisher downloadTimer;
 	private String screenName;
-	private Twitter twitter;
-	private Queue<NodeDto> queue;
+	private ITwitterClient client;
+	/**
+	 * Nodes of the level being expanded, and nodes found for the next one
+	 */
+	private volatile Frontier current;
+	private volatile Frontier next;
+	private int level = 1;
+	private final List<LevelStats> levelStats = new ArrayList<>();
+	private NodeExpander expander;
+	private IVisitedSet visitedUsers;
+	private IVisitedSet visitedTweets;
+	private CheckpointFile checkpointFile;
+	private int checkpointInterval;
+	private CrawlState resumed;
+	private int workers;
 	private int depth;
-	private int hitsPerHour;
 	private int crawlTime;
 	private Set<Relation> relations;
-	private static SQLBuilder builder;
+	private static ISink sink;
 	private static final int LEN = 63;
 	private static EntryFactoryFacade facade;
 	private static int currDepth=0;
 
 	public BreadthFirstStrategy(TwitterDownloader context) {
 		this.context = context;
-		twitter = context.getTwitter();
+		client = context.getClient();
 		screenName = context.getConfig().getSeed();
-		queue= new LinkedList<NodeDto>();
+		current = new Frontier();
+		next = new Frontier();
 		depth = context.getConfig().getDepth();
-		hitsPerHour = context.getConfig().getHitsPerHour();
 		crawlTime = context.getConfig().getCrawlTime();
 		relations = context.getConfig().getRelations();
-		builder= new SQLBuilder();
+		workers = context.getConfig().getWorkers();
+		sink = Persistor.openSink(context.getConfig());
+		visitedUsers = VisitedSets.create(context.getConfig());
+		visitedTweets = VisitedSets.create(context.getConfig());
+		if (context.getConfig().getCheckpoint() != null) {
+			File file = new File(context.getConfig().getCheckpoint());
+			if (context.getConfig().isResume()) {
+				resume(file);
+			}
+			visitedUsers = new RecordingVisitedSet(visitedUsers);
+			visitedTweets = new RecordingVisitedSet(visitedTweets);
+			checkpointFile = new CheckpointFile(file);
+			checkpointInterval = context.getConfig().getCheckpointInterval();
+		}
+		expander = new NodeExpander(client, relations, sink, context.getConfig().getMaxPages(),
+				visitedUsers, visitedTweets, context.getConfig().isHydrateUsers() ? new UserLookup(client) : null);
+		expander.setBus(context.getBus());
 	}
 
 	@Override
 	public void execute() {
-		downloadTimer = new DownloadTimer(crawlTime);
+		downloadTimer = new DownloadTimer(crawlTime, context.getBus());
 		downloadTimer.register(this);
 
 		System.out.println("Before Crawling...");
-		UserDto user= new UserDto();
-		user.setName(screenName);
-		builder.generateTables();
-		builder.appendOne(user.getName());
-		queue.add(user);
+		if (resumed != null) {
+			sink.reopenTables();
+			level = resumed.getDepth();
+			for (NodeDto node : resumed.getFrontier()) {
+				level = Math.min(level, node.getLevel());
+			}
+			for (NodeDto node : resumed.getFrontier()) {
+				(node.getLevel() == level ? current : next).add(node);
+			}
+			UserDto.setLastId(resumed.getLastUserId());
+			TweetDto.setLastId(resumed.getLastTweetId());
+			resumed = null;
+		} else {
+			UserDto user;
+			try {
+				user = expander.seed(screenName);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+				return;
+			}
+			sink.createTables();
+			sink.write(Row.seed(user.getName()));
+			current.add(user);
+			if (isCrawling){
+				download_yt();
+			}
+		}
+
+		Timer checkpointTimer = null;
+		if (checkpointFile != null) {
+			checkpointTimer = new Timer(true);
+			checkpointTimer.schedule(new TimerTask() {
+				public void run() {
+					checkpoint();
+				}
+			}, checkpointInterval * 1000L, checkpointInterval * 1000L);
+		}
 
 		if (isCrawling){
-			download_yt();
 			bfs_twit();
 		}
 
+		if (checkpointTimer != null) {
+			checkpointTimer.cancel();
+			checkpoint();
+			checkpointFile.close();
+		}
 		((DownloadTimer) downloadTimer).getTimer().cancel();
 		System.out.println("After Crawling...");
+		for (LevelStats stats : levelStats) {
+			System.out.println(stats);
+		}
+		System.out.println("Users " + visitedUsers);
+		System.out.println("Tweets " + visitedTweets);
 
 		System.out.println("Saving to database...");
 		//	Persistor.save(user);
-		Persistor.save1(builder.getSQL());
+		sink.close();
 		System.out.println("Saving to database finished.");
 	}
 
+	/**
+	 * Expands the crawl level by level: all nodes of a level are expanded by the pool of workers
+	 * while their children are collected for the next level, then users found as ids are looked up
+	 * in batches and the next level starts. Stops after level given as depth.
+	 */
 	public void bfs_twit(){
-
-		int currDepth= 0;
-
-		while(!queue.isEmpty()){
-			if(currDepth>depth){
-				System.out.println("In your head zombie zombie you know;p");
-				break;
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		Metrics.gauge("frontier.size", new Gauge() {
+			public long getValue() {
+				return current.size() + next.size();
 			}
-			try {
-				Thread.sleep(3600000 / hitsPerHour);
-			} catch (InterruptedException e1) {
-				e1.printStackTrace();
-			}
-			NodeDto node = queue.remove();			
-			if (node instanceof UserDto) {
-				if (relations.contains(Relation.FOLLOWED_BY)) {
-					if(isCrawling){
-						System.out.println("Accessing API");
-						try {
-							PagableResponseList<User> users = twitter.getFollowersList(((UserDto) node).getName(), -1);
-							for(User u: users){
-								if(isCrawling){
-									UserDto user = new UserDto();
-									user.setName(u.getScreenName());
-									user.setLang(u.getLang());
-									((UserDto) node).getFollowers().add(user);
-									System.out.println("Obtaining follower : \n" + user.toString() + 
-											"at level " + currDepth + "\n");
-									queue.add(user);
-									builder.prepareSQL(user,null,((UserDto) node).getId(),"followers_id");
+		});
+		try {
+			while (isCrawling && level <= depth && current.size() > 0) {
+				long start = System.currentTimeMillis();
+				int nodes = current.size();
+				final Frontier expanded = current;
+				final Frontier found = next;
+				List<Future<?>> tasks = new ArrayList<>();
+				for (int i = 0; i < workers; i++) {
+					tasks.add(pool.submit(new Runnable() {
+						public void run() {
+							try {
+								NodeDto node;
+								while ((node = expanded.take()) != null) {
+									try {
+										expander.expand(node, node.getLevel(), found);
+									} finally {
+										expanded.done(node);
+									}
 								}
+							} catch (InterruptedException e) {
+								e.printStackTrace();
 							}
-						} catch (TwitterException e) {
-							e.printStackTrace();
 						}
-					}
+					}));
 				}
-				if(relations.contains(Relation.FOLLOWS)){
-					if(isCrawling){
-						System.out.println("Accessing API");
-						try {
-							Thread.sleep(3600000 / hitsPerHour);
-
-							PagableResponseList<User> users = twitter.getFriendsList(((UserDto) node).getName(), -1);
-							for(User u: users){
-								if(isCrawling){
-									UserDto user = new UserDto();
-									user.setName(u.getScreenName());
-									user.setLang(u.getLang());
-									((UserDto) node).getFriends().add(user);
-									System.out.println("Obtaining friend : \n" + user.toString() +
-											"at level " + currDepth + "\n");
-									queue.add(user);
-									builder.prepareSQL(user,null,((UserDto) node).getId(),"friends_id");
-								}
-							}
-						} catch (TwitterException e) {
-							e.printStackTrace();
-						} catch (InterruptedException e) {
-							e.printStackTrace();
-						}
-					}					
+				for (Future<?> task : tasks) {
+					task.get();
 				}
-				if (relations.contains(Relation.MENTIONS)) {
-					if (isCrawling) {
-						System.out.println("Accessing API");
-						try {
-							ResponseList<Status> mentions = twitter.getMentionsTimeline();
-							for (Status s : mentions) {
-								if (isCrawling) {
-									TweetDto tweet = new TweetDto();
-									tweet.setTweetId(s.getId());
-									tweet.setParentId(((UserDto) node).getId());
-									String text = s.getText();
-									text = Text.processText(text);
-									tweet.setText(text);
-									System.out.println("Obtaining mention : \n" + tweet.toString() + "at level " + currDepth + "\n");
-									queue.add(tweet);
-									builder.prepareSQL(tweet,null,0,"mentioned_id");
-								}
-							}
-						} catch (TwitterException e) {
-							e.printStackTrace();
-						}
-					}
+				expander.flush();
+				LevelStats stats = new LevelStats(level, nodes, found.size(), System.currentTimeMillis() - start);
+				levelStats.add(stats);
+				context.getBus().publishAll(new ProgressEvent(stats.toString(), context.getBus(),
+						visitedUsers.size(), visitedTweets.size()));
+				synchronized (this) {
+					current = found;
+					next = new Frontier();
+					level++;
 				}
-				if (relations.contains(Relation.REPLIES_TO)) {
-					if (isCrawling) {
-						try {
-							Thread.sleep(3600000 / hitsPerHour);
-						} catch (InterruptedException e) {
-							e.printStackTrace();
-						}
-						System.out.println("Afraid it's not implementable in any way...");
-					}
-				}
-				if (relations.contains(Relation.HAS_TWEETS)) {
-					if (isCrawling) {
-						System.out.println("Accessing API");
-						try {
-							ResponseList<Status> tweets = twitter.getUserTimeline(((UserDto) node).getName());
-							for (Status s : tweets) {
-								if (isCrawling) {
-									TweetDto tweet = new TweetDto();
-									tweet.setTweetId(s.getId());
-									tweet.setParentId(((UserDto) node).getId());
-									String text = s.getText();
-									text = Text.processText(text);
-									tweet.setText(text);
-									System.out.println("Obtaining tweet : \n" + tweet.toString() + "at level " + currDepth + "\n");
-									queue.add(tweet);
-									builder.prepareSQL(tweet,null,0,"has_tweets_id");
-								}
-							}
-						} catch (TwitterException e) {
-							e.printStackTrace();
-						}
-					}
-				}	
 			}
-			else if(node instanceof TweetDto){
-				if (relations.contains(Relation.RETWEETS)) {
-					if(isCrawling){
-						System.out.println("Accessing API");
-						try {
-							ResponseList<Status> statuses = twitter.getRetweets(((TweetDto) node).getTweetId());
-							for(Status s: statuses){
-								if(isCrawling){
-									TweetDto tweet = new TweetDto();
-									tweet.setTweetId(s.getId());
-									tweet.setParentId(((TweetDto) node).getTweetId());
-									String text = s.getText();
-									text = Text.processText(text);
-									tweet.setText(text);
-									((TweetDto) node).getRetweets().add(tweet);
-									System.out.println("Obtaining retweet : \n" + tweet.toString() + "at level " + currDepth + "\n");
-									queue.add(tweet);
-									builder.prepareSQL(tweet,null,0,"retweeted_id");
-								}
-							}
-						} catch (TwitterException e) {
-							e.printStackTrace();
-						}
-					}
+		} catch (InterruptedException | ExecutionException e) {
+			e.printStackTrace();
+		} finally {
+			pool.shutdown();
+			Metrics.removeGauge("frontier.size");
+		}
+		if (expander.getLookup() != null) {
+			System.out.println(expander.getLookup());
+		}
+	}
+	
+	
+	/**
+	 * Restores visited sets and the rest of crawl state saved in checkpoint file
+	 */
+	private void resume(File file) {
+		try {
+			resumed = CheckpointFile.load(file);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		if (resumed == null) {
+			System.out.println("No checkpoint to resume from in " + file + ", starting from the seed.");
+			return;
+		}
+		for (long id : resumed.getVisitedUsers()) {
+			visitedUsers.visit(id);
+		}
+		for (long id : resumed.getVisitedTweets()) {
+			visitedTweets.visit(id);
+		}
+		System.out.println("Resuming crawl: " + resumed.getFrontier().size() + " nodes to expand, "
+				+ visitedUsers.size() + " users and " + visitedTweets.size() + " tweets visited.");
+	}
+
+	/**
+	 * Appends visited ids added since the last checkpoint, current frontier and depth to checkpoint file,
+	 * once all rows of what it records are saved
+	 */
+	private void checkpoint() {
+		CrawlState state = new CrawlState();
+		long[] users;
+		long[] tweets;
+		try {
+			// Users waiting in the lookup are resolved first - progress of their parents is already past them
+			expander.pause();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		try {
+			synchronized (this) {
+				// Nodes of current level first - children of nodes finished after this are already queued
+				List<NodeDto> nodes = current.snapshot();
+				// Workers mark a node visited and queue it under the frontier's lock
+				synchronized (next) {
+					users = ((RecordingVisitedSet) visitedUsers).drain();
+					tweets = ((RecordingVisitedSet) visitedTweets).drain();
+					nodes.addAll(next.snapshot());
 				}
+				state.setFrontier(nodes);
+				state.setDepth(level);
 			}
-			++currDepth;
+		} finally {
+			expander.resume();
+		}
+		// Rows of nodes visited so far, and of those behind progress of nodes being expanded, have been
+		// written before - they must not be lost with the sink's queue when resuming from this checkpoint
+		sink.flush();
+		state.setLastUserId(UserDto.getLastId());
+		state.setLastTweetId(TweetDto.getLastId());
+		try {
+			checkpointFile.append(users, tweets, state);
+			System.out.println("Checkpoint saved: " + state.getFrontier().size() + " nodes to expand.");
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 	}
 	
-	
 	public void download_yt(){
 		try{
 			init();
@@ -283,7 +342,8 @@ public class BreadthFirstStrategy implements IStrategy, IListener {
 
 //			Collection<ExtractedVideo> ups = facade.castEntities(
 //					facade.getVideoFeed(user.getUploadedVideosLink()), ExtractedVideo.class);
-			Collection<ExtractedVideo> ups = facade.getCastedVideoFeed(user.getUploadedVideosLink());
+			// Pages are downloaded as the loop goes, so none are downloaded after it breaks.
+			Iterable<ExtractedVideo> ups = facade.iterateVideoFeed(user.getUploadedVideosLink());
 
 //			countUniques(ups);
 
@@ -291,7 +351,7 @@ public class BreadthFirstStrategy implements IStrategy, IListener {
 				if(currDepth>10)
 					break;
 				++currDepth;
-				builder.prepareSQL(user,vid,0,"uploaded");
+				sink.write(Row.of(user, vid, "uploaded"));
 			}
 		}
 		
@@ -299,8 +359,7 @@ public class BreadthFirstStrategy implements IStrategy, IListener {
 		private static void userWithFavs(String userId) throws HarvestException, IOException
 		{
 			ExtractedUser user = facade.getUserEntry(userId);
-			Collection<ExtractedVideo> ups = facade.castEntities(
-					facade.getVideoFeed(user.getFavedVideosLink()), ExtractedVideo.class);
+			Iterable<ExtractedVideo> ups = facade.iterateVideoFeed(user.getFavedVideosLink());
 		
 //			countUniques(ups);
 
@@ -308,33 +367,42 @@ public class BreadthFirstStrategy implements IStrategy, IListener {
 				if(currDepth>10)
 					break;
 				++currDepth;
-				builder.prepareSQL(user, vid ,0,"favs");
+				sink.write(Row.of(user, vid, "favs"));
 			}
 		}
 
 
 		private static void userWithSubs(String userId) throws HarvestException, IOException
-		{	
-			if(currDepth+7<10){
-			++currDepth;
-			ExtractedUser user = facade.getUserEntry(userId);
-		//	NodeDto use= new UserYtDto();
-	//		((UserYtDto) use).setName(user.getUserName());
-	//		logEntity(user);
-			
-			Collection<ExtractedUser> subs = facade.castEntities(facade.getUserFeed(user.getSubscriptionsLink()), ExtractedUser.class);
-			for (ExtractedUser u : subs){
-				builder.prepareSQL(user, u,0, "users");
-				userWithSubs(u.getUserName());
-			}}
+		{
+			// Subscriptions are expanded level by level, so that the profiles of a whole level
+			// are downloaded at once; currDepth counts downloaded profiles, as before.
+			List<String> level = new ArrayList<String>();
+			level.add(userId);
+			while (!level.isEmpty() && currDepth + 7 < 10) {
+				List<String> batch = level.subList(0, Math.min(level.size(), 10 - 7 - currDepth));
+				currDepth += batch.size();
+
+				List<String> nextLevel = new ArrayList<String>();
+				for (ExtractedUser user : facade.getUserEntries(batch).values()) {
+					Collection<ExtractedUser> subs = facade.castEntities(facade.getUserFeed(user.getSubscriptionsLink()), ExtractedUser.class);
+					for (ExtractedUser u : subs){
+						sink.write(Row.of(user, u, "users"));
+						nextLevel.add(u.getUserName());
+					}
+				}
+				level = nextLevel;
+			}
 		}
 	
 	
 	@Override
 	public void publish(CrawlingEvent event) {
-		if (event.getSource() == this.downloadTimer) {
+		if (event instanceof DownloadFinishedEvent && event.getSource() == this.downloadTimer) {
 			System.out.println(event.getInfo());
 			isCrawling = false;
+			expander.stop();
+			current.close();
+			next.close();
 		}
 	}
 
@@ -0,0 +1,166 @@
+package logic;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import postgresDB.ISink;
+import client.ITwitterClient;
+import dto.NodeDto;
+import dto.TweetDto;
+import dto.UserDto;
+import enums.Relation;
+import exceptions.ClientException;
+
+/**
+ * Iterates over children of one node of the crawled graph, relation after relation, in the same order
+ * as {@link NodeExpander}. Every child is written to the sink when it is returned, with the routines
+ * NodeExpander writes its children with.
+ * Nothing is fetched in advance - a relation is only called when the previous one is exhausted,
+ * and followers and friends are fetched page by page - so at most one page is held at a time.
+ */
+public class ChildIterator implements Iterator<NodeDto> {
+
+	private static final Logger log = LoggerFactory.getLogger(ChildIterator.class);
+
+	private final ITwitterClient client;
+	private final Set<Relation> relations;
+	private final ISink sink;
+	private final int maxPages;
+	private final NodeDto node;
+	private final int level;
+
+	/**
+	 * Next relation to be called
+	 */
+	private int step;
+	private CursorPager<UserDto> users;
+	private List<TweetDto> statuses;
+	private int index;
+	/**
+	 * Relation the children being returned are found in
+	 */
+	private Relation relation;
+
+	/**
+	 * @param level level of the node, its children are at level + 1
+	 */
+	public ChildIterator(ITwitterClient client, Set<Relation> relations, ISink sink, int maxPages, NodeDto node, int level) {
+		this.client = client;
+		this.relations = relations;
+		this.sink = sink;
+		this.maxPages = maxPages;
+		this.node = node;
+		this.level = level;
+	}
+
+	public NodeDto getNode() {
+		return node;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return number of children fetched but not returned yet
+	 */
+	public int getPending() {
+		if (users != null) {
+			return users.getRemaining();
+		}
+		return statuses != null ? statuses.size() - index : 0;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!(users != null ? users.hasNext() : statuses != null && index < statuses.size())) {
+			users = null;
+			statuses = null;
+			if (!fetchNext()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public NodeDto next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		NodeDto child = users != null ? users.next() : statuses.get(index++);
+		return NodeExpander.writeChild(sink, node, child, relation, level);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Starts next relation of the node
+	 * @return false if there are no more relations
+	 */
+	private boolean fetchNext() {
+		try {
+			if (node instanceof UserDto) {
+				switch (step++) {
+				case 0:
+					setUsers(Relation.FOLLOWED_BY);
+					return true;
+				case 1:
+					setUsers(Relation.FOLLOWS);
+					return true;
+				case 2:
+					setStatuses(Relation.MENTIONS);
+					return true;
+				case 3:
+					if (relations.contains(Relation.REPLIES_TO)) {
+						log.debug("Afraid replies are not implementable in any way...");
+					}
+					return true;
+				case 4:
+					setStatuses(Relation.HAS_TWEETS);
+					return true;
+				default:
+					return false;
+				}
+			} else if (node instanceof TweetDto && step++ == 0) {
+				setStatuses(Relation.RETWEETS);
+				return true;
+			}
+		} catch (ClientException e) {
+			log.warn("Call failed: {}", e.getMessage());
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	/**
+	 * Starts paging through followers or friends of the node, if the relation is crawled
+	 */
+	private void setUsers(Relation relation) {
+		if (relations.contains(relation)) {
+			users = NodeExpander.pager(client, (UserDto) node, relation, maxPages, -1);
+			this.relation = relation;
+		}
+	}
+
+	/**
+	 * Fetches tweets of the node in given relation, if it is crawled
+	 */
+	private void setStatuses(Relation relation) throws ClientException, InterruptedException {
+		if (relations.contains(relation)) {
+			statuses = NodeExpander.getStatuses(client, node, relation);
+			index = 0;
+			this.relation = relation;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package logic;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ytharvest.throttle.TokenBucket;
+import client.Page;
+import exceptions.ClientException;
+
+/**
+ * Iterates over all elements of a cursored Twitter list, following next cursors.
+ * Pages are fetched lazily - the next one only when the previous one has been consumed - so
+ * callers can act on every element as soon as its page arrives, and simply stop calling
+ * {@link #hasNext()} when their budget is exhausted, without any more pages being fetched.
+ * API errors end the iteration.
+ */
+public class CursorPager<T> implements Iterator<T> {
+
+	private static final Logger log = LoggerFactory.getLogger(CursorPager.class);
+
+	private final IPageSource<T> source;
+	private final TokenBucket bucket;
+	private final int maxPages;
+	private long cursor;
+	private long pageCursor;
+	private Iterator<T> page = Collections.emptyIterator();
+	private int pages;
+	private int remaining;
+
+	/**
+	 * @param bucket token bucket of the endpoint, one token is taken per page
+	 * @param maxPages at most how many pages to fetch, 0 for no limit
+	 */
+	public CursorPager(IPageSource<T> source, TokenBucket bucket, int maxPages) {
+		this(source, bucket, maxPages, -1);
+	}
+
+	/**
+	 * @param cursor cursor of the first page to fetch, e.g. one saved with {@link #getPageCursor()}
+	 */
+	public CursorPager(IPageSource<T> source, TokenBucket bucket, int maxPages, long cursor) {
+		this.source = source;
+		this.bucket = bucket;
+		this.maxPages = maxPages;
+		this.cursor = cursor;
+		this.pageCursor = cursor;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!page.hasNext()) {
+			if (cursor == 0 || (maxPages > 0 && pages >= maxPages)) {
+				return false;
+			}
+			fetch();
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		remaining--;
+		return page.next();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @return number of pages fetched so far
+	 */
+	public int getPages() {
+		return pages;
+	}
+
+	/**
+	 * @return number of elements of the fetched page not returned yet
+	 */
+	public int getRemaining() {
+		return remaining;
+	}
+
+	/**
+	 * @return cursor of the page the last returned element comes from
+	 */
+	public long getPageCursor() {
+		return pageCursor;
+	}
+
+	private void fetch() {
+		try {
+			bucket.acquire();
+			log.debug("call endpoint={}", bucket.getName());
+			Page<T> list = source.getPage(cursor);
+			pages++;
+			pageCursor = cursor;
+			cursor = list.getNextCursor();
+			page = list.iterator();
+			remaining = list.size();
+		} catch (ClientException e) {
+			log.warn("Call failed: {}", e.getMessage());
+			cursor = 0;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cursor = 0;
+		}
+	}
+}
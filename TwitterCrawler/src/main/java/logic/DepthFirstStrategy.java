@@ -1,194 +1,168 @@
 package logic;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import listeners.IListener;
 import postgresDB.Persistor;
-import postgresDB.SQLBuilder;
+import postgresDB.ISink;
+import postgresDB.Row;
 import publishers.DownloadTimer;
+import publishers.EventBus;
 import publishers.IPublisher;
-import twitter4j.PagableResponseList;
-import twitter4j.ResponseList;
-import twitter4j.Status;
-import twitter4j.Twitter;
-import twitter4j.TwitterException;
-import twitter4j.User;
-import utils.Text;
+import visited.IVisitedSet;
+import visited.VisitedSets;
+import ytharvest.metrics.Gauge;
+import ytharvest.metrics.Metrics;
+import client.ITwitterClient;
 import dto.NodeDto;
 import dto.TweetDto;
 import dto.UserDto;
 import enums.Relation;
 import events.CrawlingEvent;
+import events.DownloadFinishedEvent;
+import events.NodeDiscoveredEvent;
+import events.ProgressEvent;
 
 public class DepthFirstStrategy implements IStrategy, IListener {
 
 	private TwitterDownloader context;
-	private boolean isCrawling = true;
+	private volatile boolean isCrawling = true;
 	private IPublisher downloadTimer;
-	private Twitter twitter;
+	private EventBus bus;
+	private ITwitterClient client;
 	private String screenName;
 	private int depth;
-	private int hitsPerHour;
 	private int crawlTime;
 	private Set<Relation> relations;
-	private SQLBuilder builder;
+	private int maxPages;
+	private int maxPending;
+	private int maxStack;
+	/**
+	 * Children waiting on the current path, read by "frontier.size" metric
+	 */
+	private volatile int pending;
+	private final AtomicLong nodes = Metrics.counter("crawl.nodes");
+	private int pruned;
+	private ISink sink;
+	private IVisitedSet visitedUsers;
+	private IVisitedSet visitedTweets;
 	private static final int LEN = 63;
+	/**
+	 * Every how many newly visited nodes progress is published
+	 */
+	private static final int PROGRESS_EVERY = 1000;
 	
 	public DepthFirstStrategy(TwitterDownloader context) {
 		this.context = context;
-		twitter = context.getTwitter();
+		client = context.getClient();
+		bus = context.getBus();
 		screenName = context.getConfig().getSeed();
 		depth = context.getConfig().getDepth();
-		hitsPerHour = context.getConfig().getHitsPerHour();
 		crawlTime = context.getConfig().getCrawlTime();
 		relations = context.getConfig().getRelations();
-		builder= new SQLBuilder();
+		maxPages = context.getConfig().getMaxPages();
+		maxPending = context.getConfig().getMaxPending();
+		sink = Persistor.openSink(context.getConfig());
+		visitedUsers = VisitedSets.create(context.getConfig());
+		visitedTweets = VisitedSets.create(context.getConfig());
 	}
 	
 	@Override
 	public void execute() {
-		downloadTimer = new DownloadTimer(crawlTime);
+		downloadTimer = new DownloadTimer(crawlTime, bus);
 		downloadTimer.register(this);
 		
 		System.out.println("Before Crawling...");
 		
-		UserDto user = new UserDto();
-		user.setName(screenName);
-		builder.generateTables();
-		builder.appendOne(user.getName());
+		UserDto user;
+		try {
+			user = new NodeExpander(client, relations, sink, maxPages, visitedUsers, visitedTweets, null).seed(screenName);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			return;
+		}
+		sink.createTables();
+		sink.write(Row.seed(user.getName()));
 		if (isCrawling) {
+			Metrics.gauge("frontier.size", new Gauge() {
+				public long getValue() {
+					return pending;
+				}
+			});
 			visit(user, 1);
+			Metrics.removeGauge("frontier.size");
 		}
 		
 		((DownloadTimer) downloadTimer).getTimer().cancel();
 		System.out.println("After Crawling...");
+		System.out.println("Deepest path : " + maxStack + " nodes, " + pruned + " nodes not expanded because of maxPending");
+		System.out.println("Users " + visitedUsers);
+		System.out.println("Tweets " + visitedTweets);
 		
 		System.out.println("Saving to database...");
 	//	Persistor.save(user);
-		Persistor.save1(builder.getSQL());
+		sink.close();
 		System.out.println("Saving to database finished.");
 	}
 
+	/**
+	 * Crawls depth-first from given node without recursion: the stack holds one lazy iterator over
+	 * children per node on the current path, so only the page being walked is kept for every level.
+	 * Children found while more than maxPending others are waiting are written, but not descended into.
+	 */
 	public void visit(NodeDto node, int currDepth) {
-		if (currDepth <= depth && isCrawling) {			
-			try {
-				// For rate limit policy of Twitter
-				Thread.sleep(3600000 / hitsPerHour);
-				
-				if (isCrawling && node instanceof TweetDto && relations.contains(Relation.RETWEETS)) {
-					System.out.println("Accessing API");
-					ResponseList<Status> statuses = twitter.getRetweets(((TweetDto) node).getTweetId());
-					for (Status s : statuses) {
-						if (isCrawling) {
-							TweetDto tweet = new TweetDto();
-							tweet.setTweetId(s.getId());
-							tweet.setParentId(((TweetDto) node).getTweetId());
-							String text = s.getText();
-							text = Text.processText(text);
-							tweet.setText(text);
-							((TweetDto) node).getRetweets().add(tweet);
-							System.out.println("Obtaining retweet : \n" + tweet.toString() + "at level " + currDepth + "\n");
-							builder.prepareSQL(tweet,null,0,"retweeted_id");
-							visit(tweet, currDepth + 1);
-						}
-					}
-				} else if (node instanceof UserDto) {
-					if (relations.contains(Relation.FOLLOWED_BY)) {
-						if (isCrawling) {
-							System.out.println("Accessing API");
-							PagableResponseList<User> users = twitter.getFollowersList(((UserDto) node).getName(), -1);
-							for (User u : users) {
-								if (isCrawling) {
-									UserDto user = new UserDto();
-									user.setName(u.getScreenName());
-									user.setLang(u.getLang());
-									((UserDto) node).getFollowers().add(user);
-									System.out.println("Obtaining follower : \n" + user.toString() + 
-													   "at level " + currDepth + "\n");
-									builder.prepareSQL(user,null,((UserDto) node).getId(),"followers_id");
-									visit(user, currDepth + 1);
-								}
-							}
-						}
-					}
-					if (relations.contains(Relation.FOLLOWS)) {
-						if (isCrawling) {
-							Thread.sleep(3600000 / hitsPerHour);
-							System.out.println("Accessing API");
-							PagableResponseList<User> users = twitter.getFriendsList(((UserDto) node).getName(), -1);
-							for (User u : users) {
-								if (isCrawling) {
-									UserDto user = new UserDto();
-									user.setName(u.getScreenName());
-									user.setLang(u.getLang());
-									((UserDto) node).getFriends().add(user);
-									System.out.println("Obtaining friend : \n" + user.toString() +
-													   "at level " + currDepth + "\n");
-									builder.prepareSQL(user,null,((UserDto) node).getId(),"friends_id");
-									visit(user, currDepth + 1);
-								}
-							}
-						}
-					}
-					if (relations.contains(Relation.MENTIONS)) {
-						if (isCrawling) {
-							Thread.sleep(3600000 / hitsPerHour);
-							System.out.println("Accessing API");
-							ResponseList<Status> mentions = twitter.getMentionsTimeline();
-							for (Status s : mentions) {
-								if (isCrawling) {
-									TweetDto tweet = new TweetDto();
-									tweet.setTweetId(s.getId());
-									tweet.setParentId(((UserDto) node).getId());
-									String text = s.getText();
-									text = Text.processText(text);
-									tweet.setText(text);
-									System.out.println("Obtaining mention : \n" + tweet.toString() + "at level " + currDepth + "\n");
-									builder.prepareSQL(tweet,null,0,"mentioned_id");
-									visit(tweet, currDepth + 1);
-								}
-							}
-						}
-					}
-					if (relations.contains(Relation.REPLIES_TO)) {
-						if (isCrawling) {
-							Thread.sleep(3600000 / hitsPerHour);
-							System.out.println("Afraid it's not implementable in any way...");
-						}
-					}
-					if (relations.contains(Relation.HAS_TWEETS)) {
-						if (isCrawling) {
-							Thread.sleep(3600000 / hitsPerHour);
-							System.out.println("Accessing API");
-							ResponseList<Status> tweets = twitter.getUserTimeline(((UserDto) node).getName());
-							for (Status s : tweets) {
-								if (isCrawling) {
-									TweetDto tweet = new TweetDto();
-									tweet.setTweetId(s.getId());
-									tweet.setParentId(((UserDto) node).getId());
-									String text = s.getText();
-									text = Text.processText(text);
-									tweet.setText(text);
-									System.out.println("Obtaining tweet : \n" + tweet.toString() + "at level " + currDepth + "\n");
-									builder.prepareSQL(tweet,null,0,"has_tweets_id");
-									visit(tweet, currDepth + 1);
-								}
-							}
-							
-						}
-					} 			
-				}			
-			} catch (TwitterException e) {
-				e.printStackTrace();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+		Deque<ChildIterator> stack = new ArrayDeque<>();
+		stack.push(new ChildIterator(client, relations, sink, maxPages, node, currDepth));
+		pending = 0;
+		long discovered = 0;
+		maxStack = Math.max(maxStack, 1);
+		while (isCrawling && !stack.isEmpty()) {
+			ChildIterator top = stack.peek();
+			int before = top.getPending();
+			if (!top.hasNext()) {
+				stack.pop();
+				pending -= before;
+				continue;
+			}
+			NodeDto child = top.next();
+			pending += top.getPending() - before;
+			boolean first = child instanceof UserDto
+					? visitedUsers.visit(((UserDto) child).getUserId())
+					: visitedTweets.visit(((TweetDto) child).getTweetId());
+			if (first) {
+				discovered(child, top.getLevel() + 1, ++discovered);
+			}
+			if (first && top.getLevel() < depth) {
+				if (maxPending > 0 && pending >= maxPending) {
+					pruned++;
+				} else {
+					stack.push(new ChildIterator(client, relations, sink, maxPages, child, top.getLevel() + 1));
+					maxStack = Math.max(maxStack, stack.size());
+				}
 			}
 		}
 	}
 	
+	/**
+	 * Publishes newly visited node, if anyone listens, and every PROGRESS_EVERY nodes progress of the crawl
+	 */
+	private void discovered(NodeDto node, int level, long count) {
+		nodes.incrementAndGet();
+		if (bus.hasListeners(NodeDiscoveredEvent.class)) {
+			bus.publishAll(new NodeDiscoveredEvent("Node discovered at level " + level, bus, node, level));
+		}
+		if (count % PROGRESS_EVERY == 0) {
+			bus.publishAll(new ProgressEvent("Depth-first : " + count + " nodes visited, path of " + maxStack
+					+ " nodes at most, " + pruned + " nodes not expanded", bus, visitedUsers.size(), visitedTweets.size()));
+		}
+	}
+
 	@Override
 	public void publish(CrawlingEvent event) {
-		if (event.getSource() == this.downloadTimer) {
+		if (event instanceof DownloadFinishedEvent && event.getSource() == this.downloadTimer) {
 			System.out.println(event.getInfo());
 			isCrawling = false;
 		}
@@ -0,0 +1,85 @@
+package logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import dto.NodeDto;
+
+/**
+ * Thread-safe queue of nodes waiting to be expanded, shared by crawl workers.
+ * It also knows how many nodes are being expanded right now, so that workers can tell
+ * an empty frontier that will still grow from a crawl that is finished.
+ */
+public class Frontier {
+
+	private final Deque<NodeDto> queue = new ArrayDeque<>();
+	private final Set<NodeDto> inFlight = Collections.newSetFromMap(new IdentityHashMap<NodeDto, Boolean>());
+	private boolean closed;
+
+	public synchronized void add(NodeDto node) {
+		queue.add(node);
+		notifyAll();
+	}
+
+	public synchronized void addAll(Collection<? extends NodeDto> nodes) {
+		queue.addAll(nodes);
+		notifyAll();
+	}
+
+	/**
+	 * Takes next node to expand. Every node taken has to be followed by {@link #done(NodeDto)}
+	 * once its children are added.
+	 * @return next node, or null when crawl is finished (frontier closed, or empty with no node in progress)
+	 */
+	public synchronized NodeDto take() throws InterruptedException {
+		while (!closed && queue.isEmpty() && !inFlight.isEmpty()) {
+			wait();
+		}
+		if (closed || queue.isEmpty()) {
+			return null;
+		}
+		NodeDto node = queue.poll();
+		inFlight.add(node);
+		return node;
+	}
+
+	/**
+	 * Marks expansion of a node taken with {@link #take()} as finished
+	 */
+	public synchronized void done(NodeDto node) {
+		inFlight.remove(node);
+		notifyAll();
+	}
+
+	/**
+	 * Makes all waiting and future {@link #take()} calls return null
+	 */
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+
+	/**
+	 * @return nodes being expanded right now (they have to be expanded again after resuming)
+	 * followed by nodes waiting in the queue
+	 */
+	public synchronized List<NodeDto> snapshot() {
+		List<NodeDto> nodes = new ArrayList<>(inFlight);
+		nodes.addAll(queue);
+		return nodes;
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	public synchronized int size() {
+		return queue.size();
+	}
+}
@@ -0,0 +1,14 @@
+package logic;
+
+import client.IdPage;
+import exceptions.ClientException;
+
+/**
+ * One of Twitter's cursored lists of user ids, e.g. ids of followers of some user
+ */
+public interface IIdsSource {
+	/**
+	 * @param cursor -1 for the first page, then next cursor of the previous page
+	 */
+	public IdPage getPage(long cursor) throws ClientException;
+}
@@ -0,0 +1,14 @@
+package logic;
+
+import client.Page;
+import exceptions.ClientException;
+
+/**
+ * One of Twitter's cursored lists, e.g. followers or friends of some user
+ */
+public interface IPageSource<T> {
+	/**
+	 * @param cursor -1 for the first page, then next cursor of the previous page
+	 */
+	public Page<T> getPage(long cursor) throws ClientException;
+}
@@ -0,0 +1,10 @@
+package logic;
+
+import dto.UserDto;
+
+/**
+ * Receives users resolved by {@link UserLookup}
+ */
+public interface IUserHandler {
+	public void resolved(UserDto user);
+}
@@ -0,0 +1,67 @@
+package logic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of keywords crawl: tweets received from Twitter, tweets written to the sink,
+ * and how long receiving was held back because writing fell behind
+ */
+public class IngestStats {
+
+	private final long start = System.nanoTime();
+	private final AtomicLong pages = new AtomicLong();
+	private final AtomicLong received = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong duplicates = new AtomicLong();
+	private final AtomicLong stalls = new AtomicLong();
+	private final AtomicLong stallTime = new AtomicLong();
+
+	public void page() {
+		pages.incrementAndGet();
+	}
+
+	public void received() {
+		received.incrementAndGet();
+	}
+
+	public void written() {
+		written.incrementAndGet();
+	}
+
+	public void duplicate() {
+		duplicates.incrementAndGet();
+	}
+
+	/**
+	 * Records that a received tweet had to wait for room in the queue
+	 * @param nanos how long it waited
+	 */
+	public void stalled(long nanos) {
+		stalls.incrementAndGet();
+		stallTime.addAndGet(nanos);
+	}
+
+	public long getReceived() {
+		return received.get();
+	}
+
+	public long getWritten() {
+		return written.get();
+	}
+
+	/**
+	 * @return tweets written per second since the crawl started
+	 */
+	public double getRate() {
+		long elapsed = System.nanoTime() - start;
+		return elapsed == 0 ? 0 : written.get() * 1e9 / elapsed;
+	}
+
+	public String toString() {
+		return String.format("%d tweets received (%d pages), %d written, %d duplicates, %.1f tweets/s, "
+				+ "receiving held back %d times for %d ms",
+				received.get(), pages.get(), written.get(), duplicates.get(), getRate(),
+				stalls.get(), TimeUnit.NANOSECONDS.toMillis(stallTime.get()));
+	}
+}
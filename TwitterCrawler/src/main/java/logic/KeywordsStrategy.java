@@ -1,45 +1,277 @@
 package logic;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import postgresDB.ISink;
+import postgresDB.Persistor;
+import postgresDB.Row;
 import publishers.DownloadTimer;
+import publishers.EventBus;
 import publishers.IPublisher;
+import twitter4j.FilterQuery;
+import twitter4j.Status;
+import twitter4j.StatusAdapter;
+import twitter4j.TwitterStream;
+import twitter4j.TwitterStreamFactory;
+import visited.IVisitedSet;
+import visited.VisitedSets;
+import ytharvest.metrics.Gauge;
+import ytharvest.metrics.Metrics;
+import client.ITwitterClient;
+import client.Page;
+import client.ClientWrapper;
+import client.TwitterClient;
+import dto.TweetDto;
+import dto.UserDto;
+import enums.Endpoint;
 import events.CrawlingEvent;
+import events.DownloadFinishedEvent;
+import events.NodeDiscoveredEvent;
+import events.ProgressEvent;
+import exceptions.ClientException;
 import listeners.IListener;
 
+/**
+ * Collects tweets containing the seed keyword, either paging through search results
+ * or listening to the filter stream (only with the real Twitter client). Tweets are handed over
+ * through a bounded queue to a parser thread writing them to the sink - when it falls behind,
+ * the queue fills up and receiving waits for it.
+ */
 public class KeywordsStrategy implements IStrategy, IListener {
-	
+
+	private static final Logger log = LoggerFactory.getLogger(KeywordsStrategy.class);
+
 	private TwitterDownloader context;
-	private boolean isCrawling = true;
+	private volatile boolean isCrawling = true;
+	private volatile boolean isReceiving = true;
 	private IPublisher downloadTimer;
-	
+	private EventBus bus;
+	private ITwitterClient client;
+	private String keyword;
+	private ISink sink;
+	private IVisitedSet visitedUsers;
+	private IVisitedSet visitedTweets;
+	private BlockingQueue<TweetDto> queue;
+	/**
+	 * Internal ids of authors written so far, by Twitter id - used by the parser thread only
+	 */
+	private final Map<Long, Long> authorIds = new HashMap<>();
+	private final IngestStats stats = new IngestStats();
+	private final AtomicLong nodes = Metrics.counter("crawl.nodes");
+	private static final int STATS_INTERVAL = 10000;
+
 	public KeywordsStrategy(TwitterDownloader context) {
+		this(context, Persistor.openSink(context.getConfig()));
+	}
+
+	/**
+	 * Writes to given sink instead of the one selected in configuration, e.g. in tests
+	 */
+	KeywordsStrategy(TwitterDownloader context, ISink sink) {
 		this.context = context;
+		this.sink = sink;
+		client = context.getClient();
+		bus = context.getBus();
+		keyword = context.getConfig().getSeed();
+		queue = new ArrayBlockingQueue<>(context.getConfig().getQueueSize());
+		visitedUsers = VisitedSets.create(context.getConfig());
+		visitedTweets = VisitedSets.create(context.getConfig());
 	}
 
 	@Override
 	public void execute() {
-		downloadTimer = new DownloadTimer(context.getConfig().getCrawlTime());
+		downloadTimer = new DownloadTimer(context.getConfig().getCrawlTime(), bus);
 		downloadTimer.register(this);
-		
+
 		System.out.println("Before Crawling...");
-		
-		while (isCrawling) {
-			try {
-				Thread.sleep(1000);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+		sink.createTables();
+
+		Thread parser = new Thread(new Runnable() {
+			public void run() {
+				parse();
+			}
+		}, "keywords-parser");
+		parser.start();
+		Metrics.gauge("frontier.size", new Gauge() {
+			public long getValue() {
+				return queue.size();
+			}
+		});
+		Timer statsTimer = new Timer(true);
+		statsTimer.schedule(new TimerTask() {
+			public void run() {
+				bus.publishAll(new ProgressEvent("Keywords : " + stats + ", " + queue.size() + " waiting", bus,
+						visitedUsers.size(), visitedTweets.size()));
 			}
-			System.out.println(isCrawling);
+		}, STATS_INTERVAL, STATS_INTERVAL);
+
+		try {
+			if (context.getConfig().isStream() && twitter() != null) {
+				listen(twitter());
+			} else {
+				search();
+			}
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		isReceiving = false;
+		try {
+			parser.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
 		}
-		
+		statsTimer.cancel();
+		Metrics.removeGauge("frontier.size");
+
 		((DownloadTimer) downloadTimer).getTimer().cancel();
 		System.out.println("After Crawling...");
+		System.out.println("Keywords : " + stats);
+		System.out.println("Users " + visitedUsers);
+		System.out.println("Tweets " + visitedTweets);
+
+		System.out.println("Saving to database...");
+		sink.close();
+		System.out.println("Saving to database finished.");
+	}
+
+	/**
+	 * Pages through search results (newest first) until there are no more of them
+	 */
+	private void search() throws InterruptedException {
+		long cursor = -1;
+		try {
+			while (isCrawling && cursor != 0) {
+				Endpoint.SEARCH.bucket().acquire();
+				log.debug("call endpoint={}", Endpoint.SEARCH);
+				Page<TweetDto> result = client.search(keyword, cursor);
+				stats.page();
+				for (TweetDto t : result) {
+					if (!offer(t)) {
+						return;
+					}
+				}
+				cursor = result.getNextCursor();
+			}
+		} catch (ClientException e) {
+			log.warn("Call failed: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Listens to tweets tracking the keyword until crawling is stopped
+	 */
+	private void listen(TwitterClient twitter) throws InterruptedException {
+		TwitterStream stream = new TwitterStreamFactory(twitter.getTwitter().getConfiguration()).getInstance();
+		stream.addListener(new StatusAdapter() {
+			public void onStatus(Status status) {
+				try {
+					offer(TwitterClient.toTweet(status));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			public void onException(Exception e) {
+				e.printStackTrace();
+			}
+		});
+		stream.filter(new FilterQuery().track(new String[] {keyword}));
+		synchronized (this) {
+			while (isCrawling) {
+				wait();
+			}
+		}
+		stream.shutdown();
+	}
+
+	/**
+	 * Hands received tweet over to the parser, waiting while the queue is full
+	 * @return false if crawling was stopped before there was room for the tweet
+	 */
+	private boolean offer(TweetDto tweet) throws InterruptedException {
+		stats.received();
+		if (queue.offer(tweet)) {
+			return true;
+		}
+		long start = System.nanoTime();
+		boolean queued = false;
+		while (isCrawling && !queued) {
+			queued = queue.offer(tweet, 100, TimeUnit.MILLISECONDS);
+		}
+		stats.stalled(System.nanoTime() - start);
+		return queued;
+	}
+
+	/**
+	 * Writes tweets from the queue (and their authors) to the sink, until receiving has finished
+	 * and the queue is empty
+	 */
+	private void parse() {
+		try {
+			while (isReceiving || !queue.isEmpty()) {
+				TweetDto t = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (t != null) {
+					write(t);
+				}
+			}
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void write(TweetDto t) {
+		if (!visitedTweets.visit(t.getTweetId())) {
+			stats.duplicate();
+			return;
+		}
+		// Tweets point at the row of their author, written with the first of them
+		long parentId = 0;
+		UserDto author = t.getAuthor();
+		if (author != null) {
+			Long id = authorIds.get(author.getUserId());
+			if (id == null) {
+				id = author.getId();
+				authorIds.put(author.getUserId(), id);
+				visitedUsers.visit(author.getUserId());
+				sink.write(Row.author(author));
+			}
+			parentId = id;
+		}
+		TweetDto tweet = NodeExpander.child(t, parentId);
+		NodeExpander.logNode("tweet", tweet, 1);
+		sink.write(Row.of(tweet, 0, "has_tweets_id"));
+		stats.written();
+		nodes.incrementAndGet();
+		if (bus.hasListeners(NodeDiscoveredEvent.class)) {
+			bus.publishAll(new NodeDiscoveredEvent("Tweet for keyword " + keyword, bus, tweet, 1));
+		}
+	}
+
+	/**
+	 * @return real Twitter client behind the client given, or null if there is none
+	 */
+	private TwitterClient twitter() {
+		return ClientWrapper.unwrap(client, TwitterClient.class);
 	}
 
 	@Override
 	public void publish(CrawlingEvent event) {
-		if (event.getSource() == this.downloadTimer) {
+		if (event instanceof DownloadFinishedEvent && event.getSource() == this.downloadTimer) {
 			System.out.println(event.getInfo());
 			isCrawling = false;
+			synchronized (this) {
+				notifyAll();
+			}
 		}
 	}
 }
@@ -0,0 +1,52 @@
+package logic;
+
+/**
+ * Statistics of expanding one level of breadth-first crawl
+ */
+public class LevelStats {
+
+	private final int level;
+	private final int nodes;
+	private final int children;
+	private final long time;
+
+	/**
+	 * @param nodes how many nodes of the level were expanded
+	 * @param children how many new nodes were found for the next level
+	 * @param time how long expanding the level took, in milliseconds
+	 */
+	public LevelStats(int level, int nodes, int children, long time) {
+		this.level = level;
+		this.nodes = nodes;
+		this.children = children;
+		this.time = time;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public int getNodes() {
+		return nodes;
+	}
+
+	public int getChildren() {
+		return children;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return average number of new nodes found per expanded node
+	 */
+	public double getFanOut() {
+		return nodes == 0 ? 0 : (double) children / nodes;
+	}
+
+	public String toString() {
+		return String.format("Level %d : %d nodes expanded, %d new nodes found (fan-out %.1f) in %.1f s",
+				level, nodes, children, getFanOut(), time / 1000.0);
+	}
+}
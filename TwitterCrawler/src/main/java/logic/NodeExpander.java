@@ -0,0 +1,455 @@
+package logic;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import postgresDB.ISink;
+import postgresDB.Row;
+import publishers.EventBus;
+import utils.LogSampler;
+import utils.Text;
+import visited.IVisitedSet;
+import ytharvest.metrics.Metrics;
+import ytharvest.throttle.TokenBucket;
+import client.ITwitterClient;
+import client.IdPage;
+import client.Page;
+import dto.NodeDto;
+import dto.TweetDto;
+import dto.UserDto;
+import enums.Endpoint;
+import enums.Relation;
+import events.NodeDiscoveredEvent;
+import exceptions.ClientException;
+
+/**
+ * Expands one node of the crawled graph: calls Twitter API for every configured relation,
+ * writes discovered nodes to the sink and adds them to the frontier so that they can be crawled further.
+ * Nodes reached before (by Twitter id) are still written, but not queued again.
+ * Followers and friends may be fetched as ids only and resolved into users by a shared
+ * {@link UserLookup}, 100 per call.
+ * Safe to use from many threads at once - every API call takes a token from the bucket
+ * of its endpoint, shared by all threads. Nodes queued are counted in "crawl.nodes" metric.
+ * A checkpoint {@link #pause() pauses} expansion, so that no id is waiting in the lookup
+ * while the progress saved in its parent is already past it.
+ */
+public class NodeExpander {
+
+	private static final Logger log = LoggerFactory.getLogger(NodeExpander.class);
+
+	private final ITwitterClient client;
+	private final Set<Relation> relations;
+	private final ISink sink;
+	private final int maxPages;
+	private final IVisitedSet visitedUsers;
+	private final IVisitedSet visitedTweets;
+	private final UserLookup lookup;
+	private EventBus bus;
+	private final AtomicLong nodes = Metrics.counter("crawl.nodes");
+	private volatile boolean isCrawling = true;
+	/**
+	 * Held for reading while a page of ids is handed over to the lookup or the lookup is flushed,
+	 * and for writing while expansion is paused
+	 */
+	private final ReadWriteLock steps = new ReentrantReadWriteLock();
+
+	/**
+	 * Steps of expansion, see {@link NodeDto#getStep()}
+	 */
+	private static final int FOLLOWERS_STEP = 0;
+	private static final int FRIENDS_STEP = 1;
+	private static final int MENTIONS_STEP = 2;
+	private static final int TWEETS_STEP = 3;
+	private static final int RETWEETS_STEP = 0;
+
+	/**
+	 * @param lookup when given, followers and friends are fetched as ids and resolved in batches by it
+	 */
+	public NodeExpander(ITwitterClient client, Set<Relation> relations, ISink sink, int maxPages,
+			IVisitedSet visitedUsers, IVisitedSet visitedTweets, UserLookup lookup) {
+		this.client = client;
+		this.relations = relations;
+		this.sink = sink;
+		this.maxPages = maxPages;
+		this.visitedUsers = visitedUsers;
+		this.visitedTweets = visitedTweets;
+		this.lookup = lookup;
+	}
+
+	/**
+	 * Stops expanding - calls in progress return what they have found so far
+	 */
+	public void stop() {
+		isCrawling = false;
+	}
+
+	public boolean isCrawling() {
+		return isCrawling;
+	}
+
+	/**
+	 * @param bus bus to publish {@link NodeDiscoveredEvent} to for every node queued, if anyone listens
+	 */
+	public void setBus(EventBus bus) {
+		this.bus = bus;
+	}
+
+	/**
+	 * Looks up the seed user, so that crawl does not come back to it
+	 * @return seed user, without Twitter id if it could not be looked up
+	 */
+	public UserDto seed(String screenName) throws InterruptedException {
+		UserDto user = new UserDto();
+		user.setName(screenName);
+		try {
+			Endpoint.USERS.bucket().acquire();
+			user = client.showUser(screenName);
+			visitedUsers.visit(user.getUserId());
+		} catch (ClientException e) {
+			log.warn("Call failed: {}", e.getMessage());
+		}
+		return user;
+	}
+
+	/**
+	 * Writes children of given node to the sink and adds them to the frontier as soon as they are found.
+	 * Stops early when crawling is stopped or the frontier is closed. Progress is recorded in the node,
+	 * and relations (or pages) the node has already got past are skipped.
+	 */
+	public void expand(NodeDto node, int level, Frontier frontier) throws InterruptedException {
+		if (node instanceof UserDto) {
+			UserDto parent = (UserDto) node;
+			if (relations.contains(Relation.FOLLOWED_BY) && isCrawling && parent.getStep() <= FOLLOWERS_STEP) {
+				expandRelatives(parent, Relation.FOLLOWED_BY, FOLLOWERS_STEP, level, frontier);
+				if (isCrawling) {
+					parent.setProgress(FRIENDS_STEP, -1);
+				}
+			}
+			if (relations.contains(Relation.FOLLOWS) && isCrawling && parent.getStep() <= FRIENDS_STEP) {
+				expandRelatives(parent, Relation.FOLLOWS, FRIENDS_STEP, level, frontier);
+				if (isCrawling) {
+					parent.setProgress(MENTIONS_STEP, -1);
+				}
+			}
+			if (relations.contains(Relation.MENTIONS) && isCrawling && parent.getStep() <= MENTIONS_STEP) {
+				expandStatuses(parent, Relation.MENTIONS, level, frontier);
+				if (isCrawling) {
+					parent.setProgress(TWEETS_STEP, -1);
+				}
+			}
+			if (relations.contains(Relation.REPLIES_TO) && isCrawling) {
+				log.debug("Afraid replies are not implementable in any way...");
+			}
+			if (relations.contains(Relation.HAS_TWEETS) && isCrawling && parent.getStep() <= TWEETS_STEP) {
+				expandStatuses(parent, Relation.HAS_TWEETS, level, frontier);
+			}
+		} else if (node instanceof TweetDto) {
+			TweetDto parent = (TweetDto) node;
+			if (relations.contains(Relation.RETWEETS) && isCrawling && parent.getStep() <= RETWEETS_STEP) {
+				expandStatuses(parent, Relation.RETWEETS, level, frontier);
+				if (isCrawling) {
+					parent.setProgress(RETWEETS_STEP + 1, -1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolves users still waiting in the lookup, so that all discovered relations get written
+	 * and all children of expanded nodes get queued
+	 */
+	public void flush() throws InterruptedException {
+		if (lookup != null && isCrawling) {
+			steps.readLock().lock();
+			try {
+				lookup.flush();
+			} finally {
+				steps.readLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Waits for pages of ids being handed over to the lookup, holds off new ones and resolves users
+	 * still waiting in the lookup (even if crawling has been stopped). Then every user found so far
+	 * has been written to the sink and queued, and progress of nodes being expanded points past them only,
+	 * so a checkpoint can be taken. Must be followed by {@link #resume()}.
+	 */
+	public void pause() throws InterruptedException {
+		steps.writeLock().lockInterruptibly();
+		boolean paused = false;
+		try {
+			if (lookup != null) {
+				lookup.flush();
+			}
+			paused = true;
+		} finally {
+			if (!paused) {
+				steps.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Lets expansion paused by {@link #pause()} go on
+	 */
+	public void resume() {
+		steps.writeLock().unlock();
+	}
+
+	/**
+	 * @return statistics of the user lookup, or null if users are not looked up
+	 */
+	public UserLookup getLookup() {
+		return lookup;
+	}
+
+	/**
+	 * Walks followers or friends of parent user, from the page its progress points at
+	 */
+	private void expandRelatives(UserDto parent, Relation relation, int step, int level, Frontier frontier)
+			throws InterruptedException {
+		long cursor = parent.getStep() == step ? parent.getCursor() : -1;
+		if (lookup != null) {
+			expandUserIds(parent, relation, step, cursor, level, frontier);
+		} else {
+			expandUsers(parent, relation, step, pager(client, parent, relation, maxPages, cursor), level, frontier);
+		}
+	}
+
+	/**
+	 * Walks all pages of followers or friends of parent user. Users are not collected in the parent -
+	 * once written and queued, only the page being walked is held.
+	 */
+	private void expandUsers(UserDto parent, Relation relation, int step, CursorPager<UserDto> pager, int level,
+			Frontier frontier) {
+		while (isCrawling && !frontier.isClosed() && pager.hasNext()) {
+			UserDto user = pager.next();
+			parent.setProgress(step, pager.getPageCursor());
+			addUser(parent, user, relation, level, frontier);
+		}
+	}
+
+	/**
+	 * Walks all pages of follower or friend ids of parent user (up to 5000 ids per call),
+	 * handing the ids over to the lookup to be resolved in batches
+	 */
+	private void expandUserIds(final UserDto parent, final Relation relation, int step, long cursor, final int level,
+			final Frontier frontier) throws InterruptedException {
+		final String name = parent.getName();
+		IIdsSource source = new IIdsSource() {
+			public IdPage getPage(long cursor) throws ClientException {
+				if (relation == Relation.FOLLOWED_BY) {
+					return client.getFollowersIds(name, cursor);
+				}
+				return client.getFriendsIds(name, cursor);
+			}
+		};
+		TokenBucket bucket = endpoint(relation).bucket();
+		IUserHandler handler = new IUserHandler() {
+			public void resolved(UserDto user) {
+				addUser(parent, user, relation, level, frontier);
+			}
+		};
+		int pages = 0;
+		try {
+			while (cursor != 0 && isCrawling && !frontier.isClosed() && (maxPages == 0 || pages < maxPages)) {
+				parent.setProgress(step, cursor);
+				bucket.acquire();
+				steps.readLock().lock();
+				try {
+					log.debug("call endpoint={}", bucket.getName());
+					IdPage ids = source.getPage(cursor);
+					pages++;
+					boolean all = true;
+					for (long id : ids.getIds()) {
+						if (!isCrawling || frontier.isClosed()) {
+							all = false;
+							break;
+						}
+						lookup.add(id, handler);
+					}
+					cursor = ids.getNextCursor();
+					if (all) {
+						// ids of this page are either resolved or will be before a checkpoint
+						parent.setProgress(step, cursor);
+					}
+				} finally {
+					steps.readLock().unlock();
+				}
+			}
+		} catch (ClientException e) {
+			log.warn("Call failed: {}", e.getMessage());
+		}
+	}
+
+	private void addUser(UserDto parent, UserDto user, Relation relation, int level, Frontier frontier) {
+		writeChild(sink, parent, user, relation, level);
+		enqueue(visitedUsers, user.getUserId(), user, level + 1, frontier);
+	}
+
+	/**
+	 * Writes and queues tweets of parent node in given relation - mentions, timeline or retweets
+	 */
+	private void expandStatuses(NodeDto parent, Relation relation, int level, Frontier frontier)
+			throws InterruptedException {
+		try {
+			for (TweetDto t : getStatuses(client, parent, relation)) {
+				if (isCrawling) {
+					TweetDto tweet = (TweetDto) writeChild(sink, parent, t, relation, level);
+					enqueue(visitedTweets, tweet.getTweetId(), tweet, level + 1, frontier);
+				}
+			}
+		} catch (ClientException e) {
+			log.warn("Call failed: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Queues node at given level unless it has been visited. Both happen under the frontier's lock,
+	 * so that a checkpoint never sees a node marked visited but not queued.
+	 */
+	private void enqueue(IVisitedSet visited, long id, NodeDto node, int level, Frontier frontier) {
+		boolean first;
+		synchronized (frontier) {
+			first = visited.visit(id);
+			if (first) {
+				node.setLevel(level);
+				frontier.add(node);
+			}
+		}
+		if (first) {
+			nodes.incrementAndGet();
+		}
+		if (first && bus != null && bus.hasListeners(NodeDiscoveredEvent.class)) {
+			bus.publishAll(new NodeDiscoveredEvent("Node discovered at level " + level, bus, node, level));
+		}
+	}
+
+	/**
+	 * @return endpoint called for given relation, null for replies
+	 */
+	static Endpoint endpoint(Relation relation) {
+		switch (relation) {
+		case FOLLOWED_BY:
+			return Endpoint.FOLLOWERS;
+		case FOLLOWS:
+			return Endpoint.FRIENDS;
+		case MENTIONS:
+			return Endpoint.MENTIONS;
+		case HAS_TWEETS:
+			return Endpoint.TIMELINE;
+		case RETWEETS:
+			return Endpoint.RETWEETS;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return pager over followers or friends of the user (as given relation says), starting at given cursor
+	 */
+	static CursorPager<UserDto> pager(final ITwitterClient client, UserDto user, final Relation relation,
+			int maxPages, long cursor) {
+		final String name = user.getName();
+		return new CursorPager<>(new IPageSource<UserDto>() {
+			public Page<UserDto> getPage(long cursor) throws ClientException {
+				if (relation == Relation.FOLLOWED_BY) {
+					return client.getFollowers(name, cursor);
+				}
+				return client.getFriends(name, cursor);
+			}
+		}, endpoint(relation).bucket(), maxPages, cursor);
+	}
+
+	/**
+	 * Calls the endpoint of given relation (mentions, timeline or retweets) for the node,
+	 * taking a token from its bucket first
+	 */
+	static List<TweetDto> getStatuses(ITwitterClient client, NodeDto node, Relation relation)
+			throws ClientException, InterruptedException {
+		Endpoint endpoint = endpoint(relation);
+		endpoint.bucket().acquire();
+		log.debug("call endpoint={}", endpoint);
+		if (relation == Relation.MENTIONS) {
+			return client.getMentions();
+		} else if (relation == Relation.HAS_TWEETS) {
+			return client.getTimeline(((UserDto) node).getName());
+		}
+		return client.getRetweets(((TweetDto) node).getTweetId());
+	}
+
+	/**
+	 * Writes child found in given relation of the node to the sink - users with the node's id in the relation
+	 * column, tweets made children of the node with {@link #child(TweetDto, long)}
+	 * @return the child
+	 */
+	static NodeDto writeChild(ISink sink, NodeDto node, NodeDto child, Relation relation, int level) {
+		String kind;
+		String column;
+		switch (relation) {
+		case FOLLOWED_BY:
+			kind = "follower";
+			column = "followers_id";
+			break;
+		case FOLLOWS:
+			kind = "friend";
+			column = "friends_id";
+			break;
+		case MENTIONS:
+			kind = "mention";
+			column = "mentioned_id";
+			break;
+		case HAS_TWEETS:
+			kind = "tweet";
+			column = "has_tweets_id";
+			break;
+		default:
+			kind = "retweet";
+			column = "retweeted_id";
+		}
+		if (child instanceof UserDto) {
+			logNode(kind, child, level);
+			sink.write(Row.of(child, ((UserDto) node).getId(), column));
+			return child;
+		}
+		long parentId = node instanceof TweetDto ? ((TweetDto) node).getTweetId() : ((UserDto) node).getId();
+		TweetDto tweet = child((TweetDto) child, parentId);
+		logNode(kind, tweet, level);
+		sink.write(Row.of(tweet, 0, column));
+		return tweet;
+	}
+
+	/**
+	 * Logs node found at given level as one line, when debug logging is on - and then only
+	 * a sample of nodes, see {@link LogSampler}
+	 */
+	public static void logNode(String kind, NodeDto node, int level) {
+		if (log.isDebugEnabled() && LogSampler.sample()) {
+			if (node instanceof UserDto) {
+				UserDto user = (UserDto) node;
+				log.debug("node kind={} level={} id={} name={}",
+						new Object[] {kind, level, user.getUserId(), user.getName()});
+			} else {
+				TweetDto tweet = (TweetDto) node;
+				log.debug("node kind={} level={} id={} parent={}",
+						new Object[] {kind, level, tweet.getTweetId(), tweet.getParentId()});
+			}
+		}
+	}
+
+	/**
+	 * Makes tweet returned by the client a child of given node, with its text prepared for the database
+	 */
+	static TweetDto child(TweetDto tweet, long parentId) {
+		tweet.setParentId(parentId);
+		tweet.setText(Text.processText(tweet.getText()));
+		return tweet;
+	}
+}
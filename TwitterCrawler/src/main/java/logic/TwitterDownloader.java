@@ -1,20 +1,50 @@
 package logic;
 
-import twitter4j.Twitter;
+import listeners.ConsoleListener;
+import postgresDB.Persistor;
+import publishers.EventBus;
+import utils.LogSampler;
+import ytharvest.metrics.Metrics;
+import ytharvest.metrics.MetricsReporter;
+import ytharvest.throttle.Retries;
+import ytharvest.throttle.RetryPolicy;
+import ytharvest.throttle.Throttle;
+import ytharvest.throttle.TokenBucket;
+import client.ITwitterClient;
+import client.MeteredClient;
+import client.PublishingClient;
+import client.RetryingClient;
 import config.CrawlerConfiguration;
+import enums.Endpoint;
 import enums.Strategy;
+import events.ProgressEvent;
+import events.RateLimitedEvent;
 
 public class TwitterDownloader extends Thread {
 	
 	private CrawlerConfiguration config;
-	private Twitter twitter;
+	private ITwitterClient client;
+	/**
+	 * Events of the crawl - strategies publish to it, and listeners subscribe to it
+	 */
+	private final EventBus bus = new EventBus();
 	
-	public TwitterDownloader(CrawlerConfiguration config, Twitter twitter) {
+	public TwitterDownloader(CrawlerConfiguration config, ITwitterClient client) {
 		this.config = config;
-		this.twitter = twitter;
+		this.client = client;
 	}
 	
 	public void run() {
+		Endpoint.configure(config.getHitsPerHour(), config.getBurst());
+		LogSampler.configure(config.getLogSample());
+		bus.register(new ConsoleListener(), ProgressEvent.class, RateLimitedEvent.class);
+		client = new RetryingClient(new MeteredClient(new PublishingClient(client, bus)));
+		Metrics.registerMBean("TwitterCrawler:type=Metrics");
+		MetricsReporter reporter = null;
+		if (config.getMetricsInterval() > 0) {
+			reporter = new MetricsReporter(config.getMetricsInterval());
+			reporter.start();
+		}
 		if (config.getStrategy() == Strategy.BREADTH_FIRST) {
 			new BreadthFirstStrategy(this).execute();
 		} else if (config.getStrategy() == Strategy.DEPTH_FIRST) {
@@ -22,6 +52,19 @@ public class TwitterDownloader extends Thread {
 		} else if (config.getStrategy() == Strategy.KEYWORDS) {
 			new KeywordsStrategy(this).execute();
 		}
+		bus.close();
+		Persistor.shutdown();
+		if (reporter != null) {
+			reporter.stop();
+		}
+		for (TokenBucket bucket : Throttle.getBuckets()) {
+			System.out.println(bucket);
+		}
+		for (RetryPolicy policy : Retries.getPolicies()) {
+			System.out.println(policy);
+		}
+		System.out.println(client);
+		System.out.println(bus);
 	}
 
 	public CrawlerConfiguration getConfig() {
@@ -32,12 +75,16 @@ public class TwitterDownloader extends Thread {
 		this.config = config;
 	}
 
-	public Twitter getTwitter() {
-		return twitter;
+	public ITwitterClient getClient() {
+		return client;
+	}
+
+	public void setClient(ITwitterClient client) {
+		this.client = client;
 	}
 
-	public void setTwitter(Twitter twitter) {
-		this.twitter = twitter;
+	public EventBus getBus() {
+		return bus;
 	}
 	
 	
@@ -0,0 +1,138 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import client.ITwitterClient;
+import dto.UserDto;
+import enums.Endpoint;
+import exceptions.ClientException;
+
+/**
+ * Resolves user ids into full users in batches - one users/lookup call for up to 100 ids,
+ * collected from many nodes and many threads, instead of a call per user or per short page.
+ * Every id is handed back to the handler it was added with; ids of users that no longer
+ * exist (or are suspended) are dropped. Ids of a batch whose call failed - after the retries
+ * of the client - are dropped as well, and counted as unresolved.
+ */
+public class UserLookup {
+
+	private static final Logger log = LoggerFactory.getLogger(UserLookup.class);
+
+	public static final int BATCH_SIZE = 100;
+
+	private final ITwitterClient client;
+	private final List<Long> ids = new ArrayList<>();
+	private final List<IUserHandler> handlers = new ArrayList<>();
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong resolved = new AtomicLong();
+	private final AtomicLong unresolved = new AtomicLong();
+
+	public UserLookup(ITwitterClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Adds id to the current batch. When the batch is full it is resolved right away,
+	 * by the calling thread.
+	 */
+	public void add(long id, IUserHandler handler) throws InterruptedException {
+		long[] batchIds = null;
+		List<IUserHandler> batchHandlers = null;
+		synchronized (this) {
+			ids.add(id);
+			handlers.add(handler);
+			if (ids.size() >= BATCH_SIZE) {
+				batchIds = takeIds();
+				batchHandlers = takeHandlers();
+			}
+		}
+		if (batchIds != null) {
+			resolve(batchIds, batchHandlers);
+		}
+	}
+
+	/**
+	 * Resolves all ids added so far, even if the batch is not full
+	 */
+	public void flush() throws InterruptedException {
+		long[] batchIds;
+		List<IUserHandler> batchHandlers;
+		synchronized (this) {
+			if (ids.isEmpty()) {
+				return;
+			}
+			batchIds = takeIds();
+			batchHandlers = takeHandlers();
+		}
+		resolve(batchIds, batchHandlers);
+	}
+
+	public synchronized int getPending() {
+		return ids.size();
+	}
+
+	public long getCalls() {
+		return calls.get();
+	}
+
+	public long getResolved() {
+		return resolved.get();
+	}
+
+	/**
+	 * @return number of ids dropped because their call failed
+	 */
+	public long getUnresolved() {
+		return unresolved.get();
+	}
+
+	public String toString() {
+		return "Looked up " + getResolved() + " users in " + getCalls() + " calls, " + getUnresolved()
+				+ " unresolved";
+	}
+
+	private long[] takeIds() {
+		long[] result = new long[ids.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ids.get(i);
+		}
+		ids.clear();
+		return result;
+	}
+
+	private List<IUserHandler> takeHandlers() {
+		List<IUserHandler> result = new ArrayList<>(handlers);
+		handlers.clear();
+		return result;
+	}
+
+	private void resolve(long[] batchIds, List<IUserHandler> batchHandlers) throws InterruptedException {
+		try {
+			Endpoint.USERS.bucket().acquire();
+			log.debug("call endpoint={}", Endpoint.USERS);
+			List<UserDto> users = client.lookupUsers(batchIds);
+			calls.incrementAndGet();
+			Map<Long, UserDto> byId = new HashMap<>();
+			for (UserDto u : users) {
+				byId.put(u.getUserId(), u);
+			}
+			for (int i = 0; i < batchIds.length; i++) {
+				UserDto u = byId.get(batchIds[i]);
+				if (u != null) {
+					resolved.incrementAndGet();
+					batchHandlers.get(i).resolved(u);
+				}
+			}
+		} catch (ClientException e) {
+			log.warn("Call failed: {}", e.getMessage());
+			unresolved.addAndGet(batchIds.length);
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package postgresDB;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ytharvest.metrics.Gauge;
+import ytharvest.metrics.Histogram;
+import ytharvest.metrics.Metrics;
+
+/**
+ * Base for sinks writing rows to database while crawling instead of at the very end of it.
+ * Rows are handed to a background writer through a bounded queue (so crawling blocks
+ * when database falls behind) and written in batches, flushed every batchSize rows
+ * or every flushInterval milliseconds - whichever comes first - and whenever {@link #flush()} is called.
+ * Subclasses decide how one batch is written.
+ * Rows waiting in the queue are reported as "sink.queue" metric, time of writing a batch as "sink.flush"
+ * and time from the first row of a batch reaching the writer until the batch is committed as "sink.lag".
+ */
+public abstract class AsyncSink implements ISink {
+
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	public static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
+	/**
+	 * How many batches may wait in the queue before writers are blocked
+	 */
+	private static final int QUEUED_BATCHES = 4;
+
+	/**
+	 * Marks the end of input for the writer thread
+	 */
+	private static final Row END = new Row(null, null, null);
+
+	/**
+	 * Marks a point in the queue for {@link AsyncSink#flush()} - the writer saves all rows queued before it
+	 * and then counts the latch down
+	 */
+	private static class FlushMark extends Row {
+		private final CountDownLatch saved = new CountDownLatch(1);
+
+		FlushMark() {
+			super(null, null, null);
+		}
+	}
+
+	private final int batchSize;
+	private final long flushInterval;
+	private final BlockingQueue<Row> queue;
+	private final Thread writer;
+	private final AtomicLong rowsWritten = new AtomicLong();
+	private final AtomicLong rowsFailed = new AtomicLong();
+	private final long startTime;
+	private final AtomicLong rowsMetric = Metrics.counter("sink.rows");
+	private final AtomicLong failedMetric = Metrics.counter("sink.failed");
+	private final Histogram flushTime = Metrics.histogram("sink.flush");
+	private final Histogram lag = Metrics.histogram("sink.lag");
+
+	private Connection connection;
+
+	public AsyncSink(int batchSize, int flushInterval) {
+		this.batchSize = batchSize;
+		this.flushInterval = flushInterval;
+		queue = new ArrayBlockingQueue<>(batchSize * QUEUED_BATCHES);
+		startTime = System.currentTimeMillis();
+		Metrics.gauge("sink.queue", new Gauge() {
+			public long getValue() {
+				return queue.size();
+			}
+		});
+		writer = new Thread(new Runnable() {
+			public void run() {
+				writeLoop();
+			}
+		}, getClass().getSimpleName() + " writer");
+		writer.start();
+	}
+
+	/**
+	 * Writes one batch of rows using given connection. Transaction is committed by the caller.
+	 */
+	protected abstract void writeBatch(Connection con, List<Row> rows) throws Exception;
+
+	/**
+	 * Called by writer thread after the last batch has been written
+	 */
+	protected void finish(Connection con) throws Exception {
+	}
+
+	/**
+	 * Called whenever connection is about to be given back, so that objects bound to it can be dropped
+	 */
+	protected void disconnected() {
+	}
+
+	@Override
+	public void createTables() {
+		execute(SQLBuilder.getTablesDDL());
+	}
+
+	/**
+	 * Rows simply go to existing tables
+	 */
+	@Override
+	public void reopenTables() {
+	}
+
+	/**
+	 * Runs SQL script on a separate connection, before any rows are written
+	 */
+	protected void execute(String sql) {
+		Connection con = null;
+		try {
+			con = Persistor.getConnection();
+			try (Statement st = con.createStatement()) {
+				st.executeUpdate(sql);
+			}
+		} catch (Exception e) {
+			System.out.println("Could not execute SQL script.\n" + e + "\n");
+		} finally {
+			Persistor.release(con);
+		}
+	}
+
+	@Override
+	public void write(Row row) {
+		if (row == null) {
+			return;
+		}
+		try {
+			queue.put(row);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Rows queued before are saved in the current batch, without waiting for it to fill up or for flushInterval
+	 */
+	@Override
+	public void flush() {
+		FlushMark mark = new FlushMark();
+		try {
+			queue.put(mark);
+			mark.saved.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Flushes remaining rows and stops the writer thread
+	 */
+	@Override
+	public void close() {
+		try {
+			queue.put(END);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		System.out.println("Saved " + getRowsWritten() + " rows (" + (long) getRowsPerSecond() + " rows/sec), "
+				+ getRowsFailed() + " rows failed.");
+	}
+
+	public long getRowsWritten() {
+		return rowsWritten.get();
+	}
+
+	public long getRowsFailed() {
+		return rowsFailed.get();
+	}
+
+	/**
+	 * @return average number of rows written per second since this sink was created
+	 */
+	public double getRowsPerSecond() {
+		long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+		return rowsWritten.get() * 1000.0 / elapsed;
+	}
+
+	private void writeLoop() {
+		List<Row> pending = new ArrayList<>(batchSize);
+		long deadline = System.currentTimeMillis() + flushInterval;
+		boolean running = true;
+		long batchStart = 0;
+		while (running) {
+			FlushMark mark = null;
+			try {
+				long wait = Math.max(0, deadline - System.currentTimeMillis());
+				Row row = queue.poll(wait, TimeUnit.MILLISECONDS);
+				if (row == END) {
+					running = false;
+				} else if (row instanceof FlushMark) {
+					mark = (FlushMark) row;
+				} else if (row != null) {
+					if (pending.isEmpty()) {
+						batchStart = System.nanoTime();
+					}
+					pending.add(row);
+				}
+			} catch (InterruptedException e) {
+				running = false;
+			}
+			if (!running || mark != null || pending.size() >= batchSize || System.currentTimeMillis() >= deadline) {
+				if (!pending.isEmpty()) {
+					save(pending);
+					lag.record(System.nanoTime() - batchStart);
+					pending.clear();
+				}
+				deadline = System.currentTimeMillis() + flushInterval;
+			}
+			if (mark != null) {
+				mark.saved.countDown();
+			}
+		}
+		try {
+			finish(connect());
+			connection.commit();
+		} catch (Exception e) {
+			System.out.println("Could not finish writing.\n" + e + "\n");
+		}
+		disconnect(false);
+	}
+
+	private void save(List<Row> rows) {
+		long start = System.nanoTime();
+		try {
+			writeBatch(connect(), rows);
+			connection.commit();
+			rowsWritten.addAndGet(rows.size());
+			rowsMetric.addAndGet(rows.size());
+			flushTime.record(System.nanoTime() - start);
+		} catch (Exception e) {
+			System.out.println("Could not save batch of " + rows.size() + " rows.\n" + e + "\n");
+			rowsFailed.addAndGet(rows.size());
+			failedMetric.addAndGet(rows.size());
+			// Start over with a fresh connection, this one may be broken
+			disconnect(true);
+		}
+	}
+
+	private Connection connect() throws Exception {
+		if (connection == null) {
+			connection = Persistor.getConnection();
+			connection.setAutoCommit(false);
+		}
+		return connection;
+	}
+
+	private void disconnect(boolean broken) {
+		disconnected();
+		if (connection != null) {
+			if (broken) {
+				Persistor.discard(connection);
+			} else {
+				Persistor.release(connection);
+			}
+			connection = null;
+		}
+	}
+}
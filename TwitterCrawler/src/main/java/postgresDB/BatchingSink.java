@@ -0,0 +1,73 @@
+package postgresDB;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts rows with parameterized PreparedStatement batches (addBatch/executeBatch).
+ * One statement is prepared per table and column list and reused for the whole crawl.
+ */
+public class BatchingSink extends AsyncSink {
+
+	private Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+
+	public BatchingSink() {
+		this(DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	public BatchingSink(int batchSize, int flushInterval) {
+		super(batchSize, flushInterval);
+	}
+
+	@Override
+	protected void writeBatch(Connection con, List<Row> rows) throws Exception {
+		List<PreparedStatement> used = new ArrayList<>();
+		for (Row row : rows) {
+			String sql = row.getInsertSQL();
+			PreparedStatement ps = statements.get(sql);
+			if (ps == null) {
+				ps = con.prepareStatement(sql);
+				statements.put(sql, ps);
+			}
+			if (!used.contains(ps)) {
+				used.add(ps);
+			}
+			bind(ps, row.getValues());
+			ps.addBatch();
+		}
+		for (PreparedStatement ps : used) {
+			ps.executeBatch();
+		}
+	}
+
+	@Override
+	protected void disconnected() {
+		for (PreparedStatement ps : statements.values()) {
+			try {
+				ps.close();
+			} catch (SQLException e) {
+				// the connection may be broken, it is given back or dropped right after anyway
+			}
+		}
+		statements.clear();
+	}
+
+	private static void bind(PreparedStatement ps, Object[] values) throws SQLException {
+		for (int i = 0; i < values.length; i++) {
+			Object v = values[i];
+			if (v == null) {
+				ps.setNull(i + 1, Types.VARCHAR);
+			} else if (v instanceof Long) {
+				ps.setLong(i + 1, (Long) v);
+			} else {
+				ps.setString(i + 1, v.toString());
+			}
+		}
+	}
+}
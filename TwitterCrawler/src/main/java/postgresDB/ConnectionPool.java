@@ -0,0 +1,160 @@
+package postgresDB;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of database connections. At most maxSize connections are lent at once,
+ * further callers wait until one is released. Returned connections are kept idle
+ * and reused instead of opening a new one for every save.
+ */
+public class ConnectionPool {
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int maxSize;
+	private final Semaphore permits;
+	private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	public ConnectionPool(String driver, String url, String user, String password, int maxSize) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize, true);
+		try {
+			Class.forName(driver);
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Lends a connection, waiting if all of them are in use. It has to be given back
+	 * with {@link #release(Connection)} or {@link #discard(Connection)}.
+	 */
+	public Connection acquire() throws SQLException {
+		long start = System.nanoTime();
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for connection", e);
+		}
+		recordWait(System.nanoTime() - start);
+		Connection con = idle.pollFirst();
+		try {
+			if (con == null || con.isClosed()) {
+				con = DriverManager.getConnection(url, user, password);
+			}
+		} catch (SQLException e) {
+			permits.release();
+			throw e;
+		}
+		active.incrementAndGet();
+		acquired.incrementAndGet();
+		return con;
+	}
+
+	/**
+	 * Gives back a healthy connection so it can be reused
+	 */
+	public void release(Connection con) {
+		if (con == null) {
+			return;
+		}
+		try {
+			if (!con.getAutoCommit()) {
+				con.rollback();
+				con.setAutoCommit(true);
+			}
+			idle.offerFirst(con);
+		} catch (SQLException e) {
+			close(con);
+		}
+		active.decrementAndGet();
+		permits.release();
+	}
+
+	/**
+	 * Gives back a connection which may be broken - it is closed instead of reused
+	 */
+	public void discard(Connection con) {
+		if (con == null) {
+			return;
+		}
+		close(con);
+		active.decrementAndGet();
+		permits.release();
+	}
+
+	/**
+	 * Closes idle connections. Connections still lent are closed when given back.
+	 */
+	public void shutdown() {
+		Connection con;
+		while ((con = idle.pollFirst()) != null) {
+			close(con);
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getActive() {
+		return active.get();
+	}
+
+	public int getIdle() {
+		return idle.size();
+	}
+
+	public long getAcquired() {
+		return acquired.get();
+	}
+
+	/**
+	 * @return total time callers spent waiting for a connection, in milliseconds
+	 */
+	public long getWaitTime() {
+		return waitNanos.get() / 1000000;
+	}
+
+	/**
+	 * @return longest single wait for a connection, in milliseconds
+	 */
+	public long getMaxWaitTime() {
+		return maxWaitNanos.get() / 1000000;
+	}
+
+	public String toString() {
+		return "Connection pool : active " + getActive() + ", idle " + getIdle() + ", max " + maxSize
+				+ ", acquired " + getAcquired() + ", wait time " + getWaitTime() + " ms (max " + getMaxWaitTime() + " ms)";
+	}
+
+	private void recordWait(long nanos) {
+		waitNanos.addAndGet(nanos);
+		long max;
+		while (nanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, nanos)) {
+		}
+	}
+
+	private static void close(Connection con) {
+		try {
+			con.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+}
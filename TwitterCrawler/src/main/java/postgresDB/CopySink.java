@@ -0,0 +1,138 @@
+package postgresDB;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Bulk loader for very large crawls. Each batch is streamed as CSV through PostgreSQL
+ * COPY into staging tables (one per crawler table), which are merged into the real tables
+ * once the crawl is finished. Staging tables take their ids from the sequences of the real
+ * tables, so merging is a plain INSERT ... SELECT.
+ */
+public class CopySink extends AsyncSink {
+
+	/**
+	 * Tables created by SQLBuilder.getTablesDDL() which get a staging counterpart
+	 */
+	private static final String[] TABLES = {"users", "tweets", "usersYt", "uploaded", "favourite"};
+	private static final String STAGE = "_stage";
+
+	public CopySink() {
+		this(DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	public CopySink(int batchSize, int flushInterval) {
+		super(batchSize, flushInterval);
+	}
+
+	@Override
+	public void createTables() {
+		StringBuilder sb = new StringBuilder(SQLBuilder.getTablesDDL());
+		for (String table : TABLES) {
+			sb.append("DROP TABLE IF EXISTS " + table + STAGE + ";\n");
+			sb.append(getStageDDL(table));
+		}
+		execute(sb.toString());
+	}
+
+	/**
+	 * Keeps rows staged before the crawl was interrupted, creates staging tables which are missing
+	 */
+	@Override
+	public void reopenTables() {
+		StringBuilder sb = new StringBuilder();
+		Connection con = null;
+		try {
+			con = Persistor.getConnection();
+			for (String table : TABLES) {
+				try (ResultSet rs = con.getMetaData().getTables(null, null, (table + STAGE).toLowerCase(), null)) {
+					if (!rs.next()) {
+						sb.append(getStageDDL(table));
+					}
+				}
+			}
+		} catch (Exception e) {
+			System.out.println("Could not check staging tables.\n" + e + "\n");
+		} finally {
+			Persistor.release(con);
+		}
+		if (sb.length() > 0) {
+			execute(sb.toString());
+		}
+	}
+
+	private static String getStageDDL(String table) {
+		String stage = table + STAGE;
+		return "CREATE TABLE " + stage + " AS SELECT * FROM " + table + " LIMIT 0;\n"
+				+ "ALTER TABLE " + stage + " ALTER COLUMN id SET DEFAULT nextval('"
+				+ table.toLowerCase() + "_id_seq');\n";
+	}
+
+	@Override
+	protected void writeBatch(Connection con, List<Row> rows) throws Exception {
+		// One COPY per staging table and column list
+		Map<String, StringBuilder> chunks = new LinkedHashMap<>();
+		for (Row row : rows) {
+			String copy = "COPY " + row.getTable() + STAGE + "(" + row.getColumnList() + ") FROM STDIN WITH CSV";
+			StringBuilder csv = chunks.get(copy);
+			if (csv == null) {
+				csv = new StringBuilder();
+				chunks.put(copy, csv);
+			}
+			appendCSV(csv, row.getValues());
+		}
+		CopyManager copyManager = ((PGConnection) con).getCopyAPI();
+		for (Map.Entry<String, StringBuilder> chunk : chunks.entrySet()) {
+			copyManager.copyIn(chunk.getKey(), new StringReader(chunk.getValue().toString()));
+		}
+	}
+
+	/**
+	 * Moves staged rows to the real tables
+	 */
+	@Override
+	protected void finish(Connection con) throws Exception {
+		System.out.println("Merging staging tables...");
+		try (Statement st = con.createStatement()) {
+			for (String table : TABLES) {
+				st.executeUpdate("INSERT INTO " + table + " SELECT * FROM " + table + STAGE);
+				st.executeUpdate("DROP TABLE " + table + STAGE);
+			}
+		}
+	}
+
+	/**
+	 * Appends one CSV line. Nulls are written as empty unquoted fields, strings are always quoted.
+	 */
+	private static void appendCSV(StringBuilder csv, Object[] values) {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				csv.append(',');
+			}
+			Object v = values[i];
+			if (v instanceof Long) {
+				csv.append(v);
+			} else if (v != null) {
+				String s = v.toString();
+				csv.append('"');
+				for (int j = 0; j < s.length(); j++) {
+					char c = s.charAt(j);
+					if (c == '"') {
+						csv.append('"');
+					}
+					csv.append(c);
+				}
+				csv.append('"');
+			}
+		}
+		csv.append('\n');
+	}
+}
@@ -0,0 +1,19 @@
+package postgresDB;
+
+/**
+ * Destination for rows produced while crawling
+ */
+public interface ISink {
+	public void createTables();
+	/**
+	 * Prepares to write to tables created by an earlier, interrupted crawl, instead of {@link #createTables()}
+	 */
+	public void reopenTables();
+	public void write(Row row);
+	/**
+	 * Blocks until all rows written so far have been saved (or have failed to be saved), e.g. before a checkpoint
+	 * records them as done. Must not be called after {@link #close()}.
+	 */
+	public void flush();
+	public void close();
+}
@@ -1,26 +1,66 @@
 package postgresDB;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistryBuilder;
+import org.hibernate.service.jdbc.connections.spi.ConnectionProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import config.CrawlerConfiguration;
 import dto.NodeDto;
 import dto.UserDto;
+import enums.SinkType;
 
 public class Persistor {
-	public static void save(NodeDto node) {
-		Configuration configuration = new Configuration();
-		configuration.configure();
-		ServiceRegistryBuilder serviceRegistryBuilder = new ServiceRegistryBuilder().applySettings(configuration.getProperties());
-		SessionFactory sessionFactory = configuration.buildSessionFactory(serviceRegistryBuilder.buildServiceRegistry());
 
-		Session session = sessionFactory.openSession();
+	private static final Logger log = LoggerFactory.getLogger(Persistor.class);
+	
+	/**
+	 * Connection settings, by default the database crawled rows have always been saved to;
+	 * may be overridden with system properties (e.g. to point the crawler at a local throwaway database)
+	 */
+	public static final String URL = System.getProperty("crawler.db.url", "jdbc:postgresql://localhost:5432/baza_testowa");
+	public static final String USER = System.getProperty("crawler.db.user", "twit");
+	public static final String PASSWORD = System.getProperty("crawler.db.password", "twit");
+	
+	public static final int POOL_SIZE = Integer.getInteger("crawler.db.poolSize", 10);
+	
+	private static ConnectionPool pool;
+	private static SessionFactory sessionFactory;
+	
+	/**
+	 * @return connection pool shared by all sinks and Hibernate, created on first use
+	 */
+	public static synchronized ConnectionPool getPool() {
+		if (pool == null) {
+			pool = new ConnectionPool("org.postgresql.Driver", URL, USER, PASSWORD, POOL_SIZE);
+		}
+		return pool;
+	}
+	
+	/**
+	 * @return session factory built once from hibernate.cfg.xml, taking connections from the pool
+	 */
+	public static synchronized SessionFactory getSessionFactory() {
+		if (sessionFactory == null) {
+			Configuration configuration = new Configuration();
+			configuration.configure();
+			ServiceRegistryBuilder serviceRegistryBuilder = new ServiceRegistryBuilder()
+					.applySettings(configuration.getProperties())
+					.addService(ConnectionProvider.class, new PooledConnectionProvider(getPool()));
+			sessionFactory = configuration.buildSessionFactory(serviceRegistryBuilder.buildServiceRegistry());
+		}
+		return sessionFactory;
+	}
+	
+	public static void save(NodeDto node) {
+		Session session = getSessionFactory().openSession();
 		session.beginTransaction();
 
 		session.merge((UserDto) node);
@@ -32,21 +72,76 @@ public class Persistor {
 	public static void save1(String sql){
 		//zmienna zawierajca poczenie do bazy
 		Connection dbcon = null;
+		Exception failure = null;
 		try {
 		    
-		    Class.forName("org.postgresql.Driver").newInstance();
-		    dbcon = DriverManager.getConnection("jdbc:postgresql://localhost:5432/baza_testowa", "twit", "twit");
-		    Statement st = dbcon.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_UPDATABLE);
-		    System.out.println(sql);
-		    
-		    int insertedRows = st.executeUpdate(sql);//,Statement.RETURN_GENERATED_KEYS);
-		    System.out.println(insertedRows);
-		    
-		    dbcon.close();
+		    dbcon = getConnection();
+		    try (Statement st = dbcon.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY, java.sql.ResultSet.CONCUR_UPDATABLE)) {
+		    	// The whole script only at trace level - it holds every row of the crawl
+		    	log.trace(sql);
+		    	
+		    	int insertedRows = st.executeUpdate(sql);//,Statement.RETURN_GENERATED_KEYS);
+		    	log.debug("script chars={} rows={}", sql.length(), insertedRows);
+		    }
 		}catch(Exception e){
-		    System.out.println("Bd bazy danych.\n" + e + "\n");
+		    failure = e;
+		}finally{
+		    // Given back before exiting below - System.exit does not return to run this
+		    if (dbcon != null) {
+		    	if (failure == null) {
+		    		release(dbcon);
+		    	} else {
+		    		discard(dbcon);
+		    	}
+		    }
+		}
+		if (failure != null) {
+		    System.out.println("Bd bazy danych.\n" + failure + "\n");
 		    System.exit(-1);
 		}
 
 	}
+	
+	/**
+	 * @return sink selected in configuration, writing to crawler database
+	 */
+	public static ISink openSink(CrawlerConfiguration config) {
+		if (config.getSinkType() == SinkType.COPY) {
+			return new CopySink(config.getBatchSize(), config.getFlushInterval());
+		}
+		return new BatchingSink(config.getBatchSize(), config.getFlushInterval());
+	}
+	
+	/**
+	 * @return connection to crawler database borrowed from the pool,
+	 * to be given back with {@link #release(Connection)} or {@link #discard(Connection)}
+	 */
+	public static Connection getConnection() throws SQLException {
+		return getPool().acquire();
+	}
+	
+	public static void release(Connection con) {
+		getPool().release(con);
+	}
+	
+	/**
+	 * Gives back connection which may be broken, so that it is not reused
+	 */
+	public static void discard(Connection con) {
+		getPool().discard(con);
+	}
+	
+	/**
+	 * Closes session factory and idle connections, printing pool statistics
+	 */
+	public static synchronized void shutdown() {
+		if (sessionFactory != null) {
+			sessionFactory.close();
+			sessionFactory = null;
+		}
+		if (pool != null) {
+			System.out.println(pool.toString());
+			pool.shutdown();
+		}
+	}
 }
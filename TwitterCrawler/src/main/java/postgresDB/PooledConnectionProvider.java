@@ -0,0 +1,51 @@
+package postgresDB;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.hibernate.service.jdbc.connections.spi.ConnectionProvider;
+
+/**
+ * Lets Hibernate borrow connections from the crawler's connection pool
+ * instead of opening its own ones
+ */
+public class PooledConnectionProvider implements ConnectionProvider {
+
+	private static final long serialVersionUID = 1L;
+
+	private final ConnectionPool pool;
+
+	public PooledConnectionProvider(ConnectionPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return pool.acquire();
+	}
+
+	@Override
+	public void closeConnection(Connection con) throws SQLException {
+		pool.release(con);
+	}
+
+	@Override
+	public boolean supportsAggressiveRelease() {
+		return false;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public boolean isUnwrappableAs(Class unwrapType) {
+		return ConnectionProvider.class.equals(unwrapType) || PooledConnectionProvider.class.isAssignableFrom(unwrapType);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T unwrap(Class<T> unwrapType) {
+		if (isUnwrappableAs(unwrapType)) {
+			return (T) this;
+		}
+		throw new IllegalArgumentException("Cannot unwrap to " + unwrapType);
+	}
+}
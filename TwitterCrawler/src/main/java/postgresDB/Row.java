@@ -0,0 +1,117 @@
+package postgresDB;
+
+import ytharvest.factory.entities.ExtractedEntity;
+import ytharvest.factory.entities.ExtractedUser;
+import ytharvest.factory.entities.ExtractedVideo;
+import dto.NodeDto;
+import dto.TweetDto;
+import dto.UserDto;
+
+/**
+ * One row of crawl output - the table it goes to, its columns and values.
+ * Rows are mapped the same way SQLBuilder.prepareSQL maps nodes to INSERT statements,
+ * but values are kept apart from SQL so they can be bound as statement parameters.
+ */
+public class Row {
+
+	private final String table;
+	private final String[] columns;
+	private final Object[] values;
+
+	public Row(String table, String[] columns, Object[] values) {
+		this.table = table;
+		this.columns = columns;
+		this.values = values;
+	}
+
+	/**
+	 * @return row for Twitter node (user or tweet) with relation column set to k,
+	 * or null when node is of unknown type
+	 */
+	public static Row of(NodeDto node, long k, String relation) {
+		if (node instanceof UserDto) {
+			UserDto u = (UserDto) node;
+			return new Row("users", new String[] {"data", "name", relation},
+					new Object[] {u.getLang(), u.getName(), k});
+		} else if (node instanceof TweetDto) {
+			TweetDto t = (TweetDto) node;
+			return new Row("tweets", new String[] {"data", "tweet_id", relation},
+					new Object[] {t.getText(), t.getTweetId(), t.getParentId()});
+		}
+		return null;
+	}
+
+	/**
+	 * @return row for YouTube relation between user and other entity ("users", "uploaded" or "favs"),
+	 * or null when relation is unknown
+	 */
+	public static Row of(ExtractedEntity node, ExtractedEntity node2, String relation) {
+		if (relation.equals("users") && node instanceof ExtractedUser) {
+			return new Row("usersYt", new String[] {"name", "subscribes"},
+					new Object[] {((ExtractedUser) node).getUserName(), ((ExtractedUser) node2).getUserName()});
+		} else if (relation.equals("uploaded")) {
+			return new Row("uploaded", new String[] {"name", "upload", "category"},
+					new Object[] {((ExtractedUser) node).getUserName(), ((ExtractedVideo) node2).getVideoId(),
+					((ExtractedVideo) node2).getCategory()});
+		} else if (relation.equals("favs")) {
+			return new Row("favourite", new String[] {"name", "favs", "category"},
+					new Object[] {((ExtractedUser) node).getUserName(), ((ExtractedVideo) node2).getVideoId(),
+					((ExtractedVideo) node2).getCategory()});
+		}
+		return null;
+	}
+
+	/**
+	 * @return row for user found as author of a tweet, without any relation. Its id is the user's internal id,
+	 * so that tweets can point at it - keyword crawls write no other users.
+	 */
+	public static Row author(UserDto user) {
+		return new Row("users", new String[] {"id", "data", "name"},
+				new Object[] {user.getId(), user.getLang(), user.getName()});
+	}
+
+	/**
+	 * @return row holding only the screen name of seed user
+	 */
+	public static Row seed(String name) {
+		return new Row("users", new String[] {"name"}, new Object[] {name});
+	}
+
+	/**
+	 * @return parameterized INSERT statement for this row, shared by all rows
+	 * with the same table and columns
+	 */
+	public String getInsertSQL() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("INSERT INTO ").append(table).append("(").append(getColumnList());
+		sb.append(") VALUES (");
+		for (int i = 0; i < columns.length; i++) {
+			sb.append(i == 0 ? "?" : ",?");
+		}
+		sb.append(")");
+		return sb.toString();
+	}
+
+	/**
+	 * @return comma separated column names
+	 */
+	public String getColumnList() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < columns.length; i++) {
+			sb.append(i == 0 ? "" : ",").append(columns[i]);
+		}
+		return sb.toString();
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public String[] getColumns() {
+		return columns;
+	}
+
+	public Object[] getValues() {
+		return values;
+	}
+}
@@ -20,6 +20,14 @@ public class SQLBuilder {
 	}
 	
 	public void generateTables(){
+		builder.append(getTablesDDL());
+	}
+	
+	/**
+	 * @return DDL (re)creating all tables the crawler writes to
+	 */
+	public static String getTablesDDL(){
+		StringBuilder builder= new StringBuilder("");
 		
 		builder.append("DROP TABLE IF EXISTS users;\n");
 		builder.append("CREATE TABLE users ("
@@ -60,6 +68,7 @@ public class SQLBuilder {
         + "name VARCHAR(256), " 
         + "favs VARCHAR(256), "
         + "category VARCHAR(256));\n");
+		return builder.toString();
 	}
 	
 	public void prepareSQL(NodeDto node, NodeDto node2, long k, String relation){
@@ -1,7 +1,5 @@
 package publishers;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -11,13 +9,18 @@ import events.DownloadFinishedEvent;
 
 import utils.Sec;
 
+/**
+ * Counts down crawl time and publishes {@link DownloadFinishedEvent} through the event bus when it is over.
+ * Listeners registered here get the timer's events only.
+ */
 public class DownloadTimer implements IPublisher {
 	
-	private Collection<IListener> listeners = new ArrayList<>();
+	private final EventBus bus;
 	private final Sec secondsToFinish;
 	private Timer timer;
 	
-	public DownloadTimer(int val) {
+	public DownloadTimer(int val, EventBus bus) {
+		this.bus = bus;
 		this.secondsToFinish = new Sec(val);
 		timer = new Timer();
 		timer.schedule(new TimerTask() {		
@@ -39,18 +42,16 @@ public class DownloadTimer implements IPublisher {
  
 	@Override
 	public void publishAll(CrawlingEvent event) {
-		for (IListener listener : listeners) {
-			listener.publish(event);
-		}	
+		bus.publishAll(event);
 	}
 
 	@Override
 	public void register(IListener listener) {
-		listeners.add(listener);	
+		bus.register(listener, DownloadFinishedEvent.class);
 	}
 
 	@Override
 	public void unregister(IListener listener) {
-		listeners.remove(listener);
+		bus.unregister(listener);
 	}
 }
@@ -0,0 +1,238 @@
+package publishers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import listeners.IListener;
+import ytharvest.metrics.Metrics;
+import events.CrawlingEvent;
+
+/**
+ * Delivers crawling events to listeners asynchronously. Every listener has its own queue and thread,
+ * so publishing only appends the event to queues of listeners interested in it and never waits
+ * for a listener - a slow one falls behind alone, without holding up the crawl or the others.
+ * Listeners get their events in the order they were published by one thread.
+ * Queues are bounded: when a listener has fallen behind by the whole capacity, events for it are dropped
+ * (counted in "events.dropped" metric) rather than kept in memory or made to wait for it. Listeners which
+ * must not miss an event, like those of DownloadFinishedEvent, should subscribe to rare events only.
+ * After {@link #close()} no more events are accepted, and the events already queued are delivered
+ * before listener threads finish.
+ */
+public class EventBus implements IPublisher {
+
+	/**
+	 * How many events may wait for one listener by default
+	 */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final int capacity;
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong droppedMetric = Metrics.counter("events.dropped");
+	private volatile boolean closed;
+
+	public EventBus() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity how many events may wait for one listener, further ones are dropped
+	 */
+	public EventBus(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Queues event for every listener interested in it
+	 */
+	@Override
+	public void publishAll(CrawlingEvent event) {
+		if (closed) {
+			return;
+		}
+		published.incrementAndGet();
+		for (Subscription s : subscriptions) {
+			if (s.accepts(event.getClass()) && !s.offer(event)) {
+				dropped.incrementAndGet();
+				droppedMetric.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Subscribes listener to all events
+	 */
+	@Override
+	public void register(IListener listener) {
+		subscribe(listener, null);
+	}
+
+	/**
+	 * Subscribes listener to events of given types (and their subtypes), or to all events if none are given
+	 */
+	@SafeVarargs
+	public final void register(IListener listener, Class<? extends CrawlingEvent>... types) {
+		subscribe(listener, types.length == 0 ? null : types);
+	}
+
+	/**
+	 * Subscribes listener to events of given types, or to all events if types is null
+	 */
+	private void subscribe(IListener listener, Class<? extends CrawlingEvent>[] types) {
+		if (closed) {
+			return;
+		}
+		Subscription s = new Subscription(listener, types, capacity);
+		subscriptions.add(s);
+		s.thread.start();
+	}
+
+	/**
+	 * Stops delivering events to listener, once those already queued for it are delivered
+	 */
+	@Override
+	public void unregister(IListener listener) {
+		for (Subscription s : subscriptions) {
+			if (s.listener == listener) {
+				subscriptions.remove(s);
+				s.stop();
+			}
+		}
+	}
+
+	/**
+	 * @return whether any listener is interested in events of given type - publishers may skip
+	 * creating events nobody listens to
+	 */
+	public boolean hasListeners(Class<? extends CrawlingEvent> type) {
+		for (Subscription s : subscriptions) {
+			if (s.accepts(type)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stops accepting events and waits until listeners get all events queued for them
+	 */
+	public void close() {
+		closed = true;
+		for (Subscription s : subscriptions) {
+			s.stop();
+		}
+		for (Subscription s : subscriptions) {
+			// A listener closing the bus can not wait for itself
+			if (s.thread != Thread.currentThread()) {
+				try {
+					s.thread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return number of events not delivered to some listener because its queue was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public String toString() {
+		return "Event bus : " + published.get() + " events published to " + subscriptions.size() + " listeners, "
+				+ dropped.get() + " dropped";
+	}
+
+	/**
+	 * Queue of events for one listener, emptied by its own thread. The thread parks when the queue is empty;
+	 * publishers unpark it only when it has announced it is going to park, so that a busy listener costs them
+	 * no more than appending to a lock-free queue. Its size is counted apart, as the queue's own size() is not
+	 * constant time.
+	 */
+	private static class Subscription implements Runnable {
+
+		private final IListener listener;
+		private final Class<? extends CrawlingEvent>[] types;
+		private final Queue<CrawlingEvent> queue = new ConcurrentLinkedQueue<>();
+		private final int capacity;
+		private final AtomicInteger size = new AtomicInteger();
+		private final Thread thread;
+		private volatile boolean waiting;
+		private volatile boolean stopped;
+
+		Subscription(IListener listener, Class<? extends CrawlingEvent>[] types, int capacity) {
+			this.listener = listener;
+			this.types = types;
+			this.capacity = capacity;
+			thread = new Thread(this, "events-" + listener.getClass().getSimpleName());
+			thread.setDaemon(true);
+		}
+
+		boolean accepts(Class<? extends CrawlingEvent> type) {
+			if (types == null) {
+				return true;
+			}
+			for (Class<? extends CrawlingEvent> t : types) {
+				if (t.isAssignableFrom(type)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return false if the event was dropped, as the queue is full
+		 */
+		boolean offer(CrawlingEvent event) {
+			if (size.incrementAndGet() > capacity) {
+				size.decrementAndGet();
+				return false;
+			}
+			queue.offer(event);
+			if (waiting) {
+				LockSupport.unpark(thread);
+			}
+			return true;
+		}
+
+		void stop() {
+			stopped = true;
+			LockSupport.unpark(thread);
+		}
+
+		public void run() {
+			while (true) {
+				CrawlingEvent event = queue.poll();
+				if (event != null) {
+					size.decrementAndGet();
+					try {
+						listener.publish(event);
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+					}
+				} else if (stopped) {
+					// Queue was empty after stop was seen, so nothing more will come
+					if (queue.isEmpty()) {
+						return;
+					}
+				} else {
+					// Announce parking before checking the queue again - an event queued after the check
+					// sees waiting set and unparks this thread
+					waiting = true;
+					if (queue.isEmpty() && !stopped) {
+						LockSupport.park(this);
+					}
+					waiting = false;
+				}
+			}
+		}
+	}
+}
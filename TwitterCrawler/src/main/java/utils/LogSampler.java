@@ -0,0 +1,31 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through every n-th message about a crawled node, so that debug logging of a fast crawl
+ * shows a sample of nodes instead of all of them
+ */
+public final class LogSampler {
+
+	private static volatile int every = 1;
+	private static final AtomicLong count = new AtomicLong();
+
+	private LogSampler() {
+	}
+
+	/**
+	 * @param every every how many messages one is logged, 1 (or less) for all of them
+	 */
+	public static void configure(int every) {
+		LogSampler.every = every;
+	}
+
+	/**
+	 * @return whether the message should be logged - call only when it would be logged at all
+	 */
+	public static boolean sample() {
+		int n = every;
+		return n <= 1 || count.incrementAndGet() % n == 0;
+	}
+}
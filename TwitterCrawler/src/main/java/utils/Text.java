@@ -2,13 +2,74 @@ package utils;
 
 public class Text {
 	private static final int LEN = 63;
+
 	/**
-	 * 
+	 * Per-thread buffer for texts that have to be changed - at most LEN code points, 2 chars each
+	 */
+	private static final ThreadLocal<char[]> buffer = new ThreadLocal<char[]>() {
+		protected char[] initialValue() {
+			return new char[2 * LEN];
+		}
+	};
+
+	/**
+	 * Prepares text of tweet for the database in a single pass: keeps at most LEN characters
+	 * (code points, so emoji are never cut in half), drops apostrophes and unpaired surrogates
+	 * and turns control characters (new lines, tabs) into spaces. Dropped characters do not count
+	 * towards the limit.
+	 * Texts that need no change are returned as they are, without copying.
 	 * @return processed text of tweet
 	 */
 	public static String processText(String text) {
-		text = (text.length() > LEN) ? text.substring(0, LEN) : text;
-		text = text.replaceAll("'", "");
-		return text;
+		int length = text.length();
+		int i = 0;
+		int codePoints = 0;
+		// Fast path - nothing to change up to the end of text, or to the limit
+		while (i < length && codePoints < LEN) {
+			char c = text.charAt(i);
+			if (c == '\'' || Character.isISOControl(c)) {
+				break;
+			}
+			if (Character.isSurrogate(c)) {
+				if (!Character.isHighSurrogate(c) || i + 1 == length || !Character.isLowSurrogate(text.charAt(i + 1))) {
+					break;
+				}
+				i++;
+			}
+			i++;
+			codePoints++;
+		}
+		if (i == length) {
+			return text;
+		}
+		if (codePoints == LEN) {
+			return text.substring(0, i);
+		}
+
+		char[] out = buffer.get();
+		text.getChars(0, i, out, 0);
+		int n = i;
+		while (i < length && codePoints < LEN) {
+			char c = text.charAt(i++);
+			if (c == '\'') {
+				continue;
+			}
+			if (Character.isISOControl(c)) {
+				out[n++] = ' ';
+			} else if (Character.isHighSurrogate(c)) {
+				if (i < length && Character.isLowSurrogate(text.charAt(i))) {
+					out[n++] = c;
+					out[n++] = text.charAt(i++);
+				} else {
+					continue;
+				}
+			} else if (Character.isLowSurrogate(c)) {
+				continue;
+			} else {
+				out[n++] = c;
+			}
+			codePoints++;
+		}
+		return new String(out, 0, n);
 	}
 }
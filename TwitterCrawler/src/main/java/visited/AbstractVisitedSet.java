@@ -0,0 +1,73 @@
+package visited;
+
+/**
+ * Counts lookups and hits for visited set implementations, which only have to store ids.
+ * All operations are synchronized, so one set may be shared by many crawl workers.
+ */
+public abstract class AbstractVisitedSet implements IVisitedSet {
+
+	private long lookups;
+	private long hits;
+	private long size;
+	
+	/**
+	 * Adds id to the set
+	 * @return false if id was already there
+	 */
+	protected abstract boolean add(long id);
+	
+	protected abstract boolean has(long id);
+	
+	@Override
+	public synchronized boolean visit(long id) {
+		lookups++;
+		if (add(id)) {
+			size++;
+			return true;
+		}
+		hits++;
+		return false;
+	}
+	
+	@Override
+	public synchronized boolean contains(long id) {
+		return has(id);
+	}
+	
+	@Override
+	public synchronized long size() {
+		return size;
+	}
+	
+	@Override
+	public synchronized long getLookups() {
+		return lookups;
+	}
+	
+	@Override
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	@Override
+	public synchronized double getHitRate() {
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+	
+	public String toString() {
+		return getClass().getSimpleName() + " : " + size() + " visited, " + getHits() + " of " + getLookups()
+				+ " expansions avoided (" + Math.round(getHitRate() * 100) + "%)";
+	}
+	
+	/**
+	 * Spreads bits of id over the whole long (finalizer of MurmurHash3)
+	 */
+	protected static long mix(long id) {
+		id ^= id >>> 33;
+		id *= 0xff51afd7ed558ccdL;
+		id ^= id >>> 33;
+		id *= 0xc4ceb9fe1a85ec53L;
+		id ^= id >>> 33;
+		return id;
+	}
+}
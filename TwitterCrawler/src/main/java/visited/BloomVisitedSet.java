@@ -0,0 +1,110 @@
+package visited;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Approximate visited set for crawls of millions of nodes: a scalable Bloom filter.
+ * When the current filter is full, a new one, twice as big and with half the false positive
+ * rate, is added - so the overall false positive rate stays below twice the initial one
+ * however many nodes are visited. A false positive means a node is wrongly taken for
+ * visited and is not expanded.
+ */
+public class BloomVisitedSet extends AbstractVisitedSet {
+
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+	
+	private final List<Filter> filters = new ArrayList<>();
+	
+	public BloomVisitedSet() {
+		this(DEFAULT_CAPACITY, DEFAULT_FALSE_POSITIVE_RATE);
+	}
+	
+	public BloomVisitedSet(int capacity, double falsePositiveRate) {
+		filters.add(new Filter(capacity, falsePositiveRate / 2));
+	}
+	
+	@Override
+	protected boolean add(long id) {
+		if (has(id)) {
+			return false;
+		}
+		Filter last = filters.get(filters.size() - 1);
+		if (last.isFull()) {
+			last = new Filter(last.capacity * 2, last.falsePositiveRate / 2);
+			filters.add(last);
+		}
+		last.add(id);
+		return true;
+	}
+	
+	@Override
+	protected boolean has(long id) {
+		for (Filter f : filters) {
+			if (f.has(id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @return memory taken by all filters, in bytes
+	 */
+	public synchronized long getBytes() {
+		long bytes = 0;
+		for (Filter f : filters) {
+			bytes += f.bits.length * 8L;
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Plain Bloom filter sized for given number of ids and false positive rate
+	 */
+	private static class Filter {
+		
+		private final int capacity;
+		private final double falsePositiveRate;
+		private final long[] bits;
+		private final long size;
+		private final int hashes;
+		private int count;
+		
+		Filter(int capacity, double falsePositiveRate) {
+			this.capacity = capacity;
+			this.falsePositiveRate = falsePositiveRate;
+			long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+			bits = new long[(int) ((m + 63) / 64)];
+			size = bits.length * 64L;
+			hashes = Math.max(1, (int) Math.round((double) size / capacity * Math.log(2)));
+		}
+		
+		boolean isFull() {
+			return count >= capacity;
+		}
+		
+		void add(long id) {
+			long h1 = mix(id);
+			long h2 = mix(h1) | 1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % size;
+				bits[(int) (bit >>> 6)] |= 1L << bit;
+			}
+			count++;
+		}
+		
+		boolean has(long id) {
+			long h1 = mix(id);
+			long h2 = mix(h1) | 1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % size;
+				if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package visited;
+
+/**
+ * Remembers which nodes (Twitter users or tweets, by their Twitter id) have already
+ * been reached, so that they are not expanded again
+ */
+public interface IVisitedSet {
+
+	/**
+	 * Marks node as visited
+	 * @return true if node has not been visited before and should be expanded
+	 */
+	public boolean visit(long id);
+	
+	public boolean contains(long id);
+	
+	/**
+	 * @return number of distinct nodes visited
+	 */
+	public long size();
+	
+	/**
+	 * @return number of {@link #visit(long)} calls
+	 */
+	public long getLookups();
+	
+	/**
+	 * @return number of {@link #visit(long)} calls for nodes already visited - each of them is an expansion avoided
+	 */
+	public long getHits();
+	
+	public double getHitRate();
+}
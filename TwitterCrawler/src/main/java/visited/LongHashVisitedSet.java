@@ -0,0 +1,74 @@
+package visited;
+
+/**
+ * Exact visited set: open addressing hash set of primitive longs with linear probing.
+ * Takes 8-16 bytes per node, with no boxing - good for crawls of up to a few million nodes.
+ */
+public class LongHashVisitedSet extends AbstractVisitedSet {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+	
+	/**
+	 * 0 marks a free slot, so id 0 is remembered separately
+	 */
+	private long[] keys;
+	private boolean hasZero;
+	private int count;
+	
+	public LongHashVisitedSet() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public LongHashVisitedSet(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+		keys = new long[capacity];
+	}
+	
+	@Override
+	protected boolean add(long id) {
+		if (id == 0) {
+			boolean added = !hasZero;
+			hasZero = true;
+			return added;
+		}
+		int slot = find(keys, id);
+		if (keys[slot] == id) {
+			return false;
+		}
+		keys[slot] = id;
+		if (++count * 2 > keys.length) {
+			resize();
+		}
+		return true;
+	}
+	
+	@Override
+	protected boolean has(long id) {
+		if (id == 0) {
+			return hasZero;
+		}
+		return keys[find(keys, id)] == id;
+	}
+	
+	/**
+	 * @return slot holding id, or the free slot where it should be put
+	 */
+	private static int find(long[] keys, long id) {
+		int mask = keys.length - 1;
+		int slot = (int) mix(id) & mask;
+		while (keys[slot] != 0 && keys[slot] != id) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	private void resize() {
+		long[] old = keys;
+		keys = new long[old.length * 2];
+		for (long id : old) {
+			if (id != 0) {
+				keys[find(keys, id)] = id;
+			}
+		}
+	}
+}
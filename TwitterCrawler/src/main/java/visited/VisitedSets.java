@@ -0,0 +1,20 @@
+package visited;
+
+import config.CrawlerConfiguration;
+import enums.VisitedType;
+
+public final class VisitedSets {
+
+	private VisitedSets() {
+	}
+	
+	/**
+	 * @return new, empty visited set of the kind chosen in configuration
+	 */
+	public static IVisitedSet create(CrawlerConfiguration config) {
+		if (config.getVisitedType() == VisitedType.BLOOM) {
+			return new BloomVisitedSet();
+		}
+		return new LongHashVisitedSet();
+	}
+}
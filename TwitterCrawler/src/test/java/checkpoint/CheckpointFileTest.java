@@ -0,0 +1,160 @@
+package checkpoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import dto.NodeDto;
+import dto.TweetDto;
+import dto.UserDto;
+
+/**
+ * Tests of {@link CheckpointFile} and {@link CrawlState} written to it
+ */
+public class CheckpointFileTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException {
+		file = File.createTempFile("crawl", ".checkpoint");
+		file.delete();
+	}
+
+	@Override
+	protected void tearDown() {
+		file.delete();
+		new File(file.getPath() + ".tmp").delete();
+	}
+
+	public void testMissingFileHasNoState() throws IOException {
+		assertNull(CheckpointFile.load(file));
+	}
+
+	public void testStateIsReadAsWritten() throws IOException {
+		CheckpointFile checkpoints = new CheckpointFile(file);
+		checkpoints.append(new long[] {1, 2}, new long[] {10}, state(1));
+		checkpoints.append(new long[] {3}, new long[0], state(2));
+		checkpoints.close();
+
+		CrawlState loaded = CheckpointFile.load(file);
+		assertEquals(2, loaded.getDepth());
+		assertEquals(200, loaded.getLastUserId());
+		assertEquals(2000, loaded.getLastTweetId());
+		assertTrue(Arrays.equals(new long[] {1, 2, 3}, loaded.getVisitedUsers()));
+		assertTrue(Arrays.equals(new long[] {10}, loaded.getVisitedTweets()));
+
+		List<NodeDto> frontier = loaded.getFrontier();
+		assertEquals(2, frontier.size());
+		UserDto user = (UserDto) frontier.get(0);
+		assertEquals(Long.valueOf(7), user.getId());
+		assertEquals(70, user.getUserId());
+		assertEquals("user7", user.getName());
+		assertNull(user.getLang());
+		assertEquals(2, user.getLevel());
+		assertEquals(3, user.getStep());
+		assertEquals(12345, user.getCursor());
+		TweetDto tweet = (TweetDto) frontier.get(1);
+		assertEquals(8, tweet.getId());
+		assertEquals(80, tweet.getTweetId());
+		assertEquals(7, tweet.getParentId());
+		assertEquals("za gl ja", tweet.getText());
+	}
+
+	public void testTornVisitedFrameIsIgnored() throws IOException {
+		CheckpointFile checkpoints = new CheckpointFile(file);
+		checkpoints.append(new long[] {1}, new long[] {10}, state(1));
+		checkpoints.append(new long[] {2}, new long[] {20}, state(2));
+		long intact = file.length();
+		checkpoints.append(new long[] {3}, new long[] {30}, state(3));
+		checkpoints.close();
+		truncate(intact + 5);
+
+		CrawlState loaded = CheckpointFile.load(file);
+		assertEquals(2, loaded.getDepth());
+		assertTrue(Arrays.equals(new long[] {1, 2}, loaded.getVisitedUsers()));
+		assertTrue(Arrays.equals(new long[] {10, 20}, loaded.getVisitedTweets()));
+	}
+
+	public void testTornStateFrameIsIgnored() throws IOException {
+		CheckpointFile checkpoints = new CheckpointFile(file);
+		checkpoints.append(new long[] {1}, new long[0], state(1));
+		checkpoints.append(new long[0], new long[0], state(2));
+		checkpoints.close();
+		truncate(file.length() - 3);
+
+		CrawlState loaded = CheckpointFile.load(file);
+		assertEquals(1, loaded.getDepth());
+		assertTrue(Arrays.equals(new long[] {1}, loaded.getVisitedUsers()));
+	}
+
+	public void testResumedFileGoesOnAfterTornFrame() throws IOException {
+		CheckpointFile checkpoints = new CheckpointFile(file);
+		checkpoints.append(new long[] {1}, new long[0], state(1));
+		checkpoints.append(new long[] {2}, new long[0], state(2));
+		checkpoints.close();
+		truncate(file.length() - 3);
+
+		// The torn frame is cut off, or nothing appended after it would be read
+		checkpoints = new CheckpointFile(file);
+		checkpoints.append(new long[] {3}, new long[0], state(3));
+		checkpoints.close();
+
+		CrawlState loaded = CheckpointFile.load(file);
+		assertEquals(3, loaded.getDepth());
+		assertTrue(Arrays.equals(new long[] {1, 2, 3}, loaded.getVisitedUsers()));
+	}
+
+	public void testCompactedFileKeepsAllVisitedIds() throws IOException {
+		CheckpointFile checkpoints = new CheckpointFile(file);
+		long[] expected = new long[CheckpointFile.COMPACT_EVERY + 5];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = i + 1;
+			checkpoints.append(new long[] {i + 1}, new long[0], state(i + 1));
+		}
+		checkpoints.close();
+
+		CrawlState loaded = CheckpointFile.load(file);
+		assertEquals(expected.length, loaded.getDepth());
+		assertTrue(Arrays.equals(expected, loaded.getVisitedUsers()));
+		assertEquals(2, loaded.getFrontier().size());
+	}
+
+	/**
+	 * @return state at given depth, with a user and a tweet in the frontier
+	 */
+	private static CrawlState state(int depth) {
+		UserDto user = new UserDto();
+		user.setId(7L);
+		user.setUserId(70);
+		user.setName("user7");
+		user.setLevel(2);
+		user.setProgress(3, 12345);
+		TweetDto tweet = new TweetDto();
+		tweet.setId(8);
+		tweet.setTweetId(80);
+		tweet.setParentId(7);
+		tweet.setText("za gl ja");
+		tweet.setLevel(3);
+
+		CrawlState state = new CrawlState();
+		state.setDepth(depth);
+		state.setLastUserId(100 * depth);
+		state.setLastTweetId(1000 * depth);
+		List<NodeDto> frontier = new ArrayList<>();
+		frontier.add(user);
+		frontier.add(tweet);
+		state.setFrontier(frontier);
+		return state;
+	}
+
+	private void truncate(long length) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(length);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import ytharvest.throttle.Retries;
+import ytharvest.throttle.RetryPolicy;
+import dto.UserDto;
+import enums.Endpoint;
+import exceptions.ClientException;
+
+/**
+ * Tests of {@link RetryingClient} against a {@link SyntheticClient} failing its first calls
+ */
+public class RetryingClientTest extends TestCase {
+
+	/**
+	 * Time for which the circuit stays open in tests, in milliseconds
+	 */
+	private static final long OPEN_TIME = 50;
+
+	public void testCallWaitsForOpenCircuit() throws Exception {
+		Retries.configure(Endpoint.USERS.retry().getName(), 100, 1, 1, OPEN_TIME);
+		final AtomicInteger calls = new AtomicInteger();
+		ITwitterClient failing = new SyntheticClient(100, 0, 0) {
+			@Override
+			public UserDto showUser(String screenName) throws ClientException {
+				if (calls.incrementAndGet() <= RetryPolicy.FAILURE_THRESHOLD + 1) {
+					throw new ClientException("Service Unavailable", 503, -1, null);
+				}
+				return super.showUser(screenName);
+			}
+		};
+
+		UserDto user = new RetryingClient(failing).showUser("user1");
+
+		assertNotNull(user);
+		assertEquals(RetryPolicy.FAILURE_THRESHOLD + 2, calls.get());
+		assertFalse(Endpoint.USERS.retry().isOpen());
+	}
+}
@@ -0,0 +1,76 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import postgresDB.RecordingSink;
+import postgresDB.Row;
+import visited.VisitedSets;
+import client.SyntheticClient;
+import config.CrawlerConfiguration;
+import dto.NodeDto;
+import dto.TweetDto;
+import dto.UserDto;
+import enums.Relation;
+
+/**
+ * Tests of {@link ChildIterator} against {@link NodeExpander} crawling a {@link SyntheticClient} graph
+ */
+public class ChildIteratorTest extends TestCase {
+
+	private final SyntheticClient client = new SyntheticClient(1000, 0, 0);
+	private final Set<Relation> relations = EnumSet.allOf(Relation.class);
+
+	public void testUserChildrenAreWrittenAsByExpander() throws Exception {
+		UserDto user = client.showUser("user1");
+		assertEquals(expanded(user), iterated(user));
+	}
+
+	public void testRetweetsAreWrittenAsByExpander() throws Exception {
+		TweetDto tweet = client.getTimeline("user3").get(0);
+		List<String> rows = expanded(tweet);
+		assertEquals(rows, iterated(tweet));
+		for (String row : rows) {
+			assertTrue(row, row.startsWith("tweets [data, tweet_id, retweeted_id] "));
+		}
+	}
+
+	/**
+	 * @return rows NodeExpander writes for children of the node
+	 */
+	private List<String> expanded(NodeDto node) throws InterruptedException {
+		RecordingSink sink = new RecordingSink();
+		Frontier frontier = new Frontier();
+		CrawlerConfiguration config = new CrawlerConfiguration();
+		new NodeExpander(client, relations, sink, 0, VisitedSets.create(config), VisitedSets.create(config), null)
+				.expand(node, 1, frontier);
+		return rows(sink);
+	}
+
+	/**
+	 * @return rows ChildIterator writes for children of the node
+	 */
+	private List<String> iterated(NodeDto node) {
+		RecordingSink sink = new RecordingSink();
+		ChildIterator children = new ChildIterator(client, relations, sink, 0, node, 1);
+		while (children.hasNext()) {
+			children.next();
+		}
+		return rows(sink);
+	}
+
+	private static List<String> rows(RecordingSink sink) {
+		List<String> rows = new ArrayList<>();
+		for (String table : new String[] {"users", "tweets"}) {
+			for (Row row : sink.getRows(table)) {
+				rows.add(table + " " + Arrays.toString(row.getColumns()) + " " + Arrays.toString(row.getValues()));
+			}
+		}
+		assertFalse(rows.isEmpty());
+		return rows;
+	}
+}
@@ -0,0 +1,64 @@
+package logic;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import postgresDB.RecordingSink;
+import postgresDB.Row;
+import client.SyntheticClient;
+import config.CrawlerConfiguration;
+import enums.Strategy;
+
+/**
+ * Tests of {@link KeywordsStrategy} searching a {@link SyntheticClient} graph
+ */
+public class KeywordsStrategyTest extends TestCase {
+
+	private RecordingSink sink;
+
+	@Override
+	protected void setUp() throws Exception {
+		CrawlerConfiguration config = new CrawlerConfiguration();
+		config.setStrategy(Strategy.KEYWORDS);
+		config.setSeed("java");
+		config.setCrawlTime(60);
+		// Few users, so that most of them write many of the tweets found
+		TwitterDownloader context = new TwitterDownloader(config, new SyntheticClient(10, 0, 0));
+		sink = new RecordingSink();
+		new KeywordsStrategy(context, sink).execute();
+	}
+
+	public void testAuthorsAreWrittenOnce() {
+		List<Row> users = sink.getRows("users");
+		Set<Object> ids = new HashSet<>();
+		Set<Object> names = new HashSet<>();
+		for (Row row : users) {
+			assertEquals("id", row.getColumns()[0]);
+			assertTrue(ids.add(row.getValues()[0]));
+			assertTrue(names.add(row.getValues()[2]));
+		}
+		assertTrue(users.size() > 0);
+		assertTrue(users.size() <= 10);
+		assertTrue(sink.isClosed());
+	}
+
+	public void testTweetsPointAtRowsOfTheirAuthors() {
+		Map<Object, Object> names = new HashMap<>();
+		for (Row row : sink.getRows("users")) {
+			names.put(row.getValues()[0], row.getValues()[2]);
+		}
+		List<Row> tweets = sink.getRows("tweets");
+		assertTrue(tweets.size() > 0);
+		for (Row row : tweets) {
+			assertEquals("has_tweets_id", row.getColumns()[2]);
+			long tweetId = (Long) row.getValues()[1];
+			// Synthetic tweets of a user have consecutive ids
+			long author = (tweetId - 1) / SyntheticClient.TWEETS_PER_USER + 1;
+			assertEquals("user" + author, names.get(row.getValues()[2]));
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package postgresDB;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link CopySink} writing to {@link FakePostgres} through the connection pool
+ */
+public class CopySinkTest extends TestCase {
+
+	static {
+		// Read when Persistor is loaded, so no test may use the database before this one
+		System.setProperty("crawler.db.url", FakePostgres.URL);
+	}
+
+	private static final String[] USER_COLUMNS = {"data", "name", "friends_id"};
+	private static final String COPY_USERS = "COPY users_stage(data,name,friends_id) FROM STDIN WITH CSV\n";
+
+	@Override
+	protected void setUp() throws Exception {
+		FakePostgres.reset();
+		assertEquals(FakePostgres.URL, Persistor.URL);
+	}
+
+	public void testCopiesRowsAndMergesStagingTables() {
+		CopySink sink = new CopySink(10, 60000);
+		sink.createTables();
+		sink.write(new Row("users", USER_COLUMNS, new Object[] {"en", "a \"quoted\", name", 5L}));
+		sink.write(new Row("tweets", new String[] {"data", "tweet_id", "has_tweets_id"}, new Object[] {"text", 7L, 1L}));
+		sink.write(new Row("users", USER_COLUMNS, new Object[] {null, "b", 6L}));
+		sink.close();
+
+		assertEquals(3, sink.getRowsWritten());
+		assertEquals(0, sink.getRowsFailed());
+		// One COPY per table, in order of their first rows
+		assertEquals(Arrays.asList(
+				COPY_USERS + "\"en\",\"a \"\"quoted\"\", name\",5\n,\"b\",6\n",
+				"COPY tweets_stage(data,tweet_id,has_tweets_id) FROM STDIN WITH CSV\n\"text\",7,1\n"),
+				FakePostgres.getCopied());
+
+		List<String> executed = FakePostgres.getExecuted();
+		assertTrue(executed.get(0).contains("CREATE TABLE users_stage AS SELECT * FROM users LIMIT 0;\n"));
+		assertEquals(Arrays.asList("INSERT INTO users SELECT * FROM users_stage", "DROP TABLE users_stage"),
+				executed.subList(1, 3));
+		assertEquals(11, executed.size());
+	}
+
+	public void testFailedBatchIsCountedAndConnectionDiscarded() {
+		FakePostgres.failCopyInto("tweets_stage");
+		CopySink sink = new CopySink(10, 60000);
+		sink.write(new Row("users", USER_COLUMNS, new Object[] {"en", "a", 5L}));
+		sink.write(new Row("tweets", new String[] {"data", "tweet_id", "has_tweets_id"}, new Object[] {"text", 7L, 1L}));
+		sink.flush();
+
+		// Users copied before the failure go with the rest of the batch
+		assertEquals(0, sink.getRowsWritten());
+		assertEquals(2, sink.getRowsFailed());
+		assertTrue(FakePostgres.getCopied().isEmpty());
+		assertEquals(1, FakePostgres.getClosed());
+
+		FakePostgres.failCopyInto(null);
+		sink.write(new Row("users", USER_COLUMNS, new Object[] {"en", "b", 6L}));
+		sink.close();
+
+		assertEquals(1, sink.getRowsWritten());
+		assertEquals(2, sink.getRowsFailed());
+		assertEquals(Arrays.asList(COPY_USERS + "\"en\",\"b\",6\n"), FakePostgres.getCopied());
+	}
+}
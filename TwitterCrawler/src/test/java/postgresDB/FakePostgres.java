@@ -0,0 +1,251 @@
+package postgresDB;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+/**
+ * Stand-in for PostgreSQL in tests of sinks - JDBC driver of {@link #URL}, giving connections which keep
+ * what they are sent in memory. Data copied in through their CopyManager shows up in {@link #getCopied()}
+ * once the transaction is committed, SQL executed through their statements in {@link #getExecuted()} at once.
+ * COPY into a chosen table can be made to fail.
+ */
+public class FakePostgres implements Driver {
+
+	public static final String URL = "jdbc:fakepostgres:";
+
+	private static final List<String> copied = new ArrayList<>();
+	private static final List<String> executed = new ArrayList<>();
+	private static int closed;
+	private static String failing;
+
+	static {
+		try {
+			DriverManager.registerDriver(new FakePostgres());
+		} catch (SQLException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Forgets everything sent so far and stops failing
+	 */
+	public static synchronized void reset() {
+		copied.clear();
+		executed.clear();
+		closed = 0;
+		failing = null;
+	}
+
+	/**
+	 * Makes COPY into given table fail from now on, or no table if it is null
+	 */
+	public static synchronized void failCopyInto(String table) {
+		failing = table;
+	}
+
+	/**
+	 * @return committed COPY statements, each followed by a new line and data copied with it
+	 */
+	public static synchronized List<String> getCopied() {
+		return new ArrayList<>(copied);
+	}
+
+	public static synchronized List<String> getExecuted() {
+		return new ArrayList<>(executed);
+	}
+
+	/**
+	 * @return number of connections closed so far
+	 */
+	public static synchronized int getClosed() {
+		return closed;
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		if (!acceptsURL(url)) {
+			return null;
+		}
+		return new FakeConnection().proxy;
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url.startsWith(URL);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	/**
+	 * One connection - data copied since the last commit is kept apart until it is committed
+	 */
+	private static class FakeConnection implements InvocationHandler {
+
+		private final BaseConnection proxy;
+		private final CopyManager copyManager;
+		private final List<String> pending = new ArrayList<>();
+		private boolean autoCommit = true;
+		private boolean isClosed;
+
+		FakeConnection() throws SQLException {
+			proxy = (BaseConnection) Proxy.newProxyInstance(FakePostgres.class.getClassLoader(),
+					new Class<?>[] {BaseConnection.class}, this);
+			copyManager = new CopyManager(proxy) {
+				@Override
+				public long copyIn(String sql, Reader from) throws SQLException, IOException {
+					return copy(sql, from);
+				}
+			};
+		}
+
+		@Override
+		public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "getCopyAPI":
+				return copyManager;
+			case "createStatement":
+				return statement();
+			case "setAutoCommit":
+				autoCommit = (Boolean) args[0];
+				return null;
+			case "getAutoCommit":
+				return autoCommit;
+			case "commit":
+				commit();
+				return null;
+			case "rollback":
+				pending.clear();
+				return null;
+			case "close":
+				close();
+				return null;
+			case "isClosed":
+				return isClosed;
+			case "getEncoding":
+			case "getQueryExecutor":
+				// Taken by CopyManager's constructor, never used as copyIn is overridden
+				return null;
+			case "hashCode":
+				return System.identityHashCode(self);
+			case "equals":
+				return self == args[0];
+			case "toString":
+				return "FakePostgres connection";
+			default:
+				throw new SQLFeatureNotSupportedException(method.getName());
+			}
+		}
+
+		private long copy(String sql, Reader from) throws SQLException, IOException {
+			checkOpen();
+			StringBuilder data = new StringBuilder();
+			char[] buffer = new char[4096];
+			int n;
+			while ((n = from.read(buffer)) > 0) {
+				data.append(buffer, 0, n);
+			}
+			synchronized (FakePostgres.class) {
+				if (failing != null && sql.startsWith("COPY " + failing + "(")) {
+					throw new SQLException("COPY into " + failing + " failed");
+				}
+			}
+			pending.add(sql + "\n" + data);
+			if (autoCommit) {
+				commit();
+			}
+			long rows = 0;
+			for (int i = 0; i < data.length(); i++) {
+				if (data.charAt(i) == '\n') {
+					rows++;
+				}
+			}
+			return rows;
+		}
+
+		private Statement statement() throws SQLException {
+			checkOpen();
+			return (Statement) Proxy.newProxyInstance(FakePostgres.class.getClassLoader(),
+					new Class<?>[] {Statement.class}, new InvocationHandler() {
+						@Override
+						public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+							switch (method.getName()) {
+							case "executeUpdate":
+								checkOpen();
+								synchronized (FakePostgres.class) {
+									executed.add((String) args[0]);
+								}
+								return 0;
+							case "close":
+								return null;
+							default:
+								throw new SQLFeatureNotSupportedException(method.getName());
+							}
+						}
+					});
+		}
+
+		private void commit() throws SQLException {
+			checkOpen();
+			synchronized (FakePostgres.class) {
+				copied.addAll(pending);
+			}
+			pending.clear();
+		}
+
+		private void close() {
+			if (!isClosed) {
+				isClosed = true;
+				pending.clear();
+				synchronized (FakePostgres.class) {
+					closed++;
+				}
+			}
+		}
+
+		private void checkOpen() throws SQLException {
+			if (isClosed) {
+				throw new SQLException("Connection is closed");
+			}
+		}
+	}
+}
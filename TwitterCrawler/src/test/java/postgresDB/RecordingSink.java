@@ -0,0 +1,52 @@
+package postgresDB;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sink keeping rows in memory instead of writing them to the database, for tests
+ */
+public class RecordingSink implements ISink {
+
+	private final List<Row> rows = new ArrayList<>();
+	private boolean closed;
+
+	@Override
+	public void createTables() {
+	}
+
+	@Override
+	public void reopenTables() {
+	}
+
+	@Override
+	public synchronized void write(Row row) {
+		rows.add(row);
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+	}
+
+	/**
+	 * @return rows written to given table so far, in order
+	 */
+	public synchronized List<Row> getRows(String table) {
+		List<Row> result = new ArrayList<>();
+		for (Row row : rows) {
+			if (row.getTable().equals(table)) {
+				result.add(row);
+			}
+		}
+		return result;
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+}
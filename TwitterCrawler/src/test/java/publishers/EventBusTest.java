@@ -0,0 +1,77 @@
+package publishers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import listeners.IListener;
+import events.CrawlingEvent;
+import events.ProgressEvent;
+
+/**
+ * Tests of {@link EventBus}
+ */
+public class EventBusTest extends TestCase {
+
+	public void testEventsForListenerBehindByCapacityAreDropped() throws Exception {
+		EventBus bus = new EventBus(2);
+		final CountDownLatch busy = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> delivered = new ArrayList<>();
+		bus.register(new IListener() {
+			public void publish(CrawlingEvent event) {
+				synchronized (delivered) {
+					delivered.add(event.getInfo());
+				}
+				busy.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+
+		bus.publishAll(event("1"));
+		assertTrue(busy.await(5, TimeUnit.SECONDS));
+		for (int i = 2; i <= 5; i++) {
+			bus.publishAll(event(Integer.toString(i)));
+		}
+		assertEquals(2, bus.getDropped());
+
+		release.countDown();
+		bus.close();
+		assertEquals("[1, 2, 3]", delivered.toString());
+	}
+
+	public void testListenerKeepingUpGetsAllEvents() {
+		EventBus bus = new EventBus(1);
+		final List<String> delivered = new ArrayList<>();
+		final CountDownLatch done = new CountDownLatch(100);
+		bus.register(new IListener() {
+			public void publish(CrawlingEvent event) {
+				synchronized (delivered) {
+					delivered.add(event.getInfo());
+				}
+				done.countDown();
+			}
+		});
+
+		for (int i = 0; i < 100; i++) {
+			bus.publishAll(event(Integer.toString(i)));
+			// Waits for the listener, so that its queue never holds more than the event just published
+			while (done.getCount() > 99 - i) {
+				Thread.yield();
+			}
+		}
+		bus.close();
+		assertEquals(0, bus.getDropped());
+		assertEquals(100, delivered.size());
+	}
+
+	private ProgressEvent event(String info) {
+		return new ProgressEvent(info, null, 0, 0);
+	}
+}
@@ -0,0 +1,65 @@
+package utils;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link Text#processText(String)}
+ */
+public class TextTest extends TestCase {
+
+	private static final String EMOJI = "\uD83D\uDE00";
+
+	public void testShortTextIsReturnedAsItIs() {
+		String text = "Ala ma kota";
+		assertSame(text, Text.processText(text));
+	}
+
+	public void testTextIsCutAt63CodePoints() {
+		String text = repeat("a", 100);
+		assertEquals(repeat("a", 63), Text.processText(text));
+	}
+
+	public void testSurrogatePairIsNeverCut() {
+		// 62 letters and an emoji are 63 code points, but 64 chars
+		String text = repeat("a", 62) + EMOJI + "b";
+		assertEquals(repeat("a", 62) + EMOJI, Text.processText(text));
+
+		String emoji = repeat(EMOJI, 70);
+		String processed = Text.processText(emoji);
+		assertEquals(63, processed.codePointCount(0, processed.length()));
+		assertEquals(repeat(EMOJI, 63), processed);
+	}
+
+	public void testUnpairedSurrogatesAreDropped() {
+		assertEquals("ab", Text.processText("a\uD83Db"));
+		assertEquals("ab", Text.processText("a\uDE00b"));
+		assertEquals("a", Text.processText("a\uD83D"));
+		assertEquals("a" + EMOJI, Text.processText("a\uDE00" + EMOJI));
+	}
+
+	public void testControlCharactersBecomeSpaces() {
+		assertEquals("a b c d", Text.processText("a\nb\tc\rd"));
+		assertEquals("a b", Text.processText("a\u0000b"));
+	}
+
+	public void testApostrophesAreDropped() {
+		assertEquals("Dont", Text.processText("Don't"));
+		assertEquals("", Text.processText("'''"));
+	}
+
+	public void testApostrophesDoNotCountToTheLimit() {
+		String text = repeat("'", 10) + repeat("a", 100);
+		assertEquals(repeat("a", 63), Text.processText(text));
+
+		String changed = "\n" + repeat("a'", 100);
+		assertEquals(" " + repeat("a", 62), Text.processText(changed));
+	}
+
+	private static String repeat(String s, int times) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+}
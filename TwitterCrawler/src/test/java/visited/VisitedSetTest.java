@@ -0,0 +1,65 @@
+package visited;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link LongHashVisitedSet} growing past its initial capacity and of
+ * {@link BloomVisitedSet} keeping its false positive rate while it scales
+ */
+public class VisitedSetTest extends TestCase {
+
+	public void testHashSetKeepsIdsWhenResized() {
+		LongHashVisitedSet set = new LongHashVisitedSet(4);
+		for (long id = -5000; id < 5000; id++) {
+			assertTrue(set.visit(id * 7919));
+		}
+		assertEquals(10000, set.size());
+		for (long id = -5000; id < 5000; id++) {
+			assertTrue(set.contains(id * 7919));
+			assertFalse(set.visit(id * 7919));
+		}
+		assertFalse(set.contains(1));
+		assertFalse(set.contains(Long.MAX_VALUE));
+		assertEquals(10000, set.getHits());
+		assertEquals(20000, set.getLookups());
+	}
+
+	public void testHashSetRemembersZero() {
+		LongHashVisitedSet set = new LongHashVisitedSet();
+		assertFalse(set.contains(0));
+		assertTrue(set.visit(0));
+		assertFalse(set.visit(0));
+		assertTrue(set.contains(0));
+		assertEquals(1, set.size());
+	}
+
+	public void testBloomSetHasNoFalseNegatives() {
+		BloomVisitedSet set = new BloomVisitedSet(1000, 0.01);
+		long bytes = set.getBytes();
+		for (long id = 1; id <= 20000; id++) {
+			set.visit(id * 31);
+		}
+		assertTrue(set.getBytes() > bytes);
+		for (long id = 1; id <= 20000; id++) {
+			assertTrue(set.contains(id * 31));
+		}
+	}
+
+	public void testBloomSetFalsePositiveRateIsBoundWhenScaled() {
+		double rate = 0.01;
+		BloomVisitedSet set = new BloomVisitedSet(1000, rate);
+		// Filters of 1000, 2000, 4000, 8000 and 16000 ids
+		for (long id = 1; id <= 30000; id++) {
+			set.visit(id * 31);
+		}
+		int falsePositives = 0;
+		int tries = 100000;
+		for (long id = 1; id <= tries; id++) {
+			if (set.contains(id * 31 + 1)) {
+				falsePositives++;
+			}
+		}
+		// The first filter has half the rate, each next one half the rate of the previous one
+		assertTrue(falsePositives + " false positives", falsePositives < rate * tries);
+	}
+}
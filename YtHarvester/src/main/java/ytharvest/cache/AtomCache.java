@@ -0,0 +1,421 @@
+package ytharvest.cache;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ytharvest.metrics.Gauge;
+import ytharvest.metrics.Metrics;
+
+
+/**
+ * A cache of raw GData responses (Atom documents) kept in files of a local directory, so that they
+ * survive between crawls.
+ * <br><br>
+ *
+ * Responses are stored by the address they were downloaded from, together with their ETag. The
+ * cache does not decide whether a response is still valid - the caller sends the ETag in an
+ * If-None-Match header, and reads the stored response with {@link #read(String)} when the server
+ * replies 304 Not Modified. The total size of stored responses is bounded; when it is exceeded,
+ * the least recently used ones are removed. The order of use is kept in the files' modification
+ * times, so it is not lost when the cache is opened again.
+ * <br><br>
+ *
+ * The cache is thread-safe. Its hits (responses revalidated by the server), misses and evictions
+ * are counted in <i>gdata.cache.hits</i>, <i>gdata.cache.misses</i> and
+ * <i>gdata.cache.evictions</i> counters of {@link Metrics}, and its size is the
+ * <i>gdata.cache.bytes</i> gauge.
+ */
+public class AtomCache
+{
+
+	/** The logger. */
+	private static Logger log = LoggerFactory.getLogger(AtomCache.class);
+
+	/** The extension of files holding responses. */
+	private static final String SUFFIX = ".atom";
+
+	/** The directory holding the files. */
+	private final File dir;
+
+	/** The maximum total size of stored responses, in bytes. */
+	private final long maxBytes;
+
+	/** Stored responses by address, the least recently used first. */
+	private final LinkedHashMap<String, Item> items = new LinkedHashMap<String, Item>(16, 0.75f, true);
+
+	/** The total size of stored responses, in bytes. */
+	private long bytes;
+
+	/** Number of responses revalidated by the server. */
+	private final AtomicLong hits = Metrics.counter("gdata.cache.hits");
+
+	/** Number of responses downloaded. */
+	private final AtomicLong misses = Metrics.counter("gdata.cache.misses");
+
+	/** Number of responses removed to make room for others. */
+	private final AtomicLong evictions = Metrics.counter("gdata.cache.evictions");
+
+
+	/**
+	 * Opens the cache in the given directory, creating the directory if needed. Responses stored
+	 * there before are read, and the least recently used ones are removed if they do not fit in
+	 * the size limit.
+	 *
+	 * @param dir
+	 *            the directory.
+	 * @param maxBytes
+	 *            the maximum total size of stored responses, in bytes.
+	 * @throws IOException
+	 *             thrown when the directory cannot be created.
+	 */
+	public AtomCache(File dir, long maxBytes) throws IOException
+	{
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Cannot create cache directory " + dir);
+
+		load();
+
+		Metrics.gauge("gdata.cache.bytes", new Gauge()
+		{
+			@Override
+			public long getValue()
+			{
+				return getBytes();
+			}
+		});
+	}
+
+
+	/**
+	 * Reads the headers of files stored in the directory, in the order of their use.
+	 */
+	private void load()
+	{
+		File[] files = dir.listFiles();
+		if (files == null)
+			return;
+
+		List<File> stored = new ArrayList<File>();
+		for (File f : files)
+		{
+			if (f.getName().endsWith(SUFFIX))
+				stored.add(f);
+			else if (f.getName().endsWith(".tmp"))
+				f.delete();
+		}
+
+		Collections.sort(stored, new Comparator<File>()
+		{
+			@Override
+			public int compare(File a, File b)
+			{
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+
+		for (File f : stored)
+		{
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(f))))
+			{
+				String url = in.readUTF();
+				String etag = in.readUTF();
+				in.readUTF();
+				add(url, new Item(f, etag, f.length()));
+			}
+			catch (IOException e)
+			{
+				log.warn("Dropping unreadable cache file " + f + ": " + e);
+				f.delete();
+			}
+		}
+		log.info("GData cache in " + dir + ": " + items.size() + " responses, " + bytes + " bytes.");
+	}
+
+
+	/**
+	 * Gets the ETag of the response stored for the given address.
+	 *
+	 * @param url
+	 *            the address.
+	 * @return the ETag, or null if no response with an ETag is stored.
+	 */
+	public synchronized String getEtag(String url)
+	{
+		Item item = items.get(url);
+		return item != null ? item.etag : null;
+	}
+
+
+	/**
+	 * Reads the response stored for the given address, after the server has confirmed that it has
+	 * not changed. Counts a hit.
+	 *
+	 * @param url
+	 *            the address.
+	 * @return the response, or null if it is no longer stored.
+	 */
+	public Response read(String url)
+	{
+		File file;
+		synchronized (this)
+		{
+			Item item = items.get(url);
+			if (item == null)
+				return null;
+			file = item.file;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(
+				file))))
+		{
+			in.readUTF();
+			String etag = in.readUTF();
+			String contentType = in.readUTF();
+			byte[] body = new byte[in.readInt()];
+			in.readFully(body);
+
+			file.setLastModified(System.currentTimeMillis());
+			hits.incrementAndGet();
+			return new Response(etag, contentType, body);
+		}
+		catch (IOException e)
+		{
+			log.warn("Cannot read cached response of " + url + ": " + e);
+			remove(url);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Stores a downloaded response, replacing the one stored for the same address. Counts a
+	 * miss. Responses without an ETag cannot be revalidated, so they are not stored.
+	 *
+	 * @param url
+	 *            the address the response was downloaded from.
+	 * @param response
+	 *            the response.
+	 */
+	public void write(String url, Response response)
+	{
+		misses.incrementAndGet();
+		if (response.getEtag() == null)
+		{
+			remove(url);
+			return;
+		}
+
+		File file = new File(dir, hash(url) + SUFFIX);
+		File tmp = new File(dir, hash(url) + "." + Thread.currentThread().getId() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tmp))))
+		{
+			out.writeUTF(url);
+			out.writeUTF(response.getEtag());
+			out.writeUTF(response.getContentType());
+			out.writeInt(response.getBody().length);
+			out.write(response.getBody());
+		}
+		catch (IOException e)
+		{
+			log.warn("Cannot cache response of " + url + ": " + e);
+			tmp.delete();
+			return;
+		}
+
+		synchronized (this)
+		{
+			if (!tmp.renameTo(file))
+			{
+				tmp.delete();
+				return;
+			}
+			add(url, new Item(file, response.getEtag(), file.length()));
+		}
+	}
+
+
+	/**
+	 * Adds a stored file to the index, evicting the least recently used ones if the size limit is
+	 * exceeded.
+	 *
+	 * @param url
+	 *            the address.
+	 * @param item
+	 *            the stored file.
+	 */
+	private synchronized void add(String url, Item item)
+	{
+		Item old = items.put(url, item);
+		if (old != null)
+			bytes -= old.size;
+		bytes += item.size;
+
+		Iterator<Map.Entry<String, Item>> it = items.entrySet().iterator();
+		while (bytes > maxBytes && it.hasNext())
+		{
+			Map.Entry<String, Item> eldest = it.next();
+			if (eldest.getValue() == item)
+				continue;
+
+			it.remove();
+			bytes -= eldest.getValue().size;
+			eldest.getValue().file.delete();
+			evictions.incrementAndGet();
+		}
+	}
+
+
+	/**
+	 * Removes the response stored for the given address.
+	 *
+	 * @param url
+	 *            the address.
+	 */
+	private synchronized void remove(String url)
+	{
+		Item item = items.remove(url);
+		if (item != null)
+		{
+			bytes -= item.size;
+			item.file.delete();
+		}
+	}
+
+
+	/**
+	 * Gets the total size of stored responses.
+	 *
+	 * @return the size in bytes
+	 */
+	public synchronized long getBytes()
+	{
+		return bytes;
+	}
+
+
+	/**
+	 * Gets the number of stored responses.
+	 *
+	 * @return the number of responses
+	 */
+	public synchronized int size()
+	{
+		return items.size();
+	}
+
+
+	/**
+	 * Gives the name of the file holding the response of an address.
+	 *
+	 * @param url
+	 *            the address.
+	 * @return the SHA-1 of the address, in hex.
+	 */
+	private static String hash(String url)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder(2 * digest.length);
+			for (byte b : digest)
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(
+						Character.forDigit(b & 0xf, 16));
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException | IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	/**
+	 * Reads the whole stream.
+	 *
+	 * @param in
+	 *            the stream, not closed by this method.
+	 * @return the bytes read.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static byte[] readAll(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = in.read(buf)) > 0)
+			out.write(buf, 0, n);
+		return out.toByteArray();
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "GData cache: " + size() + " responses, " + getBytes() + " bytes, " + hits.get()
+				+ " hits, " + misses.get() + " misses, " + evictions.get() + " evictions";
+	}
+
+
+	/**
+	 * A stored file, as kept in the index.
+	 */
+	private static class Item
+	{
+
+		/** The file. */
+		private final File file;
+
+		/** The ETag of the response. */
+		private final String etag;
+
+		/** The size of the file. */
+		private final long size;
+
+
+		/**
+		 * Instantiates a new item.
+		 *
+		 * @param file
+		 *            the file.
+		 * @param etag
+		 *            the ETag of the response.
+		 * @param size
+		 *            the size of the file.
+		 */
+		private Item(File file, String etag, long size)
+		{
+			this.file = file;
+			this.etag = etag;
+			this.size = size;
+		}
+	}
+
+}
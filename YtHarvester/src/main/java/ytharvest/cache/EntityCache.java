@@ -0,0 +1,456 @@
+package ytharvest.cache;
+
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ytharvest.metrics.Gauge;
+import ytharvest.metrics.Metrics;
+
+
+/**
+ * A bounded in-memory cache of downloaded entities (or any other values), by their identifiers.
+ * <br><br>
+ *
+ * Entries expire after a given time since they were stored. When the cache is full, the entry to
+ * evict is chosen as in W-TinyLFU: new entries are kept in a small LRU window (1% of the
+ * capacity); an entry leaving the window enters the main area only if it was used more often
+ * recently than the entry that would be evicted from there, as estimated by
+ * {@link FrequencySketch}. The main area is a segmented LRU - entries used again while on
+ * probation are protected (up to 80% of the area), so one pass over many entries used once does
+ * not flush the ones used often.
+ * <br><br>
+ *
+ * {@link #get(String, Callable)} loads missing entries; concurrent calls for the same identifier
+ * share one load. Failed loads are not cached.
+ * <br><br>
+ *
+ * The cache is thread-safe. Its hits, misses, loads shared with another thread, evictions and
+ * expirations are counted in <i>cache.&lt;name&gt;.hits</i>, <i>.misses</i>, <i>.coalesced</i>,
+ * <i>.evictions</i> and <i>.expired</i> counters of {@link Metrics}, and its size is the
+ * <i>cache.&lt;name&gt;.size</i> gauge.
+ *
+ * @param <V>
+ *            the type of values.
+ */
+public class EntityCache<V>
+{
+
+	/** The part of the cache an entry is in. */
+	private enum Segment
+	{
+		/** Recently added entries. */
+		WINDOW,
+		/** Entries admitted to the main area, used once there. */
+		PROBATION,
+		/** Entries used again in the main area. */
+		PROTECTED
+	}
+
+	/** The name of the cache, used in metrics. */
+	private final String name;
+
+	/** The maximum number of entries. */
+	private final int maxSize;
+
+	/** The maximum number of entries in the window. */
+	private final int windowMax;
+
+	/** The maximum number of entries in the main area (probation and protected). */
+	private final int mainMax;
+
+	/** The maximum number of protected entries. */
+	private final int protectedMax;
+
+	/** The time after which stored entries expire, in milliseconds (0 means never). */
+	private final long ttl;
+
+	/** All entries, by key. */
+	private final Map<String, Node<V>> data = new HashMap<>();
+
+	/** The window, the least recently used entry first. */
+	private final LinkedHashMap<String, Node<V>> window = new LinkedHashMap<>();
+
+	/** The probation segment of the main area, the least recently used entry first. */
+	private final LinkedHashMap<String, Node<V>> probation = new LinkedHashMap<>();
+
+	/** The protected segment of the main area, the least recently used entry first. */
+	private final LinkedHashMap<String, Node<V>> protect = new LinkedHashMap<>();
+
+	/** Recent uses of keys, including those not in the cache. */
+	private final FrequencySketch sketch;
+
+	/** Loads in progress, by key. */
+	private final ConcurrentMap<String, FutureTask<V>> loading = new ConcurrentHashMap<>();
+
+	/** Number of entries found. */
+	private final AtomicLong hits;
+
+	/** Number of entries not found. */
+	private final AtomicLong misses;
+
+	/** Number of loads waited for instead of being repeated. */
+	private final AtomicLong coalesced;
+
+	/** Number of entries evicted because the cache was full. */
+	private final AtomicLong evictions;
+
+	/** Number of entries removed because they expired. */
+	private final AtomicLong expired;
+
+
+	/**
+	 * Instantiates a new cache.
+	 *
+	 * @param name
+	 *            the name of the cache, used in metrics.
+	 * @param maxSize
+	 *            the maximum number of entries, at least 1.
+	 * @param ttl
+	 *            the time after which stored entries expire, 0 if they should not.
+	 * @param unit
+	 *            the unit of ttl.
+	 */
+	public EntityCache(String name, int maxSize, long ttl, TimeUnit unit)
+	{
+		if (maxSize < 1)
+			throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+
+		this.name = name;
+		this.maxSize = maxSize;
+		this.windowMax = Math.max(1, maxSize / 100);
+		this.mainMax = maxSize - windowMax;
+		this.protectedMax = mainMax * 4 / 5;
+		this.ttl = unit.toMillis(ttl);
+		this.sketch = new FrequencySketch(maxSize);
+
+		String prefix = "cache." + name + ".";
+		hits = Metrics.counter(prefix + "hits");
+		misses = Metrics.counter(prefix + "misses");
+		coalesced = Metrics.counter(prefix + "coalesced");
+		evictions = Metrics.counter(prefix + "evictions");
+		expired = Metrics.counter(prefix + "expired");
+
+		Metrics.gauge(prefix + "size", new Gauge()
+		{
+			@Override
+			public long getValue()
+			{
+				return size();
+			}
+		});
+	}
+
+
+	/**
+	 * Gets the entry of the given key, loading it if it is not in the cache. If another thread is
+	 * already loading it, waits for that load instead of starting another one.
+	 *
+	 * @param key
+	 *            the key.
+	 * @param loader
+	 *            loads the value of the key; it is called on the calling thread.
+	 * @return the value.
+	 * @throws ExecutionException
+	 *             thrown when the load failed, wrapping the exception thrown by the loader.
+	 * @throws InterruptedException
+	 *             thrown when interrupted while waiting for a load of another thread.
+	 */
+	public V get(final String key, final Callable<V> loader) throws ExecutionException,
+			InterruptedException
+	{
+		V value = getIfPresent(key);
+		if (value != null)
+			return value;
+
+		FutureTask<V> task = new FutureTask<>(new Callable<V>()
+		{
+			@Override
+			public V call() throws Exception
+			{
+				V loaded = loader.call();
+				// Stored before the load is forgotten, so that no thread misses both.
+				if (loaded != null)
+					put(key, loaded);
+				return loaded;
+			}
+		});
+
+		FutureTask<V> running = loading.putIfAbsent(key, task);
+		if (running != null)
+		{
+			coalesced.incrementAndGet();
+			return running.get();
+		}
+
+		try
+		{
+			task.run();
+		}
+		finally
+		{
+			loading.remove(key, task);
+		}
+		return task.get();
+	}
+
+
+	/**
+	 * Gets the entry of the given key.
+	 *
+	 * @param key
+	 *            the key.
+	 * @return the value, or null if it is not in the cache or has expired.
+	 */
+	public synchronized V getIfPresent(String key)
+	{
+		sketch.increment(key);
+
+		Node<V> node = data.get(key);
+		if (node != null && node.expires <= System.currentTimeMillis())
+		{
+			unlink(key, node);
+			data.remove(key);
+			expired.incrementAndGet();
+			node = null;
+		}
+		if (node == null)
+		{
+			misses.incrementAndGet();
+			return null;
+		}
+
+		hits.incrementAndGet();
+		touch(key, node);
+		return node.value;
+	}
+
+
+	/**
+	 * Stores the value of a key, replacing the previous one.
+	 *
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value, not null.
+	 */
+	public synchronized void put(String key, V value)
+	{
+		long expires = ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE;
+
+		Node<V> node = data.get(key);
+		if (node != null)
+		{
+			node.value = value;
+			node.expires = expires;
+			touch(key, node);
+			return;
+		}
+
+		node = new Node<>(value, expires);
+		data.put(key, node);
+		window.put(key, node);
+		if (window.size() > windowMax)
+			evictFromWindow();
+	}
+
+
+	/**
+	 * Removes the entry of the given key.
+	 *
+	 * @param key
+	 *            the key.
+	 */
+	public synchronized void invalidate(String key)
+	{
+		Node<V> node = data.remove(key);
+		if (node != null)
+			unlink(key, node);
+	}
+
+
+	/**
+	 * Gets the number of entries, including expired ones not removed yet.
+	 *
+	 * @return the number of entries
+	 */
+	public synchronized int size()
+	{
+		return data.size();
+	}
+
+
+	/**
+	 * Moves a used entry to the most recently used end of its segment, promoting it from
+	 * probation to the protected segment.
+	 *
+	 * @param key
+	 *            the key.
+	 * @param node
+	 *            the entry.
+	 */
+	private void touch(String key, Node<V> node)
+	{
+		switch (node.segment)
+		{
+			case WINDOW:
+				window.remove(key);
+				window.put(key, node);
+				break;
+
+			case PROBATION:
+				probation.remove(key);
+				node.segment = Segment.PROTECTED;
+				protect.put(key, node);
+				if (protect.size() > protectedMax)
+				{
+					Map.Entry<String, Node<V>> eldest = eldest(protect);
+					protect.remove(eldest.getKey());
+					eldest.getValue().segment = Segment.PROBATION;
+					probation.put(eldest.getKey(), eldest.getValue());
+				}
+				break;
+
+			case PROTECTED:
+				protect.remove(key);
+				protect.put(key, node);
+				break;
+		}
+	}
+
+
+	/**
+	 * Moves the least recently used entry of the full window to probation, if there is room for
+	 * it or it is used more often than the entry that would be evicted instead. Otherwise it is
+	 * evicted itself.
+	 */
+	private void evictFromWindow()
+	{
+		Map.Entry<String, Node<V>> candidate = eldest(window);
+		window.remove(candidate.getKey());
+
+		if (probation.size() + protect.size() >= mainMax)
+		{
+			LinkedHashMap<String, Node<V>> victims = !probation.isEmpty() ? probation : protect;
+			Map.Entry<String, Node<V>> victim = victims.isEmpty() ? null : eldest(victims);
+
+			if (victim == null
+					|| sketch.frequency(candidate.getKey()) <= sketch.frequency(victim.getKey()))
+			{
+				evict(candidate.getKey());
+				return;
+			}
+			victims.remove(victim.getKey());
+			evict(victim.getKey());
+		}
+
+		candidate.getValue().segment = Segment.PROBATION;
+		probation.put(candidate.getKey(), candidate.getValue());
+	}
+
+
+	/**
+	 * Removes an entry unlinked from its segment.
+	 *
+	 * @param key
+	 *            the key.
+	 */
+	private void evict(String key)
+	{
+		data.remove(key);
+		evictions.incrementAndGet();
+	}
+
+
+	/**
+	 * Removes an entry from its segment.
+	 *
+	 * @param key
+	 *            the key.
+	 * @param node
+	 *            the entry.
+	 */
+	private void unlink(String key, Node<V> node)
+	{
+		switch (node.segment)
+		{
+			case WINDOW:
+				window.remove(key);
+				break;
+			case PROBATION:
+				probation.remove(key);
+				break;
+			case PROTECTED:
+				protect.remove(key);
+				break;
+		}
+	}
+
+
+	/**
+	 * Gets the least recently used entry of a segment.
+	 *
+	 * @param segment
+	 *            the segment, not empty.
+	 * @return the entry.
+	 */
+	private static <V> Map.Entry<String, Node<V>> eldest(LinkedHashMap<String, Node<V>> segment)
+	{
+		Iterator<Map.Entry<String, Node<V>>> it = segment.entrySet().iterator();
+		return it.next();
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "Cache " + name + ": " + size() + "/" + maxSize + " entries, " + hits.get()
+				+ " hits, " + misses.get() + " misses, " + coalesced.get() + " coalesced, "
+				+ evictions.get() + " evictions, " + expired.get() + " expired";
+	}
+
+
+	/**
+	 * An entry of the cache.
+	 *
+	 * @param <V>
+	 *            the type of values.
+	 */
+	private static class Node<V>
+	{
+
+		/** The value. */
+		private V value;
+
+		/** The time the entry expires at, in milliseconds. */
+		private long expires;
+
+		/** The segment the entry is in. */
+		private Segment segment = Segment.WINDOW;
+
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param value
+		 *            the value.
+		 * @param expires
+		 *            the time the entry expires at.
+		 */
+		private Node(V value, long expires)
+		{
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+
+}
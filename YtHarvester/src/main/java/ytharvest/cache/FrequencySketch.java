@@ -0,0 +1,149 @@
+package ytharvest.cache;
+
+
+/**
+ * An approximate count of recent uses of keys (a Count-Min sketch), used by {@link EntityCache}
+ * to decide whether a new entry is worth more than the one it would evict.
+ * <br><br>
+ *
+ * Every key is counted in one counter of each of four rows, chosen by different hashes of the
+ * key; its frequency is the smallest of these counters, so collisions may only overestimate it.
+ * Counters are small (at most 15), and all of them are halved after a number of uses
+ * proportional to the capacity of the cache, so that keys used often long ago are forgotten.
+ * <br><br>
+ *
+ * The sketch is not thread-safe.
+ */
+class FrequencySketch
+{
+
+	/** The number of rows. */
+	private static final int DEPTH = 4;
+
+	/** The largest value of a counter. */
+	private static final int MAX_COUNT = 15;
+
+	/** The seeds of hashes, one for each row. */
+	private static final int[] SEEDS = { 0x97cb3127, 0xb3c7b1cd, 0x6cbad8b9, 0x5ebe4a5b };
+
+	/** The counters, by row. */
+	private final byte[][] table;
+
+	/** The mask giving the column of a hash - the width of rows is a power of two. */
+	private final int mask;
+
+	/** The number of uses after which counters are halved. */
+	private final int sampleSize;
+
+	/** The number of uses counted since the counters were halved. */
+	private int additions;
+
+
+	/**
+	 * Instantiates a new sketch.
+	 *
+	 * @param capacity
+	 *            the maximum number of entries of the cache.
+	 */
+	FrequencySketch(int capacity)
+	{
+		int width = 16;
+		while (width < capacity && width < (1 << 30))
+			width <<= 1;
+
+		table = new byte[DEPTH][width];
+		mask = width - 1;
+		sampleSize = (int) Math.min(10L * Math.max(capacity, 1), Integer.MAX_VALUE);
+	}
+
+
+	/**
+	 * Gets the estimated number of recent uses of a key.
+	 *
+	 * @param key
+	 *            the key.
+	 * @return the number of uses, at most 15.
+	 */
+	int frequency(Object key)
+	{
+		int hash = spread(key.hashCode());
+		int min = MAX_COUNT;
+		for (int i = 0; i < DEPTH; i++)
+			min = Math.min(min, table[i][index(hash, i)]);
+		return min;
+	}
+
+
+	/**
+	 * Counts a use of a key. Only the smallest of its counters are incremented, which keeps the
+	 * overestimation lower.
+	 *
+	 * @param key
+	 *            the key.
+	 */
+	void increment(Object key)
+	{
+		int hash = spread(key.hashCode());
+		int[] columns = new int[DEPTH];
+		int min = MAX_COUNT;
+		for (int i = 0; i < DEPTH; i++)
+		{
+			columns[i] = index(hash, i);
+			min = Math.min(min, table[i][columns[i]]);
+		}
+		if (min == MAX_COUNT)
+			return;
+
+		for (int i = 0; i < DEPTH; i++)
+			if (table[i][columns[i]] == min)
+				table[i][columns[i]]++;
+
+		if (++additions >= sampleSize)
+			reset();
+	}
+
+
+	/**
+	 * Halves all counters.
+	 */
+	private void reset()
+	{
+		for (byte[] row : table)
+			for (int j = 0; j < row.length; j++)
+				row[j] >>= 1;
+		additions /= 2;
+	}
+
+
+	/**
+	 * Gives the column of a hash in a row.
+	 *
+	 * @param hash
+	 *            the spread hash of a key.
+	 * @param row
+	 *            the row.
+	 * @return the column.
+	 */
+	private int index(int hash, int row)
+	{
+		int h = (hash + SEEDS[row]) * SEEDS[row];
+		h ^= h >>> 17;
+		return h & mask;
+	}
+
+
+	/**
+	 * Spreads the bits of a hash code, so that poor hash codes do not make many keys share
+	 * counters.
+	 *
+	 * @param hashCode
+	 *            the hash code of a key.
+	 * @return the spread hash.
+	 */
+	private static int spread(int hashCode)
+	{
+		int h = hashCode * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+}
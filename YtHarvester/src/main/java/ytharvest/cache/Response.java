@@ -0,0 +1,70 @@
+package ytharvest.cache;
+
+
+/**
+ * A raw GData response, as stored in {@link AtomCache}.
+ */
+public class Response
+{
+
+	/** The ETag of the response, or null if the server did not give it. */
+	private final String etag;
+
+	/** The content type of the response. */
+	private final String contentType;
+
+	/** The body of the response. */
+	private final byte[] body;
+
+
+	/**
+	 * Instantiates a new response.
+	 *
+	 * @param etag
+	 *            the ETag of the response, or null if the server did not give it.
+	 * @param contentType
+	 *            the content type of the response.
+	 * @param body
+	 *            the body of the response.
+	 */
+	public Response(String etag, String contentType, byte[] body)
+	{
+		this.etag = etag;
+		this.contentType = contentType;
+		this.body = body;
+	}
+
+
+	/**
+	 * Gets the ETag of the response.
+	 *
+	 * @return the ETag, or null if the server did not give it.
+	 */
+	public String getEtag()
+	{
+		return etag;
+	}
+
+
+	/**
+	 * Gets the content type of the response.
+	 *
+	 * @return the content type
+	 */
+	public String getContentType()
+	{
+		return contentType;
+	}
+
+
+	/**
+	 * Gets the body of the response.
+	 *
+	 * @return the body
+	 */
+	public byte[] getBody()
+	{
+		return body;
+	}
+
+}
@@ -0,0 +1,158 @@
+package ytharvest.factory;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+
+import ytharvest.cache.Response;
+
+import com.google.gdata.client.Service.GDataRequest;
+import com.google.gdata.data.DateTime;
+import com.google.gdata.data.ParseSource;
+import com.google.gdata.util.ContentType;
+
+
+/**
+ * A GData request that has already been answered - it gives a response stored in
+ * {@link ytharvest.cache.AtomCache} (or just downloaded), so that it may be parsed by
+ * YouTubeService.parseResponseData() just as a response read from the network. It cannot be
+ * executed or modified.
+ */
+class CachedRequest implements GDataRequest
+{
+
+	/** The address the response was downloaded from. */
+	private final URL url;
+
+	/** The response. */
+	private final Response response;
+
+
+	/**
+	 * Instantiates a new cached request.
+	 *
+	 * @param url
+	 *            the address the response was downloaded from.
+	 * @param response
+	 *            the response.
+	 */
+	CachedRequest(URL url, Response response)
+	{
+		this.url = url;
+		this.response = response;
+	}
+
+
+	@Override
+	public URL getRequestUrl()
+	{
+		return url;
+	}
+
+
+	@Override
+	public ContentType getResponseContentType()
+	{
+		return new ContentType(response.getContentType());
+	}
+
+
+	@Override
+	public InputStream getResponseStream()
+	{
+		return new ByteArrayInputStream(response.getBody());
+	}
+
+
+	@Override
+	public ParseSource getParseSource()
+	{
+		return new ParseSource(getResponseStream());
+	}
+
+
+	@Override
+	public String getResponseHeader(String headerName)
+	{
+		return "ETag".equalsIgnoreCase(headerName) ? response.getEtag() : null;
+	}
+
+
+	@Override
+	public DateTime getResponseDateHeader(String headerName)
+	{
+		return null;
+	}
+
+
+	@Override
+	public void execute()
+	{
+		// Already answered.
+	}
+
+
+	@Override
+	public void end()
+	{
+	}
+
+
+	@Override
+	public void setConnectTimeout(int timeout)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public void setReadTimeout(int timeout)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public void setEtag(String etag)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public void setIfModifiedSince(DateTime conditionDate)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public void setHeader(String name, String value)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public void setPrivateHeader(String name, String value)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public OutputStream getRequestStream()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+
+	@Override
+	public ContentType getRequestContentType()
+	{
+		return null;
+	}
+
+}
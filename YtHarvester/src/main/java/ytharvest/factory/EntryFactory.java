@@ -3,10 +3,14 @@ package ytharvest.factory;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ytharvest.cache.AtomCache;
+import ytharvest.cache.Response;
 import ytharvest.factory.entities.ExtractedFeed;
 import ytharvest.factory.entities.ExtractedUser;
 import ytharvest.factory.entities.ExtractedVideo;
@@ -15,7 +19,16 @@ import ytharvest.factory.exceptions.HarvServiceException;
 import ytharvest.factory.exceptions.HarvServiceForbiddenException;
 import ytharvest.factory.exceptions.UnretrievableUserNameException;
 import ytharvest.factory.exceptions.UnretrievableVideoIdException;
-
+import ytharvest.metrics.Histogram;
+import ytharvest.metrics.Metrics;
+import ytharvest.throttle.CircuitOpenException;
+import ytharvest.throttle.Retries;
+import ytharvest.throttle.RetryPolicy;
+import ytharvest.throttle.RetryPolicy.Failure;
+import ytharvest.throttle.Throttle;
+import ytharvest.throttle.TokenBucket;
+
+import com.google.gdata.client.Service.GDataRequest;
 import com.google.gdata.client.youtube.YouTubeService;
 import com.google.gdata.data.IAtom;
 import com.google.gdata.data.IEntry;
@@ -25,8 +38,11 @@ import com.google.gdata.data.youtube.UserProfileEntry;
 import com.google.gdata.data.youtube.UserProfileFeed;
 import com.google.gdata.data.youtube.VideoEntry;
 import com.google.gdata.data.youtube.VideoFeed;
+import com.google.gdata.util.NotModifiedException;
+import com.google.gdata.util.RateLimitExceededException;
 import com.google.gdata.util.ServiceException;
 import com.google.gdata.util.ServiceForbiddenException;
+import com.google.gdata.util.ServiceUnavailableException;
 
 
 /**
@@ -48,17 +64,29 @@ public class EntryFactory
 {
 
 	/**
-	 * The sleep time (used when server replies 'too many recent calls', see
-	 * {@link #getEntity(String, Class)}).
+	 * The time for which all GData calls are held back when server replies 'too many recent
+	 * calls' for the first time, see {@link #getEntity(String, Class)}. It doubles with every
+	 * next refusal, unless the server says how long to wait.
 	 */
 	private static int SLEEP_TIME = 3 * 1000;
 
+	static
+	{
+		Retries.configure(Throttle.GDATA_ENTRY, Retries.DEFAULT_ATTEMPTS, SLEEP_TIME,
+				Retries.DEFAULT_MAX_DELAY);
+		Retries.configure(Throttle.GDATA_FEED, Retries.DEFAULT_ATTEMPTS, SLEEP_TIME,
+				Retries.DEFAULT_MAX_DELAY);
+	}
+
 	/** The logger. */
 	private static Logger logger = LoggerFactory.getLogger(EntryFactory.class);
 
 	/** The YouTubeService reference. */
 	private YouTubeService ytService;
 
+	/** The cache of downloaded responses, or null if responses are not cached. */
+	private AtomCache cache;
+
 
 	/**
 	 * Instantiates a new entry factory.
@@ -67,8 +95,24 @@ public class EntryFactory
 	 *            The YouTubeService object
 	 */
 	public EntryFactory(YouTubeService service)
+	{
+		this(service, null);
+	}
+
+
+	/**
+	 * Instantiates a new entry factory, which keeps downloaded responses in the given cache and
+	 * revalidates them with the server instead of downloading them again.
+	 * 
+	 * @param service
+	 *            The YouTubeService object
+	 * @param cache
+	 *            the cache of downloaded responses, or null if responses should not be cached.
+	 */
+	public EntryFactory(YouTubeService service, AtomCache cache)
 	{
 		this.ytService = service;
+		this.cache = cache;
 	}
 
 
@@ -244,6 +288,18 @@ public class EntryFactory
 	 * Gets one entity from YouTube. This function is the main algorithm downloading the data (using
 	 * {@link #getObject(URL, Class)} function, recognizing simple errors and translating exceptions
 	 * (into {@link ytharvest.factory.exceptions.HarvestException} hierarchy of exceptions).
+	 * <br><br>
+	 * Every call takes a token from {@link ytharvest.throttle.Throttle#GDATA_ENTRY} or
+	 * {@link ytharvest.throttle.Throttle#GDATA_FEED} bucket first. Failed calls are retried as
+	 * decided by the {@link ytharvest.throttle.RetryPolicy} of the same name. When server replies
+	 * that the quota is exceeded, the {@link ytharvest.throttle.Throttle#GDATA} bucket shared by
+	 * both of them is paused until the time given in the Retry-After header (or chosen by the
+	 * policy), so that other threads back off as well. Unavailable service and I/O errors are
+	 * retried by the calling thread only, after a growing delay.
+	 * <br><br>
+	 * The time of every call is recorded in <i>gdata.feed</i> or <i>gdata.entry</i> histogram of
+	 * {@link ytharvest.metrics.Metrics}, and failed calls are counted in <i>gdata.errors</i> and
+	 * <i>gdata.quotaExceeded</i> counters.
 	 * 
 	 * @param <T>
 	 *            the type of an entity to download, one of the following GData classes:
@@ -257,50 +313,137 @@ public class EntryFactory
 	 *             thrown when GData throws ServiceForbiddenException, indicating that you do not
 	 *             have rights to access desired data.
 	 * @throws HarvServiceException
-	 *             some other GData error occured.
+	 *             some other GData error occured, the quota has been exceeded too many times in a
+	 *             row or calls to the endpoint are refused by its circuit breaker.
 	 * @throws IOException
-	 *             Signals that an I/O exception has occurred.
+	 *             Signals that an I/O exception has occurred (and retries did not help).
 	 */
 	private <T extends IAtom> T getEntity(String addr, Class<T> clazz) throws HarvServiceException,
 			HarvServiceForbiddenException, IOException
 	{
-		T entry = null;
 		URL url = URLCreator.getUrl(addr);
+		TokenBucket bucket = Throttle.get(isIFeed(clazz) != null ? Throttle.GDATA_FEED
+				: Throttle.GDATA_ENTRY);
+		RetryPolicy retry = Retries.get(bucket.getName());
+		Histogram latency = Metrics.histogram(bucket.getName());
 
-		do
+		for (int attempt = 1;; attempt++)
 		{
 			try
 			{
-				entry = getObject(url, clazz);
+				retry.before();
 			}
-			catch (ServiceForbiddenException e)
+			catch (CircuitOpenException coe)
 			{
-				throw new HarvServiceForbiddenException(e);
+				throw new HarvServiceException(coe);
 			}
-			catch (ServiceException se)
+
+			long delay;
+			try
 			{
-				if (isTooManyRecentCallsException(se))
+				try
+				{
+					bucket.acquire();
+				}
+				catch (InterruptedException ie)
 				{
-					log().debug("Request quota exceeded, sleeping.");
-					try
+					Thread.currentThread().interrupt();
+					throw new HarvServiceException(ie);
+				}
+
+				long start = System.nanoTime();
+				try
+				{
+					T entry = getObject(url, clazz);
+					retry.succeeded();
+					return entry;
+				}
+				catch (ServiceException se)
+				{
+					Metrics.counter("gdata.errors").incrementAndGet();
+					if (isTooManyRecentCallsException(se) || se instanceof RateLimitExceededException)
 					{
-						Thread.sleep(EntryFactory.SLEEP_TIME);
+						Metrics.counter("gdata.quotaExceeded").incrementAndGet();
+						delay = retry.failed(attempt, Failure.RATE_LIMITED, getRetryAfter(se));
+						if (delay < 0)
+							throw new HarvServiceException(se);
+
+						log().debug("Request quota exceeded, throttling for {} ms.", delay);
+						Throttle.get(Throttle.GDATA).pause(delay);
+						continue;
 					}
-					catch (InterruptedException ie)
+					else if (se instanceof ServiceUnavailableException)
 					{
-						log().warn("EntryFactory interrupted while sleeping.", ie);
+						delay = retry.failed(attempt, Failure.TRANSIENT, getRetryAfter(se));
+						if (delay < 0)
+							throw new HarvServiceException(se);
 					}
+					else if (se instanceof ServiceForbiddenException)
+					{
+						retry.failed(attempt, Failure.FATAL, 0);
+						throw new HarvServiceForbiddenException(se);
+					}
+					else
+					{
+						retry.failed(attempt, Failure.FATAL, 0);
+						log().debug("Caught ServiceException.", se);
+						throw new HarvServiceException(se);
+					}
+				}
+				catch (IOException ioe)
+				{
+					Metrics.counter("gdata.errors").incrementAndGet();
+					delay = retry.failed(attempt, Failure.TRANSIENT, 0);
+					if (delay < 0)
+						throw ioe;
 				}
-				else
+				finally
 				{
-					log().debug("Caught ServiceException.", se);
-					throw new HarvServiceException(se);
+					latency.record(System.nanoTime() - start);
 				}
 			}
+			finally
+			{
+				// Ends a trial call of a half-open circuit that threw something unexpected.
+				retry.finished();
+			}
+
+			log().debug("Call to {} failed, retrying in {} ms.", addr, delay);
+			try
+			{
+				Thread.sleep(delay);
+			}
+			catch (InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				throw new HarvServiceException(ie);
+			}
 		}
-		while (entry == null);
+	}
 
-		return entry;
+
+	/**
+	 * Reads the Retry-After header of a failed call, given in seconds.
+	 * 
+	 * @param exc
+	 *            the exception thrown by the call.
+	 * @return the time in milliseconds, or 0 if there is no such header.
+	 */
+	private long getRetryAfter(ServiceException exc)
+	{
+		List<String> header = exc.getHttpHeader("Retry-After");
+		if (header == null || header.isEmpty())
+			return 0;
+
+		try
+		{
+			return TimeUnit.SECONDS.toMillis(Long.parseLong(header.get(0).trim()));
+		}
+		catch (NumberFormatException e)
+		{
+			// An HTTP date, not worth parsing.
+			return 0;
+		}
 	}
 
 
@@ -328,11 +471,13 @@ public class EntryFactory
 
 		Class<? extends IEntry> entryRef = isIEntry(clazz);
 		if (entryRef != null)
-			result = getService().getEntry(url, entryRef);
+			result = cache != null ? getCached(url, entryRef, true) : getService().getEntry(url,
+					entryRef);
 
 		Class<? extends IFeed> feedRef = isIFeed(clazz);
 		if (feedRef != null)
-			result = getService().getFeed(url, feedRef);
+			result = cache != null ? getCached(url, feedRef, false) : getService().getFeed(url,
+					feedRef);
 
 		if (result == null)
 			log().error("Class object not recognized!");
@@ -341,6 +486,64 @@ public class EntryFactory
 	}
 
 
+	/**
+	 * Downloads an entry or a feed, revalidating the response kept in the cache if there is one:
+	 * the request is sent with its ETag in If-None-Match header, and when the server replies 304
+	 * Not Modified, the cached response is parsed instead of a downloaded one. A new response is
+	 * stored in the cache.
+	 * 
+	 * @param <T>
+	 *            the type of an entity to download.
+	 * @param url
+	 *            entity's address.
+	 * @param clazz
+	 *            the Class object representing T's class.
+	 * @param entry
+	 *            true if an entry is downloaded, false if a feed.
+	 * @return the GData object representing downloaded entity.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws ServiceException
+	 *             Signals some GData error.
+	 */
+	private <T> T getCached(URL url, Class<T> clazz, boolean entry) throws IOException,
+			ServiceException
+	{
+		String key = url.toString();
+		Response response = null;
+
+		// A cached response may be evicted between the request and the reply - it is downloaded
+		// again then, without an ETag.
+		while (response == null)
+		{
+			String etag = cache.getEtag(key);
+			GDataRequest request = entry ? getService().createEntryRequest(url) : getService()
+					.createFeedRequest(url);
+			try
+			{
+				if (etag != null)
+					request.setEtag(etag);
+				request.execute();
+
+				response = new Response(request.getResponseHeader("ETag"), request
+						.getResponseContentType().toString(), AtomCache.readAll(request
+						.getResponseStream()));
+				cache.write(key, response);
+			}
+			catch (NotModifiedException e)
+			{
+				response = cache.read(key);
+			}
+			finally
+			{
+				request.end();
+			}
+		}
+
+		return getService().parseResponseData(new CachedRequest(url, response), clazz);
+	}
+
+
 	/**
 	 * Checks if argument is one of the IEntry descendants - if so, {@link #getObject(URL, Class)}
 	 * will invoke getEntry() on YouTubeService object.
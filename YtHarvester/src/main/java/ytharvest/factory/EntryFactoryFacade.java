@@ -1,13 +1,24 @@
 package ytharvest.factory;
 
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ytharvest.cache.AtomCache;
+import ytharvest.cache.EntityCache;
 import ytharvest.factory.dispatchers.CommentFeedDispatcher;
 import ytharvest.factory.dispatchers.FeedDispatcher;
 import ytharvest.factory.dispatchers.UserFeedDispatcher;
@@ -19,11 +30,14 @@ import ytharvest.factory.entities.ExtractedVideo;
 import ytharvest.factory.exceptions.FeedExtractionException;
 import ytharvest.factory.exceptions.HarvServiceException;
 import ytharvest.factory.exceptions.HarvServiceForbiddenException;
+import ytharvest.factory.exceptions.HarvestException;
 import ytharvest.factory.exceptions.UnretrievableUserNameException;
 import ytharvest.factory.exceptions.UnretrievableVideoIdException;
 import ytharvest.factory.filters.FilterFactory;
 import ytharvest.properties.Literals;
 import ytharvest.properties.Properties;
+import ytharvest.metrics.Metrics;
+import ytharvest.throttle.Throttle;
 
 import com.google.gdata.client.youtube.YouTubeService;
 
@@ -44,7 +58,11 @@ import com.google.gdata.client.youtube.YouTubeService;
  * This class has only one contructor that does not take any arguments, as all needed parameters are
  * taken from {@link ytharvest.properties.Properties} class. What it means, is that prior to
  * EntryFactoryFacade creation one should configure the library by calling one of the static
- * configure() functions from {@link ytharvest.properties.Properties}.
+ * configure() functions from {@link ytharvest.properties.Properties}. <br>
+ * <br>
+ * 
+ * Many users or videos may be downloaded at once with {@link #getUserEntries(Collection)} and
+ * {@link #getVideoEntries(Collection)}, which run the calls on {@link FetchPool}.
  * 
  * @see ytharvest.factory.entities.ExtractedEntity
  * @see ytharvest.factory.entities.ExtractedEntityVisitor
@@ -59,6 +77,15 @@ public class EntryFactoryFacade
 	/** The entry factory. */
 	private EntryFactory entryFactory;
 
+	/** The number of pages of one feed downloaded at once, see {@link Literals#FEED_PARALLEL_PAGES}. */
+	private int parallelPages;
+
+	/** Downloaded users, by identifier, or null if they are not kept. */
+	private EntityCache<ExtractedUser> users;
+
+	/** Downloaded videos, by identifier, or null if they are not kept. */
+	private EntityCache<ExtractedVideo> videos;
+
 
 	/**
 	 * Getter for Logger object.
@@ -91,7 +118,72 @@ public class EntryFactoryFacade
 		YouTubeService serv = new YouTubeService(appName);
 		// YouTubeService serv = new YouTubeService(appName, devId);
 
-		entryFactory = new EntryFactory(serv);
+		entryFactory = new EntryFactory(serv, openCache());
+
+		configureThrottle();
+
+		String pages = Properties.get(Literals.FEED_PARALLEL_PAGES);
+		parallelPages = pages != null ? Integer.parseInt(pages.trim()) : 1;
+		if (parallelPages > 1)
+			log().info("Feed pages downloaded at once: " + parallelPages);
+
+		String size = Properties.get(Literals.ENTITY_CACHE_SIZE);
+		String ttl = Properties.get(Literals.ENTITY_CACHE_TTL_MINUTES);
+		int cacheSize = size != null ? Integer.parseInt(size.trim()) : 10000;
+		long cacheTtl = ttl != null ? Long.parseLong(ttl.trim()) : 60;
+		if (cacheSize > 0)
+		{
+			log().info("Users and videos kept in memory: " + cacheSize + ", for " + cacheTtl
+					+ " minutes.");
+			users = new EntityCache<>("users", cacheSize, cacheTtl, TimeUnit.MINUTES);
+			videos = new EntityCache<>("videos", cacheSize, cacheTtl, TimeUnit.MINUTES);
+		}
+	}
+
+
+	/**
+	 * Opens the cache of GData responses, if its directory is given in
+	 * {@link ytharvest.properties.Properties}.
+	 * 
+	 * @return the cache, or null if responses should not be cached or the directory cannot be
+	 *         created.
+	 */
+	private static AtomCache openCache()
+	{
+		String dir = Properties.get(Literals.GDATA_CACHE_DIR);
+		if (dir == null || dir.trim().isEmpty())
+			return null;
+
+		String size = Properties.get(Literals.GDATA_CACHE_SIZE_MB);
+		long megabytes = size != null && !size.trim().isEmpty() ? Long.parseLong(size.trim()) : 64;
+		try
+		{
+			AtomCache cache = new AtomCache(new File(dir.trim()), megabytes * 1024 * 1024);
+			log().info("GData responses cached in " + dir.trim() + ", up to " + megabytes + " MB.");
+			return cache;
+		}
+		catch (IOException e)
+		{
+			log().error("GData responses will not be cached: " + e.getMessage());
+			return null;
+		}
+	}
+
+
+	/**
+	 * Configures the limit of GData calls, if it is given in {@link ytharvest.properties.Properties}.
+	 */
+	private static void configureThrottle()
+	{
+		String callsPerHour = Properties.get(Literals.GDATA_CALLS_PER_HOUR);
+		String burst = Properties.get(Literals.GDATA_BURST);
+
+		if (callsPerHour != null && Double.parseDouble(callsPerHour) > 0)
+		{
+			log().info("GData calls per hour: " + callsPerHour);
+			Throttle.configureGData(Double.parseDouble(callsPerHour),
+					burst != null ? Integer.parseInt(burst) : 1);
+		}
 	}
 
 
@@ -123,10 +215,35 @@ public class EntryFactoryFacade
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public ExtractedUser getUserEntry(String ID) throws UnretrievableUserNameException,
+	public ExtractedUser getUserEntry(final String ID) throws UnretrievableUserNameException,
 			HarvServiceForbiddenException, HarvServiceException, IOException
 	{
-		return factory().getUserEntry(ID);
+		if (users == null)
+			return factory().getUserEntry(ID);
+
+		try
+		{
+			return users.get(ID, new Callable<ExtractedUser>()
+			{
+				@Override
+				public ExtractedUser call() throws Exception
+				{
+					return factory().getUserEntry(ID);
+				}
+			});
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new HarvServiceException(e);
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof UnretrievableUserNameException)
+				throw (UnretrievableUserNameException) cause;
+			throw rethrow(cause);
+		}
 	}
 
 
@@ -147,10 +264,223 @@ public class EntryFactoryFacade
 	 * @throws IOException
 	 *             Signals that an I/O exception has occurred.
 	 */
-	public ExtractedVideo getVideoEntry(String ID) throws UnretrievableVideoIdException,
+	public ExtractedVideo getVideoEntry(final String ID) throws UnretrievableVideoIdException,
 			HarvServiceForbiddenException, HarvServiceException, IOException
 	{
-		return factory().getVideoEntry(ID);
+		if (videos == null)
+			return factory().getVideoEntry(ID);
+
+		try
+		{
+			return videos.get(ID, new Callable<ExtractedVideo>()
+			{
+				@Override
+				public ExtractedVideo call() throws Exception
+				{
+					return factory().getVideoEntry(ID);
+				}
+			});
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new HarvServiceException(e);
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof UnretrievableVideoIdException)
+				throw (UnretrievableVideoIdException) cause;
+			throw rethrow(cause);
+		}
+	}
+
+
+	/**
+	 * Rethrows an exception of a download shared through the cache of entities.
+	 * 
+	 * @param cause
+	 *            the exception thrown by the download.
+	 * @return never returns, declared so that callers may throw it.
+	 * @throws HarvServiceForbiddenException
+	 *             the cause, if it is one.
+	 * @throws HarvServiceException
+	 *             the cause, if it is one.
+	 * @throws IOException
+	 *             the cause, if it is one.
+	 */
+	private static RuntimeException rethrow(Throwable cause) throws HarvServiceForbiddenException,
+			HarvServiceException, IOException
+	{
+		if (cause instanceof HarvServiceForbiddenException)
+			throw (HarvServiceForbiddenException) cause;
+		if (cause instanceof HarvServiceException)
+			throw (HarvServiceException) cause;
+		if (cause instanceof IOException)
+			throw (IOException) cause;
+		throw FetchPool.unchecked(cause);
+	}
+
+
+	/**
+	 * Gets the statistics of the caches of users and videos.
+	 * 
+	 * @return the statistics, one line for each cache, or an empty string if users and videos
+	 *         are not kept.
+	 */
+	public String getCacheStats()
+	{
+		return users == null ? "" : users + "\n" + videos;
+	}
+
+
+	/**
+	 * Starts downloading the profiles of all given users at once, on the threads of
+	 * {@link FetchPool}. The calls are limited by {@link ytharvest.throttle.Throttle} just as those
+	 * made by {@link #getUserEntry(String)}.
+	 * 
+	 * @param IDs
+	 *            identifiers (nicks) of users; duplicates are downloaded once.
+	 * @return the downloads, by user's identifier, in the order of the argument. Each of them
+	 *         gives the same result or exception as {@link #getUserEntry(String)}, wrapped in
+	 *         ExecutionException. The result may be taken with {@link FetchPool#get(Future)}.
+	 */
+	public Map<String, Future<ExtractedUser>> submitUserEntries(Collection<String> IDs)
+	{
+		Map<String, Future<ExtractedUser>> downloads = new LinkedHashMap<>();
+		for (final String ID : IDs)
+		{
+			if (downloads.containsKey(ID))
+				continue;
+
+			downloads.put(ID, FetchPool.submit(new Callable<ExtractedUser>()
+			{
+				@Override
+				public ExtractedUser call() throws Exception
+				{
+					return getUserEntry(ID);
+				}
+			}));
+		}
+		return downloads;
+	}
+
+
+	/**
+	 * Starts downloading the data of all given videos at once. See
+	 * {@link #submitUserEntries(Collection)}.
+	 * 
+	 * @param IDs
+	 *            unique video identifiers; duplicates are downloaded once.
+	 * @return the downloads, by video's identifier, in the order of the argument. Each of them
+	 *         gives the same result or exception as {@link #getVideoEntry(String)}, wrapped in
+	 *         ExecutionException.
+	 */
+	public Map<String, Future<ExtractedVideo>> submitVideoEntries(Collection<String> IDs)
+	{
+		Map<String, Future<ExtractedVideo>> downloads = new LinkedHashMap<>();
+		for (final String ID : IDs)
+		{
+			if (downloads.containsKey(ID))
+				continue;
+
+			downloads.put(ID, FetchPool.submit(new Callable<ExtractedVideo>()
+			{
+				@Override
+				public ExtractedVideo call() throws Exception
+				{
+					return getVideoEntry(ID);
+				}
+			}));
+		}
+		return downloads;
+	}
+
+
+	/**
+	 * Downloads the profiles of all given users at once (see
+	 * {@link #submitUserEntries(Collection)}) and waits for all of them. Profiles that cannot be
+	 * downloaded or extracted (any {@link ytharvest.factory.exceptions.HarvestException}) are
+	 * logged and left out of the result.
+	 * 
+	 * @param IDs
+	 *            identifiers (nicks) of users.
+	 * @return the downloaded profiles, by user's identifier, in the order of the argument.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred. The downloads not finished yet are
+	 *             cancelled.
+	 */
+	public Map<String, ExtractedUser> getUserEntries(Collection<String> IDs) throws IOException
+	{
+		return collect(submitUserEntries(IDs));
+	}
+
+
+	/**
+	 * Downloads the data of all given videos at once and waits for all of them. See
+	 * {@link #getUserEntries(Collection)}.
+	 * 
+	 * @param IDs
+	 *            unique video identifiers.
+	 * @return the downloaded videos, by video's identifier, in the order of the argument.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred. The downloads not finished yet are
+	 *             cancelled.
+	 */
+	public Map<String, ExtractedVideo> getVideoEntries(Collection<String> IDs) throws IOException
+	{
+		return collect(submitVideoEntries(IDs));
+	}
+
+
+	/**
+	 * Waits for the given downloads. Failed ones are logged and counted in the
+	 * <i>gdata.batch.failed</i> counter of {@link ytharvest.metrics.Metrics}.
+	 * 
+	 * @param <T>
+	 *            the type of downloaded entities.
+	 * @param downloads
+	 *            the downloads, by entity's identifier.
+	 * @return the downloaded entities, by identifier.
+	 * @throws IOException
+	 *             thrown by one of the downloads.
+	 */
+	private static <T extends ExtractedEntity> Map<String, T> collect(
+			Map<String, Future<T>> downloads) throws IOException
+	{
+		Map<String, T> results = new LinkedHashMap<>();
+		try
+		{
+			for (Map.Entry<String, Future<T>> e : downloads.entrySet())
+			{
+				try
+				{
+					results.put(e.getKey(), FetchPool.get(e.getValue()));
+				}
+				catch (ExecutionException ee)
+				{
+					Throwable cause = ee.getCause();
+					if (cause instanceof IOException)
+						throw (IOException) cause;
+					if (!(cause instanceof HarvestException))
+						throw FetchPool.unchecked(cause);
+
+					Metrics.counter("gdata.batch.failed").incrementAndGet();
+					log().warn("Could not download " + e.getKey() + ": " + cause);
+				}
+			}
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for downloads.");
+		}
+		finally
+		{
+			for (Future<T> f : downloads.values())
+				f.cancel(false);
+		}
+		return results;
 	}
 
 
@@ -183,7 +513,7 @@ public class EntryFactoryFacade
 	{
 		FeedDispatcher D = new UserFeedDispatcher(factory());
 
-		return D.dispatch(URL, FilterFactory.getUserFilter());
+		return D.dispatch(URL, FilterFactory.getUserFilter(), parallelPages);
 	}
 
 
@@ -216,7 +546,7 @@ public class EntryFactoryFacade
 	{
 		FeedDispatcher D = new VideoFeedDispatcher(factory());
 
-		return D.dispatch(URL, FilterFactory.getVideoFilter());
+		return D.dispatch(URL, FilterFactory.getVideoFilter(), parallelPages);
 	}
 
 
@@ -249,7 +579,78 @@ public class EntryFactoryFacade
 	{
 		FeedDispatcher D = new CommentFeedDispatcher(factory());
 
-		return D.dispatch(URL, FilterFactory.getCommentFilter());
+		return D.dispatch(URL, FilterFactory.getCommentFilter(), parallelPages);
+	}
+
+
+	/**
+	 * Iterates over the users in given feed, downloading its pages only as they are needed (see
+	 * {@link ytharvest.factory.dispatchers.FeedDispatcher#iterate FeedDispatcher.iterate()}).
+	 * Unlike {@link #getUserFeed(String)}, the users are not kept, so feeds of any length may be read, and
+	 * the rest of the feed is not downloaded when the caller stops iterating.
+	 * 
+	 * @param URL
+	 *            address of the feed containing list of users.
+	 * @return the users; every call to iterator() reads the feed again, with a new filter from
+	 *         {@link FilterFactory#getUserFilter()}. Iterators throw
+	 *         {@link ytharvest.factory.exceptions.FeedIterationException} wrapping the exceptions
+	 *         thrown by {@link #getUserFeed(String)}.
+	 */
+	public Iterable<ExtractedUser> iterateUserFeed(final String URL)
+	{
+		return new Iterable<ExtractedUser>()
+		{
+			@Override
+			public Iterator<ExtractedUser> iterator()
+			{
+				return new UserFeedDispatcher(factory()).iterate(URL,
+						FilterFactory.getUserFilter(), ExtractedUser.class);
+			}
+		};
+	}
+
+
+	/**
+	 * Iterates over the videos in given feed, downloading its pages only as they are needed. See
+	 * {@link #iterateUserFeed(String)}.
+	 * 
+	 * @param URL
+	 *            address of the feed containing list of videos.
+	 * @return the videos; every call to iterator() reads the feed again.
+	 */
+	public Iterable<ExtractedVideo> iterateVideoFeed(final String URL)
+	{
+		return new Iterable<ExtractedVideo>()
+		{
+			@Override
+			public Iterator<ExtractedVideo> iterator()
+			{
+				return new VideoFeedDispatcher(factory()).iterate(URL,
+						FilterFactory.getVideoFilter(), ExtractedVideo.class);
+			}
+		};
+	}
+
+
+	/**
+	 * Iterates over the comments in given feed, downloading its pages only as they are needed.
+	 * See {@link #iterateUserFeed(String)}.
+	 * 
+	 * @param URL
+	 *            address of the feed.
+	 * @return the comments; every call to iterator() reads the feed again.
+	 */
+	public Iterable<ExtractedComment> iterateCommentFeed(final String URL)
+	{
+		return new Iterable<ExtractedComment>()
+		{
+			@Override
+			public Iterator<ExtractedComment> iterator()
+			{
+				return new CommentFeedDispatcher(factory()).iterate(URL,
+						FilterFactory.getCommentFilter(), ExtractedComment.class);
+			}
+		};
 	}
 
 
@@ -0,0 +1,222 @@
+package ytharvest.factory;
+
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ytharvest.factory.exceptions.FeedExtractionException;
+import ytharvest.factory.exceptions.HarvServiceException;
+import ytharvest.factory.exceptions.HarvServiceForbiddenException;
+import ytharvest.properties.Literals;
+import ytharvest.properties.Properties;
+
+
+/**
+ * The pool of threads downloading GData pages and entries in the background, shared by the whole
+ * library.
+ * <br><br>
+ *
+ * The number of threads is taken from {@link ytharvest.properties.Literals#FETCH_THREADS} when the
+ * pool is first used. The threads are daemons, so the pool never has to be shut down. It only
+ * bounds how many calls are in flight at once - their rate is still limited by
+ * {@link ytharvest.throttle.Throttle}.
+ * <br><br>
+ *
+ * Tasks are submitted with {@link #submit(Callable)} and their results are taken with
+ * {@link #get(Future)} or {@link #await(Future)}. A task that no pool thread has started yet is run
+ * by the awaiting thread itself, so code running on the pool may wait for other tasks without
+ * starving it.
+ */
+public class FetchPool
+{
+
+	/** The number of threads used when none is configured. */
+	private static final int DEFAULT_THREADS = 4;
+
+	/** The executor, created on first use. */
+	private static volatile ExecutorService executor;
+
+
+	/**
+	 * Private constructor, the class has only static members.
+	 */
+	private FetchPool()
+	{
+	}
+
+
+	/**
+	 * Gets the executor, creating it if needed.
+	 *
+	 * @return the executor.
+	 */
+	private static ExecutorService executor()
+	{
+		ExecutorService e = executor;
+		if (e == null)
+		{
+			synchronized (FetchPool.class)
+			{
+				e = executor;
+				if (e == null)
+				{
+					e = Executors.newFixedThreadPool(getThreads(), new DaemonThreadFactory());
+					executor = e;
+				}
+			}
+		}
+		return e;
+	}
+
+
+	/**
+	 * Gets the number of threads of the pool.
+	 *
+	 * @return the configured number of threads, or {@link #DEFAULT_THREADS}.
+	 */
+	public static int getThreads()
+	{
+		String threads = Properties.get(Literals.FETCH_THREADS);
+		if (threads != null && Integer.parseInt(threads.trim()) > 0)
+			return Integer.parseInt(threads.trim());
+		return DEFAULT_THREADS;
+	}
+
+
+	/**
+	 * Starts the given task in the background.
+	 *
+	 * @param <T>
+	 *            the type of the task's result.
+	 * @param task
+	 *            the task.
+	 * @return the started task, to be passed to {@link #get(Future)} or cancelled.
+	 */
+	public static <T> FutureTask<T> submit(Callable<T> task)
+	{
+		FutureTask<T> future = new FutureTask<T>(task);
+		executor().execute(future);
+		return future;
+	}
+
+
+	/**
+	 * Waits for the result of a task started with {@link #submit(Callable)}. If no pool thread has
+	 * picked the task up yet, it is run by the calling thread.
+	 *
+	 * @param <T>
+	 *            the type of the task's result.
+	 * @param future
+	 *            the task.
+	 * @return the result of the task.
+	 * @throws ExecutionException
+	 *             thrown when the task threw an exception.
+	 * @throws InterruptedException
+	 *             thrown when the waiting thread was interrupted.
+	 */
+	public static <T> T get(Future<T> future) throws ExecutionException, InterruptedException
+	{
+		// Does nothing if the task is already running or done.
+		if (future instanceof RunnableFuture)
+			((RunnableFuture<T>) future).run();
+
+		return future.get();
+	}
+
+
+	/**
+	 * Waits for the result of a feed page download started with {@link #submit(Callable)}, as
+	 * {@link #get(Future)} does. Exceptions thrown by the task are rethrown as they were.
+	 *
+	 * @param <T>
+	 *            the type of the task's result.
+	 * @param future
+	 *            the task.
+	 * @return the result of the task.
+	 * @throws HarvServiceForbiddenException
+	 *             thrown by the task.
+	 * @throws FeedExtractionException
+	 *             thrown by the task.
+	 * @throws HarvServiceException
+	 *             thrown by the task, or when the waiting thread was interrupted.
+	 * @throws IOException
+	 *             thrown by the task.
+	 */
+	public static <T> T await(Future<T> future) throws HarvServiceForbiddenException,
+			FeedExtractionException, HarvServiceException, IOException
+	{
+		try
+		{
+			return get(future);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new HarvServiceException(e);
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof HarvServiceForbiddenException)
+				throw (HarvServiceForbiddenException) cause;
+			if (cause instanceof FeedExtractionException)
+				throw (FeedExtractionException) cause;
+			if (cause instanceof HarvServiceException)
+				throw (HarvServiceException) cause;
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			throw unchecked(cause);
+		}
+	}
+
+
+	/**
+	 * Rethrows an unchecked exception thrown by a task; wraps a checked one.
+	 *
+	 * @param cause
+	 *            the exception thrown by a task.
+	 * @return never returns, declared so that callers may write <i>throw unchecked(cause)</i>.
+	 */
+	static RuntimeException unchecked(Throwable cause)
+	{
+		if (cause instanceof RuntimeException)
+			throw (RuntimeException) cause;
+		if (cause instanceof Error)
+			throw (Error) cause;
+		throw new IllegalStateException(cause);
+	}
+
+
+	/**
+	 * Creates named daemon threads for the pool.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory
+	{
+
+		/** The number of threads created so far. */
+		private final AtomicInteger count = new AtomicInteger();
+
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "ytharvest-fetch-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+}
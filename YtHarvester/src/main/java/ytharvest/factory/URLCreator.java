@@ -87,4 +87,38 @@ public class URLCreator
 	{
 		return vidAddr + id;
 	}
+
+
+	/**
+	 * Gives the address of one page of a feed, setting its <i>start-index</i> and
+	 * <i>max-results</i> parameters (replacing those already present in the address).
+	 * 
+	 * @param feed
+	 *            the address of the feed.
+	 * @param startIndex
+	 *            the index of the first entry of the page, counted from 1.
+	 * @param maxResults
+	 *            the number of entries on the page.
+	 * @return the address of the page.
+	 */
+	public static String getPageAddress(String feed, int startIndex, int maxResults)
+	{
+		int q = feed.indexOf('?');
+		StringBuilder sb = new StringBuilder(feed.length() + 32);
+		sb.append(q < 0 ? feed : feed.substring(0, q)).append('?');
+
+		if (q >= 0)
+		{
+			for (String param : feed.substring(q + 1).split("&"))
+			{
+				if (param.isEmpty() || param.startsWith("start-index=")
+						|| param.startsWith("max-results="))
+					continue;
+				sb.append(param).append('&');
+			}
+		}
+
+		return sb.append("start-index=").append(startIndex).append("&max-results=")
+				.append(maxResults).toString();
+	}
 }
@@ -2,20 +2,37 @@ package ytharvest.factory.dispatchers;
 
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
 
+import ytharvest.factory.FetchPool;
+import ytharvest.factory.URLCreator;
 import ytharvest.factory.entities.ExtractedEntity;
 import ytharvest.factory.entities.ExtractedFeed;
 import ytharvest.factory.exceptions.FeedExtractionException;
+import ytharvest.factory.exceptions.FeedIterationException;
 import ytharvest.factory.exceptions.HarvServiceException;
 import ytharvest.factory.exceptions.HarvServiceForbiddenException;
+import ytharvest.factory.exceptions.HarvestException;
 import ytharvest.factory.filters.FeedFilter;
+import ytharvest.metrics.Metrics;
 
 
 /**
  * Abstract class implementing algortihm for iterative downloading of pages in an entities feed. The
  * {@link #dispatch(String, FeedFilter)} method contains a generic method, while subclasses are
  * responsible for obtaining actual pages.
+ * <br><br>
+ * 
+ * Pages are downloaded in the background by {@link ytharvest.factory.FetchPool}, while the calling
+ * thread filters the pages already downloaded. Entities are always filtered by the calling thread,
+ * in the order of the feed, so filters need not be thread-safe.
  */
 public abstract class FeedDispatcher
 {
@@ -23,6 +40,11 @@ public abstract class FeedDispatcher
 	/**
 	 * The generic downloading method. It is an iterative algorithm that downloads conscutive pages,
 	 * filters their entries and returns results accepted by filter.
+	 * <br><br>
+	 * 
+	 * The next page is requested as soon as the current one arrives, so it is being downloaded
+	 * while the current one is filtered. When the filter does not want any more entities, the
+	 * request for the next page is cancelled (unless it has already been sent).
 	 * 
 	 * @param URL
 	 *            address of a feed containing desired entities.
@@ -46,26 +68,326 @@ public abstract class FeedDispatcher
 			throws HarvServiceForbiddenException, FeedExtractionException, HarvServiceException,
 			IOException
 	{
-		// Collection<ExtractedEntity> entries = Collections.emptyList();
-		// FeedFilter filter = getFilter();
+		if (URL != null && filter.more())
+			dispatchFrom(getFeedPage(URL), filter);
+
+		return filter.getAcceptedEntities();
+	}
+
 
-		String pageUrl = URL;
-		while (pageUrl != null && filter.more())
+	/**
+	 * Downloads the feed several pages at once. Pages are addressed by their start index (the
+	 * <i>start-index</i> and <i>max-results</i> parameters of GData), which is known after the first
+	 * page arrives, so all the following pages can be requested without waiting for the previous
+	 * ones. At most <i>pages</i> requests are in flight at any time; when the filter does not want
+	 * any more entities or the end of the feed is reached, the remaining ones are cancelled.
+	 * <br><br>
+	 * 
+	 * The result is the same as the one of {@link #dispatch(String, FeedFilter)}. When the server
+	 * does not give the page size or start index of the first page, the remaining pages are
+	 * downloaded as in {@link #dispatch(String, FeedFilter)}.
+	 * 
+	 * @param URL
+	 *            address of a feed containing desired entities.
+	 * @param filter
+	 *            the filter used to limit the size of a result.
+	 * @param pages
+	 *            the number of pages downloaded at once; 1 or less means
+	 *            {@link #dispatch(String, FeedFilter)}.
+	 * @return the collection of accepted entries of a feed.
+	 * @throws HarvServiceForbiddenException
+	 *             thrown when GData throws ServiceForbiddenException, indicating that you do not
+	 *             have rights to access entries in a given feed.
+	 * @throws FeedExtractionException
+	 *             thrown when at least one of entries' data extractions throws an
+	 *             {@link ytharvest.factory.exceptions.EntryExtractionException}.
+	 * @throws HarvServiceException
+	 *             some other GData error occured.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public Collection<ExtractedEntity> dispatch(String URL, FeedFilter filter, int pages)
+			throws HarvServiceForbiddenException, FeedExtractionException, HarvServiceException,
+			IOException
+	{
+		if (pages <= 1)
+			return dispatch(URL, filter);
+
+		if (URL == null || !filter.more())
+			return filter.getAcceptedEntities();
+
+		ExtractedFeed first = getFeedPage(URL);
+		int pageSize = first.getItemsPerPage();
+		int startIndex = first.getStartIndex();
+		if (pageSize < 1 || startIndex < 1)
+		{
+			dispatchFrom(first, filter);
+			return filter.getAcceptedEntities();
+		}
+
+		filterPage(first, filter);
+
+		int total = first.getTotalResults();
+		int nextIndex = startIndex + pageSize;
+		boolean end = first.getNextFeedLink() == null;
+		Deque<FutureTask<ExtractedFeed>> inFlight = new ArrayDeque<>(pages);
+		try
 		{
-			ExtractedFeed page = getFeedPage(pageUrl);
+			while (!end && filter.more())
+			{
+				while (inFlight.size() < pages && (total < 0 || nextIndex <= total))
+				{
+					inFlight.add(fetch(URLCreator.getPageAddress(URL, nextIndex, pageSize)));
+					nextIndex += pageSize;
+				}
 
-			for (ExtractedEntity entry : page.getEntities())
-				filter.doFilter(entry);
+				if (inFlight.isEmpty())
+					break;
 
-			// entries.addAll(/* filter.doFilter( */page.getEntries()/* ) */);
+				ExtractedFeed page = FetchPool.await(inFlight.poll());
+				filterPage(page, filter);
 
-			pageUrl = page.getNextFeedLink();
+				end = page.getNextFeedLink() == null || page.getEntities().isEmpty();
+			}
+		}
+		finally
+		{
+			cancel(inFlight);
 		}
 
 		return filter.getAcceptedEntities();
 	}
 
 
+	/**
+	 * Iterates over the accepted entities of a feed without keeping them. Pages are downloaded on
+	 * the calling thread only when the entities of the previous page have been used, so a feed of
+	 * any length is read in constant memory, and no more pages are downloaded once the caller stops
+	 * iterating or the filter does not want any more entities. Unlike
+	 * {@link #dispatch(String, FeedFilter)}, pages are not prefetched.
+	 * <br><br>
+	 * 
+	 * The filter works as in {@link #dispatch(String, FeedFilter)}, except that entities are taken
+	 * from it after each page with {@link FeedFilter#drainAcceptedEntities()}, and rejected ones
+	 * are only counted.
+	 * 
+	 * @param <T>
+	 *            the type of entities in the feed.
+	 * @param URL
+	 *            address of a feed containing desired entities.
+	 * @param filter
+	 *            the filter used to limit the size of a result.
+	 * @param clazz
+	 *            the Class object representing T's class. Entities of other types cause
+	 *            ClassCastException.
+	 * @return the iterator, which throws
+	 *         {@link ytharvest.factory.exceptions.FeedIterationException} from hasNext() and next()
+	 *         when a page cannot be downloaded (with the exceptions thrown by
+	 *         {@link #dispatch(String, FeedFilter)} as its cause).
+	 */
+	public <T extends ExtractedEntity> Iterator<T> iterate(String URL, FeedFilter filter,
+			Class<T> clazz)
+	{
+		return new PageIterator<>(URL, filter, clazz);
+	}
+
+
+	/**
+	 * Filters the given page and downloads the following ones, one after another, always requesting
+	 * the next page before filtering the current one.
+	 * 
+	 * @param first
+	 *            the first page, already downloaded.
+	 * @param filter
+	 *            the filter used to limit the size of a result.
+	 * @throws HarvServiceForbiddenException
+	 *             see {@link #dispatch(String, FeedFilter)}.
+	 * @throws FeedExtractionException
+	 *             see {@link #dispatch(String, FeedFilter)}.
+	 * @throws HarvServiceException
+	 *             see {@link #dispatch(String, FeedFilter)}.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void dispatchFrom(ExtractedFeed first, FeedFilter filter)
+			throws HarvServiceForbiddenException, FeedExtractionException, HarvServiceException,
+			IOException
+	{
+		Deque<FutureTask<ExtractedFeed>> next = new ArrayDeque<>(1);
+		ExtractedFeed page = first;
+		try
+		{
+			while (page != null)
+			{
+				if (page.getNextFeedLink() != null)
+					next.add(fetch(page.getNextFeedLink()));
+
+				filterPage(page, filter);
+
+				page = null;
+				if (!next.isEmpty() && filter.more())
+					page = FetchPool.await(next.poll());
+			}
+		}
+		finally
+		{
+			cancel(next);
+		}
+	}
+
+
+	/**
+	 * Passes the entities of a page to the filter, until it does not want any more. The rest of
+	 * the page is rejected without being checked (see {@link FeedFilter#skip(ExtractedEntity)}).
+	 * 
+	 * @param page
+	 *            the page.
+	 * @param filter
+	 *            the filter.
+	 */
+	private void filterPage(ExtractedFeed page, FeedFilter filter)
+	{
+		boolean more = true;
+		for (ExtractedEntity entry : page.getEntities())
+		{
+			if (more && !filter.more())
+				more = false;
+
+			if (more)
+				filter.doFilter(entry);
+			else
+				filter.skip(entry);
+		}
+	}
+
+
+	/**
+	 * Starts downloading a page in the background.
+	 * 
+	 * @param url
+	 *            address of a page to download.
+	 * @return the task downloading the page.
+	 */
+	private FutureTask<ExtractedFeed> fetch(final String url)
+	{
+		return FetchPool.submit(new Callable<ExtractedFeed>()
+		{
+			@Override
+			public ExtractedFeed call() throws Exception
+			{
+				return getFeedPage(url);
+			}
+		});
+	}
+
+
+	/**
+	 * Cancels the downloads that are no longer needed. Those already sent are left to finish, as
+	 * GData calls cannot be interrupted; their pages are dropped. Cancelled downloads are counted
+	 * in the <i>gdata.feed.cancelled</i> counter of {@link ytharvest.metrics.Metrics}.
+	 * 
+	 * @param downloads
+	 *            the downloads to cancel.
+	 */
+	private void cancel(Collection<FutureTask<ExtractedFeed>> downloads)
+	{
+		for (FutureTask<ExtractedFeed> download : downloads)
+			if (download.cancel(false))
+				Metrics.counter("gdata.feed.cancelled").incrementAndGet();
+		downloads.clear();
+	}
+
+
+	/**
+	 * The iterator returned by {@link FeedDispatcher#iterate(String, FeedFilter, Class)}.
+	 * 
+	 * @param <T>
+	 *            the type of entities in the feed.
+	 */
+	private class PageIterator<T extends ExtractedEntity> implements Iterator<T>
+	{
+
+		/** The address of the next page, or null if there are no more pages. */
+		private String nextPage;
+
+		/** The filter. */
+		private final FeedFilter filter;
+
+		/** The Class object representing T's class. */
+		private final Class<T> clazz;
+
+		/** The accepted entities of the current page not returned yet. */
+		private Iterator<ExtractedEntity> entities = Collections.emptyIterator();
+
+
+		/**
+		 * Instantiates a new page iterator.
+		 * 
+		 * @param URL
+		 *            address of the feed.
+		 * @param filter
+		 *            the filter.
+		 * @param clazz
+		 *            the Class object representing T's class.
+		 */
+		private PageIterator(String URL, FeedFilter filter, Class<T> clazz)
+		{
+			this.nextPage = URL;
+			this.filter = filter;
+			this.clazz = clazz;
+			// Rejected entities are dropped after every page anyway.
+			filter.setRetainRejects(false);
+		}
+
+
+		@Override
+		public boolean hasNext()
+		{
+			while (!entities.hasNext())
+			{
+				if (nextPage == null || !filter.more())
+					return false;
+
+				String url = nextPage;
+				nextPage = null;
+
+				ExtractedFeed page;
+				try
+				{
+					page = getFeedPage(url);
+				}
+				catch (HarvestException | IOException e)
+				{
+					throw new FeedIterationException(e);
+				}
+
+				filterPage(page, filter);
+				entities = filter.drainAcceptedEntities().iterator();
+
+				if (!page.getEntities().isEmpty())
+					nextPage = page.getNextFeedLink();
+			}
+			return true;
+		}
+
+
+		@Override
+		public T next()
+		{
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return clazz.cast(entities.next());
+		}
+
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
 	/**
 	 * Abstract method for obtaining one page in a feed, it is to be implemented in subclasses (the
 	 * 'Template Method' pattern).
@@ -45,6 +45,15 @@ public class ExtractedFeed
 	/** The entries of a feed page. */
 	private Collection<? extends ExtractedEntity> entries;
 
+	/** The index of the first entry of this page in the whole feed, counted from 1. */
+	private int startIndex;
+
+	/** The maximum number of entries on one page of the feed. */
+	private int itemsPerPage;
+
+	/** The number of entries in the whole feed. */
+	private int totalResults;
+
 
 	/**
 	 * Instantiates a new ExtractedFeed and extracts feed's data. Requires an object representing
@@ -65,6 +74,9 @@ public class ExtractedFeed
 		this.prevFeedLink = extractPrevFeedLink(feed);
 		this.nextFeedLink = extractNextFeedLink(feed);
 		this.entries = extractEntries(feed);
+		this.startIndex = feed.getStartIndex();
+		this.itemsPerPage = feed.getItemsPerPage();
+		this.totalResults = feed.getTotalResults();
 	}
 
 
@@ -367,4 +379,38 @@ public class ExtractedFeed
 		return this.entries;
 	}
 
+
+
+	/**
+	 * Gets the index of the first entry of this page in the whole feed, counted from 1.
+	 * 
+	 * @return the start index, or a value less than 1 if the server did not give it.
+	 */
+	public int getStartIndex()
+	{
+		return startIndex;
+	}
+
+
+	/**
+	 * Gets the maximum number of entries on one page of the feed.
+	 * 
+	 * @return the page size, or a value less than 1 if the server did not give it.
+	 */
+	public int getItemsPerPage()
+	{
+		return itemsPerPage;
+	}
+
+
+	/**
+	 * Gets the number of entries in the whole feed.
+	 * 
+	 * @return the number of entries, or a value less than 0 if the server did not give it.
+	 */
+	public int getTotalResults()
+	{
+		return totalResults;
+	}
+
 }
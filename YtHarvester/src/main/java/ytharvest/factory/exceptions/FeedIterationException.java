@@ -0,0 +1,28 @@
+package ytharvest.factory.exceptions;
+
+
+/**
+ * Unchecked exception thrown by iterators of feeds (see
+ * {@link ytharvest.factory.dispatchers.FeedDispatcher#iterate}) when a page of the feed cannot be
+ * downloaded - Iterator's methods cannot throw checked exceptions. The exception thrown by the
+ * download ({@link HarvestException} or IOException) is passed as the cause.
+ */
+public class FeedIterationException extends RuntimeException
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+
+	/**
+	 * Instantiates a new FeedIterationException, initializing exception's cause.
+	 *
+	 * @param cause
+	 *            the exception thrown when downloading a page.
+	 */
+	public FeedIterationException(Exception cause)
+	{
+		super(cause);
+	}
+
+}
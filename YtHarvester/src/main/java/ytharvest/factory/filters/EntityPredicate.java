@@ -0,0 +1,30 @@
+package ytharvest.factory.filters;
+
+
+import ytharvest.factory.entities.ExtractedEntity;
+
+
+/**
+ * A condition on entities, used by {@link PredicateFilter}. Conditions can be combined with
+ * {@link EntityPredicates#and}, {@link EntityPredicates#or} and {@link EntityPredicates#not}.
+ * <br><br>
+ *
+ * Predicates are shared by all copies of a filter (see {@link FeedFilter#copy()}), so they should
+ * not keep any state.
+ *
+ * @param <T>
+ *            the type of entities the condition applies to.
+ */
+public interface EntityPredicate<T extends ExtractedEntity>
+{
+
+	/**
+	 * Checks the condition.
+	 *
+	 * @param entity
+	 *            the entity to check.
+	 * @return true if the entity meets the condition.
+	 */
+	boolean apply(T entity);
+
+}
@@ -0,0 +1,182 @@
+package ytharvest.factory.filters;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ytharvest.factory.entities.ExtractedEntity;
+
+
+/**
+ * Static functions combining {@link EntityPredicate EntityPredicates}. Combined conditions are
+ * checked in the given order and stop at the first one that decides the result, so the cheapest
+ * or most selective conditions should be given first.
+ */
+public final class EntityPredicates
+{
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private EntityPredicates()
+	{
+	}
+
+
+	/**
+	 * Gives a condition met by all entities.
+	 *
+	 * @param <T>
+	 *            the type of entities.
+	 * @return the condition.
+	 */
+	public static <T extends ExtractedEntity> EntityPredicate<T> alwaysTrue()
+	{
+		return new EntityPredicate<T>()
+		{
+			@Override
+			public boolean apply(T entity)
+			{
+				return true;
+			}
+		};
+	}
+
+
+	/**
+	 * Gives a condition met when both of the given ones are met. Stops at the first one not met.
+	 * Same as {@link #and(EntityPredicate...)}, but faster for the most common case.
+	 *
+	 * @param <T>
+	 *            the type of entities.
+	 * @param first
+	 *            the condition checked first.
+	 * @param second
+	 *            the condition checked when the first one is met.
+	 * @return the condition.
+	 */
+	public static <T extends ExtractedEntity> EntityPredicate<T> and(
+			final EntityPredicate<? super T> first, final EntityPredicate<? super T> second)
+	{
+		return new EntityPredicate<T>()
+		{
+			@Override
+			public boolean apply(T entity)
+			{
+				return first.apply(entity) && second.apply(entity);
+			}
+		};
+	}
+
+
+	/**
+	 * Gives a condition met when all of the given ones are met. Stops at the first one not met.
+	 *
+	 * @param <T>
+	 *            the type of entities.
+	 * @param predicates
+	 *            the conditions; none means that all entities meet the condition.
+	 * @return the condition.
+	 */
+	@SafeVarargs
+	public static <T extends ExtractedEntity> EntityPredicate<T> and(
+			EntityPredicate<? super T>... predicates)
+	{
+		// Copied, so that changes to the array do not change the condition.
+		final List<EntityPredicate<? super T>> all = new ArrayList<>(predicates.length);
+		for (EntityPredicate<? super T> p : predicates)
+			all.add(p);
+		return new EntityPredicate<T>()
+		{
+			@Override
+			public boolean apply(T entity)
+			{
+				for (EntityPredicate<? super T> p : all)
+					if (!p.apply(entity))
+						return false;
+				return true;
+			}
+		};
+	}
+
+
+	/**
+	 * Gives a condition met when any of the two given ones is met. Stops at the first one met.
+	 * Same as {@link #or(EntityPredicate...)}, but faster for the most common case.
+	 *
+	 * @param <T>
+	 *            the type of entities.
+	 * @param first
+	 *            the condition checked first.
+	 * @param second
+	 *            the condition checked when the first one is not met.
+	 * @return the condition.
+	 */
+	public static <T extends ExtractedEntity> EntityPredicate<T> or(
+			final EntityPredicate<? super T> first, final EntityPredicate<? super T> second)
+	{
+		return new EntityPredicate<T>()
+		{
+			@Override
+			public boolean apply(T entity)
+			{
+				return first.apply(entity) || second.apply(entity);
+			}
+		};
+	}
+
+
+	/**
+	 * Gives a condition met when any of the given ones is met. Stops at the first one met.
+	 *
+	 * @param <T>
+	 *            the type of entities.
+	 * @param predicates
+	 *            the conditions; none means that no entity meets the condition.
+	 * @return the condition.
+	 */
+	@SafeVarargs
+	public static <T extends ExtractedEntity> EntityPredicate<T> or(
+			EntityPredicate<? super T>... predicates)
+	{
+		// Copied, so that changes to the array do not change the condition.
+		final List<EntityPredicate<? super T>> any = new ArrayList<>(predicates.length);
+		for (EntityPredicate<? super T> p : predicates)
+			any.add(p);
+		return new EntityPredicate<T>()
+		{
+			@Override
+			public boolean apply(T entity)
+			{
+				for (EntityPredicate<? super T> p : any)
+					if (p.apply(entity))
+						return true;
+				return false;
+			}
+		};
+	}
+
+
+	/**
+	 * Gives a condition met when the given one is not met.
+	 *
+	 * @param <T>
+	 *            the type of entities.
+	 * @param predicate
+	 *            the condition.
+	 * @return the negated condition.
+	 */
+	public static <T extends ExtractedEntity> EntityPredicate<T> not(
+			final EntityPredicate<? super T> predicate)
+	{
+		return new EntityPredicate<T>()
+		{
+			@Override
+			public boolean apply(T entity)
+			{
+				return !predicate.apply(entity);
+			}
+		};
+	}
+
+}
@@ -1,8 +1,10 @@
 package ytharvest.factory.filters;
 
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.List;
 
 import ytharvest.factory.entities.ExtractedComment;
 import ytharvest.factory.entities.ExtractedEntity;
@@ -44,11 +46,29 @@ import ytharvest.factory.entities.ExtractedVideo;
 public abstract class FeedFilter implements ExtractedEntityVisitor
 {
 
+	/**
+	 * The number of entities the collections are sized for - a page of a feed, 50 being the most
+	 * YouTube API returns.
+	 */
+	private static final int PAGE_SIZE = 50;
+
 	/** The collection containing accepted entities. See {@link #accept(ExtractedEntity)}. */
-	private Collection<ExtractedEntity> accepts = new LinkedList<>();
+	private List<ExtractedEntity> accepts = new ArrayList<>(PAGE_SIZE);
+
+	/**
+	 * The collection containing rejected entities, created when the first one is rejected. See
+	 * {@link #reject(ExtractedEntity)}.
+	 */
+	private List<ExtractedEntity> rejects;
 
-	/** The collection containing rejected entities. See {@link #reject(ExtractedEntity)}. */
-	private Collection<ExtractedEntity> rejects = new LinkedList<>();
+	/** The number of accepted entities, including those already drained. */
+	private int acceptedCount;
+
+	/** The number of rejected entities. */
+	private int rejectedCount;
+
+	/** Whether rejected entities are kept, or only counted. See {@link #setRetainRejects(boolean)}. */
+	private boolean retainRejects = true;
 
 
 	/**
@@ -131,6 +151,7 @@ public abstract class FeedFilter implements ExtractedEntityVisitor
 	protected void accept(ExtractedEntity entity)
 	{
 		accepts.add(entity);
+		acceptedCount++;
 	}
 
 
@@ -143,10 +164,48 @@ public abstract class FeedFilter implements ExtractedEntityVisitor
 	 */
 	protected void reject(ExtractedEntity e)
 	{
+		rejectedCount++;
+		if (!retainRejects)
+			return;
+
+		if (rejects == null)
+			rejects = new ArrayList<>(PAGE_SIZE);
 		rejects.add(e);
 	}
 
 
+	/**
+	 * Rejects an entity without checking it, because the filter does not want any more (see
+	 * {@link #more()}). Used by {@link ytharvest.factory.dispatchers.FeedDispatcher} for the rest
+	 * of a page, so that {@link #getRejectedCount()} still counts every entity of the downloaded
+	 * pages that was not accepted.
+	 * 
+	 * @param entity
+	 *            the entity to reject.
+	 */
+	public final void skip(ExtractedEntity entity)
+	{
+		reject(entity);
+	}
+
+
+	/**
+	 * Sets whether rejected entities are kept for {@link #getRejectedEntities()}. Most callers
+	 * never read them, so they may be only counted (see {@link #getRejectedCount()}). They are
+	 * kept by default; {@link FilterFactory} sets it on filters it creates.
+	 * 
+	 * @param retainRejects
+	 *            true if rejected entities should be kept, false if only counted. Rejected
+	 *            entities kept so far are forgotten when set to false.
+	 */
+	public void setRetainRejects(boolean retainRejects)
+	{
+		this.retainRejects = retainRejects;
+		if (!retainRejects)
+			rejects = null;
+	}
+
+
 	/**
 	 * Gets the accepted entities.
 	 * 
@@ -158,13 +217,56 @@ public abstract class FeedFilter implements ExtractedEntityVisitor
 	}
 
 
+	/**
+	 * Gets the number of accepted entities, including those taken by
+	 * {@link #drainAcceptedEntities()}. Filters limiting the number of accepted entities should use
+	 * it rather than the size of {@link #getAcceptedEntities()}.
+	 * 
+	 * @return the number of accepted entities.
+	 */
+	public int getAcceptedCount()
+	{
+		return acceptedCount;
+	}
+
+
+	/**
+	 * Takes the entities accepted since the previous call, and forgets the rejected ones. Used when
+	 * a feed is iterated (see {@link ytharvest.factory.dispatchers.FeedDispatcher#iterate}), so that
+	 * the filter does not keep all entities of a long feed.
+	 * 
+	 * @return the entities accepted since the previous call.
+	 */
+	public Collection<ExtractedEntity> drainAcceptedEntities()
+	{
+		Collection<ExtractedEntity> drained = accepts;
+		accepts = new ArrayList<>(PAGE_SIZE);
+		rejects = null;
+		return drained;
+	}
+
+
+	/**
+	 * Gets the number of rejected entities, including those not kept (see
+	 * {@link #setRetainRejects(boolean)}).
+	 * 
+	 * @return the number of rejected entities.
+	 */
+	public int getRejectedCount()
+	{
+		return rejectedCount;
+	}
+
+
 	/**
 	 * Gets the rejected entities.
 	 * 
-	 * @return the rejected entities.
+	 * @return the rejected entities; empty if they are not kept.
 	 */
 	public Collection<ExtractedEntity> getRejectedEntities()
 	{
+		if (rejects == null)
+			return Collections.emptyList();
 		return rejects;
 	}
 
@@ -26,6 +26,9 @@ public class FilterFactory
 	/** The filter used for filtering comment feeds. */
 	private static FeedFilter commF = getDefaultFilter();
 
+	/** Whether created filters keep rejected entities, see {@link FeedFilter#setRetainRejects}. */
+	private static boolean retainRejects = true;
+
 
 	/**
 	 * Main configure function. User must provide user, video and comment filters which will be used
@@ -46,6 +49,19 @@ public class FilterFactory
 	}
 
 
+	/**
+	 * Sets whether filters created from now on keep rejected entities, or only count them (see
+	 * {@link FeedFilter#setRetainRejects(boolean)}). They are kept by default.
+	 * 
+	 * @param retain
+	 *            true if rejected entities should be kept, false if only counted.
+	 */
+	public static void setRetainRejects(boolean retain)
+	{
+		retainRejects = retain;
+	}
+
+
 	/**
 	 * Creates new default filter.
 	 * 
@@ -64,7 +80,7 @@ public class FilterFactory
 	 */
 	public static FeedFilter getUserFilter()
 	{
-		return userF.copy();
+		return prepare(userF.copy());
 	}
 
 
@@ -75,7 +91,7 @@ public class FilterFactory
 	 */
 	public static FeedFilter getVideoFilter()
 	{
-		return vidF.copy();
+		return prepare(vidF.copy());
 	}
 
 
@@ -86,6 +102,20 @@ public class FilterFactory
 	 */
 	public static FeedFilter getCommentFilter()
 	{
-		return commF.copy();
+		return prepare(commF.copy());
+	}
+
+
+	/**
+	 * Prepares a newly created filter.
+	 * 
+	 * @param filter
+	 *            the filter.
+	 * @return the filter.
+	 */
+	private static FeedFilter prepare(FeedFilter filter)
+	{
+		filter.setRetainRejects(retainRejects);
+		return filter;
 	}
 }
@@ -0,0 +1,168 @@
+package ytharvest.factory.filters;
+
+
+import ytharvest.factory.entities.ExtractedComment;
+import ytharvest.factory.entities.ExtractedEntity;
+import ytharvest.factory.entities.ExtractedUser;
+import ytharvest.factory.entities.ExtractedVideo;
+
+
+/**
+ * A filter accepting entities of one type that meet a condition, up to a limit. Conditions are
+ * given as {@link EntityPredicate EntityPredicates}, which can be combined (see
+ * {@link EntityPredicates}), so new filters need not subclass {@link FeedFilter}. For example,
+ * the first 100 videos watched more than 1000 times or rated above 4:
+ *
+ * <pre>
+ * new PredicateFilter&lt;&gt;(ExtractedVideo.class,
+ * 		EntityPredicates.&lt;ExtractedVideo&gt; or(watched, rated), 100)
+ * </pre>
+ *
+ * Entities of other types, and entities met after the limit has been reached, are rejected. Once
+ * the limit is reached, {@link #more()} returns false, so no more pages of the feed are
+ * downloaded. Unlike other filters, it checks entities directly in
+ * {@link #doFilter(ExtractedEntity)}, without dispatching them through visit() functions.
+ *
+ * @param <T>
+ *            the type of accepted entities.
+ * @see EntityPredicates
+ */
+public class PredicateFilter<T extends ExtractedEntity> extends FeedFilter
+{
+
+	/** The Class object representing T's class. */
+	private final Class<T> type;
+
+	/** The condition. */
+	private final EntityPredicate<? super T> predicate;
+
+	/** The maximum number of accepted entities. */
+	private final int limit;
+
+
+	/**
+	 * Instantiates a new filter accepting all entities of the given type that meet the condition.
+	 *
+	 * @param type
+	 *            the Class object representing T's class.
+	 * @param predicate
+	 *            the condition.
+	 */
+	public PredicateFilter(Class<T> type, EntityPredicate<? super T> predicate)
+	{
+		this(type, predicate, Integer.MAX_VALUE);
+	}
+
+
+	/**
+	 * Instantiates a new filter accepting at most limit entities of the given type that meet the
+	 * condition.
+	 *
+	 * @param type
+	 *            the Class object representing T's class.
+	 * @param predicate
+	 *            the condition.
+	 * @param limit
+	 *            the maximum number of accepted entities.
+	 */
+	public PredicateFilter(Class<T> type, EntityPredicate<? super T> predicate, int limit)
+	{
+		this.type = type;
+		this.predicate = predicate;
+		this.limit = limit;
+	}
+
+
+	/**
+	 * Accepts or rejects the entity.
+	 *
+	 * @see ytharvest.factory.filters.FeedFilter#doFilter(ytharvest.factory.entities.ExtractedEntity)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void doFilter(ExtractedEntity entity)
+	{
+		// Checked by isInstance(), Class.cast() would only check it again.
+		if (getAcceptedCount() < limit && type.isInstance(entity) && predicate.apply((T) entity))
+			accept(entity);
+		else
+			reject(entity);
+	}
+
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ytharvest.factory.filters.FeedFilter#visit(ytharvest.factory.entities.ExtractedEntity)
+	 */
+	@Override
+	public ExtractedEntity visit(ExtractedEntity entity)
+	{
+		doFilter(entity);
+		return entity;
+	}
+
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ytharvest.factory.filters.FeedFilter#visit(ytharvest.factory.entities.ExtractedUser)
+	 */
+	@Override
+	public ExtractedUser visit(ExtractedUser user)
+	{
+		doFilter(user);
+		return user;
+	}
+
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ytharvest.factory.filters.FeedFilter#visit(ytharvest.factory.entities.ExtractedComment)
+	 */
+	@Override
+	public ExtractedComment visit(ExtractedComment comment)
+	{
+		doFilter(comment);
+		return comment;
+	}
+
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ytharvest.factory.filters.FeedFilter#visit(ytharvest.factory.entities.ExtractedVideo)
+	 */
+	@Override
+	public ExtractedVideo visit(ExtractedVideo video)
+	{
+		doFilter(video);
+		return video;
+	}
+
+
+	/**
+	 * More entities are wanted until the limit is reached.
+	 *
+	 * @see ytharvest.factory.filters.FeedFilter#more()
+	 */
+	@Override
+	public boolean more()
+	{
+		return getAcceptedCount() < limit;
+	}
+
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ytharvest.factory.filters.FeedFilter#copy()
+	 */
+	@Override
+	public FeedFilter copy()
+	{
+		return new PredicateFilter<>(type, predicate, limit);
+	}
+
+}
@@ -92,7 +92,7 @@ public class QuantityFilter extends FeedFilter
 	@Override
 	public boolean more()
 	{
-		return getAcceptedEntities().size() < max;
+		return getAcceptedCount() < max;
 	}
 
 
@@ -0,0 +1,22 @@
+package ytharvest.metrics;
+
+
+/**
+ * A value read when metrics are reported, e.g. the current size of a queue.
+ * <br><br>
+ *
+ * Gauges are called from the reporting thread and from JMX, so they have to be thread-safe and cheap.
+ *
+ * @see Metrics#gauge(String, Gauge)
+ */
+public interface Gauge
+{
+
+	/**
+	 * Reads the current value.
+	 *
+	 * @return the value
+	 */
+	long getValue();
+
+}
@@ -0,0 +1,207 @@
+package ytharvest.metrics;
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A histogram of latencies (or any other non-negative values), in the spirit of HdrHistogram.
+ * <br><br>
+ *
+ * Values are counted in buckets of logarithmically growing width: every power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so any percentile is known within 1/{@value #SUB_BUCKETS}
+ * of its value, from single nanoseconds up to days, using a fixed array of counters.
+ * <br><br>
+ *
+ * Recording is lock-free and takes a few atomic increments, so the histogram may be shared by all
+ * threads making calls. Reading while others record gives a consistent enough picture, though not an
+ * atomic snapshot.
+ */
+public class Histogram
+{
+
+	/** Number of bits of the linear part of a bucket. */
+	private static final int SUB_BITS = 4;
+
+	/** Number of linear sub-buckets every power of two is split into. */
+	public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/** Values below this one have buckets of their own. */
+	private static final int EXACT = 2 * SUB_BUCKETS;
+
+	/** Number of buckets, enough for any non-negative long. */
+	private static final int BUCKETS = EXACT + (63 - SUB_BITS - 1) * SUB_BUCKETS;
+
+	/** The counters of values in buckets. */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/** Number of values recorded. */
+	private final AtomicLong count = new AtomicLong();
+
+	/** Sum of values recorded. */
+	private final AtomicLong sum = new AtomicLong();
+
+	/** The highest value recorded. */
+	private final AtomicLong max = new AtomicLong();
+
+
+	/**
+	 * Records one value.
+	 *
+	 * @param value
+	 *            the value, e.g. latency in nanoseconds; negative values are counted as 0.
+	 */
+	public void record(long value)
+	{
+		if (value < 0)
+			value = 0;
+
+		counts.incrementAndGet(index(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value))
+			current = max.get();
+	}
+
+
+	/**
+	 * Gets the number of values recorded.
+	 *
+	 * @return the number of values
+	 */
+	public long getCount()
+	{
+		return count.get();
+	}
+
+
+	/**
+	 * Gets the sum of values recorded.
+	 *
+	 * @return the sum
+	 */
+	public long getSum()
+	{
+		return sum.get();
+	}
+
+
+	/**
+	 * Gets the highest value recorded.
+	 *
+	 * @return the value, 0 if nothing was recorded
+	 */
+	public long getMax()
+	{
+		return max.get();
+	}
+
+
+	/**
+	 * Gets the mean of values recorded.
+	 *
+	 * @return the mean, 0 if nothing was recorded
+	 */
+	public double getMean()
+	{
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+
+	/**
+	 * Gets the value below or at which given percentage of recorded values are.
+	 *
+	 * @param percentile
+	 *            the percentage, from 0 to 100.
+	 * @return the highest value of the bucket the percentile falls into (never more than
+	 *         {@link #getMax()}), 0 if nothing was recorded.
+	 */
+	public long getPercentile(double percentile)
+	{
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			total += counts.get(i);
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			seen += counts.get(i);
+			if (seen >= rank)
+				return Math.min(highest(i), getMax());
+		}
+		return getMax();
+	}
+
+
+	/**
+	 * Finds the bucket of a value.
+	 *
+	 * @param value
+	 *            the non-negative value.
+	 * @return the index of the bucket.
+	 */
+	static int index(long value)
+	{
+		if (value < EXACT)
+			return (int) value;
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BITS;
+		int sub = (int) (value >>> shift) - SUB_BUCKETS;
+		return EXACT + (magnitude - SUB_BITS - 1) * SUB_BUCKETS + sub;
+	}
+
+
+	/**
+	 * Finds the highest value counted in a bucket.
+	 *
+	 * @param index
+	 *            the index of the bucket.
+	 * @return the value.
+	 */
+	static long highest(int index)
+	{
+		if (index < EXACT)
+			return index;
+
+		int magnitude = (index - EXACT) / SUB_BUCKETS + SUB_BITS + 1;
+		int sub = (index - EXACT) % SUB_BUCKETS;
+		int shift = magnitude - SUB_BITS;
+		long lowest = (long) (SUB_BUCKETS + sub) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+
+	/**
+	 * Describes the histogram of latencies recorded in nanoseconds.
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("%d calls, mean %.1f ms, p50 %.1f ms, p99 %.1f ms, max %.1f ms", getCount(),
+				getMean() / TimeUnit.MILLISECONDS.toNanos(1), millis(getPercentile(50)),
+				millis(getPercentile(99)), millis(getMax()));
+	}
+
+
+	/**
+	 * Converts nanoseconds into milliseconds.
+	 *
+	 * @param nanos
+	 *            the time in nanoseconds.
+	 * @return the time in milliseconds
+	 */
+	private static double millis(long nanos)
+	{
+		return nanos / 1e6;
+	}
+
+}
@@ -0,0 +1,205 @@
+package ytharvest.metrics;
+
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The registry of named counters, histograms and gauges shared by the whole application.
+ * <br><br>
+ *
+ * Code making remote calls, waiting for quota or queueing work records what it does under a
+ * dotted name (e.g. <i>gdata.feed</i> or <i>twitter.getFollowers</i>), asking for the counter or
+ * histogram by that name - it is created on first use, so nothing has to be configured up front.
+ * Long-lived objects should look their metrics up once and keep them.
+ * <br><br>
+ *
+ * All metrics may be read at once with {@link #snapshot()}, which is what both the
+ * {@link MetricsReporter} and the JMX bean registered by {@link #registerMBean(String)} show.
+ *
+ * @see ytharvest.throttle.Throttle
+ */
+public class Metrics
+{
+
+	/** The logger. */
+	private static Logger log = LoggerFactory.getLogger(Metrics.class);
+
+	/** Counters, by name. */
+	private static final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+
+	/** Histograms, by name. */
+	private static final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	/** Gauges, by name. */
+	private static final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+
+	/**
+	 * Private constructor, the class has only static members.
+	 */
+	private Metrics()
+	{
+	}
+
+
+	/**
+	 * Gets the counter of given name, creating it if needed.
+	 *
+	 * @param name
+	 *            the name of the counter.
+	 * @return the counter
+	 */
+	public static AtomicLong counter(String name)
+	{
+		AtomicLong counter = counters.get(name);
+		if (counter == null)
+		{
+			AtomicLong created = new AtomicLong();
+			counter = counters.putIfAbsent(name, created);
+			if (counter == null)
+				counter = created;
+		}
+		return counter;
+	}
+
+
+	/**
+	 * Gets the histogram of given name, creating it if needed. Histograms hold latencies in
+	 * nanoseconds.
+	 *
+	 * @param name
+	 *            the name of the histogram.
+	 * @return the histogram
+	 */
+	public static Histogram histogram(String name)
+	{
+		Histogram histogram = histograms.get(name);
+		if (histogram == null)
+		{
+			Histogram created = new Histogram();
+			histogram = histograms.putIfAbsent(name, created);
+			if (histogram == null)
+				histogram = created;
+		}
+		return histogram;
+	}
+
+
+	/**
+	 * Registers (or replaces) the gauge of given name.
+	 *
+	 * @param name
+	 *            the name of the gauge.
+	 * @param gauge
+	 *            the gauge.
+	 */
+	public static void gauge(String name, Gauge gauge)
+	{
+		gauges.put(name, gauge);
+	}
+
+
+	/**
+	 * Removes the gauge of given name, e.g. when the object it reads is no longer used.
+	 *
+	 * @param name
+	 *            the name of the gauge.
+	 */
+	public static void removeGauge(String name)
+	{
+		gauges.remove(name);
+	}
+
+
+	/**
+	 * Reads all metrics. Counters and gauges are given under their own names; every histogram gives
+	 * its count, mean, 50th, 90th and 99th percentile, maximum (in microseconds) and total (in
+	 * milliseconds) under its name followed by <i>.count</i>, <i>.mean_us</i>, <i>.p50_us</i>,
+	 * <i>.p90_us</i>, <i>.p99_us</i>, <i>.max_us</i> and <i>.total_ms</i>. Histograms with nothing
+	 * recorded yet are left out.
+	 *
+	 * @return the values of metrics, sorted by name
+	 */
+	public static SortedMap<String, Long> snapshot()
+	{
+		SortedMap<String, Long> values = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> e : counters.entrySet())
+			values.put(e.getKey(), e.getValue().get());
+
+		for (Map.Entry<String, Gauge> e : gauges.entrySet())
+		{
+			try
+			{
+				values.put(e.getKey(), e.getValue().getValue());
+			}
+			catch (RuntimeException re)
+			{
+				log.warn("Gauge " + e.getKey() + " failed.", re);
+			}
+		}
+
+		for (Map.Entry<String, Histogram> e : histograms.entrySet())
+		{
+			String name = e.getKey();
+			Histogram h = e.getValue();
+			if (h.getCount() == 0)
+				continue;
+			values.put(name + ".count", h.getCount());
+			values.put(name + ".mean_us", TimeUnit.NANOSECONDS.toMicros((long) h.getMean()));
+			values.put(name + ".p50_us", TimeUnit.NANOSECONDS.toMicros(h.getPercentile(50)));
+			values.put(name + ".p90_us", TimeUnit.NANOSECONDS.toMicros(h.getPercentile(90)));
+			values.put(name + ".p99_us", TimeUnit.NANOSECONDS.toMicros(h.getPercentile(99)));
+			values.put(name + ".max_us", TimeUnit.NANOSECONDS.toMicros(h.getMax()));
+			values.put(name + ".total_ms", TimeUnit.NANOSECONDS.toMillis(h.getSum()));
+		}
+		return values;
+	}
+
+
+	/**
+	 * Gets the names of all counters, whose values only grow - their rates are worth reporting.
+	 *
+	 * @return the names
+	 */
+	public static Iterable<String> getCounterNames()
+	{
+		return counters.keySet();
+	}
+
+
+	/**
+	 * Exposes all metrics as attributes of one JMX bean, e.g. for JConsole. Registering the same
+	 * name again does nothing.
+	 *
+	 * @param objectName
+	 *            the JMX name of the bean, e.g. "TwitterCrawler:type=Metrics".
+	 */
+	public static void registerMBean(String objectName)
+	{
+		try
+		{
+			ObjectName name = new ObjectName(objectName);
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), name);
+		}
+		catch (JMException e)
+		{
+			log.warn("Could not register metrics bean " + objectName + ".", e);
+		}
+	}
+
+}
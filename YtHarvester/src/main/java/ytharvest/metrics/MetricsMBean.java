@@ -0,0 +1,84 @@
+package ytharvest.metrics;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+
+/**
+ * The JMX view of {@link Metrics}: every value of {@link Metrics#snapshot()} is a read-only
+ * attribute. Metrics created after a JMX client has read the bean's description appear when it
+ * reads it again.
+ */
+class MetricsMBean implements DynamicMBean
+{
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException
+	{
+		Long value = Metrics.snapshot().get(attribute);
+		if (value == null)
+			throw new AttributeNotFoundException(attribute);
+		return value;
+	}
+
+
+	@Override
+	public AttributeList getAttributes(String[] attributes)
+	{
+		Map<String, Long> values = Metrics.snapshot();
+		AttributeList list = new AttributeList();
+		for (String name : attributes)
+		{
+			if (values.containsKey(name))
+				list.add(new Attribute(name, values.get(name)));
+		}
+		return list;
+	}
+
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+	{
+		throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+	}
+
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes)
+	{
+		return new AttributeList();
+	}
+
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature)
+			throws ReflectionException
+	{
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+
+	@Override
+	public MBeanInfo getMBeanInfo()
+	{
+		List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+		for (String name : Metrics.snapshot().keySet())
+			attributes.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+
+		return new MBeanInfo(Metrics.class.getName(), "Crawl metrics",
+				attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+				new MBeanOperationInfo[0], null);
+	}
+
+}
@@ -0,0 +1,124 @@
+package ytharvest.metrics;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Periodically logs all {@link Metrics} as one structured line of <i>name=value</i> pairs, easy to
+ * grep and to load into a spreadsheet. Every counter is followed by its rate per second since the
+ * previous line, under its name followed by <i>.rate</i>.
+ * <br><br>
+ *
+ * Lines are logged at INFO level by the <i>ytharvest.metrics.MetricsReporter</i> logger.
+ */
+public class MetricsReporter
+{
+
+	/** The logger. */
+	private static Logger log = LoggerFactory.getLogger(MetricsReporter.class);
+
+	/** The interval between lines, in milliseconds. */
+	private final long interval;
+
+	/** The timer logging the lines. */
+	private Timer timer;
+
+	/** Values of counters in the previous line. */
+	private final Map<String, Long> previous = new HashMap<String, Long>();
+
+	/** The time of the previous line, as returned by System.nanoTime(). */
+	private long previousTime = System.nanoTime();
+
+
+	/**
+	 * Instantiates a new reporter.
+	 *
+	 * @param seconds
+	 *            the interval between lines, in seconds.
+	 */
+	public MetricsReporter(int seconds)
+	{
+		this.interval = seconds * 1000L;
+	}
+
+
+	/**
+	 * Starts logging lines in the background.
+	 */
+	public synchronized void start()
+	{
+		if (timer != null)
+			return;
+
+		timer = new Timer("metrics-reporter", true);
+		timer.schedule(new TimerTask()
+		{
+			@Override
+			public void run()
+			{
+				report();
+			}
+		}, interval, interval);
+	}
+
+
+	/**
+	 * Stops logging in the background and logs the final line.
+	 */
+	public synchronized void stop()
+	{
+		if (timer != null)
+		{
+			timer.cancel();
+			timer = null;
+		}
+		report();
+	}
+
+
+	/**
+	 * Logs one line with current values of metrics.
+	 */
+	public synchronized void report()
+	{
+		log.info(format());
+	}
+
+
+	/**
+	 * Formats current values of metrics, with rates of counters since the previous call.
+	 *
+	 * @return the line
+	 */
+	synchronized String format()
+	{
+		long now = System.nanoTime();
+		double seconds = Math.max(1, now - previousTime) / 1e9;
+		SortedMap<String, Long> values = Metrics.snapshot();
+		for (String name : Metrics.getCounterNames())
+		{
+			Long value = values.get(name);
+			if (value == null)
+				continue;
+
+			Long before = previous.get(name);
+			values.put(name + ".rate", Math.round((value - (before != null ? before : 0)) / seconds));
+			previous.put(name, value);
+		}
+		previousTime = now;
+
+		StringBuilder sb = new StringBuilder("metrics");
+		for (Map.Entry<String, Long> e : values.entrySet())
+			sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+		return sb.toString();
+	}
+
+}
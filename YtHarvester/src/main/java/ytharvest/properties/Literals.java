@@ -13,7 +13,7 @@ package ytharvest.properties;
  * <br>
  * When user wants to configure the {@link Properties} class by providing their own map of key-value
  * settings, that map must contain all of the Literals string values as keys (plus their
- * corresponding values).
+ * corresponding values), except for those marked as optional.
  * 
  * @see Properties
  */
@@ -36,7 +36,36 @@ public enum Literals
 	 * The prefix to which user ID should be appended in order
 	 * to receive user's url.
 	 */
-	USERURL_PREFIX("UserUrlPrefix");
+	USERURL_PREFIX("UserUrlPrefix"), /**
+	 * The limit of GData calls per hour, shared by all threads (optional, 0 or none means
+	 * no limit).
+	 */
+	GDATA_CALLS_PER_HOUR("GDataCallsPerHour"), /**
+	 * The number of GData calls that may be made at once, without waiting (optional).
+	 */
+	GDATA_BURST("GDataBurst"), /**
+	 * The number of threads downloading GData pages in the background (optional, 4 if none).
+	 */
+	FETCH_THREADS("FetchThreads"), /**
+	 * The number of pages of one feed downloaded at once (optional, 1 or none means that pages
+	 * are downloaded one after another, prefetching the next one).
+	 */
+	FEED_PARALLEL_PAGES("FeedParallelPages"), /**
+	 * The directory in which downloaded GData responses are kept and revalidated with ETags
+	 * (optional, none means that responses are not cached).
+	 */
+	GDATA_CACHE_DIR("GDataCacheDir"), /**
+	 * The maximum size of the GData response cache, in megabytes (optional, 64 if none).
+	 */
+	GDATA_CACHE_SIZE_MB("GDataCacheSizeMB"), /**
+	 * The number of downloaded users and of downloaded videos kept in memory (optional, 10000 if
+	 * none, 0 means that they are not kept).
+	 */
+	ENTITY_CACHE_SIZE("EntityCacheSize"), /**
+	 * The time after which users and videos kept in memory are downloaded again, in minutes
+	 * (optional, 60 if none, 0 means never).
+	 */
+	ENTITY_CACHE_TTL_MINUTES("EntityCacheTTLMinutes");
 
 	// End of string literals
 	// //////////////////////////////////////////
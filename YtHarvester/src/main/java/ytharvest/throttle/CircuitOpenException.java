@@ -0,0 +1,43 @@
+package ytharvest.throttle;
+
+
+/**
+ * Thrown by {@link RetryPolicy#before()} when the endpoint's circuit is open, i.e. it has failed
+ * too many times in a row and calls to it are refused for a while.
+ */
+public class CircuitOpenException extends Exception
+{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The time after which the next call may be tried, in milliseconds. */
+	private final long retryAfter;
+
+
+	/**
+	 * Instantiates a new circuit open exception.
+	 *
+	 * @param name
+	 *            the name of the endpoint.
+	 * @param retryAfter
+	 *            the time after which the next call may be tried, in milliseconds.
+	 */
+	public CircuitOpenException(String name, long retryAfter)
+	{
+		super("Circuit of " + name + " is open, retry after " + retryAfter + " ms");
+		this.retryAfter = retryAfter;
+	}
+
+
+	/**
+	 * Gets the time after which the next call may be tried.
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getRetryAfter()
+	{
+		return retryAfter;
+	}
+
+}
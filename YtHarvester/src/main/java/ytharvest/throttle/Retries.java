@@ -0,0 +1,128 @@
+package ytharvest.throttle;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * The registry of named {@link RetryPolicy} objects shared by the whole application, one for each
+ * endpoint - usually under the name of the endpoint's {@link TokenBucket}.
+ * <br><br>
+ *
+ * Policies that have not been configured with {@link #configure(String, int, long, long)} make at
+ * most {@link #DEFAULT_ATTEMPTS} attempts, starting with {@link #DEFAULT_BASE_DELAY} delay, and
+ * open their circuit for {@link #DEFAULT_OPEN_TIME}.
+ *
+ * @see Throttle
+ */
+public class Retries
+{
+
+	/** The maximum number of attempts of a call, unless configured otherwise. */
+	public static final int DEFAULT_ATTEMPTS = 8;
+
+	/** The delay after the first failure in milliseconds, unless configured otherwise. */
+	public static final long DEFAULT_BASE_DELAY = 1000;
+
+	/** The maximum delay between attempts in milliseconds, unless configured otherwise. */
+	public static final long DEFAULT_MAX_DELAY = 15 * 60 * 1000;
+
+	/**
+	 * The time for which a circuit stays open in milliseconds, unless configured otherwise. It is
+	 * much shorter than {@link #DEFAULT_MAX_DELAY}, so that a short outage does not stop the calls
+	 * for long.
+	 */
+	public static final long DEFAULT_OPEN_TIME = 30 * 1000;
+
+	/** All policies, by name. */
+	private static final ConcurrentMap<String, RetryPolicy> policies = new ConcurrentHashMap<String, RetryPolicy>();
+
+
+	/**
+	 * Private constructor, the class has only static members.
+	 */
+	private Retries()
+	{
+	}
+
+
+	/**
+	 * Creates (or replaces) the policy of given name.
+	 *
+	 * @param name
+	 *            the name of the policy.
+	 * @param maxAttempts
+	 *            the maximum number of attempts of one call.
+	 * @param baseDelay
+	 *            the delay after the first failure, in milliseconds.
+	 * @param maxDelay
+	 *            the maximum delay between attempts, in milliseconds.
+	 * @return the new policy.
+	 */
+	public static RetryPolicy configure(String name, int maxAttempts, long baseDelay, long maxDelay)
+	{
+		return configure(name, maxAttempts, baseDelay, maxDelay, DEFAULT_OPEN_TIME);
+	}
+
+
+	/**
+	 * Creates (or replaces) the policy of given name.
+	 *
+	 * @param name
+	 *            the name of the policy.
+	 * @param maxAttempts
+	 *            the maximum number of attempts of one call.
+	 * @param baseDelay
+	 *            the delay after the first failure, in milliseconds.
+	 * @param maxDelay
+	 *            the maximum delay between attempts, in milliseconds.
+	 * @param openTime
+	 *            the time for which the circuit stays open, in milliseconds.
+	 * @return the new policy.
+	 */
+	public static RetryPolicy configure(String name, int maxAttempts, long baseDelay, long maxDelay,
+			long openTime)
+	{
+		RetryPolicy policy = new RetryPolicy(name, maxAttempts, baseDelay, maxDelay, openTime);
+		policies.put(name, policy);
+		return policy;
+	}
+
+
+	/**
+	 * Gets the policy of given name. A policy with default settings is created if there is none
+	 * yet.
+	 *
+	 * @param name
+	 *            the name of the policy.
+	 * @return the policy.
+	 */
+	public static RetryPolicy get(String name)
+	{
+		RetryPolicy policy = policies.get(name);
+		if (policy == null)
+		{
+			RetryPolicy created = new RetryPolicy(name, DEFAULT_ATTEMPTS, DEFAULT_BASE_DELAY,
+					DEFAULT_MAX_DELAY, DEFAULT_OPEN_TIME);
+			policy = policies.putIfAbsent(name, created);
+			if (policy == null)
+				policy = created;
+		}
+		return policy;
+	}
+
+
+	/**
+	 * Gets all the policies, e.g. to print their statistics.
+	 *
+	 * @return the policies.
+	 */
+	public static Collection<RetryPolicy> getPolicies()
+	{
+		return new ArrayList<RetryPolicy>(policies.values());
+	}
+
+}
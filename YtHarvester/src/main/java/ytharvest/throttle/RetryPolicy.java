@@ -0,0 +1,378 @@
+package ytharvest.throttle;
+
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ytharvest.metrics.Metrics;
+
+
+/**
+ * Decides whether and when a failed call to a remote endpoint is retried.
+ * <br><br>
+ *
+ * Callers report every failure with {@link #failed(int, Failure, long)} and get back the time to
+ * wait before the next attempt, or -1 when they should give up. Failures are of three kinds:
+ * <ul>
+ * <li>{@link Failure#RATE_LIMITED} - the service refused the call because of its quota. The call
+ * is retried after the time given by the service (e.g. its Retry-After header) or, when it gave
+ * none, after an exponentially growing delay. The caller is expected to pause the endpoint's
+ * {@link TokenBucket} for that time, so that no other thread wastes calls either.</li>
+ * <li>{@link Failure#TRANSIENT} - the service or the network failed, and the same call may succeed
+ * later. Such calls are retried after an exponentially growing delay with full jitter, as long as
+ * the retry budget allows it.</li>
+ * <li>{@link Failure#FATAL} - the call will not succeed however many times it is repeated (e.g.
+ * access is forbidden). It is never retried.</li>
+ * </ul>
+ * No call is made more than <i>maxAttempts</i> times.
+ * <br><br>
+ *
+ * The retry budget keeps retries of transient failures from multiplying the load of a failing
+ * service: it holds at most {@link #BUDGET} retries, every retry takes one of them, and every
+ * successful call gives back {@link #BUDGET_RATIO} of one.
+ * <br><br>
+ *
+ * The policy is also a circuit breaker. After {@link #FAILURE_THRESHOLD} transient failures in a
+ * row it opens, and for <i>openTime</i> every call is refused by {@link #before()} without reaching
+ * the service. Then one trial call is let through: its success closes the circuit, its failure
+ * opens it again. The call whose failure opened the circuit is retried after <i>openTime</i>, as
+ * long as it has attempts left. Every attempt let through by {@link #before()} must be followed by
+ * {@link #finished()} in a finally block, so that a trial ended by an unexpected exception does not
+ * keep the circuit half-open for good.
+ * <br><br>
+ *
+ * Policies are thread-safe. Retries, calls given up and calls refused by the open circuit are
+ * counted in <i>retry.&lt;name&gt;.retries</i>, <i>.givenUp</i> and <i>.rejected</i> counters of
+ * {@link Metrics}.
+ *
+ * @see Retries
+ */
+public class RetryPolicy
+{
+
+	/**
+	 * The kind of a failed call, see {@link RetryPolicy}.
+	 */
+	public enum Failure
+	{
+		/** The call was refused because of the service's quota. */
+		RATE_LIMITED,
+		/** The call failed, but may succeed when repeated. */
+		TRANSIENT,
+		/** The call will not succeed when repeated. */
+		FATAL
+	}
+
+	/**
+	 * The state of the circuit breaker.
+	 */
+	private enum State
+	{
+		/** Calls are let through. */
+		CLOSED,
+		/** Calls are refused. */
+		OPEN,
+		/** One trial call is let through. */
+		HALF_OPEN
+	}
+
+	/** The maximum number of retries stored in the budget. */
+	public static final double BUDGET = 10;
+
+	/** The part of a retry given back to the budget by every successful call. */
+	public static final double BUDGET_RATIO = 0.1;
+
+	/** The number of transient failures in a row that opens the circuit. */
+	public static final int FAILURE_THRESHOLD = 5;
+
+	/** The policy's name, usually the name of the endpoint's {@link TokenBucket}. */
+	private final String name;
+
+	/** The maximum number of attempts of one call. */
+	private final int maxAttempts;
+
+	/** The delay after the first failure, in milliseconds. */
+	private final long baseDelay;
+
+	/** The maximum delay between attempts, in milliseconds. */
+	private final long maxDelay;
+
+	/** The time for which the circuit stays open, in milliseconds. */
+	private final long openTime;
+
+	/** The source of jitter. */
+	private final Random random = new Random();
+
+	/** The retries currently available. */
+	private double budget = BUDGET;
+
+	/** The state of the circuit breaker. */
+	private State state = State.CLOSED;
+
+	/** The number of transient failures in a row. */
+	private int failures;
+
+	/** The time the circuit was opened at, as returned by System.nanoTime(). */
+	private long openedAt;
+
+	/** Whether the trial call of a half-open circuit is in progress. */
+	private boolean trial;
+
+	/** The thread making the trial call. */
+	private Thread trialThread;
+
+	/** Number of retries. */
+	private final AtomicLong retries;
+
+	/** Number of calls given up. */
+	private final AtomicLong givenUp;
+
+	/** Number of calls refused by the open circuit. */
+	private final AtomicLong rejected;
+
+
+	/**
+	 * Instantiates a new policy with a closed circuit and a full budget, whose circuit stays open
+	 * for {@link Retries#DEFAULT_OPEN_TIME}.
+	 *
+	 * @param name
+	 *            the policy's name.
+	 * @param maxAttempts
+	 *            the maximum number of attempts of one call (at least 1).
+	 * @param baseDelay
+	 *            the delay after the first failure, in milliseconds; it doubles with every next
+	 *            attempt.
+	 * @param maxDelay
+	 *            the maximum delay between attempts, in milliseconds.
+	 */
+	public RetryPolicy(String name, int maxAttempts, long baseDelay, long maxDelay)
+	{
+		this(name, maxAttempts, baseDelay, maxDelay, Retries.DEFAULT_OPEN_TIME);
+	}
+
+
+	/**
+	 * Instantiates a new policy with a closed circuit and a full budget.
+	 *
+	 * @param name
+	 *            the policy's name.
+	 * @param maxAttempts
+	 *            the maximum number of attempts of one call (at least 1).
+	 * @param baseDelay
+	 *            the delay after the first failure, in milliseconds; it doubles with every next
+	 *            attempt.
+	 * @param maxDelay
+	 *            the maximum delay between attempts, in milliseconds.
+	 * @param openTime
+	 *            the time for which the circuit stays open, in milliseconds.
+	 */
+	public RetryPolicy(String name, int maxAttempts, long baseDelay, long maxDelay, long openTime)
+	{
+		this.name = name;
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.baseDelay = Math.max(1, baseDelay);
+		this.maxDelay = Math.max(this.baseDelay, maxDelay);
+		this.openTime = Math.max(1, openTime);
+		this.retries = Metrics.counter("retry." + name + ".retries");
+		this.givenUp = Metrics.counter("retry." + name + ".givenUp");
+		this.rejected = Metrics.counter("retry." + name + ".rejected");
+	}
+
+
+	/**
+	 * Checks whether a call may be made now. Must be called before every attempt; when it does
+	 * not throw, {@link #finished()} must be called after the attempt.
+	 *
+	 * @throws CircuitOpenException
+	 *             thrown when the circuit is open and the call must not be made.
+	 */
+	public synchronized void before() throws CircuitOpenException
+	{
+		if (state == State.OPEN)
+		{
+			long remaining = openTime - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAt);
+			if (remaining > 0)
+			{
+				rejected.incrementAndGet();
+				throw new CircuitOpenException(name, remaining);
+			}
+			state = State.HALF_OPEN;
+			trial = false;
+		}
+
+		if (state == State.HALF_OPEN)
+		{
+			if (trial)
+			{
+				rejected.incrementAndGet();
+				throw new CircuitOpenException(name, baseDelay);
+			}
+			trial = true;
+			trialThread = Thread.currentThread();
+		}
+	}
+
+
+	/**
+	 * Records the end of an attempt let through by {@link #before()}, whatever its outcome. If it
+	 * was the trial call of a half-open circuit and neither {@link #succeeded()} nor
+	 * {@link #failed(int, Failure, long)} has been called for it (e.g. it was interrupted or threw
+	 * an unexpected exception), the trial ends without changing the circuit, so that the next call
+	 * becomes the trial.
+	 */
+	public synchronized void finished()
+	{
+		if (state == State.HALF_OPEN && trial && trialThread == Thread.currentThread())
+		{
+			trial = false;
+			trialThread = null;
+		}
+	}
+
+
+	/**
+	 * Records a successful call: closes the circuit and adds to the retry budget.
+	 */
+	public synchronized void succeeded()
+	{
+		close();
+		budget = Math.min(BUDGET, budget + BUDGET_RATIO);
+	}
+
+
+	/**
+	 * Records a failed call and decides whether it should be retried.
+	 *
+	 * @param attempt
+	 *            the number of the failed attempt, counted from 1.
+	 * @param failure
+	 *            the kind of failure.
+	 * @param retryAfter
+	 *            the time after which the service allows calls again, in milliseconds, or a value
+	 *            less than 1 if it did not say.
+	 * @return the time to wait before the next attempt in milliseconds, or -1 if the call should
+	 *         not be retried.
+	 */
+	public synchronized long failed(int attempt, Failure failure, long retryAfter)
+	{
+		long delay = -1;
+		switch (failure)
+		{
+			case FATAL:
+				// The service has answered, so it works.
+				close();
+				break;
+
+			case RATE_LIMITED:
+				close();
+				if (attempt < maxAttempts)
+					delay = retryAfter > 0 ? retryAfter : backoff(attempt);
+				break;
+
+			case TRANSIENT:
+				failures++;
+				if (state == State.HALF_OPEN || failures >= FAILURE_THRESHOLD)
+				{
+					open();
+					if (attempt < maxAttempts)
+						delay = openTime;
+				}
+				else if (attempt < maxAttempts && budget >= 1)
+				{
+					budget -= 1;
+					delay = backoff(attempt);
+				}
+				break;
+		}
+
+		if (delay < 0)
+			givenUp.incrementAndGet();
+		else
+			retries.incrementAndGet();
+		return delay;
+	}
+
+
+	/**
+	 * Computes the delay before the next attempt: a random time between 0 and the base delay
+	 * doubled with every attempt (but not more than the maximum delay).
+	 *
+	 * @param attempt
+	 *            the number of the failed attempt, counted from 1.
+	 * @return the delay in milliseconds.
+	 */
+	private long backoff(int attempt)
+	{
+		long cap = baseDelay << Math.min(attempt - 1, 30);
+		if (cap <= 0 || cap > maxDelay)
+			cap = maxDelay;
+		return 1 + (long) (random.nextDouble() * cap);
+	}
+
+
+	/**
+	 * Opens the circuit.
+	 */
+	private void open()
+	{
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+		trial = false;
+		trialThread = null;
+	}
+
+
+	/**
+	 * Closes the circuit.
+	 */
+	private void close()
+	{
+		state = State.CLOSED;
+		failures = 0;
+		trial = false;
+		trialThread = null;
+	}
+
+
+	/**
+	 * Gets the policy's name.
+	 *
+	 * @return the name
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+
+	/**
+	 * Gets the maximum number of attempts of one call.
+	 *
+	 * @return the number of attempts
+	 */
+	public int getMaxAttempts()
+	{
+		return maxAttempts;
+	}
+
+
+	/**
+	 * Checks whether the circuit is open (or half-open) now.
+	 *
+	 * @return true if calls are refused
+	 */
+	public synchronized boolean isOpen()
+	{
+		return state != State.CLOSED;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return name + ": " + retries.get() + " retries, " + givenUp.get() + " given up, "
+				+ rejected.get() + " rejected" + (isOpen() ? " (circuit open)" : "");
+	}
+
+}
@@ -0,0 +1,118 @@
+package ytharvest.throttle;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * The registry of named {@link TokenBucket} objects shared by the whole application.
+ * <br><br>
+ *
+ * Callers ask for a bucket by the name of the endpoint they are about to call and take a token from
+ * it before each call. Buckets that have not been configured with
+ * {@link #configure(String, double, int, String)} do not limit anything, so a library used without
+ * any configuration behaves exactly as if there was no throttling.
+ */
+public class Throttle
+{
+
+	/** The bucket shared by all GData calls. */
+	public static final String GDATA = "gdata";
+
+	/** The bucket used for downloading single GData entries. */
+	public static final String GDATA_ENTRY = "gdata.entry";
+
+	/** The bucket used for downloading GData feeds. */
+	public static final String GDATA_FEED = "gdata.feed";
+
+	/** All buckets, by name. */
+	private static final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+
+	static
+	{
+		configureGData(0, 1);
+	}
+
+
+	/**
+	 * Private constructor, the class has only static members.
+	 */
+	private Throttle()
+	{
+	}
+
+
+	/**
+	 * Creates (or replaces) the bucket of given name.
+	 *
+	 * @param name
+	 *            the name of the bucket.
+	 * @param callsPerHour
+	 *            the long-term limit of calls per hour; 0 or less means no limit.
+	 * @param burst
+	 *            the maximum number of calls that may be made at once.
+	 * @param parent
+	 *            the name of the bucket charged for every token taken from this one, or null.
+	 * @return the new bucket.
+	 */
+	public static TokenBucket configure(String name, double callsPerHour, int burst, String parent)
+	{
+		TokenBucket bucket = new TokenBucket(name, callsPerHour, burst, parent != null ? get(parent)
+				: null);
+		buckets.put(name, bucket);
+		return bucket;
+	}
+
+
+	/**
+	 * Configures the limit shared by all GData calls. Entries and feeds get their own, unlimited
+	 * buckets charging the shared one.
+	 *
+	 * @param callsPerHour
+	 *            the limit of calls per hour; 0 or less means no limit.
+	 * @param burst
+	 *            the maximum number of calls that may be made at once.
+	 */
+	public static void configureGData(double callsPerHour, int burst)
+	{
+		configure(GDATA, callsPerHour, burst, null);
+		configure(GDATA_ENTRY, 0, 1, GDATA);
+		configure(GDATA_FEED, 0, 1, GDATA);
+	}
+
+
+	/**
+	 * Gets the bucket of given name. An unlimited bucket is created if there is none yet.
+	 *
+	 * @param name
+	 *            the name of the bucket.
+	 * @return the bucket.
+	 */
+	public static TokenBucket get(String name)
+	{
+		TokenBucket bucket = buckets.get(name);
+		if (bucket == null)
+		{
+			TokenBucket created = new TokenBucket(name, 0, 1, null);
+			bucket = buckets.putIfAbsent(name, created);
+			if (bucket == null)
+				bucket = created;
+		}
+		return bucket;
+	}
+
+
+	/**
+	 * Gets all the buckets, e.g. to print their statistics.
+	 *
+	 * @return the buckets.
+	 */
+	public static Collection<TokenBucket> getBuckets()
+	{
+		return new ArrayList<TokenBucket>(buckets.values());
+	}
+
+}
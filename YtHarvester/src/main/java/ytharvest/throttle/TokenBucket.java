@@ -0,0 +1,290 @@
+package ytharvest.throttle;
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ytharvest.metrics.Histogram;
+import ytharvest.metrics.Metrics;
+
+
+/**
+ * A token bucket limiting the rate of calls made to a remote service.
+ * <br><br>
+ *
+ * The bucket is refilled with tokens at a constant rate and holds at most <i>burst</i> of them, so
+ * that after a period of inactivity up to <i>burst</i> calls may be made at once, while in the long
+ * run the rate never exceeds the configured one. Every call takes one token, either waiting for it
+ * ({@link #acquire()}) or giving up when none is available ({@link #tryAcquire()}).
+ * <br><br>
+ *
+ * A bucket may have a parent bucket, which is charged for every token taken from its children. This
+ * way several endpoints with their own limits may share one limit of the whole service.
+ * <br><br>
+ *
+ * Buckets are thread-safe. Waiting threads do not hold any lock - each of them reserves its token
+ * in advance and then sleeps until the reserved token is due.
+ * <br><br>
+ *
+ * Waits for tokens are recorded in the <i>throttle.&lt;name&gt;</i> histogram of {@link Metrics}.
+ *
+ * @see Throttle
+ */
+public class TokenBucket
+{
+
+	/** The bucket's name, used in statistics. */
+	private final String name;
+
+	/** Tokens added per nanosecond, or 0 when the bucket is unlimited. */
+	private final double rate;
+
+	/** Maximum number of tokens stored. */
+	private final double burst;
+
+	/** The parent bucket, charged for each token taken from this one. May be null. */
+	private final TokenBucket parent;
+
+	/** Tokens currently available. Becomes negative when tokens are reserved by waiting threads. */
+	private double tokens;
+
+	/** No calls are let through before this time, see {@link #pause(long)}. */
+	private long pausedUntil;
+
+	/** The time of the last refill, as returned by System.nanoTime(). */
+	private long lastRefill;
+
+	/** Number of tokens handed out. */
+	private final AtomicLong acquired = new AtomicLong();
+
+	/** Number of refused {@link #tryAcquire()} calls. */
+	private final AtomicLong rejected = new AtomicLong();
+
+	/** Number of calls that had to wait for their token. */
+	private final AtomicLong throttled = new AtomicLong();
+
+	/** Total time spent waiting for tokens, in nanoseconds. */
+	private final AtomicLong throttledTime = new AtomicLong();
+
+	/** Waits for tokens of this bucket, in nanoseconds. */
+	private final Histogram waits;
+
+
+	/**
+	 * Instantiates a new, full token bucket.
+	 *
+	 * @param name
+	 *            the bucket's name.
+	 * @param callsPerHour
+	 *            the long-term limit of calls per hour; 0 or less means no limit.
+	 * @param burst
+	 *            the maximum number of calls that may be made at once (at least 1).
+	 * @param parent
+	 *            the bucket charged for every token taken from this one, or null.
+	 */
+	public TokenBucket(String name, double callsPerHour, int burst, TokenBucket parent)
+	{
+		this.name = name;
+		this.rate = callsPerHour > 0 ? callsPerHour / TimeUnit.HOURS.toNanos(1) : 0;
+		this.burst = Math.max(1, burst);
+		this.parent = parent;
+		this.tokens = this.burst;
+		this.lastRefill = System.nanoTime();
+		this.pausedUntil = lastRefill;
+		this.waits = Metrics.histogram("throttle." + name);
+	}
+
+
+	/**
+	 * Takes one token, waiting until it is available (first in the parent bucket, then in this
+	 * one).
+	 *
+	 * @throws InterruptedException
+	 *             thrown when the calling thread is interrupted while waiting.
+	 */
+	public void acquire() throws InterruptedException
+	{
+		if (parent != null)
+			parent.acquire();
+
+		long wait = reserve();
+		acquired.incrementAndGet();
+
+		if (wait > 0)
+		{
+			throttled.incrementAndGet();
+			throttledTime.addAndGet(wait);
+			waits.record(wait);
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+
+	/**
+	 * Takes one token if it is available right now, in this bucket and in its parent.
+	 *
+	 * @return true if the token was taken and the call may be made, false otherwise.
+	 */
+	public boolean tryAcquire()
+	{
+		if (!take())
+		{
+			rejected.incrementAndGet();
+			return false;
+		}
+
+		if (parent != null && !parent.tryAcquire())
+		{
+			giveBack();
+			rejected.incrementAndGet();
+			return false;
+		}
+
+		acquired.incrementAndGet();
+		return true;
+	}
+
+
+	/**
+	 * Holds back all calls for given time, e.g. after the service has replied that its quota is
+	 * exceeded. Tokens already stored are dropped.
+	 *
+	 * @param millis
+	 *            the time in milliseconds.
+	 */
+	public synchronized void pause(long millis)
+	{
+		refill();
+		tokens = Math.min(tokens, 0);
+		pausedUntil = Math.max(pausedUntil, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+
+	/**
+	 * Reserves one token.
+	 *
+	 * @return the time in nanoseconds after which the reserved token is due.
+	 */
+	private synchronized long reserve()
+	{
+		long now = System.nanoTime();
+		long wait = 0;
+		if (rate > 0)
+		{
+			refill();
+			tokens -= 1;
+			if (tokens < 0)
+				wait = (long) Math.ceil(-tokens / rate);
+		}
+		return Math.max(wait, pausedUntil - now);
+	}
+
+
+	/**
+	 * Takes one token if it is available.
+	 *
+	 * @return true if the token was taken.
+	 */
+	private synchronized boolean take()
+	{
+		if (pausedUntil - System.nanoTime() > 0)
+			return false;
+		if (rate == 0)
+			return true;
+
+		refill();
+		if (tokens < 1)
+			return false;
+		tokens -= 1;
+		return true;
+	}
+
+
+	/**
+	 * Returns the token taken by {@link #take()}.
+	 */
+	private synchronized void giveBack()
+	{
+		if (rate > 0)
+			tokens = Math.min(burst, tokens + 1);
+	}
+
+
+	/**
+	 * Adds tokens due since the last refill.
+	 */
+	private void refill()
+	{
+		long now = System.nanoTime();
+		if (now > lastRefill)
+		{
+			tokens = Math.min(burst, tokens + (now - lastRefill) * rate);
+			lastRefill = now;
+		}
+	}
+
+
+	/**
+	 * Gets the bucket's name.
+	 *
+	 * @return the name
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+
+	/**
+	 * Gets the number of tokens handed out so far.
+	 *
+	 * @return the number of tokens
+	 */
+	public long getAcquired()
+	{
+		return acquired.get();
+	}
+
+
+	/**
+	 * Gets the number of refused {@link #tryAcquire()} calls.
+	 *
+	 * @return the number of calls
+	 */
+	public long getRejected()
+	{
+		return rejected.get();
+	}
+
+
+	/**
+	 * Gets the number of calls that had to wait for their token.
+	 *
+	 * @return the number of calls
+	 */
+	public long getThrottled()
+	{
+		return throttled.get();
+	}
+
+
+	/**
+	 * Gets the total time calls spent waiting for tokens of this bucket (not including the time
+	 * spent waiting for the parent bucket).
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getThrottledTime()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(throttledTime.get());
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return name + ": " + getAcquired() + " calls, " + getThrottled() + " throttled for "
+				+ getThrottledTime() + " ms, " + getRejected() + " rejected";
+	}
+
+}
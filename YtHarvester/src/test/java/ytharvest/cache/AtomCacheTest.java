@@ -0,0 +1,161 @@
+package ytharvest.cache;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of {@link AtomCache}, in a temporary directory.
+ */
+public class AtomCacheTest extends TestCase
+{
+
+	/** The directory of the cache. */
+	private File dir;
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		dir = File.createTempFile("atomcache", "");
+		dir.delete();
+	}
+
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File f : files)
+				f.delete();
+		dir.delete();
+	}
+
+
+	public void testStoresResponseWithEtag() throws Exception
+	{
+		AtomCache cache = new AtomCache(dir, 1 << 20);
+		cache.write("http://a", response("\"e1\"", "<feed>a</feed>"));
+
+		assertEquals("\"e1\"", cache.getEtag("http://a"));
+		Response read = cache.read("http://a");
+		assertEquals("\"e1\"", read.getEtag());
+		assertEquals("application/atom+xml", read.getContentType());
+		assertEquals("<feed>a</feed>", new String(read.getBody(), "UTF-8"));
+	}
+
+
+	public void testReplacesResponse() throws Exception
+	{
+		AtomCache cache = new AtomCache(dir, 1 << 20);
+		cache.write("http://a", response("\"e1\"", "<feed>a</feed>"));
+		long bytes = cache.getBytes();
+		cache.write("http://a", response("\"e2\"", "<feed>b</feed>"));
+
+		assertEquals(1, cache.size());
+		assertEquals(bytes, cache.getBytes());
+		assertEquals("\"e2\"", cache.getEtag("http://a"));
+		assertEquals("<feed>b</feed>", new String(cache.read("http://a").getBody(), "UTF-8"));
+	}
+
+
+	public void testResponseWithoutEtagIsNotStored() throws Exception
+	{
+		AtomCache cache = new AtomCache(dir, 1 << 20);
+		cache.write("http://a", response("\"e1\"", "<feed>a</feed>"));
+		cache.write("http://a", response(null, "<feed>b</feed>"));
+
+		assertNull(cache.getEtag("http://a"));
+		assertNull(cache.read("http://a"));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getBytes());
+	}
+
+
+	public void testEvictsLeastRecentlyUsed() throws Exception
+	{
+		AtomCache probe = new AtomCache(dir, 1 << 20);
+		probe.write("http://a", response("\"e\"", body(1000)));
+		long size = probe.getBytes();
+		tearDown();
+
+		AtomCache cache = new AtomCache(dir, 3 * size);
+		cache.write("http://a", response("\"e\"", body(1000)));
+		cache.write("http://b", response("\"e\"", body(1000)));
+		cache.write("http://c", response("\"e\"", body(1000)));
+		assertNotNull(cache.read("http://a"));
+		cache.write("http://d", response("\"e\"", body(1000)));
+
+		assertEquals(3, cache.size());
+		assertTrue(cache.getBytes() <= 3 * size);
+		assertNotNull(cache.getEtag("http://a"));
+		assertNull(cache.getEtag("http://b"));
+		assertEquals(3, dir.listFiles().length);
+	}
+
+
+	public void testResponsesSurviveReopening() throws Exception
+	{
+		AtomCache cache = new AtomCache(dir, 1 << 20);
+		cache.write("http://a", response("\"e1\"", "<feed>a</feed>"));
+		cache.write("http://b", response("\"e2\"", "<feed>b</feed>"));
+
+		AtomCache reopened = new AtomCache(dir, 1 << 20);
+		assertEquals(2, reopened.size());
+		assertEquals(cache.getBytes(), reopened.getBytes());
+		assertEquals("\"e2\"", reopened.getEtag("http://b"));
+		assertEquals("<feed>a</feed>", new String(reopened.read("http://a").getBody(), "UTF-8"));
+	}
+
+
+	public void testUnreadableFilesAreDropped() throws Exception
+	{
+		dir.mkdirs();
+		try (FileOutputStream out = new FileOutputStream(new File(dir, "broken.atom")))
+		{
+			out.write(new byte[] { 1, 2, 3 });
+		}
+		new FileOutputStream(new File(dir, "left.1.tmp")).close();
+
+		AtomCache cache = new AtomCache(dir, 1 << 20);
+		assertEquals(0, cache.size());
+		assertEquals(0, dir.listFiles().length);
+	}
+
+
+	/**
+	 * Creates a response of an Atom document.
+	 *
+	 * @param etag
+	 *            the ETag.
+	 * @param body
+	 *            the body.
+	 * @return the response.
+	 */
+	private static Response response(String etag, String body) throws IOException
+	{
+		return new Response(etag, "application/atom+xml", body.getBytes("UTF-8"));
+	}
+
+
+	/**
+	 * Creates a body of the given length.
+	 *
+	 * @param length
+	 *            the length.
+	 * @return the body.
+	 */
+	private static String body(int length)
+	{
+		char[] body = new char[length];
+		Arrays.fill(body, 'x');
+		return new String(body);
+	}
+
+}
@@ -0,0 +1,224 @@
+package ytharvest.cache;
+
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+import ytharvest.metrics.Metrics;
+
+
+/**
+ * Tests of {@link EntityCache}. Every test uses a cache of its own name, as counters of
+ * {@link Metrics} are shared by name.
+ */
+public class EntityCacheTest extends TestCase
+{
+
+	/** The number of calls of loaders created by {@link #loader(String)}. */
+	private final AtomicInteger loads = new AtomicInteger();
+
+
+	public void testLoadsOnce() throws Exception
+	{
+		EntityCache<String> cache = new EntityCache<>("test.loadsOnce", 10, 0, TimeUnit.SECONDS);
+
+		assertEquals("value of a", cache.get("a", loader("a")));
+		assertEquals("value of a", cache.get("a", loader("a")));
+		assertEquals("value of a", cache.getIfPresent("a"));
+
+		assertEquals(1, loads.get());
+		assertEquals(2, Metrics.counter("cache.test.loadsOnce.hits").get());
+		assertEquals(1, Metrics.counter("cache.test.loadsOnce.misses").get());
+	}
+
+
+	public void testFailedLoadIsNotCached() throws Exception
+	{
+		EntityCache<String> cache = new EntityCache<>("test.failedLoad", 10, 0, TimeUnit.SECONDS);
+
+		try
+		{
+			cache.get("a", new Callable<String>()
+			{
+				@Override
+				public String call() throws Exception
+				{
+					throw new IOException("no network");
+				}
+			});
+			fail("Failure of the loader not reported");
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof IOException);
+		}
+
+		assertNull(cache.getIfPresent("a"));
+		assertEquals("value of a", cache.get("a", loader("a")));
+		assertEquals(1, loads.get());
+	}
+
+
+	public void testConcurrentLoadsAreShared() throws Exception
+	{
+		final EntityCache<String> cache = new EntityCache<>("test.coalesced", 10, 0,
+				TimeUnit.SECONDS);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final String[] results = new String[2];
+
+		Thread first = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					results[0] = cache.get("a", new Callable<String>()
+					{
+						@Override
+						public String call() throws Exception
+						{
+							started.countDown();
+							release.await();
+							return loader("a").call();
+						}
+					});
+				}
+				catch (ExecutionException | InterruptedException e)
+				{
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		Thread second = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					results[1] = cache.get("a", loader("a"));
+				}
+				catch (ExecutionException | InterruptedException e)
+				{
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+
+		first.start();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		second.start();
+		waitFor(Metrics.counter("cache.test.coalesced.coalesced"), 1);
+		release.countDown();
+		first.join(5000);
+		second.join(5000);
+
+		assertEquals("value of a", results[0]);
+		assertEquals("value of a", results[1]);
+		assertEquals(1, loads.get());
+	}
+
+
+	public void testEntriesExpire() throws Exception
+	{
+		EntityCache<String> cache = new EntityCache<>("test.expire", 10, 50, TimeUnit.MILLISECONDS);
+		cache.put("a", "value of a");
+		assertEquals("value of a", cache.getIfPresent("a"));
+
+		Thread.sleep(80);
+		assertNull(cache.getIfPresent("a"));
+		assertEquals(0, cache.size());
+		assertEquals(1, Metrics.counter("cache.test.expire.expired").get());
+	}
+
+
+	public void testSizeIsBounded()
+	{
+		EntityCache<String> cache = new EntityCache<>("test.bounded", 10, 0, TimeUnit.SECONDS);
+		for (int i = 0; i < 100; i++)
+			cache.put("key" + i, "value" + i);
+
+		assertEquals(10, cache.size());
+		assertEquals(90, Metrics.counter("cache.test.bounded.evictions").get());
+	}
+
+
+	public void testFrequentEntriesSurviveScan() throws Exception
+	{
+		EntityCache<String> cache = new EntityCache<>("test.scan", 100, 0, TimeUnit.SECONDS);
+		for (int round = 0; round < 5; round++)
+			for (int i = 0; i < 50; i++)
+				cache.get("hot" + i, loader("hot" + i));
+
+		// Keys used once must not flush the ones used often.
+		for (int i = 0; i < 200; i++)
+			cache.get("cold" + i, loader("cold" + i));
+
+		int kept = 0;
+		for (int i = 0; i < 50; i++)
+			if (cache.getIfPresent("hot" + i) != null)
+				kept++;
+		assertEquals(50, kept);
+		assertTrue(cache.size() <= 100);
+	}
+
+
+	public void testInvalidate() throws Exception
+	{
+		EntityCache<String> cache = new EntityCache<>("test.invalidate", 10, 0, TimeUnit.SECONDS);
+		cache.get("a", loader("a"));
+		cache.invalidate("a");
+
+		assertNull(cache.getIfPresent("a"));
+		assertEquals(0, cache.size());
+		cache.get("a", loader("a"));
+		assertEquals(2, loads.get());
+	}
+
+
+	/**
+	 * Waits up to 5 seconds until a counter reaches a value.
+	 *
+	 * @param counter
+	 *            the counter.
+	 * @param value
+	 *            the value.
+	 */
+	private static void waitFor(AtomicLong counter, long value) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 5000;
+		while (counter.get() < value && System.currentTimeMillis() < deadline)
+			Thread.sleep(1);
+		assertEquals(value, counter.get());
+	}
+
+
+	/**
+	 * Creates a loader counting its calls in {@link #loads}.
+	 *
+	 * @param key
+	 *            the key to load.
+	 * @return the loader, giving "value of &lt;key&gt;".
+	 */
+	private Callable<String> loader(final String key)
+	{
+		return new Callable<String>()
+		{
+			@Override
+			public String call()
+			{
+				loads.incrementAndGet();
+				return "value of " + key;
+			}
+		};
+	}
+
+}
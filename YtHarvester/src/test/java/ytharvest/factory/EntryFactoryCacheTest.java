@@ -0,0 +1,144 @@
+package ytharvest.factory;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ytharvest.cache.AtomCache;
+import ytharvest.factory.entities.ExtractedFeed;
+import ytharvest.factory.entities.ExtractedVideo;
+
+import com.google.gdata.client.youtube.YouTubeService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * Tests of {@link EntryFactory} downloading through {@link AtomCache}, against a local HTTP server
+ * serving a video feed with an ETag.
+ */
+public class EntryFactoryCacheTest extends TestCase
+{
+
+	/** The ETag of the feed. */
+	private static final String ETAG = "W/\"feed-1\"";
+
+	/** The feed, one video watched 7 times, with the paging elements of both GData versions. */
+	private static final String FEED = "<?xml version='1.0' encoding='UTF-8'?>"
+			+ "<feed xmlns='http://www.w3.org/2005/Atom'"
+			+ " xmlns:openSearch='http://a9.com/-/spec/opensearchrss/1.0/'"
+			+ " xmlns:os='http://a9.com/-/spec/opensearch/1.1/'"
+			+ " xmlns:media='http://search.yahoo.com/mrss/'"
+			+ " xmlns:yt='http://gdata.youtube.com/schemas/2007'>"
+			+ "<id>tag:youtube.com,2008:user:synthetic:uploads</id>"
+			+ "<updated>2013-01-01T00:00:00.000Z</updated><title>uploads</title>"
+			+ "<openSearch:totalResults>1</openSearch:totalResults>"
+			+ "<openSearch:startIndex>1</openSearch:startIndex>"
+			+ "<openSearch:itemsPerPage>25</openSearch:itemsPerPage>"
+			+ "<os:totalResults>1</os:totalResults><os:startIndex>1</os:startIndex>"
+			+ "<os:itemsPerPage>25</os:itemsPerPage>"
+			+ "<entry><id>tag:youtube.com,2008:video:v1</id>"
+			+ "<updated>2013-01-01T00:00:00.000Z</updated><title>v1</title>"
+			+ "<media:group><yt:videoid>v1</yt:videoid></media:group>"
+			+ "<yt:statistics viewCount='7' favoriteCount='0'/></entry></feed>";
+
+	/** The local server. */
+	private HttpServer server;
+
+	/** The If-None-Match headers of the requests, "-" when absent. */
+	private final List<String> conditions = new ArrayList<>();
+
+	/** The directory of the cache. */
+	private File dir;
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/feed", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				String condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+				synchronized (conditions)
+				{
+					conditions.add(condition != null ? condition : "-");
+				}
+
+				exchange.getResponseHeaders().set("ETag", ETAG);
+				if (ETAG.equals(condition))
+				{
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+					return;
+				}
+
+				byte[] body = FEED.getBytes("UTF-8");
+				exchange.getResponseHeaders().set("Content-Type",
+						"application/atom+xml; charset=UTF-8");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody())
+				{
+					out.write(body);
+				}
+			}
+		});
+		server.start();
+
+		dir = File.createTempFile("atomcache", "");
+		dir.delete();
+	}
+
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		server.stop(0);
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File f : files)
+				f.delete();
+		dir.delete();
+	}
+
+
+	public void testRevalidatesCachedResponse() throws Exception
+	{
+		String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/feed";
+		EntryFactory factory = new EntryFactory(new YouTubeService("test"), new AtomCache(dir,
+				1 << 20));
+
+		ExtractedFeed downloaded = factory.getVideoFeed(url);
+		ExtractedFeed revalidated = factory.getVideoFeed(url);
+
+		assertEquals("[-, " + ETAG + "]", conditions.toString());
+		for (ExtractedFeed feed : new ExtractedFeed[] { downloaded, revalidated })
+		{
+			assertEquals(1, feed.getEntities().size());
+			ExtractedVideo video = (ExtractedVideo) feed.getEntities().iterator().next();
+			assertEquals("v1", video.getVideoId());
+			assertEquals(7, video.getWatchCount());
+		}
+	}
+
+
+	public void testDownloadsAgainWithoutCache() throws Exception
+	{
+		String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/feed";
+		EntryFactory factory = new EntryFactory(new YouTubeService("test"));
+
+		factory.getVideoFeed(url);
+		factory.getVideoFeed(url);
+
+		assertEquals("[-, -]", conditions.toString());
+	}
+
+}
@@ -0,0 +1,165 @@
+package ytharvest.factory;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+import ytharvest.factory.entities.ExtractedVideo;
+import ytharvest.factory.exceptions.HarvServiceException;
+import ytharvest.factory.exceptions.HarvServiceForbiddenException;
+import ytharvest.factory.exceptions.UnretrievableVideoIdException;
+import ytharvest.metrics.Metrics;
+
+import com.google.gdata.data.youtube.VideoEntry;
+import com.google.gdata.data.youtube.YouTubeMediaGroup;
+
+
+/**
+ * Tests of {@link EntryFactoryFacade#getVideoEntries(java.util.Collection)}, with videos given by
+ * a stub instead of GData: an id starting with <i>bad</i> cannot be downloaded, <i>io</i> fails
+ * with IOException, and any other id is a video of that id.
+ */
+public class EntryFactoryFacadeBatchTest extends TestCase
+{
+
+	/** The ids of videos requested from the stub, in the order of requests. */
+	private final List<String> loaded = new ArrayList<>();
+
+	/** Loads of videos other than <i>io</i> wait for it, when set. */
+	private volatile CountDownLatch gate;
+
+	/** The facade loading videos from the stub. */
+	private EntryFactoryFacade facade;
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		facade = new EntryFactoryFacade()
+		{
+			@Override
+			public ExtractedVideo getVideoEntry(String ID) throws UnretrievableVideoIdException,
+					HarvServiceForbiddenException, HarvServiceException, IOException
+			{
+				synchronized (loaded)
+				{
+					loaded.add(ID);
+				}
+				if (ID.equals("io"))
+					throw new IOException("no network");
+				if (ID.startsWith("bad"))
+					throw new HarvServiceException("no such video");
+
+				CountDownLatch g = gate;
+				if (g != null)
+				{
+					try
+					{
+						g.await();
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+				return video(ID);
+			}
+		};
+	}
+
+
+	public void testDuplicatesAreLoadedOnce() throws Exception
+	{
+		Map<String, ExtractedVideo> videos = facade.getVideoEntries(Arrays.asList("a", "b", "a",
+				"b", "a"));
+
+		assertEquals(Arrays.asList("a", "b"), new ArrayList<>(videos.keySet()));
+		assertEquals(2, loaded.size());
+	}
+
+
+	public void testOrderOfArgumentIsKept() throws Exception
+	{
+		List<String> ids = new ArrayList<>();
+		for (int i = 50; i > 0; i--)
+			ids.add("v" + i);
+
+		Map<String, ExtractedVideo> videos = facade.getVideoEntries(ids);
+
+		assertEquals(ids, new ArrayList<>(videos.keySet()));
+		for (Map.Entry<String, ExtractedVideo> e : videos.entrySet())
+			assertEquals(e.getKey(), e.getValue().getVideoId());
+	}
+
+
+	public void testFailedDownloadsAreSkippedAndCounted() throws Exception
+	{
+		AtomicLong failed = Metrics.counter("gdata.batch.failed");
+		long before = failed.get();
+
+		Map<String, ExtractedVideo> videos = facade.getVideoEntries(Arrays.asList("a", "bad1", "b",
+				"bad2"));
+
+		assertEquals(Arrays.asList("a", "b"), new ArrayList<>(videos.keySet()));
+		assertEquals(2, failed.get() - before);
+	}
+
+
+	public void testIOExceptionCancelsTheRest() throws Exception
+	{
+		List<String> ids = new ArrayList<>();
+		ids.add("io");
+		for (int i = 0; i < 100; i++)
+			ids.add("v" + i);
+		gate = new CountDownLatch(1);
+
+		try
+		{
+			facade.getVideoEntries(ids);
+			fail("IOException not passed on");
+		}
+		catch (IOException expected)
+		{
+		}
+		finally
+		{
+			gate.countDown();
+		}
+
+		// Only the downloads already taken by the threads of the pool are made.
+		Thread.sleep(50);
+		synchronized (loaded)
+		{
+			assertTrue(loaded.size() <= 1 + FetchPool.getThreads());
+		}
+	}
+
+
+	/**
+	 * Builds a video.
+	 *
+	 * @param id
+	 *            the id of the video.
+	 * @return the video.
+	 * @throws UnretrievableVideoIdException
+	 *             never thrown, the id is given.
+	 */
+	private static ExtractedVideo video(String id) throws UnretrievableVideoIdException
+	{
+		VideoEntry entry = new VideoEntry();
+		entry.setId("tag:youtube.com,2008:video:" + id);
+
+		YouTubeMediaGroup media = new YouTubeMediaGroup();
+		media.setVideoId(id);
+		media.setUploader("synthetic");
+		entry.setExtension(media);
+		return new ExtractedVideo(entry);
+	}
+
+}
@@ -0,0 +1,276 @@
+package ytharvest.factory.dispatchers;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+import ytharvest.factory.entities.ExtractedEntity;
+import ytharvest.factory.entities.ExtractedFeed;
+import ytharvest.factory.entities.ExtractedVideo;
+import ytharvest.factory.exceptions.FeedExtractionException;
+import ytharvest.factory.exceptions.FeedIterationException;
+import ytharvest.factory.filters.EntityPredicate;
+import ytharvest.factory.filters.EntityPredicates;
+import ytharvest.factory.filters.NullFilter;
+import ytharvest.factory.filters.PredicateFilter;
+import ytharvest.factory.filters.QuantityFilter;
+import ytharvest.metrics.Metrics;
+
+
+/**
+ * Tests of {@link FeedDispatcher}.
+ */
+public class FeedDispatcherTest extends TestCase
+{
+
+	public void testDispatchStopsAtLimit() throws Exception
+	{
+		VideoPages feed = new VideoPages(10, 100);
+		PredicateFilter<ExtractedVideo> filter = new PredicateFilter<>(ExtractedVideo.class,
+				EntityPredicates.<ExtractedVideo> alwaysTrue(), 15);
+
+		Collection<ExtractedEntity> accepted = feed.dispatch(VideoPages.FIRST, filter);
+
+		assertEquals(15, accepted.size());
+		// The rest of the second page is rejected without being checked.
+		assertEquals(5, filter.getRejectedCount());
+		assertEquals(5, filter.getRejectedEntities().size());
+	}
+
+
+	public void testEntitiesAfterLimitAreCountedAsRejected() throws Exception
+	{
+		VideoPages feed = new VideoPages(10, 10);
+		final int[] checked = new int[1];
+		PredicateFilter<ExtractedVideo> filter = new PredicateFilter<>(ExtractedVideo.class,
+				new EntityPredicate<ExtractedVideo>()
+				{
+					@Override
+					public boolean apply(ExtractedVideo video)
+					{
+						checked[0]++;
+						return video.getWatchCount() % 2 == 1;
+					}
+				}, 2);
+
+		feed.dispatch(VideoPages.FIRST, filter);
+
+		assertEquals(4, checked[0]);
+		assertEquals(2, filter.getAcceptedCount());
+		assertEquals(8, filter.getRejectedCount());
+	}
+
+
+	public void testQuantityFilterCountsRestOfPage() throws Exception
+	{
+		VideoPages feed = new VideoPages(10, 100);
+		QuantityFilter filter = new QuantityFilter(25);
+
+		assertEquals(25, feed.dispatch(VideoPages.FIRST, filter).size());
+		assertEquals(5, filter.getRejectedCount());
+	}
+
+
+	public void testIteratorReturnsWholeFeedInOrder()
+	{
+		VideoPages feed = new VideoPages(10, 25);
+		Iterator<ExtractedVideo> it = feed.iterate(VideoPages.FIRST, new NullFilter(),
+				ExtractedVideo.class);
+
+		for (int i = 0; i < 25; i++)
+			assertEquals("v" + i, it.next().getVideoId());
+		assertFalse(it.hasNext());
+		assertEquals(3, feed.getDownloads());
+
+		try
+		{
+			it.next();
+			fail("Iterated past the end of the feed");
+		}
+		catch (NoSuchElementException expected)
+		{
+		}
+	}
+
+
+	public void testIteratorDownloadsPagesWhenNeeded()
+	{
+		VideoPages feed = new VideoPages(10, 100);
+		Iterator<ExtractedVideo> it = feed.iterate(VideoPages.FIRST, new NullFilter(),
+				ExtractedVideo.class);
+		assertEquals(0, feed.getDownloads());
+
+		for (int i = 0; i < 10; i++)
+			it.next();
+		assertEquals(1, feed.getDownloads());
+
+		it.next();
+		assertEquals(2, feed.getDownloads());
+	}
+
+
+	public void testIteratorStopsAtLimitAndDrainsFilter()
+	{
+		VideoPages feed = new VideoPages(10, 100);
+		QuantityFilter filter = new QuantityFilter(15);
+		Iterator<ExtractedVideo> it = feed.iterate(VideoPages.FIRST, filter, ExtractedVideo.class);
+
+		int count = 0;
+		while (it.hasNext())
+		{
+			it.next();
+			count++;
+			// Only the entities of the current page are kept.
+			assertTrue(filter.getAcceptedEntities().size() <= 10);
+		}
+
+		assertEquals(15, count);
+		assertEquals(2, feed.getDownloads());
+		assertEquals(15, filter.getAcceptedCount());
+		assertEquals(5, filter.getRejectedCount());
+		assertTrue(filter.getRejectedEntities().isEmpty());
+	}
+
+
+	public void testIteratorWrapsDownloadFailure()
+	{
+		FeedDispatcher broken = new FeedDispatcher()
+		{
+			@Override
+			protected ExtractedFeed getFeedPage(String url) throws IOException
+			{
+				throw new IOException("no network");
+			}
+		};
+		Iterator<ExtractedEntity> it = broken.iterate(VideoPages.FIRST, new NullFilter(),
+				ExtractedEntity.class);
+
+		try
+		{
+			it.hasNext();
+			fail("Failure not reported");
+		}
+		catch (FeedIterationException e)
+		{
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+
+	public void testParallelDispatchGivesSequentialResult() throws Exception
+	{
+		for (int total : new int[] { 0, 5, 10, 95, 100 })
+		{
+			PredicateFilter<ExtractedVideo> sequential = oddVideos(30);
+			PredicateFilter<ExtractedVideo> parallel = oddVideos(30);
+
+			List<String> expected = ids(new VideoPages(10, total).dispatch(VideoPages.FIRST,
+					sequential));
+			List<String> actual = ids(new VideoPages(10, total).dispatch(VideoPages.FIRST,
+					parallel, 4));
+
+			assertEquals(expected, actual);
+			assertEquals(sequential.getRejectedCount(), parallel.getRejectedCount());
+		}
+	}
+
+
+	public void testParallelDispatchCancelsDownloadsAfterLimit() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		VideoPages feed = new VideoPages(10, 100)
+		{
+			@Override
+			protected ExtractedFeed getFeedPage(String url) throws FeedExtractionException
+			{
+				// Pages after the second one are not downloaded until the test is over.
+				if (url.contains("start-index=") && !url.contains("start-index=11&"))
+				{
+					try
+					{
+						release.await();
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.getFeedPage(url);
+			}
+		};
+		PredicateFilter<ExtractedVideo> filter = new PredicateFilter<>(ExtractedVideo.class,
+				EntityPredicates.<ExtractedVideo> alwaysTrue(), 15);
+		AtomicLong cancelled = Metrics.counter("gdata.feed.cancelled");
+		long before = cancelled.get();
+
+		try
+		{
+			assertEquals(15, feed.dispatch(VideoPages.FIRST, filter, 4).size());
+			assertEquals(5, filter.getRejectedCount());
+			assertEquals(2, feed.getDownloads());
+			assertEquals(3, cancelled.get() - before);
+		}
+		finally
+		{
+			release.countDown();
+		}
+	}
+
+
+	public void testParallelDispatchOfFeedOfUnknownLength() throws Exception
+	{
+		VideoPages feed = new VideoPages(10, 95, false);
+		QuantityFilter filter = new QuantityFilter(1000);
+
+		List<String> actual = ids(feed.dispatch(VideoPages.FIRST, filter, 4));
+
+		assertEquals(95, actual.size());
+		for (int i = 0; i < 95; i++)
+			assertEquals("v" + i, actual.get(i));
+		assertEquals(0, filter.getRejectedCount());
+	}
+
+
+	/**
+	 * Creates a filter accepting videos watched an odd number of times.
+	 *
+	 * @param limit
+	 *            the maximum number of accepted videos.
+	 * @return the filter.
+	 */
+	private static PredicateFilter<ExtractedVideo> oddVideos(int limit)
+	{
+		return new PredicateFilter<>(ExtractedVideo.class, new EntityPredicate<ExtractedVideo>()
+		{
+			@Override
+			public boolean apply(ExtractedVideo video)
+			{
+				return video.getWatchCount() % 2 == 1;
+			}
+		}, limit);
+	}
+
+
+	/**
+	 * Gets the ids of videos, in order.
+	 *
+	 * @param entities
+	 *            the videos.
+	 * @return the ids.
+	 */
+	private static List<String> ids(Collection<ExtractedEntity> entities)
+	{
+		List<String> ids = new ArrayList<>();
+		for (ExtractedEntity entity : entities)
+			ids.add(((ExtractedVideo) entity).getVideoId());
+		return ids;
+	}
+
+}
@@ -0,0 +1,142 @@
+package ytharvest.factory.dispatchers;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ytharvest.factory.entities.ExtractedFeed;
+import ytharvest.factory.exceptions.FeedExtractionException;
+
+import com.google.gdata.data.Link;
+import com.google.gdata.data.youtube.VideoEntry;
+import com.google.gdata.data.youtube.VideoFeed;
+import com.google.gdata.data.youtube.YouTubeMediaGroup;
+import com.google.gdata.data.youtube.YtStatistics;
+
+
+/**
+ * A video feed kept in memory, for tests. Page n (counted from 0) has the address
+ * <i>page:n</i>, or the address of the first page with <i>start-index</i> and <i>max-results</i>
+ * parameters (see {@link ytharvest.factory.URLCreator#getPageAddress(String, int, int)}); video i
+ * (counted from 0) has the id <i>v&lt;i&gt;</i> and was watched i times. Downloaded pages are
+ * counted.
+ */
+public class VideoPages extends FeedDispatcher
+{
+
+	/** The address of the first page. */
+	public static final String FIRST = "page:0";
+
+	/** The number of videos on a page. */
+	private final int pageSize;
+
+	/** The number of videos in the feed. */
+	private final int total;
+
+	/** Whether pages tell the number of videos in the feed. */
+	private final boolean totalKnown;
+
+	/** The number of downloaded pages. */
+	private final AtomicInteger downloads = new AtomicInteger();
+
+
+	/**
+	 * Instantiates a new feed.
+	 *
+	 * @param pageSize
+	 *            the number of videos on a page.
+	 * @param total
+	 *            the number of videos in the feed.
+	 */
+	public VideoPages(int pageSize, int total)
+	{
+		this(pageSize, total, true);
+	}
+
+
+	/**
+	 * Instantiates a new feed.
+	 *
+	 * @param pageSize
+	 *            the number of videos on a page.
+	 * @param total
+	 *            the number of videos in the feed.
+	 * @param totalKnown
+	 *            whether pages tell the number of videos in the feed.
+	 */
+	public VideoPages(int pageSize, int total, boolean totalKnown)
+	{
+		this.pageSize = pageSize;
+		this.total = total;
+		this.totalKnown = totalKnown;
+	}
+
+
+	/**
+	 * Gets the number of downloaded pages.
+	 *
+	 * @return the number of pages
+	 */
+	public int getDownloads()
+	{
+		return downloads.get();
+	}
+
+
+	/**
+	 * Builds a page of the feed.
+	 *
+	 * @see ytharvest.factory.dispatchers.FeedDispatcher#getFeedPage(java.lang.String)
+	 */
+	@Override
+	protected ExtractedFeed getFeedPage(String url) throws FeedExtractionException
+	{
+		downloads.incrementAndGet();
+		int first;
+		int start = url.indexOf("start-index=");
+		if (start < 0)
+			first = Integer.parseInt(url.substring(url.indexOf(':') + 1)) * pageSize;
+		else
+			first = Integer.parseInt(url.substring(start + 12, url.indexOf('&', start))) - 1;
+		int page = first / pageSize;
+		int last = Math.min(first + pageSize, total);
+
+		VideoFeed feed = new VideoFeed();
+		feed.addLink(new Link(Link.Rel.SELF, "application/atom+xml", url));
+		if (last < total)
+			feed.addLink(new Link(Link.Rel.NEXT, "application/atom+xml", "page:" + (page + 1)));
+		feed.setStartIndex(first + 1);
+		feed.setItemsPerPage(pageSize);
+		if (totalKnown)
+			feed.setTotalResults(total);
+
+		for (int i = first; i < last; i++)
+			feed.getEntries().add(video(i));
+
+		return new ExtractedFeed(feed);
+	}
+
+
+	/**
+	 * Builds a video of the feed.
+	 *
+	 * @param i
+	 *            the number of the video.
+	 * @return the video.
+	 */
+	private static VideoEntry video(int i)
+	{
+		VideoEntry entry = new VideoEntry();
+		entry.setId("tag:youtube.com,2008:video:v" + i);
+
+		YouTubeMediaGroup media = new YouTubeMediaGroup();
+		media.setVideoId("v" + i);
+		media.setUploader("synthetic");
+		entry.setExtension(media);
+
+		YtStatistics statistics = new YtStatistics();
+		statistics.setViewCount(i);
+		entry.setStatistics(statistics);
+		return entry;
+	}
+
+}
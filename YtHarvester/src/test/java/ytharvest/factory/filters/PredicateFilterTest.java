@@ -0,0 +1,185 @@
+package ytharvest.factory.filters;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ytharvest.factory.dispatchers.VideoPages;
+import ytharvest.factory.entities.ExtractedEntity;
+import ytharvest.factory.entities.ExtractedEntityVisitor;
+import ytharvest.factory.entities.ExtractedVideo;
+
+
+/**
+ * Tests of {@link PredicateFilter} and {@link EntityPredicates}.
+ */
+public class PredicateFilterTest extends TestCase
+{
+
+	/** Videos v0 to v9, video i watched i times. */
+	private List<ExtractedVideo> videos;
+
+	/** The conditions checked so far, in order. */
+	private final List<String> checked = new ArrayList<>();
+
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		VideoPages feed = new VideoPages(10, 10);
+		videos = new ArrayList<>();
+		for (ExtractedEntity entity : feed.dispatch(VideoPages.FIRST, new NullFilter()))
+			videos.add((ExtractedVideo) entity);
+	}
+
+
+	public void testAndStopsAtFirstConditionNotMet()
+	{
+		EntityPredicate<ExtractedVideo> even = watchedEvenTimes();
+		EntityPredicate<ExtractedVideo> many = watchedAtLeast(5);
+
+		assertTrue(EntityPredicates.<ExtractedVideo> and(even, many).apply(videos.get(6)));
+		assertEquals("[even, atLeast5]", checked.toString());
+
+		checked.clear();
+		assertFalse(EntityPredicates.<ExtractedVideo> and(even, many).apply(videos.get(7)));
+		assertEquals("[even]", checked.toString());
+
+		checked.clear();
+		assertFalse(EntityPredicates.<ExtractedVideo> and(even, many, even).apply(videos.get(4)));
+		assertEquals("[even, atLeast5]", checked.toString());
+	}
+
+
+	public void testOrStopsAtFirstConditionMet()
+	{
+		EntityPredicate<ExtractedVideo> even = watchedEvenTimes();
+		EntityPredicate<ExtractedVideo> many = watchedAtLeast(5);
+
+		assertTrue(EntityPredicates.<ExtractedVideo> or(even, many).apply(videos.get(2)));
+		assertEquals("[even]", checked.toString());
+
+		checked.clear();
+		assertFalse(EntityPredicates.<ExtractedVideo> or(even, many).apply(videos.get(3)));
+		assertEquals("[even, atLeast5]", checked.toString());
+
+		checked.clear();
+		assertFalse(EntityPredicates.<ExtractedVideo> or(many, many, even).apply(videos.get(3)));
+		assertEquals("[atLeast5, atLeast5, even]", checked.toString());
+	}
+
+
+	public void testEmptyCombinations()
+	{
+		assertTrue(EntityPredicates.<ExtractedVideo> and().apply(videos.get(0)));
+		assertFalse(EntityPredicates.<ExtractedVideo> or().apply(videos.get(0)));
+		assertFalse(EntityPredicates.<ExtractedVideo> not(EntityPredicates.<ExtractedVideo> alwaysTrue())
+				.apply(videos.get(0)));
+	}
+
+
+	@SuppressWarnings("unchecked")
+	public void testCombinationDoesNotChangeWithArray()
+	{
+		EntityPredicate<? super ExtractedVideo>[] predicates = new EntityPredicate[] {
+				watchedEvenTimes(), watchedEvenTimes(), watchedEvenTimes() };
+		EntityPredicate<ExtractedVideo> all = EntityPredicates.and(predicates);
+		predicates[1] = EntityPredicates.not(EntityPredicates.<ExtractedVideo> alwaysTrue());
+
+		assertTrue(all.apply(videos.get(2)));
+	}
+
+
+	public void testFilterAcceptsUpToLimit()
+	{
+		PredicateFilter<ExtractedVideo> filter = new PredicateFilter<>(ExtractedVideo.class,
+				watchedEvenTimes(), 3);
+		for (ExtractedVideo video : videos)
+			filter.doFilter(video);
+
+		assertEquals(3, filter.getAcceptedCount());
+		assertEquals(7, filter.getRejectedCount());
+		assertFalse(filter.more());
+		List<String> ids = new ArrayList<>();
+		for (ExtractedEntity entity : filter.getAcceptedEntities())
+			ids.add(((ExtractedVideo) entity).getVideoId());
+		assertEquals("[v0, v2, v4]", ids.toString());
+	}
+
+
+	public void testFilterRejectsOtherTypes()
+	{
+		PredicateFilter<ExtractedVideo> filter = new PredicateFilter<>(ExtractedVideo.class,
+				EntityPredicates.<ExtractedVideo> alwaysTrue());
+		filter.setRetainRejects(false);
+		filter.doFilter(new ExtractedEntity()
+		{
+			@Override
+			public ExtractedEntity accept(ExtractedEntityVisitor visitor)
+			{
+				return visitor.visit(this);
+			}
+		});
+
+		assertEquals(0, filter.getAcceptedCount());
+		assertEquals(1, filter.getRejectedCount());
+		assertTrue(filter.getRejectedEntities().isEmpty());
+		assertTrue(filter.more());
+	}
+
+
+	public void testCopyStartsFromZero()
+	{
+		PredicateFilter<ExtractedVideo> filter = new PredicateFilter<>(ExtractedVideo.class,
+				watchedEvenTimes(), 1);
+		filter.doFilter(videos.get(0));
+		assertFalse(filter.more());
+
+		FeedFilter copy = filter.copy();
+		assertTrue(copy.more());
+		assertEquals(0, copy.getAcceptedCount());
+	}
+
+
+	/**
+	 * Gives a condition met by videos watched an even number of times, recording its checks.
+	 *
+	 * @return the condition.
+	 */
+	private EntityPredicate<ExtractedVideo> watchedEvenTimes()
+	{
+		return new EntityPredicate<ExtractedVideo>()
+		{
+			@Override
+			public boolean apply(ExtractedVideo video)
+			{
+				checked.add("even");
+				return video.getWatchCount() % 2 == 0;
+			}
+		};
+	}
+
+
+	/**
+	 * Gives a condition met by videos watched at least the given number of times, recording its
+	 * checks.
+	 *
+	 * @param count
+	 *            the number of times.
+	 * @return the condition.
+	 */
+	private EntityPredicate<ExtractedVideo> watchedAtLeast(final int count)
+	{
+		return new EntityPredicate<ExtractedVideo>()
+		{
+			@Override
+			public boolean apply(ExtractedVideo video)
+			{
+				checked.add("atLeast" + count);
+				return video.getWatchCount() >= count;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,93 @@
+package ytharvest.metrics;
+
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of {@link Histogram}.
+ */
+public class HistogramTest extends TestCase
+{
+
+	public void testSmallValuesHaveBucketsOfTheirOwn()
+	{
+		for (int value = 0; value < 2 * Histogram.SUB_BUCKETS; value++)
+		{
+			assertEquals(value, Histogram.index(value));
+			assertEquals(value, Histogram.highest(value));
+		}
+	}
+
+
+	public void testPowersOfTwoStartBuckets()
+	{
+		for (int magnitude = 5; magnitude < 63; magnitude++)
+		{
+			long power = 1L << magnitude;
+			int index = Histogram.index(power);
+			assertEquals(index - 1, Histogram.index(power - 1));
+			assertEquals(power - 1, Histogram.highest(index - 1));
+			assertTrue(Histogram.highest(index) >= power);
+		}
+		assertEquals(32, Histogram.index(32));
+		assertEquals(33, Histogram.highest(32));
+		assertEquals(32, Histogram.index(33));
+		assertEquals(33, Histogram.index(34));
+		assertEquals(67, Histogram.highest(Histogram.index(64)));
+	}
+
+
+	public void testBucketsAreContiguousAndNarrow()
+	{
+		for (long value = 1; value < 100000; value += 7)
+		{
+			int index = Histogram.index(value);
+			long highest = Histogram.highest(index);
+			assertTrue(highest >= value);
+			assertTrue(Histogram.highest(index - 1) < value);
+			assertTrue(highest - value <= value / Histogram.SUB_BUCKETS);
+		}
+	}
+
+
+	public void testLongMaxValueFitsTheLastBucket()
+	{
+		int index = Histogram.index(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, Histogram.highest(index));
+
+		Histogram histogram = new Histogram();
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.getMax());
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+	}
+
+
+	public void testPercentilesOfKnownValues()
+	{
+		Histogram histogram = new Histogram();
+		for (int value = 1; value <= 100; value++)
+			histogram.record(value);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(5050, histogram.getSum());
+		assertEquals(1, histogram.getPercentile(0));
+		assertEquals(10, histogram.getPercentile(10));
+		assertEquals(51, histogram.getPercentile(50));
+		assertEquals(99, histogram.getPercentile(99));
+		assertEquals(100, histogram.getPercentile(100));
+	}
+
+
+	public void testEmptyAndNegative()
+	{
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0.0, histogram.getMean(), 0.0);
+
+		histogram.record(-5);
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(99));
+	}
+
+}
@@ -0,0 +1,198 @@
+package ytharvest.throttle;
+
+
+import junit.framework.TestCase;
+import ytharvest.throttle.RetryPolicy.Failure;
+
+
+/**
+ * Tests of {@link RetryPolicy}.
+ */
+public class RetryPolicyTest extends TestCase
+{
+
+	/** The time for which the circuit stays open in tests, in milliseconds. */
+	private static final long OPEN_TIME = 50;
+
+
+	public void testFatalFailureIsNotRetried()
+	{
+		RetryPolicy retry = new RetryPolicy("test.fatal", 5, 1, OPEN_TIME, OPEN_TIME);
+		assertEquals(-1, retry.failed(1, Failure.FATAL, 0));
+	}
+
+
+	public void testRateLimitedFailureWaitsForRetryAfter()
+	{
+		RetryPolicy retry = new RetryPolicy("test.rateLimited", 5, 1, OPEN_TIME, OPEN_TIME);
+		assertEquals(1234, retry.failed(1, Failure.RATE_LIMITED, 1234));
+		assertEquals(-1, retry.failed(5, Failure.RATE_LIMITED, 1234));
+	}
+
+
+	public void testTransientBackoffIsBounded()
+	{
+		RetryPolicy retry = new RetryPolicy("test.backoff", 10, 10, OPEN_TIME, OPEN_TIME);
+		for (int attempt = 1; attempt < 4; attempt++)
+		{
+			long delay = retry.failed(attempt, Failure.TRANSIENT, 0);
+			assertTrue(delay >= 1 && delay <= OPEN_TIME);
+			retry.succeeded();
+		}
+	}
+
+
+	public void testCircuitOpensAfterFailuresInARow() throws Exception
+	{
+		RetryPolicy retry = open("test.opens");
+		try
+		{
+			retry.before();
+			fail("Call let through an open circuit");
+		}
+		catch (CircuitOpenException expected)
+		{
+		}
+	}
+
+
+	public void testCircuitOpenTimeDoesNotDependOnMaxDelay() throws Exception
+	{
+		RetryPolicy retry = new RetryPolicy("test.openTime", 100, 1, Retries.DEFAULT_MAX_DELAY);
+		for (int attempt = 1; attempt <= RetryPolicy.FAILURE_THRESHOLD; attempt++)
+		{
+			retry.before();
+			retry.failed(attempt, Failure.TRANSIENT, 0);
+			retry.finished();
+		}
+		try
+		{
+			retry.before();
+			fail("Call let through an open circuit");
+		}
+		catch (CircuitOpenException expected)
+		{
+			assertTrue(expected.getRetryAfter() > 0);
+			assertTrue(expected.getRetryAfter() <= Retries.DEFAULT_OPEN_TIME);
+		}
+	}
+
+
+	public void testSuccessfulTrialClosesCircuit() throws Exception
+	{
+		RetryPolicy retry = open("test.trialSucceeded");
+		Thread.sleep(OPEN_TIME + 10);
+
+		retry.before();
+		retry.succeeded();
+		retry.finished();
+
+		assertFalse(retry.isOpen());
+		retry.before();
+		retry.finished();
+	}
+
+
+	public void testFailedTrialOpensCircuitAgain() throws Exception
+	{
+		RetryPolicy retry = open("test.trialFailed");
+		Thread.sleep(OPEN_TIME + 10);
+
+		retry.before();
+		assertEquals(OPEN_TIME, retry.failed(1, Failure.TRANSIENT, 0));
+		retry.finished();
+
+		try
+		{
+			retry.before();
+			fail("Call let through a reopened circuit");
+		}
+		catch (CircuitOpenException expected)
+		{
+		}
+	}
+
+
+	public void testOnlyOneTrialAtATime() throws Exception
+	{
+		RetryPolicy retry = open("test.oneTrial");
+		Thread.sleep(OPEN_TIME + 10);
+
+		retry.before();
+		try
+		{
+			retry.before();
+			fail("Second trial let through");
+		}
+		catch (CircuitOpenException expected)
+		{
+		}
+	}
+
+
+	public void testTrialEndedByUnexpectedExceptionAllowsNextTrial() throws Exception
+	{
+		final RetryPolicy retry = open("test.trialThrew");
+		Thread.sleep(OPEN_TIME + 10);
+
+		retry.before();
+		try
+		{
+			throw new IllegalStateException("unexpected");
+		}
+		catch (IllegalStateException expected)
+		{
+		}
+		finally
+		{
+			retry.finished();
+		}
+
+		// Another thread ending its attempt does not end somebody else's trial.
+		retry.before();
+		Thread other = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				retry.finished();
+			}
+		};
+		other.start();
+		other.join();
+		try
+		{
+			retry.before();
+			fail("Second trial let through");
+		}
+		catch (CircuitOpenException expected)
+		{
+		}
+
+		retry.succeeded();
+		retry.finished();
+		assertFalse(retry.isOpen());
+	}
+
+
+	/**
+	 * Creates a policy and opens its circuit with transient failures.
+	 *
+	 * @param name
+	 *            the policy's name.
+	 * @return the policy.
+	 */
+	private static RetryPolicy open(String name) throws CircuitOpenException
+	{
+		RetryPolicy retry = new RetryPolicy(name, 100, 1, OPEN_TIME, OPEN_TIME);
+		for (int attempt = 1; attempt <= RetryPolicy.FAILURE_THRESHOLD; attempt++)
+		{
+			retry.before();
+			retry.failed(attempt, Failure.TRANSIENT, 0);
+			retry.finished();
+		}
+		assertTrue(retry.isOpen());
+		return retry;
+	}
+
+}
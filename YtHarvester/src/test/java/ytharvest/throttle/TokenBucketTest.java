@@ -0,0 +1,123 @@
+package ytharvest.throttle;
+
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests of {@link TokenBucket} and {@link Throttle}, with buckets refilled every
+ * {@link #PERIOD} milliseconds.
+ */
+public class TokenBucketTest extends TestCase
+{
+
+	/** The time in which one token is added, in milliseconds. */
+	private static final long PERIOD = 50;
+
+	/** The limit of calls per hour giving one token every {@link #PERIOD}. */
+	private static final double CALLS_PER_HOUR = 3600 * 1000 / PERIOD;
+
+
+	public void testBurstIsTakenAtOnce()
+	{
+		TokenBucket bucket = new TokenBucket("test.burst", CALLS_PER_HOUR, 3, null);
+		for (int i = 0; i < 3; i++)
+			assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+
+		assertEquals(3, bucket.getAcquired());
+		assertEquals(1, bucket.getRejected());
+	}
+
+
+	public void testBucketIsRefilled() throws Exception
+	{
+		TokenBucket bucket = new TokenBucket("test.refill", CALLS_PER_HOUR, 1, null);
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+
+		Thread.sleep(PERIOD + 10);
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+	}
+
+
+	public void testAcquireWaitsForToken() throws Exception
+	{
+		TokenBucket bucket = new TokenBucket("test.wait", CALLS_PER_HOUR, 1, null);
+		bucket.acquire();
+
+		long start = System.nanoTime();
+		bucket.acquire();
+		bucket.acquire();
+		long waited = (System.nanoTime() - start) / 1000000;
+
+		assertTrue("waited " + waited + " ms", waited >= 2 * PERIOD - 10);
+		assertEquals(3, bucket.getAcquired());
+		assertEquals(2, bucket.getThrottled());
+	}
+
+
+	public void testUnlimitedBucketNeverWaits() throws Exception
+	{
+		TokenBucket bucket = new TokenBucket("test.unlimited", 0, 1, null);
+		for (int i = 0; i < 1000; i++)
+			assertTrue(bucket.tryAcquire());
+		bucket.acquire();
+		assertEquals(0, bucket.getThrottled());
+	}
+
+
+	public void testPauseHoldsBackCalls() throws Exception
+	{
+		TokenBucket bucket = new TokenBucket("test.pause", 0, 1, null);
+		bucket.pause(2 * PERIOD);
+		assertFalse(bucket.tryAcquire());
+
+		long start = System.nanoTime();
+		bucket.acquire();
+		long waited = (System.nanoTime() - start) / 1000000;
+
+		assertTrue("waited " + waited + " ms", waited >= 2 * PERIOD - 10);
+		assertTrue(bucket.tryAcquire());
+	}
+
+
+	public void testPauseDropsStoredTokens()
+	{
+		TokenBucket bucket = new TokenBucket("test.pauseDrops", CALLS_PER_HOUR, 5, null);
+		bucket.pause(0);
+		assertFalse(bucket.tryAcquire());
+	}
+
+
+	public void testParentIsChargedForChildren() throws Exception
+	{
+		TokenBucket parent = new TokenBucket("test.parent", CALLS_PER_HOUR, 1, null);
+		TokenBucket first = new TokenBucket("test.first", 0, 1, parent);
+		TokenBucket second = new TokenBucket("test.second", CALLS_PER_HOUR, 1, parent);
+
+		assertTrue(first.tryAcquire());
+		// The token of the second bucket is given back when the parent refuses the call.
+		assertFalse(second.tryAcquire());
+		assertEquals(1, parent.getAcquired());
+		assertEquals(1, second.getRejected());
+
+		Thread.sleep(PERIOD + 10);
+		assertTrue(second.tryAcquire());
+		assertEquals(2, parent.getAcquired());
+	}
+
+
+	public void testThrottleLinksBucketsByName()
+	{
+		Throttle.configure("test.throttle", CALLS_PER_HOUR, 1, null);
+		TokenBucket child = Throttle.configure("test.throttle.child", 0, 1, "test.throttle");
+
+		assertSame(child, Throttle.get("test.throttle.child"));
+		assertTrue(child.tryAcquire());
+		assertFalse(child.tryAcquire());
+		assertEquals(1, Throttle.get("test.throttle").getAcquired());
+	}
+
+}